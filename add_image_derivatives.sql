@@ -0,0 +1,19 @@
+-- 产品图片衍生图（缩略图/卡片图/横幅图）字段
+-- 上传图片后由 ImageDerivativePipeline 在后台生成并回写；derivative_status=0 的行由定时任务补生成（包括历史图片），
+-- 入队前先把状态改为3（生成中）认领，多个节点不会重复处理；生成中超过30分钟的行视为中断，重新改为0。
+-- 生成失败（2）的图片不会自动重试，修复后把状态改回0即可重新生成
+-- WebP：webp=1 时每个衍生图旁边还有同名的 .webp 文件（例如 xxx_card.jpg 对应 xxx_card.webp）
+
+ALTER TABLE day_tour_images
+    ADD COLUMN card_url VARCHAR(500) NULL COMMENT '卡片图URL（列表卡片）' AFTER thumbnail_url,
+    ADD COLUMN banner_url VARCHAR(500) NULL COMMENT '横幅图URL（详情大图）' AFTER card_url,
+    ADD COLUMN webp TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否同时生成了WebP' AFTER banner_url,
+    ADD COLUMN derivative_status TINYINT NOT NULL DEFAULT 0 COMMENT '衍生图状态：0待生成 1已生成 2生成失败 3生成中' AFTER webp,
+    ADD KEY idx_derivative_status (derivative_status, id);
+
+ALTER TABLE group_tour_images
+    ADD COLUMN card_url VARCHAR(500) NULL COMMENT '卡片图URL（列表卡片）' AFTER thumbnail_url,
+    ADD COLUMN banner_url VARCHAR(500) NULL COMMENT '横幅图URL（详情大图）' AFTER card_url,
+    ADD COLUMN webp TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否同时生成了WebP' AFTER banner_url,
+    ADD COLUMN derivative_status TINYINT NOT NULL DEFAULT 0 COMMENT '衍生图状态：0待生成 1已生成 2生成失败 3生成中' AFTER webp,
+    ADD KEY idx_derivative_status (derivative_status, id);
@@ -0,0 +1,20 @@
+-- 产品列表卡片封面（依赖 add_image_derivatives.sql）
+-- 产品主图的卡片图（card_url）生成后由 ImageDerivativePipeline 回写到 card_image_url；更换主图时按新主图重新取值，
+-- 新主图的卡片图尚未生成时为NULL，列表查询使用 COALESCE(card_image_url, image_url)，此时仍返回原图
+
+ALTER TABLE day_tours
+    ADD COLUMN card_image_url VARCHAR(500) NULL COMMENT '主图卡片图URL（列表卡片封面）' AFTER image_url;
+
+ALTER TABLE group_tours
+    ADD COLUMN card_image_url VARCHAR(500) NULL COMMENT '主图卡片图URL（列表卡片封面）' AFTER image_url;
+
+-- 已生成卡片图的现有主图
+UPDATE day_tours t
+    JOIN day_tour_images i ON i.day_tour_id = t.day_tour_id AND i.is_primary = 1
+        AND i.image_url = t.image_url AND i.derivative_status = 1
+SET t.card_image_url = i.card_url;
+
+UPDATE group_tours t
+    JOIN group_tour_images i ON i.group_tour_id = t.group_tour_id AND i.is_primary = 1
+        AND i.image_url = t.image_url AND i.derivative_status = 1
+SET t.card_image_url = i.card_url;
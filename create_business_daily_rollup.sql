@@ -0,0 +1,41 @@
+-- 营业数据日汇总表（仪表盘、统计报表读取）
+-- 订单按 下单日期 + 产品类型 + 代理商 汇总，注册按日期汇总；
+-- 由订单写操作增量刷新，应用首次启动且汇总表为空时自动回填历史数据，
+-- 也可调用 POST /admin/statistics/rollup/rebuild?begin=&end= 手动重建。
+
+-- 1. 订单日汇总
+CREATE TABLE IF NOT EXISTS business_daily_rollup (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    stat_date DATE NOT NULL COMMENT '下单日期',
+    tour_type VARCHAR(20) NOT NULL DEFAULT '' COMMENT '产品类型 day_tour/group_tour',
+    agent_id BIGINT NOT NULL DEFAULT 0 COMMENT '代理商ID，0表示直客',
+    orders INT NOT NULL DEFAULT 0 COMMENT '订单数',
+    pending INT NOT NULL DEFAULT 0 COMMENT '待处理订单数',
+    confirmed INT NOT NULL DEFAULT 0 COMMENT '已确认订单数',
+    completed INT NOT NULL DEFAULT 0 COMMENT '已完成订单数',
+    cancelled INT NOT NULL DEFAULT 0 COMMENT '已取消订单数',
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '营业额（已完成订单金额）',
+    confirmed_revenue DECIMAL(14,2) NOT NULL DEFAULT 0.00 COMMENT '已确认未完成订单金额',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '汇总时间',
+    UNIQUE KEY uk_date_type_agent (stat_date, tour_type, agent_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='营业数据日汇总';
+
+-- 2. 注册日汇总
+CREATE TABLE IF NOT EXISTS registration_daily_rollup (
+    stat_date DATE PRIMARY KEY COMMENT '注册日期',
+    new_users INT NOT NULL DEFAULT 0 COMMENT '新增用户数',
+    new_agents INT NOT NULL DEFAULT 0 COMMENT '新增代理商数',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '汇总时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='注册数据日汇总';
+
+-- 3. 汇总按天重算时走索引范围扫描
+ALTER TABLE tour_bookings ADD INDEX idx_created_at (created_at);
+ALTER TABLE users ADD INDEX idx_created_at (created_at);
+ALTER TABLE agents ADD INDEX idx_created_at (created_at);
+
+-- 4. 查看汇总结果
+SELECT stat_date, SUM(orders) AS orders, SUM(revenue) AS revenue
+FROM business_daily_rollup
+GROUP BY stat_date
+ORDER BY stat_date DESC
+LIMIT 30;
@@ -0,0 +1,10 @@
+-- 数据库锁表（sky.lock.type=jdbc 时使用）
+-- 每个锁键一行：租约到期时间和 fencing token 都保存在行上，释放时只把租约设为到期，fencing token 继续递增
+CREATE TABLE IF NOT EXISTS distributed_lock (
+    lock_key      VARCHAR(128) NOT NULL COMMENT '锁的键',
+    owner         VARCHAR(64)  NOT NULL COMMENT '当前（或最后一个）持有者标识',
+    fencing_token BIGINT       NOT NULL DEFAULT 1 COMMENT '每次取得锁时加一',
+    expire_at     DATETIME(3)  NOT NULL COMMENT '租约到期时间',
+    PRIMARY KEY (lock_key),
+    KEY idx_expire_at (expire_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='数据库锁';
@@ -15,9 +15,9 @@ import org.springframework.context.annotation.Configuration;
 public class AliOssConfig {
 
     /**
-     * 配置阿里云OSS工具类
+     * 配置阿里云OSS工具类（OSS客户端在工具类内复用，容器关闭时释放）
      */
-    @Bean
+    @Bean(destroyMethod = "shutdown")
     @ConditionalOnMissingBean
     public AliOssUtil aliOssUtil(AliOssProperties aliOssProperties) {
         log.info("开始创建阿里云OSS工具类: {}", aliOssProperties);
@@ -68,6 +68,14 @@ public class BaseContext {
         operatorIdThreadLocal.remove();
     }
     
+    public static void setContext(Long id, String username, String userType, Long agentId, Long operatorId) {
+        threadLocal.set(id);
+        usernameThreadLocal.set(username);
+        userTypeThreadLocal.set(userType);
+        agentIdThreadLocal.set(agentId);
+        operatorIdThreadLocal.set(operatorId);
+    }
+    
     public static void removeAll() {
         threadLocal.remove();
         usernameThreadLocal.remove();
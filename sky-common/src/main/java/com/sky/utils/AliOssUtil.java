@@ -1,10 +1,20 @@
 package com.sky.utils;
 
+import com.aliyun.oss.ClientBuilderConfiguration;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
 import com.aliyun.oss.model.ObjectMetadata;
-import lombok.AllArgsConstructor;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.UploadPartRequest;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -14,23 +24,55 @@ import java.io.InputStream;
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * 阿里云OSS工具类
+ * OSS客户端在第一次使用时创建并一直复用（客户端内部有连接池，线程安全），应用关闭时调用 shutdown 释放；
+ * 上传直接从输入流读取，超过分片阈值的文件按分片上传，内存中最多只保留一个分片。
  */
 @Data
-@AllArgsConstructor
 @Slf4j
 public class AliOssUtil {
 
+    /**
+     * 超过该大小的文件使用分片上传
+     */
+    private static final long MULTIPART_THRESHOLD = 16L * 1024 * 1024;
+
+    /**
+     * 分片大小（OSS要求除最后一片外不小于100KB）
+     */
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    /**
+     * 客户端最大连接数
+     */
+    private static final int MAX_CONNECTIONS = 64;
+
     private String endpoint;
     private String accessKeyId;
     private String accessKeySecret;
     private String bucketName;
     private String cdnDomain;
-    
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile OSS ossClient;
+
+    public AliOssUtil(String endpoint, String accessKeyId, String accessKeySecret, String bucketName, String cdnDomain) {
+        this.endpoint = endpoint;
+        this.accessKeyId = accessKeyId;
+        this.accessKeySecret = accessKeySecret;
+        this.bucketName = bucketName;
+        this.cdnDomain = cdnDomain;
+    }
+
     /**
      * 文件上传
      *
@@ -39,48 +81,117 @@ public class AliOssUtil {
      * @return 访问URL
      */
     public String upload(byte[] bytes, String objectName) {
-        // 创建OSSClient实例
-        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
         try {
-            // 创建上传Object的Metadata
-            ObjectMetadata metadata = new ObjectMetadata();
-            metadata.setContentLength(bytes.length);
-            metadata.setCacheControl("no-cache");
-            metadata.setHeader("Pragma", "no-cache");
-            metadata.setContentType(getContentType(objectName.substring(objectName.lastIndexOf("."))));
-            metadata.setContentDisposition("inline;filename=" + objectName);
-            
-            // 上传文件
-            ossClient.putObject(bucketName, objectName, new ByteArrayInputStream(bytes), metadata);
-            
-            // 如果配置了CDN域名，返回CDN地址；否则返回OSS地址
-            if (cdnDomain != null && !cdnDomain.isEmpty()) {
-                // 确保CDN域名以https://或http://开头
-                String domain = cdnDomain;
-                if (!domain.startsWith("http://") && !domain.startsWith("https://")) {
-                    domain = "https://" + domain;
-                }
-                // 确保域名末尾没有斜杠
-                if (domain.endsWith("/")) {
-                    domain = domain.substring(0, domain.length() - 1);
-                }
-                return domain + "/" + objectName;
-            } else {
-                // 原有逻辑：设置URL过期时间为100年，相当于永久
-                Date expiration = new Date(System.currentTimeMillis() + 3600L * 1000 * 24 * 365 * 100);
-                // 生成URL
-                URL url = ossClient.generatePresignedUrl(bucketName, objectName, expiration);
-                return url.toString();
-            }
+            return upload(new ByteArrayInputStream(bytes), bytes.length, objectName);
         } catch (Exception e) {
             log.error("上传文件失败，{}", e.getMessage());
-        } finally {
-            if (ossClient != null) {
-                ossClient.shutdown();
-            }
         }
         return null;
     }
+
+    /**
+     * 从输入流上传文件，超过分片阈值时分片上传；失败时抛出异常
+     *
+     * @param inputStream 文件内容
+     * @param size        文件大小
+     * @param objectName  对象名称
+     * @return 访问URL
+     */
+    public String upload(InputStream inputStream, long size, String objectName) throws IOException {
+        OSS ossClient = getClient();
+        // 创建上传Object的Metadata
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setCacheControl("no-cache");
+        metadata.setHeader("Pragma", "no-cache");
+        metadata.setContentType(getContentType(objectName));
+        metadata.setContentDisposition("inline;filename=" + objectName);
+
+        if (size > MULTIPART_THRESHOLD) {
+            multipartUpload(ossClient, inputStream, objectName, metadata);
+        } else {
+            metadata.setContentLength(size);
+            ossClient.putObject(bucketName, objectName, inputStream, metadata);
+        }
+        return getUrl(objectName);
+    }
+
+    /**
+     * 对象的访问URL
+     *
+     * @param objectName 对象名称
+     * @return 访问URL
+     */
+    public String getUrl(String objectName) {
+        // 如果配置了CDN域名，返回CDN地址；否则返回OSS地址
+        if (cdnDomain != null && !cdnDomain.isEmpty()) {
+            // 确保CDN域名以https://或http://开头
+            String domain = cdnDomain;
+            if (!domain.startsWith("http://") && !domain.startsWith("https://")) {
+                domain = "https://" + domain;
+            }
+            // 确保域名末尾没有斜杠
+            if (domain.endsWith("/")) {
+                domain = domain.substring(0, domain.length() - 1);
+            }
+            return domain + "/" + objectName;
+        } else {
+            // 原有逻辑：设置URL过期时间为100年，相当于永久
+            Date expiration = new Date(System.currentTimeMillis() + 3600L * 1000 * 24 * 365 * 100);
+            // 生成URL
+            URL url = getClient().generatePresignedUrl(bucketName, objectName, expiration);
+            return url.toString();
+        }
+    }
+
+    /**
+     * 分片上传：每次从流中读满一个分片再上传，失败时取消本次上传
+     */
+    private void multipartUpload(OSS ossClient, InputStream inputStream, String objectName,
+                                 ObjectMetadata metadata) throws IOException {
+        String uploadId = ossClient.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, objectName, metadata)).getUploadId();
+        try {
+            List<PartETag> partETags = new ArrayList<>();
+            byte[] buffer = new byte[PART_SIZE];
+            int partNumber = 1;
+            int length;
+            while ((length = readFully(inputStream, buffer)) > 0) {
+                UploadPartRequest request = new UploadPartRequest();
+                request.setBucketName(bucketName);
+                request.setKey(objectName);
+                request.setUploadId(uploadId);
+                request.setPartNumber(partNumber++);
+                request.setInputStream(new ByteArrayInputStream(buffer, 0, length));
+                request.setPartSize(length);
+                partETags.add(ossClient.uploadPart(request).getPartETag());
+            }
+            ossClient.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(bucketName, objectName, uploadId, partETags));
+            log.info("分片上传完成: {}，分片数: {}", objectName, partETags.size());
+        } catch (IOException | RuntimeException e) {
+            try {
+                ossClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectName, uploadId));
+            } catch (Exception abortError) {
+                log.warn("取消分片上传失败: {}", abortError.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 读满缓冲区或读到流结束，返回读取的字节数
+     */
+    private static int readFully(InputStream inputStream, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = inputStream.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
     
     /**
      * 上传MultipartFile到OSS
@@ -103,9 +214,9 @@ public class AliOssUtil {
         String datePath = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd/"));
         String objectName = directory + datePath + fileName;
         
-        try {
-            return upload(file.getBytes(), objectName);
-        } catch (IOException e) {
+        try (InputStream inputStream = file.getInputStream()) {
+            return upload(inputStream, file.getSize(), objectName);
+        } catch (Exception e) {
             log.error("文件上传失败，{}", e.getMessage());
             throw new RuntimeException("文件上传失败");
         }
@@ -117,18 +228,52 @@ public class AliOssUtil {
      * @param objectName 对象名称
      */
     public void deleteFile(String objectName) {
-        // 创建OSSClient实例
-        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
         try {
             // 删除文件
-            ossClient.deleteObject(bucketName, objectName);
+            getClient().deleteObject(bucketName, objectName);
         } catch (Exception e) {
             log.error("删除文件失败，{}", e.getMessage());
-        } finally {
-            if (ossClient != null) {
-                ossClient.shutdown();
+        }
+    }
+
+    /**
+     * 读取文件内容（调用方负责关闭返回的流）
+     *
+     * @param objectName 对象名称
+     * @return 文件内容
+     */
+    public InputStream download(String objectName) {
+        return getClient().getObject(bucketName, objectName).getObjectContent();
+    }
+
+    /**
+     * 关闭OSS客户端（应用关闭时调用）
+     */
+    public void shutdown() {
+        OSS client = ossClient;
+        if (client != null) {
+            ossClient = null;
+            client.shutdown();
+        }
+    }
+
+    /**
+     * 复用的OSS客户端，第一次使用时创建
+     */
+    private OSS getClient() {
+        OSS client = ossClient;
+        if (client == null) {
+            synchronized (this) {
+                client = ossClient;
+                if (client == null) {
+                    ClientBuilderConfiguration configuration = new ClientBuilderConfiguration();
+                    configuration.setMaxConnections(MAX_CONNECTIONS);
+                    client = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret, configuration);
+                    ossClient = client;
+                }
             }
         }
+        return client;
     }
     
     /**
@@ -176,9 +321,14 @@ public class AliOssUtil {
     }
     
     /**
-     * 获取文件后缀对应的MIME类型
+     * 获取文件名对应的MIME类型
+     *
+     * @param fileName 文件名或对象名称
+     * @return MIME类型
      */
-    private String getContentType(String filenameExtension) {
+    public static String getContentType(String fileName) {
+        int dot = fileName.lastIndexOf(".");
+        String filenameExtension = dot >= 0 ? fileName.substring(dot) : "";
         if (filenameExtension.equalsIgnoreCase(".jpg") || filenameExtension.equalsIgnoreCase(".jpeg")) {
             return "image/jpeg";
         }
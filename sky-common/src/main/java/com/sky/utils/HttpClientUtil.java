@@ -1,32 +1,140 @@
 package com.sky.utils;
 
 import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Http工具类
+ * 所有对外HTTP调用共用一个连接池（按目标主机限制连接数，空闲连接保持复用，过期和空闲过久的连接后台回收），
+ * 避免每次调用都新建客户端、重新握手；按主机统计请求数、失败数和耗时。
+ * 连接池参数通过 sky.http-client.* 配置，未由Spring初始化时使用默认值。
  */
+@Component
+@Slf4j
 public class HttpClientUtil {
 
     static final  int TIMEOUT_MSEC = 5 * 1000;
 
+    private static int maxTotal = 200;
+    private static int maxPerRoute = 50;
+    private static int connectTimeout = TIMEOUT_MSEC;
+    private static int socketTimeout = TIMEOUT_MSEC;
+    private static int connectionRequestTimeout = TIMEOUT_MSEC;
+    private static long keepAliveMillis = 30_000;
+    private static long maxIdleMillis = 60_000;
+    private static int asyncThreads = 8;
+    private static int asyncQueueCapacity = 200;
+
+    private static volatile PoolingHttpClientConnectionManager connectionManager;
+    private static volatile CloseableHttpClient httpClient;
+    private static volatile ThreadPoolExecutor asyncExecutor;
+
+    private static final Map<String, HostStats> HOST_STATS = new ConcurrentHashMap<>();
+
+    @Value("${sky.http-client.max-total:200}")
+    public void setMaxTotal(int maxTotal) {
+        HttpClientUtil.maxTotal = maxTotal;
+    }
+
+    @Value("${sky.http-client.max-per-route:50}")
+    public void setMaxPerRoute(int maxPerRoute) {
+        HttpClientUtil.maxPerRoute = maxPerRoute;
+    }
+
+    @Value("${sky.http-client.connect-timeout-ms:5000}")
+    public void setConnectTimeout(int connectTimeout) {
+        HttpClientUtil.connectTimeout = connectTimeout;
+    }
+
+    @Value("${sky.http-client.socket-timeout-ms:5000}")
+    public void setSocketTimeout(int socketTimeout) {
+        HttpClientUtil.socketTimeout = socketTimeout;
+    }
+
+    @Value("${sky.http-client.connection-request-timeout-ms:5000}")
+    public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+        HttpClientUtil.connectionRequestTimeout = connectionRequestTimeout;
+    }
+
+    @Value("${sky.http-client.keep-alive-ms:30000}")
+    public void setKeepAliveMillis(long keepAliveMillis) {
+        HttpClientUtil.keepAliveMillis = keepAliveMillis;
+    }
+
+    @Value("${sky.http-client.max-idle-ms:60000}")
+    public void setMaxIdleMillis(long maxIdleMillis) {
+        HttpClientUtil.maxIdleMillis = maxIdleMillis;
+    }
+
+    @Value("${sky.http-client.async-threads:8}")
+    public void setAsyncThreads(int asyncThreads) {
+        HttpClientUtil.asyncThreads = asyncThreads;
+    }
+
+    @Value("${sky.http-client.async-queue-capacity:200}")
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        HttpClientUtil.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    /**
+     * 按配置重建连接池（配置注入完成后调用）
+     */
+    @PostConstruct
+    public void init() {
+        synchronized (HttpClientUtil.class) {
+            closeClient();
+            buildClient();
+        }
+        log.info("HTTP连接池初始化完成，最大连接数: {}，每个主机最大连接数: {}", maxTotal, maxPerRoute);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        synchronized (HttpClientUtil.class) {
+            closeClient();
+        }
+    }
+
     /**
      * 发送GET方式请求
      * @param url
@@ -34,43 +142,41 @@ public class HttpClientUtil {
      * @return
      */
     public static String doGet(String url,Map<String,String> paramMap){
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-
         String result = "";
-        CloseableHttpResponse response = null;
-
-        try{
-            URIBuilder builder = new URIBuilder(url);
-            if(paramMap != null){
-                for (String key : paramMap.keySet()) {
-                    builder.addParameter(key,paramMap.get(key));
-                }
+        try {
+            HttpResult response = get(url, paramMap, null, 0);
+            //判断响应状态
+            if (response.getStatusCode() == 200) {
+                result = response.getBody();
             }
-            URI uri = builder.build();
-
-            //创建GET请求
-            HttpGet httpGet = new HttpGet(uri);
+        } catch (Exception e) {
+            log.error("GET请求失败: {}", url, e);
+        }
+        return result;
+    }
 
-            //发送请求
-            response = httpClient.execute(httpGet);
+    /**
+     * 发送POST方式请求
+     * @param url
+     * @param paramMap
+     * @return
+     * @throws IOException
+     */
+    public static String doPost(String url, Map<String, String> paramMap) throws IOException {
+        // 创建Http Post请求
+        HttpPost httpPost = new HttpPost(url);
 
-            //判断响应状态
-            if(response.getStatusLine().getStatusCode() == 200){
-                result = EntityUtils.toString(response.getEntity(),"UTF-8");
-            }
-        }catch (Exception e){
-            e.printStackTrace();
-        }finally {
-            try {
-                response.close();
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+        // 创建参数列表
+        if (paramMap != null) {
+            List<NameValuePair> paramList = new ArrayList<>();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
             }
+            // 模拟表单
+            httpPost.setEntity(new UrlEncodedFormEntity(paramList, StandardCharsets.UTF_8));
         }
 
-        return result;
+        return execute(httpPost, 0).getBody();
     }
 
     /**
@@ -80,100 +186,295 @@ public class HttpClientUtil {
      * @return
      * @throws IOException
      */
-    public static String doPost(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
+    public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
+        String json = null;
+        if (paramMap != null) {
+            //构造json格式数据
+            JSONObject jsonObject = new JSONObject();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                jsonObject.put(param.getKey(),param.getValue());
+            }
+            json = jsonObject.toString();
+        }
+        return postJson(url, json, null, 0).getBody();
+    }
 
+    /**
+     * 发送GET请求，返回状态码和响应体
+     * @param url 地址
+     * @param paramMap 查询参数（会进行URL编码），可为null
+     * @param headers 请求头，可为null
+     * @param timeoutMillis 读取超时，小于等于0时使用默认值
+     * @return 响应
+     */
+    public static HttpResult get(String url, Map<String, String> paramMap, Map<String, String> headers,
+                                 int timeoutMillis) throws IOException {
+        URI uri;
         try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
-
-            // 创建参数列表
+            URIBuilder builder = new URIBuilder(url);
             if (paramMap != null) {
-                List<NameValuePair> paramList = new ArrayList();
                 for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
+                    builder.addParameter(param.getKey(), param.getValue());
                 }
-                // 模拟表单
-                UrlEncodedFormEntity entity = new UrlEncodedFormEntity(paramList);
-                httpPost.setEntity(entity);
             }
+            uri = builder.build();
+        } catch (URISyntaxException e) {
+            throw new IOException("URL格式不正确: " + url, e);
+        }
+        HttpGet httpGet = new HttpGet(uri);
+        addHeaders(httpGet, headers);
+        return execute(httpGet, timeoutMillis);
+    }
 
-            httpPost.setConfig(builderRequestConfig());
+    /**
+     * 发送JSON格式的POST请求，返回状态码和响应体
+     * @param url 地址
+     * @param json 请求体，可为null
+     * @param headers 请求头，可为null
+     * @param timeoutMillis 读取超时，小于等于0时使用默认值
+     * @return 响应
+     */
+    public static HttpResult postJson(String url, String json, Map<String, String> headers,
+                                      int timeoutMillis) throws IOException {
+        HttpPost httpPost = new HttpPost(url);
+        addHeaders(httpPost, headers);
+        if (json != null) {
+            httpPost.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+        }
+        return execute(httpPost, timeoutMillis);
+    }
 
-            // 执行http请求
-            response = httpClient.execute(httpPost);
+    /**
+     * 异步GET请求，在有界线程池中执行，线程池满时由调用线程执行
+     */
+    public static CompletableFuture<HttpResult> getAsync(String url, Map<String, String> paramMap,
+                                                         Map<String, String> headers, int timeoutMillis) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return get(url, paramMap, headers, timeoutMillis);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, asyncExecutor());
+    }
 
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
-        } finally {
+    /**
+     * 异步JSON格式的POST请求，在有界线程池中执行，线程池满时由调用线程执行
+     */
+    public static CompletableFuture<HttpResult> postJsonAsync(String url, String json,
+                                                              Map<String, String> headers, int timeoutMillis) {
+        return CompletableFuture.supplyAsync(() -> {
             try {
-                response.close();
+                return postJson(url, json, headers, timeoutMillis);
             } catch (IOException e) {
-                e.printStackTrace();
+                throw new CompletionException(e);
             }
+        }, asyncExecutor());
+    }
+
+    /**
+     * 连接池和各主机的调用统计
+     * @return 统计数据
+     */
+    public static Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        PoolingHttpClientConnectionManager manager = connectionManager;
+        if (manager != null) {
+            PoolStats pool = manager.getTotalStats();
+            stats.put("leased", pool.getLeased());
+            stats.put("available", pool.getAvailable());
+            stats.put("pending", pool.getPending());
+            stats.put("max", pool.getMax());
+        }
+        ThreadPoolExecutor executor = asyncExecutor;
+        if (executor != null) {
+            stats.put("asyncActive", executor.getActiveCount());
+            stats.put("asyncQueued", executor.getQueue().size());
         }
+        Map<String, Object> hosts = new LinkedHashMap<>();
+        HOST_STATS.forEach((host, hostStats) -> hosts.put(host, hostStats.toMap()));
+        stats.put("hosts", hosts);
+        return stats;
+    }
 
-        return resultString;
+    /**
+     * 共用的客户端（供RestTemplate等需要直接使用客户端的组件复用连接池，这类调用不计入按主机统计）
+     * @return 客户端
+     */
+    public static CloseableHttpClient sharedClient() {
+        return client();
     }
 
     /**
-     * 发送POST方式请求
-     * @param url
-     * @param paramMap
-     * @return
-     * @throws IOException
+     * 执行请求：响应体总是完整读取，连接归还连接池复用
      */
-    public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
+    private static HttpResult execute(HttpRequestBase request, int timeoutMillis) throws IOException {
+        request.setConfig(builderRequestConfig(timeoutMillis));
+        HostStats hostStats = HOST_STATS.computeIfAbsent(
+                String.valueOf(request.getURI().getHost()), k -> new HostStats());
+        long start = System.nanoTime();
+        boolean failed = true;
+        try (CloseableHttpResponse response = client().execute(request)) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            HttpEntity entity = response.getEntity();
+            String body = entity != null ? EntityUtils.toString(entity, StandardCharsets.UTF_8) : "";
+            failed = statusCode >= 500;
+            return new HttpResult(statusCode, body);
+        } finally {
+            hostStats.record(System.nanoTime() - start, failed);
+        }
+    }
 
-        try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
+    private static void addHeaders(HttpRequestBase request, Map<String, String> headers) {
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                request.addHeader(header.getKey(), header.getValue());
+            }
+        }
+    }
 
-            if (paramMap != null) {
-                //构造json格式数据
-                JSONObject jsonObject = new JSONObject();
-                for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    jsonObject.put(param.getKey(),param.getValue());
+    private static RequestConfig builderRequestConfig(int timeoutMillis) {
+        return RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .setSocketTimeout(timeoutMillis > 0 ? timeoutMillis : socketTimeout).build();
+    }
+
+    private static CloseableHttpClient client() {
+        CloseableHttpClient client = httpClient;
+        if (client == null) {
+            synchronized (HttpClientUtil.class) {
+                client = httpClient;
+                if (client == null) {
+                    buildClient();
+                    client = httpClient;
+                }
+            }
+        }
+        return client;
+    }
+
+    private static ThreadPoolExecutor asyncExecutor() {
+        ThreadPoolExecutor executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (HttpClientUtil.class) {
+                executor = asyncExecutor;
+                if (executor == null) {
+                    buildClient();
+                    executor = asyncExecutor;
                 }
-                StringEntity entity = new StringEntity(jsonObject.toString(),"utf-8");
-                //设置请求编码
-                entity.setContentEncoding("utf-8");
-                //设置数据类型
-                entity.setContentType("application/json");
-                httpPost.setEntity(entity);
             }
+        }
+        return executor;
+    }
 
-            httpPost.setConfig(builderRequestConfig());
+    /**
+     * 创建连接池、客户端和异步线程池（调用方持有类锁）
+     */
+    private static void buildClient() {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+        manager.setMaxTotal(maxTotal);
+        manager.setDefaultMaxPerRoute(maxPerRoute);
+        // 空闲超过2秒的连接在复用前先校验，避免拿到已被服务端关闭的连接
+        manager.setValidateAfterInactivity(2000);
 
-            // 执行http请求
-            response = httpClient.execute(httpPost);
+        // 服务端没有声明keep-alive时长时使用配置值，声明了也不超过配置值
+        long keepAlive = keepAliveMillis;
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setKeepAliveStrategy((response, context) -> {
+                    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return duration > 0 ? Math.min(duration, keepAlive) : keepAlive;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(maxIdleMillis, TimeUnit.MILLISECONDS)
+                .setDefaultRequestConfig(builderRequestConfig(0))
+                .build();
 
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
-        } finally {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(asyncThreads, asyncThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(asyncQueueCapacity, 1)), r -> {
+                    Thread thread = new Thread(r, "http-client-async-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        connectionManager = manager;
+        httpClient = client;
+        asyncExecutor = executor;
+    }
+
+    /**
+     * 关闭客户端和异步线程池（调用方持有类锁）
+     */
+    private static void closeClient() {
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+            asyncExecutor = null;
+        }
+        if (httpClient != null) {
             try {
-                response.close();
+                httpClient.close();
             } catch (IOException e) {
-                e.printStackTrace();
+                log.warn("关闭HTTP连接池失败: {}", e.getMessage());
             }
+            httpClient = null;
+            connectionManager = null;
         }
-
-        return resultString;
     }
-    private static RequestConfig builderRequestConfig() {
-        return RequestConfig.custom()
-                .setConnectTimeout(TIMEOUT_MSEC)
-                .setConnectionRequestTimeout(TIMEOUT_MSEC)
-                .setSocketTimeout(TIMEOUT_MSEC).build();
+
+    /**
+     * HTTP响应：状态码和响应体
+     */
+    public static class HttpResult {
+        private final int statusCode;
+        private final String body;
+
+        public HttpResult(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public boolean isSuccessful() {
+            return statusCode >= 200 && statusCode < 300;
+        }
     }
 
+    /**
+     * 单个主机的调用统计（网络异常和5xx计为失败）
+     */
+    private static class HostStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, boolean failed) {
+            requests.increment();
+            if (failed) {
+                failures.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        Map<String, Object> toMap() {
+            long count = requests.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("requests", count);
+            map.put("failures", failures.sum());
+            map.put("averageMillis", count > 0 ? totalNanos.sum() / 1_000_000.0 / count : 0);
+            map.put("maxMillis", maxNanos.get() / 1_000_000.0);
+            return map;
+        }
+    }
 }
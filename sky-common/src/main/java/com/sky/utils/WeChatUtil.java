@@ -4,10 +4,9 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -42,9 +41,7 @@ public class WeChatUtil {
         String url = "https://api.weixin.qq.com/sns/oauth2/access_token?appid=" + appid +
                 "&secret=" + secret + "&code=" + code + "&grant_type=authorization_code";
 
-        RestTemplate restTemplate = new RestTemplate();
-        ResponseEntity<String> responseEntity = restTemplate.getForEntity(url, String.class);
-        String responseBody = responseEntity.getBody();
+        String responseBody = getForString(url);
         
         log.info("微信OAuth2.0访问令牌返回结果：{}", responseBody);
         
@@ -116,8 +113,7 @@ public class WeChatUtil {
         String url = "https://api.weixin.qq.com/sns/userinfo?access_token=" + accessToken +
                 "&openid=" + openid + "&lang=zh_CN";
         
-        RestTemplate restTemplate = new RestTemplate();
-        return restTemplate.getForObject(url, String.class);
+        return getForString(url);
     }
     
     /**
@@ -130,7 +126,21 @@ public class WeChatUtil {
         String url = "https://api.weixin.qq.com/sns/oauth2/access_token?appid=" + appid +
                 "&secret=" + secret + "&code=" + code + "&grant_type=authorization_code";
         
-        RestTemplate restTemplate = new RestTemplate();
-        return restTemplate.getForObject(url, String.class);
+        return getForString(url);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 通过共用连接池调用微信接口，非2xx响应按失败处理
+     */
+    private static String getForString(String url) {
+        try {
+            HttpClientUtil.HttpResult response = HttpClientUtil.get(url, null, null, 0);
+            if (!response.isSuccessful()) {
+                throw new RuntimeException("微信接口调用失败: " + response.getStatusCode());
+            }
+            return response.getBody();
+        } catch (IOException e) {
+            throw new RuntimeException("微信接口调用失败: " + e.getMessage(), e);
+        }
+    }
+}
@@ -37,6 +37,8 @@ public class DayTourDTO implements Serializable {
     private Integer maxCapacity;
     private Integer currentBookings;
     private String coverImage;
+    /** 列表卡片封面（主图的卡片图，未生成时为原图） */
+    private String cardImage;
     private String bannerImage;
     private String productShowcaseImage;
     private String imageUrl;
@@ -32,6 +32,8 @@ public class GroupTourDTO {
     private Integer days;
     /** 晚数 */
     private Integer nights;
+    /** 产品代码 */
+    private String tourCode;
     private String location;
     private String category;
     private LocalDate startDate;
@@ -40,6 +42,8 @@ public class GroupTourDTO {
     private Integer maxPeople;
     private Integer currentBookings;
     private String coverImage;
+    /** 列表卡片封面（主图的卡片图，未生成时为原图） */
+    private String cardImage;
     private String bannerImage;
     private String productShowcaseImage;
     private Integer regionId;
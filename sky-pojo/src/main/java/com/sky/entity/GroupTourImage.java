@@ -29,6 +29,18 @@ public class GroupTourImage implements Serializable {
     
     /** 缩略图URL */
     private String thumbnailUrl;
+
+    /** 卡片图URL */
+    private String cardUrl;
+
+    /** 横幅图URL */
+    private String bannerUrl;
+
+    /** 是否有WebP衍生图 (0=否, 1=是，与JPEG衍生图同名、后缀为.webp) */
+    private Integer webp;
+
+    /** 衍生图状态 (0=待生成, 1=已生成, 2=生成失败) */
+    private Integer derivativeStatus;
     
     /** 图片描述 */
     private String description;
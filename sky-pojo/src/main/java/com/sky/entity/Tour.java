@@ -50,6 +50,9 @@ public class Tour implements Serializable {
     /** 封面图片 */
     private String coverImage;
     
+    /** 列表卡片封面（主图的卡片图，未生成时为封面图片） */
+    private String cardImage;
+    
     /** 旅游类型：day-一日游，group-跟团游 */
     private String tourType;
     
@@ -0,0 +1,85 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 缓存统计VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 缓存名称
+     */
+    private String name;
+
+    /**
+     * 本地缓存当前条目数
+     */
+    private int localSize;
+
+    /**
+     * 本地缓存最大条目数
+     */
+    private int maxSize;
+
+    /**
+     * 本地缓存命中次数
+     */
+    private long localHits;
+
+    /**
+     * Redis命中次数
+     */
+    private long redisHits;
+
+    /**
+     * 未命中次数（回源加载次数）
+     */
+    private long misses;
+
+    /**
+     * 命中率（本地+Redis）
+     */
+    private double hitRate;
+
+    /**
+     * 平均查询耗时（微秒，含回源）
+     */
+    private double averageGetMicros;
+
+    /**
+     * 回源加载平均耗时（毫秒）
+     */
+    private double averageLoadMillis;
+
+    /**
+     * 回源加载最大耗时（毫秒）
+     */
+    private double maxLoadMillis;
+
+    /**
+     * 失效次数（含其他节点广播）
+     */
+    private long evictions;
+
+    /**
+     * Redis当前是否可用
+     */
+    private boolean redisAvailable;
+
+    /**
+     * Redis操作失败次数（所有缓存共享）
+     */
+    private long redisErrors;
+}
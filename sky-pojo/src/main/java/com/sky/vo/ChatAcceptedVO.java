@@ -0,0 +1,35 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 异步聊天消息受理结果VO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatAcceptedVO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 消息ID，WebSocket推送和结果查询都以此关联
+     */
+    private String messageId;
+
+    /**
+     * 会话ID
+     */
+    private String sessionId;
+
+    /**
+     * 受理时该会话前面还在排队的消息数
+     */
+    private int queuedAhead;
+}
@@ -0,0 +1,67 @@
+package com.sky.aspect;
+
+import com.sky.entity.TourBooking;
+import com.sky.service.BusinessRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 营业数据汇总切面
+ * 订单新增、修改、状态变化（tour_bookings 的写操作）成功后，记录订单ID，由汇总服务重算所在日期的汇总
+ */
+@Aspect
+@Component
+@Slf4j
+public class BookingRollupAspect {
+
+    @Autowired
+    private BusinessRollupService businessRollupService;
+
+    @Pointcut("execution(* com.sky.mapper.TourBookingMapper.insert(..))" +
+            " || execution(* com.sky.mapper.TourBookingMapper.update(..))" +
+            " || execution(* com.sky.mapper.TourBookingMapper.updateTotalPrice(..))" +
+            " || execution(* com.sky.mapper.TourBookingMapper.updateStatus(..))" +
+            " || execution(* com.sky.mapper.TourBookingMapper.confirmOrderByAdmin(..))" +
+            " || execution(* com.sky.mapper.OrderMapper.insert(..))" +
+            " || execution(* com.sky.mapper.OrderMapper.update(..))" +
+            " || execution(* com.sky.mapper.OrderMapper.updateStatus(..))" +
+            " || execution(* com.sky.mapper.BookingMapper.updateStatus(..))")
+    public void bookingWrites() {}
+
+    @Pointcut("execution(* com.sky.mapper.TourBookingMapper.deleteById(..))")
+    public void bookingDeletes() {}
+
+    @AfterReturning("bookingWrites()")
+    public void afterBookingWrite(JoinPoint joinPoint) {
+        businessRollupService.markBookingChanged(bookingIdOf(joinPoint));
+    }
+
+    @Before("bookingDeletes()")
+    public void beforeBookingDelete(JoinPoint joinPoint) {
+        businessRollupService.markBookingDeleted(bookingIdOf(joinPoint));
+    }
+
+    /**
+     * 写操作的第一个参数是订单ID或订单实体
+     */
+    private Integer bookingIdOf(JoinPoint joinPoint) {
+        Object[] args = joinPoint.getArgs();
+        if (args.length == 0) {
+            return null;
+        }
+        if (args[0] instanceof Integer) {
+            return (Integer) args[0];
+        }
+        if (args[0] instanceof TourBooking) {
+            return ((TourBooking) args[0]).getBookingId();
+        }
+        log.debug("无法识别订单ID，等待兜底重算: {}", joinPoint.getSignature().toShortString());
+        return null;
+    }
+}
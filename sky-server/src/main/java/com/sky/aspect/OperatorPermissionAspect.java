@@ -2,10 +2,11 @@ package com.sky.aspect;
 
 import com.sky.annotation.RequireOperatorPermission;
 import com.sky.context.BaseContext;
-import com.sky.entity.Employee;
+import com.sky.entity.OperatorAssignment;
 import com.sky.exception.BaseException;
-import com.sky.mapper.EmployeeMapper;
-import com.sky.service.OperatorAssignmentService;
+import com.sky.mapper.OperatorAssignmentMapper;
+import com.sky.permission.EmployeePermission;
+import com.sky.permission.PermissionMatrix;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -31,10 +32,10 @@ import java.lang.reflect.Parameter;
 public class OperatorPermissionAspect {
 
     @Autowired
-    private EmployeeMapper employeeMapper;
+    private PermissionMatrix permissionMatrix;
 
     @Autowired
-    private OperatorAssignmentService operatorAssignmentService;
+    private OperatorAssignmentMapper operatorAssignmentMapper;
 
     @Around("@annotation(requireOperatorPermission)")
     public Object checkOperatorPermission(ProceedingJoinPoint joinPoint, RequireOperatorPermission requireOperatorPermission) throws Throwable {
@@ -45,37 +46,41 @@ public class OperatorPermissionAspect {
             throw new BaseException("用户未登录");
         }
 
-        // 1. 获取当前员工信息
-        Employee currentEmployee = employeeMapper.getById(currentEmployeeId.intValue());
+        // 1. 获取当前员工的权限属性（权限矩阵，内存读取）
+        EmployeePermission currentEmployee = permissionMatrix.getEmployee(currentEmployeeId);
         if (currentEmployee == null) {
             throw new BaseException("员工信息不存在");
         }
 
         // 2. 检查操作员类型权限
-        if (!checkOperatorType(currentEmployee, requireOperatorPermission.operatorType())) {
+        String requiredType = requireOperatorPermission.operatorType();
+        if (!"any".equals(requiredType) && !requiredType.equals(currentEmployee.getOperatorType())) {
             throw new BaseException("权限不足：" + requireOperatorPermission.description() + 
-                                  "（需要：" + requireOperatorPermission.operatorType() + "）");
+                                  "（需要：" + requiredType + "）");
         }
 
         // 3. 检查排团主管权限（Manager级别也有此权限）
         if (requireOperatorPermission.requireTourMaster()) {
-            if (!isManagerOrTourMaster(currentEmployee)) {
+            if (!currentEmployee.isManagerOrTourMaster()) {
                 throw new BaseException("权限不足：需要Manager或排团主管权限");
             }
         }
 
         // 4. 检查分配订单权限
         if (requireOperatorPermission.requireAssignPermission()) {
-            if (!Boolean.TRUE.equals(currentEmployee.getCanAssignOrders())) {
+            if (!currentEmployee.isCanAssignOrders()) {
                 throw new BaseException("权限不足：需要订单分配权限");
             }
         }
 
-        // 5. 检查订单操作权限
+        // 5. 检查订单操作权限（排团主管和Manager可操作所有订单，其他人只能操作分配给自己的订单）
         if (requireOperatorPermission.checkOrderPermission()) {
             Integer bookingId = getBookingIdFromRequest(joinPoint, requireOperatorPermission.bookingIdParam());
-            if (bookingId != null && !operatorAssignmentService.hasPermission(currentEmployeeId, bookingId)) {
-                throw new BaseException("权限不足：无法操作该订单");
+            if (bookingId != null && !currentEmployee.isAllOrders()) {
+                OperatorAssignment assignment = operatorAssignmentMapper.getActiveByBookingId(bookingId);
+                if (assignment == null || !currentEmployeeId.equals(assignment.getOperatorId())) {
+                    throw new BaseException("权限不足：无法操作该订单");
+                }
             }
         }
 
@@ -85,53 +90,6 @@ public class OperatorPermissionAspect {
         return joinPoint.proceed();
     }
 
-    /**
-     * 检查操作员类型
-     */
-    private boolean checkOperatorType(Employee employee, String requiredType) {
-        if ("any".equals(requiredType)) {
-            return true;
-        }
-
-        String currentType = employee.getOperatorType();
-        if (currentType == null) {
-            currentType = "general";
-        }
-
-        return requiredType.equals(currentType);
-    }
-
-    /**
-     * 检查是否为排团主管
-     */
-    private boolean isTourMaster(Employee employee) {
-        return "tour_master".equals(employee.getOperatorType()) && 
-               Boolean.TRUE.equals(employee.getIsTourMaster());
-    }
-    
-    /**
-     * 检查是否为Manager或排团主管
-     * Manager级别具有所有职责分配权限，包括设置排团主管
-     */
-    private boolean isManagerOrTourMaster(Employee employee) {
-        // 1. 检查是否为排团主管
-        if (isTourMaster(employee)) {
-            return true;
-        }
-        
-        // 2. 检查是否为Manager级别（基于role字段的职位名称）
-        String role = employee.getRole();
-        if (role != null) {
-            return role.contains("Manager") || 
-                   role.contains("经理") || 
-                   role.contains("Chief Executive") ||
-                   role.contains("Operating Manager") ||
-                   role.contains("主管");
-        }
-        
-        return false;
-    }
-
     /**
      * 从请求中获取订单ID
      */
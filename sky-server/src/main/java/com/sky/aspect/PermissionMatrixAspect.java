@@ -0,0 +1,47 @@
+package com.sky.aspect;
+
+import com.sky.permission.PermissionMatrix;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 权限矩阵失效切面
+ * 职位页面授权、职位、页面以及员工（职位、操作员类型、排团主管、分配权限、状态）写操作成功后，使权限矩阵失效；
+ * 员工在线状态、接待人数等高频更新不影响权限，不在此列。
+ */
+@Aspect
+@Component
+public class PermissionMatrixAspect {
+
+    @Autowired
+    private PermissionMatrix permissionMatrix;
+
+    @Pointcut("execution(* com.sky.mapper.PositionPagePermissionMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.PositionPagePermissionMapper.batch*(..))" +
+            " || execution(* com.sky.mapper.PositionPagePermissionMapper.update*(..))" +
+            " || execution(* com.sky.mapper.PositionPagePermissionMapper.upsert*(..))" +
+            " || execution(* com.sky.mapper.PositionPagePermissionMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.PositionPagePermissionMapper.copy*(..))" +
+            " || execution(* com.sky.mapper.PositionMapper.insert(..))" +
+            " || execution(* com.sky.mapper.PositionMapper.update(..))" +
+            " || execution(* com.sky.mapper.PositionMapper.deleteById(..))" +
+            " || execution(* com.sky.mapper.SystemPageMapper.insert(..))" +
+            " || execution(* com.sky.mapper.SystemPageMapper.update(..))" +
+            " || execution(* com.sky.mapper.SystemPageMapper.deleteById(..))" +
+            " || execution(* com.sky.mapper.EmployeeMapper.insert(..))" +
+            " || execution(* com.sky.mapper.EmployeeMapper.update(..))" +
+            " || execution(* com.sky.mapper.EmployeeMapper.deleteById(..))" +
+            " || execution(* com.sky.mapper.EmployeeMapper.updateEmployeeDeptAndPosition(..))" +
+            " || execution(* com.sky.mapper.EmployeeMapper.insertCustomerService(..))" +
+            " || execution(* com.sky.mapper.EmployeeMapper.updateCustomerService(..))" +
+            " || execution(* com.sky.mapper.EmployeeMapper.clearAllTourMasterFlags(..))")
+    public void permissionWrites() {}
+
+    @AfterReturning("permissionWrites()")
+    public void afterPermissionWrite() {
+        permissionMatrix.invalidate();
+    }
+}
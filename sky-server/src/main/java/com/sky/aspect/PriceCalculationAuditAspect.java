@@ -1,9 +1,9 @@
 package com.sky.aspect;
 
 import com.alibaba.fastjson.JSON;
+import com.sky.audit.PriceAuditLogWriter;
 import com.sky.context.BaseContext;
 import com.sky.entity.PriceCalculationAuditLog;
-import com.sky.mapper.PriceCalculationAuditLogMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -17,7 +17,6 @@ import javax.servlet.http.HttpServletRequest;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
 
 /**
  * 价格计算审计切面
@@ -29,7 +28,7 @@ import java.util.concurrent.CompletableFuture;
 public class PriceCalculationAuditAspect {
     
     @Autowired
-    private PriceCalculationAuditLogMapper auditLogMapper;
+    private PriceAuditLogWriter auditLogWriter;
     
     /**
      * 环绕通知：记录价格计算审计日志
@@ -77,87 +76,72 @@ public class PriceCalculationAuditAspect {
         } finally {
             long duration = System.currentTimeMillis() - startTime;
             
-            // 异步记录审计日志（不影响主流程性能）
-            saveAuditLogAsync(request, tourId, tourType, args, calculatedPrice, 
-                            calculationDetails, duration, status, errorMessage);
+            // 在请求线程上组装审计记录（BaseContext、请求头只在当前线程有效），交给批量写入器异步落库
+            try {
+                auditLogWriter.submit(buildAuditLog(request, tourId, tourType, args, calculatedPrice,
+                        calculationDetails, duration, status, errorMessage));
+            } catch (Exception e) {
+                // 审计日志失败不影响主流程
+                log.error("提交价格计算审计日志失败", e);
+            }
         }
         
         return result;
     }
     
     /**
-     * 异步保存审计日志
+     * 组装审计日志
      */
-    private void saveAuditLogAsync(HttpServletRequest request, Integer tourId, String tourType,
-                                    Object[] args, BigDecimal calculatedPrice,
-                                    Map<String, Object> calculationDetails, long duration,
-                                    String status, String errorMessage) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                PriceCalculationAuditLog auditLog = PriceCalculationAuditLog.builder()
-                        // 用户信息
-                        .userId(BaseContext.getCurrentId() != null ? BaseContext.getCurrentId().intValue() : null)
-                        .agentId(BaseContext.getCurrentAgentId() != null ? BaseContext.getCurrentAgentId().intValue() : null)
-                        .userType(BaseContext.getCurrentUserType())
-                        
-                        // 产品信息
-                        .tourId(tourId)
-                        .tourType(tourType)
-                        
-                        // 输入参数
-                        .inputParams(JSON.toJSONString(args))
-                        
-                        // 计算结果
-                        .calculatedPrice(calculatedPrice)
-                        .calculationDetails(calculationDetails != null ? JSON.toJSONString(calculationDetails) : null)
-                        .calculationDurationMs((int) duration)
-                        
-                        // 状态
-                        .status(status)
-                        .errorMessage(errorMessage)
-                        
-                        // 可疑标记（后续可以添加规则判断）
-                        .isSuspicious(false)
-                        
-                        .createdAt(LocalDateTime.now())
-                        .build();
+    private PriceCalculationAuditLog buildAuditLog(HttpServletRequest request, Integer tourId, String tourType,
+                                                   Object[] args, BigDecimal calculatedPrice,
+                                                   Map<String, Object> calculationDetails, long duration,
+                                                   String status, String errorMessage) {
+        PriceCalculationAuditLog auditLog = PriceCalculationAuditLog.builder()
+                // 用户信息
+                .userId(BaseContext.getCurrentId() != null ? BaseContext.getCurrentId().intValue() : null)
+                .agentId(BaseContext.getCurrentAgentId() != null ? BaseContext.getCurrentAgentId().intValue() : null)
+                .userType(BaseContext.getCurrentUserType())
                 
-                // 请求信息
-                if (request != null) {
-                    auditLog.setIpAddress(getClientIp(request));
-                    
-                    // User-Agent 截断到500字符
-                    String userAgent = request.getHeader("User-Agent");
-                    if (userAgent != null && userAgent.length() > 500) {
-                        userAgent = userAgent.substring(0, 500);
-                    }
-                    auditLog.setUserAgent(userAgent);
-                    
-                    // Request URL 截断到500字符
-                    String requestUrl = request.getRequestURI();
-                    if (requestUrl != null && requestUrl.length() > 500) {
-                        requestUrl = requestUrl.substring(0, 500);
-                    }
-                    auditLog.setRequestUrl(requestUrl);
-                    
-                    // Referer 截断到500字符
-                    String referer = request.getHeader("Referer");
-                    if (referer != null && referer.length() > 500) {
-                        referer = referer.substring(0, 500);
-                    }
-                    auditLog.setReferer(referer);
-                }
+                // 产品信息
+                .tourId(tourId)
+                .tourType(tourType)
                 
-                // 保存到数据库
-                auditLogMapper.insert(auditLog);
-                log.info("价格计算审计日志已保存: tourId={}, tourType={}, price={}, duration={}ms", 
-                        tourId, tourType, calculatedPrice, duration);
+                // 输入参数
+                .inputParams(JSON.toJSONString(args))
                 
-            } catch (Exception e) {
-                // 审计日志保存失败不影响主流程
-                log.error("保存价格计算审计日志失败", e);
-            }
-        });
+                // 计算结果
+                .calculatedPrice(calculatedPrice)
+                .calculationDetails(calculationDetails != null ? JSON.toJSONString(calculationDetails) : null)
+                .calculationDurationMs((int) duration)
+                
+                // 状态
+                .status(status)
+                .errorMessage(errorMessage)
+                
+                // 可疑标记（后续可以添加规则判断）
+                .isSuspicious(false)
+                
+                .createdAt(LocalDateTime.now())
+                .build();
+        
+        // 请求信息
+        if (request != null) {
+            auditLog.setIpAddress(getClientIp(request));
+            
+            // User-Agent 截断到500字符
+            auditLog.setUserAgent(truncate(request.getHeader("User-Agent")));
+            
+            // Request URL 截断到500字符
+            auditLog.setRequestUrl(truncate(request.getRequestURI()));
+            
+            // Referer 截断到500字符
+            auditLog.setReferer(truncate(request.getHeader("Referer")));
+        }
+        return auditLog;
+    }
+    
+    private String truncate(String value) {
+        return value != null && value.length() > 500 ? value.substring(0, 500) : value;
     }
     
     /**
@@ -0,0 +1,43 @@
+package com.sky.aspect;
+
+import com.sky.pricing.PriceCatalog;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 价格目录刷新切面
+ * 管理端产品、酒店价格、折扣相关接口写操作成功后，触发价格目录快照重建
+ */
+@Aspect
+@Component
+@Slf4j
+public class PriceCatalogRefreshAspect {
+
+    @Autowired
+    private PriceCatalog priceCatalog;
+
+    @Pointcut("within(com.sky.controller.admin.DayTourController)" +
+            " || within(com.sky.controller.admin.GroupTourController)" +
+            " || within(com.sky.controller.admin.GroupTourDailyPriceController)" +
+            " || within(com.sky.controller.admin.ItineraryOptionController)" +
+            " || within(com.sky.controller.admin.HotelPriceDifferenceController)" +
+            " || within(com.sky.controller.admin.DiscountManagementController)" +
+            " || within(com.sky.controller.admin.AgentController)")
+    public void priceControllers() {}
+
+    @Pointcut("@annotation(org.springframework.web.bind.annotation.PostMapping)" +
+            " || @annotation(org.springframework.web.bind.annotation.PutMapping)" +
+            " || @annotation(org.springframework.web.bind.annotation.DeleteMapping)")
+    public void writeMappings() {}
+
+    @AfterReturning("priceControllers() && writeMappings()")
+    public void refreshPriceCatalog(JoinPoint joinPoint) {
+        log.debug("价格相关数据已修改，请求重建价格目录: {}", joinPoint.getSignature().toShortString());
+        priceCatalog.requestRebuild();
+    }
+}
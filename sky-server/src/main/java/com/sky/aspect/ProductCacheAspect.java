@@ -0,0 +1,109 @@
+package com.sky.aspect;
+
+import com.sky.service.DayTourService;
+import com.sky.service.GroupTourService;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 产品详情缓存失效切面
+ * 跟团游、一日游及其子表（主题、适合人群、亮点、包含/不包含项目、贴士、常见问题、行程、图片、关联一日游）写操作成功后，
+ * 清除对应产品类型的详情缓存（事务提交后执行并广播给其他节点）。
+ * 很多子表写操作只带子记录ID，无法确定所属产品，因此按产品类型整体清除；后台修改产品的频率很低，代价可以忽略。
+ * 一日游的名称、描述会出现在跟团游行程中，一日游修改时同时清除跟团游缓存。
+ * 后台生成的图片衍生图回写成功后，按图片表清除对应产品类型的缓存。
+ */
+@Aspect
+@Component
+@Slf4j
+public class ProductCacheAspect {
+
+    @Autowired
+    private GroupTourService groupTourService;
+
+    @Autowired
+    private DayTourService dayTourService;
+
+    @Pointcut("execution(* com.sky.mapper.GroupTourMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.GroupTourMapper.update*(..))" +
+            " || execution(* com.sky.mapper.GroupTourMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.GroupTourMapper.save*(..))" +
+            " || execution(* com.sky.mapper.GroupTourImageMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.GroupTourImageMapper.update*(..))" +
+            " || execution(* com.sky.mapper.GroupTourImageMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.GroupTourImageMapper.*PrimaryImage(..))" +
+            " || execution(* com.sky.mapper.GroupTourDayTourRelationMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.GroupTourDayTourRelationMapper.update*(..))" +
+            " || execution(* com.sky.mapper.GroupTourDayTourRelationMapper.batchUpdate*(..))" +
+            " || execution(* com.sky.mapper.GroupTourDayTourRelationMapper.delete*(..))")
+    public void groupTourWrites() {}
+
+    @Pointcut("execution(* com.sky.mapper.DayTourMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.DayTourMapper.update*(..))" +
+            " || execution(* com.sky.mapper.DayTourMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.DayTourHighlightMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.DayTourHighlightMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.DayTourInclusionMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.DayTourInclusionMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.DayTourExclusionMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.DayTourExclusionMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.DayTourFaqMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.DayTourFaqMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.DayTourTipMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.DayTourTipMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.DayTourItineraryMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.DayTourItineraryMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.DayTourThemeMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.DayTourThemeMapper.update*(..))" +
+            " || execution(* com.sky.mapper.DayTourThemeMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.DayTourSuitableMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.DayTourSuitableMapper.update*(..))" +
+            " || execution(* com.sky.mapper.DayTourSuitableMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.DayTourImageMapper.insert*(..))" +
+            " || execution(* com.sky.mapper.DayTourImageMapper.update*(..))" +
+            " || execution(* com.sky.mapper.DayTourImageMapper.delete*(..))" +
+            " || execution(* com.sky.mapper.DayTourImageMapper.*PrimaryImage(..))")
+    public void dayTourWrites() {}
+
+    /**
+     * 适合人群关联由 TourMapper 按产品类型维护
+     */
+    @Pointcut("execution(* com.sky.mapper.TourMapper.insertTourSuitable(..))" +
+            " || execution(* com.sky.mapper.TourMapper.deleteSuitableByTourId(..))")
+    public void tourSuitableWrites() {}
+
+    @AfterReturning("groupTourWrites()")
+    public void afterGroupTourWrite(JoinPoint joinPoint) {
+        log.debug("跟团游数据已修改，清除详情缓存: {}", joinPoint.getSignature().toShortString());
+        groupTourService.evictCaches();
+    }
+
+    @AfterReturning("dayTourWrites() || tourSuitableWrites()")
+    public void afterDayTourWrite(JoinPoint joinPoint) {
+        log.debug("一日游数据已修改，清除详情缓存: {}", joinPoint.getSignature().toShortString());
+        dayTourService.evictCaches();
+        groupTourService.evictCaches();
+    }
+
+    /**
+     * 衍生图回写（ImageDerivativeMapper.saveDerivatives），第一个参数为图片表名；图片URL已变化未回写时不清除
+     */
+    @AfterReturning(pointcut = "execution(* com.sky.mapper.ImageDerivativeMapper.saveDerivatives(..))",
+                    returning = "updated")
+    public void afterDerivativesSaved(JoinPoint joinPoint, int updated) {
+        if (updated == 0) {
+            return;
+        }
+        Object table = joinPoint.getArgs()[0];
+        log.debug("{}衍生图已回写，清除详情缓存", table);
+        if ("day_tour_images".equals(table)) {
+            dayTourService.evictCaches();
+        }
+        groupTourService.evictCaches();
+    }
+}
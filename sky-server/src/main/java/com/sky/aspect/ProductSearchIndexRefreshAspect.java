@@ -0,0 +1,39 @@
+package com.sky.aspect;
+
+import com.sky.chatbot.ProductSearchIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 产品检索索引刷新切面
+ * 管理端跟团游、一日游及其主题接口写操作成功后，触发聊天机器人产品检索索引重建
+ */
+@Aspect
+@Component
+@Slf4j
+public class ProductSearchIndexRefreshAspect {
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Pointcut("within(com.sky.controller.admin.DayTourController)" +
+            " || within(com.sky.controller.admin.GroupTourController)" +
+            " || within(com.sky.controller.admin.DayTourThemeController)")
+    public void productControllers() {}
+
+    @Pointcut("@annotation(org.springframework.web.bind.annotation.PostMapping)" +
+            " || @annotation(org.springframework.web.bind.annotation.PutMapping)" +
+            " || @annotation(org.springframework.web.bind.annotation.DeleteMapping)")
+    public void writeMappings() {}
+
+    @AfterReturning("productControllers() && writeMappings()")
+    public void refreshProductSearchIndex(JoinPoint joinPoint) {
+        log.debug("产品数据已修改，请求重建产品检索索引: {}", joinPoint.getSignature().toShortString());
+        productSearchIndex.requestRebuild();
+    }
+}
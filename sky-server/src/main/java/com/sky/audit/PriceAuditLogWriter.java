@@ -0,0 +1,214 @@
+package com.sky.audit;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.entity.PriceCalculationAuditLog;
+import com.sky.mapper.PriceCalculationAuditLogMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 价格计算审计日志批量写入器
+ * 请求线程只把已组装好的审计记录放入有界队列，由单独的写入线程按批次（条数或时间到达阈值）多行插入。
+ * 队列满或批量插入失败时按配置处理：drop 丢弃并计数，spill 追加写入本地文件（每行一条JSON，可事后补录）。
+ */
+@Component
+@Slf4j
+public class PriceAuditLogWriter {
+
+    private static final String OVERFLOW_SPILL = "spill";
+
+    @Autowired
+    private PriceCalculationAuditLogMapper auditLogMapper;
+
+    @Value("${sky.audit.price.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${sky.audit.price.batch-size:200}")
+    private int batchSize;
+
+    @Value("${sky.audit.price.flush-interval-ms:1000}")
+    private long flushIntervalMillis;
+
+    /**
+     * 溢出策略：drop（丢弃并计数）或 spill（写入本地文件）
+     */
+    @Value("${sky.audit.price.overflow:drop}")
+    private String overflow;
+
+    @Value("${sky.audit.price.spill-file:logs/price-audit-spill.jsonl}")
+    private String spillFile;
+
+    private BlockingQueue<PriceCalculationAuditLog> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        writerThread = new Thread(this::runLoop, "price-audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("价格审计日志写入器已启动: 队列容量={}, 批量大小={}, 刷新间隔={}ms, 溢出策略={}",
+                queueCapacity, batchSize, flushIntervalMillis, overflow);
+    }
+
+    /**
+     * 提交审计记录（不阻塞请求线程）
+     */
+    public void submit(PriceCalculationAuditLog auditLog) {
+        if (queue.offer(auditLog)) {
+            accepted.increment();
+            return;
+        }
+        handleOverflow(Collections.singletonList(auditLog), "队列已满");
+    }
+
+    /**
+     * 写入器统计：队列深度、写入/丢弃/溢出数量和批量刷新耗时
+     */
+    public Map<String, Object> stats() {
+        long flushCount = flushes.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("accepted", accepted.sum());
+        stats.put("written", written.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("spilled", spilled.sum());
+        stats.put("flushes", flushCount);
+        stats.put("failedFlushes", failedFlushes.sum());
+        stats.put("averageFlushMillis", flushCount > 0 ? flushNanos.sum() / 1_000_000.0 / flushCount : 0);
+        stats.put("maxFlushMillis", maxFlushNanos.get() / 1_000_000.0);
+        stats.put("overflowPolicy", overflow);
+        return stats;
+    }
+
+    @PreDestroy
+    public void stop() {
+        // 不中断写入线程，避免打断正在执行的批量插入；最多等待一个刷新间隔后线程自行退出
+        running = false;
+        try {
+            writerThread.join(flushIntervalMillis + TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 写入线程退出后把队列中剩余的记录写完
+        List<PriceCalculationAuditLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int from = 0; from < remaining.size(); from += batchSize) {
+            flush(remaining.subList(from, Math.min(from + batchSize, remaining.size())));
+        }
+        log.info("价格审计日志写入器已停止: 已写入={}, 丢弃={}, 溢出到文件={}", written.sum(), dropped.sum(), spilled.sum());
+    }
+
+    private void runLoop() {
+        List<PriceCalculationAuditLog> batch = new ArrayList<>(batchSize);
+        long deadline = System.currentTimeMillis() + flushIntervalMillis;
+        while (running) {
+            try {
+                long wait = deadline - System.currentTimeMillis();
+                PriceCalculationAuditLog first = wait > 0 ? queue.poll(wait, TimeUnit.MILLISECONDS) : null;
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                if (batch.size() >= batchSize || (System.currentTimeMillis() >= deadline && !batch.isEmpty())) {
+                    flush(batch);
+                    batch.clear();
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    deadline = System.currentTimeMillis() + flushIntervalMillis;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("价格审计日志写入线程异常", e);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<PriceCalculationAuditLog> batch) {
+        long start = System.nanoTime();
+        try {
+            auditLogMapper.batchInsert(batch);
+            written.add(batch.size());
+            log.debug("价格审计日志批量写入: {}条", batch.size());
+        } catch (Exception e) {
+            failedFlushes.increment();
+            log.error("价格审计日志批量写入失败: {}条, {}", batch.size(), e.getMessage());
+            handleOverflow(batch, "批量写入失败");
+        } finally {
+            long nanos = System.nanoTime() - start;
+            flushes.increment();
+            flushNanos.add(nanos);
+            maxFlushNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    private void handleOverflow(List<PriceCalculationAuditLog> records, String reason) {
+        if (OVERFLOW_SPILL.equalsIgnoreCase(overflow) && spill(records)) {
+            spilled.add(records.size());
+            return;
+        }
+        long total = dropped.sum();
+        dropped.add(records.size());
+        // 持续溢出时按数量间隔记录，避免刷屏
+        if (total / 1000 != (total + records.size()) / 1000 || total == 0) {
+            log.warn("价格审计日志{}，已丢弃{}条", reason, total + records.size());
+        }
+    }
+
+    private synchronized boolean spill(List<PriceCalculationAuditLog> records) {
+        try {
+            Path path = Paths.get(spillFile);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            StringBuilder lines = new StringBuilder();
+            for (PriceCalculationAuditLog record : records) {
+                lines.append(JSON.toJSONString(record)).append('\n');
+            }
+            Files.write(path, lines.toString().getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return true;
+        } catch (IOException e) {
+            log.error("价格审计日志写入溢出文件失败: {}", e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.sky.cache;
+
+import com.sky.context.BaseContext;
+import com.sky.properties.JwtProperties;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 已校验JWT缓存
+ * 按 拦截器范围 + token的SHA-256 缓存校验结果和构建好的上下文快照，条目在token的exp时刻失效，
+ * 同一token在过期前只做一次签名校验和claims解析；缓存中不保存token原文。
+ * 退出登录时把token加入注销列表（本地 + Redis，并广播给其他节点），注销的token不再通过校验，也不能用于刷新。
+ * 注销按登录范围进行：只读取该范围拦截器使用的Cookie和请求头，只接受该范围密钥签发的token。
+ */
+@Component
+@Slf4j
+public class JwtTokenCache implements MessageListener {
+
+    /**
+     * 注销广播频道，消息格式：节点ID\ntoken哈希\n过期时间（毫秒）
+     */
+    public static final String REVOKED_CHANNEL = "sky:jwt:revoked";
+
+    private static final String REVOKED_KEY_PREFIX = "sky:jwt:revoked:";
+
+    /**
+     * 登录范围，与各拦截器的缓存范围一致
+     */
+    public static final String SCOPE_ADMIN = "admin";
+    public static final String SCOPE_USER = "user";
+    public static final String SCOPE_AGENT = "agent";
+
+    /**
+     * 各范围的token Cookie（含refresh token），与对应拦截器读取的Cookie一致
+     */
+    private static final String[] ADMIN_COOKIES = {"adminToken", "adminAuthToken", "admin_token",
+            "adminRefreshToken", "admin_refresh_token"};
+    private static final String[] USER_COOKIES = {"authToken", "token", "userToken", "jwt", "refreshToken"};
+    private static final String[] AGENT_COOKIES = {"authToken", "token", "agentToken", "refreshToken"};
+
+    @Autowired
+    private JwtProperties jwtProperties;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 缓存的最大条目数，超过时先清理过期条目，仍超过则整体清空
+     */
+    @Value("${sky.jwt.cache.max-entries:20000}")
+    private int maxEntries;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, AuthContext> verified = new ConcurrentHashMap<>();
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder revocations = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    /**
+     * 校验token并返回上下文快照
+     * @param scope 拦截器范围（同一token在不同拦截器中的上下文可能不同）
+     * @param token JWT
+     * @param loader 未命中时校验签名并构建上下文，校验失败抛出异常
+     * @return 上下文快照
+     */
+    public AuthContext verify(String scope, String token, Function<String, AuthContext> loader) {
+        String hash = hash(token);
+        String key = scope + ":" + hash;
+        AuthContext context = verified.get(key);
+        if (context != null) {
+            // 命中时也检查本地注销列表：注销可能发生在其他请求写入缓存之后
+            if (revoked.containsKey(hash)) {
+                verified.remove(key, context);
+                rejected.increment();
+                throw new JwtException("令牌已注销");
+            }
+            if (context.getExpiresAt() > System.currentTimeMillis()) {
+                hits.increment();
+                return context;
+            }
+            verified.remove(key, context);
+        }
+        misses.increment();
+        context = loader.apply(token);
+        if (isRevoked(hash)) {
+            rejected.increment();
+            throw new JwtException("令牌已注销");
+        }
+        if (context.getExpiresAt() <= System.currentTimeMillis()) {
+            return context;
+        }
+        if (verified.size() >= maxEntries) {
+            purgeExpired();
+            if (verified.size() >= maxEntries) {
+                overflows.increment();
+                verified.clear();
+            }
+        }
+        verified.put(key, context);
+        // 注销可能发生在上面的检查和写入之间，写入后再检查一次，避免已注销的token留在缓存中
+        if (revoked.containsKey(hash)) {
+            verified.remove(key, context);
+            rejected.increment();
+            throw new JwtException("令牌已注销");
+        }
+        return context;
+    }
+
+    /**
+     * token是否已注销（刷新token前检查）
+     * @param token JWT
+     * @return true表示已注销
+     */
+    public boolean isRevokedToken(String token) {
+        return token != null && isRevoked(hash(token));
+    }
+
+    /**
+     * 注销token，直到其过期；不是该范围密钥签发、签名无效或已过期的token直接忽略
+     * @param scope 登录范围
+     * @param token JWT
+     * @return 是否注销
+     */
+    public boolean revoke(String scope, String token) {
+        if (token == null || token.isEmpty()) {
+            return false;
+        }
+        Long expiresAt = expirationOf(scope, token);
+        if (expiresAt == null) {
+            return false;
+        }
+        String hash = hash(token);
+        revokeLocal(hash, expiresAt);
+        revocations.increment();
+        try {
+            long ttl = expiresAt - System.currentTimeMillis();
+            if (ttl > 0) {
+                stringRedisTemplate.opsForValue().set(REVOKED_KEY_PREFIX + hash, "1", ttl, TimeUnit.MILLISECONDS);
+            }
+            stringRedisTemplate.convertAndSend(REVOKED_CHANNEL, nodeId + "\n" + hash + "\n" + expiresAt);
+        } catch (Exception e) {
+            // Redis不可用时只在本节点生效
+            log.warn("同步token注销到Redis失败: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * 注销请求中该范围的token（该范围拦截器读取的Cookie和认证请求头，包括refresh token），
+     * 其他范围的登录不受影响
+     * @param scope 登录范围（SCOPE_ADMIN / SCOPE_USER / SCOPE_AGENT）
+     * @param request 退出登录请求
+     * @return 注销的token数量
+     */
+    public int revokeRequestTokens(String scope, HttpServletRequest request) {
+        Set<String> tokens = new LinkedHashSet<>();
+        Set<String> cookieNames = new HashSet<>(Arrays.asList(cookieNamesOf(scope)));
+        if (request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (cookieNames.contains(cookie.getName())) {
+                    tokens.add(cookie.getValue());
+                }
+            }
+        }
+        for (String header : headerNamesOf(scope)) {
+            if (header != null) {
+                tokens.add(request.getHeader(header));
+            }
+        }
+        if (!SCOPE_ADMIN.equals(scope)) {
+            String authorization = request.getHeader("Authorization");
+            if (authorization != null && authorization.startsWith("Bearer ")) {
+                tokens.add(authorization.substring(7));
+            }
+        }
+        int count = 0;
+        for (String token : tokens) {
+            if (revoke(scope, token)) {
+                count++;
+            }
+        }
+        log.debug("已注销请求中的{}端token: {}个", scope, count);
+        return count;
+    }
+
+    /**
+     * 接收其他节点的注销广播
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", -1);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        try {
+            revokeLocal(parts[1], Long.parseLong(parts[2]));
+        } catch (NumberFormatException e) {
+            log.warn("无法识别的token注销广播: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时清理过期的缓存条目和注销记录
+     */
+    @Scheduled(fixedDelayString = "${sky.jwt.cache.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        verified.values().removeIf(context -> context.getExpiresAt() <= now);
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", verified.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.sum());
+        stats.put("hitRate", total == 0 ? 0 : (double) hitCount / total);
+        stats.put("revokedRejected", rejected.sum());
+        stats.put("revoked", revoked.size());
+        stats.put("revocations", revocations.sum());
+        stats.put("overflows", overflows.sum());
+        return stats;
+    }
+
+    private void revokeLocal(String hash, long expiresAt) {
+        revoked.put(hash, expiresAt);
+        String suffix = ":" + hash;
+        verified.keySet().removeIf(key -> key.endsWith(suffix));
+    }
+
+    /**
+     * 本地注销列表没有时再查Redis（本节点启动前注销的token），只在缓存未命中和刷新时执行
+     */
+    private boolean isRevoked(String hash) {
+        if (revoked.containsKey(hash)) {
+            return true;
+        }
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(REVOKED_KEY_PREFIX + hash));
+        } catch (Exception e) {
+            log.warn("查询token注销记录失败: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 用该范围的密钥校验，返回过期时间；校验失败返回null
+     */
+    private Long expirationOf(String scope, String token) {
+        for (String secretKey : secretKeysOf(scope)) {
+            if (secretKey == null) {
+                continue;
+            }
+            try {
+                Claims claims = JwtUtil.parseJWT(secretKey, token);
+                return claims.getExpiration() != null ? claims.getExpiration().getTime() : null;
+            } catch (Exception ignored) {
+                // 尝试下一个密钥
+            }
+        }
+        return null;
+    }
+
+    private static String[] cookieNamesOf(String scope) {
+        switch (scope) {
+            case SCOPE_ADMIN:
+                return ADMIN_COOKIES;
+            case SCOPE_USER:
+                return USER_COOKIES;
+            case SCOPE_AGENT:
+                return AGENT_COOKIES;
+            default:
+                throw new IllegalArgumentException("未知的登录范围: " + scope);
+        }
+    }
+
+    private String[] headerNamesOf(String scope) {
+        switch (scope) {
+            case SCOPE_ADMIN:
+                return new String[]{"token"};
+            case SCOPE_USER:
+                return new String[]{jwtProperties.getUserTokenName(), "token", "Authentication"};
+            case SCOPE_AGENT:
+                return new String[]{jwtProperties.getAgentTokenName(), "Authentication", "token"};
+            default:
+                throw new IllegalArgumentException("未知的登录范围: " + scope);
+        }
+    }
+
+    /**
+     * 与拦截器一致：用户端先用用户密钥，再用代理商密钥（代理商在用户端登录）
+     */
+    private String[] secretKeysOf(String scope) {
+        switch (scope) {
+            case SCOPE_ADMIN:
+                return new String[]{jwtProperties.getAdminSecretKey()};
+            case SCOPE_USER:
+                return new String[]{jwtProperties.getUserSecretKey(), jwtProperties.getAgentSecretKey()};
+            case SCOPE_AGENT:
+                return new String[]{jwtProperties.getAgentSecretKey()};
+            default:
+                throw new IllegalArgumentException("未知的登录范围: " + scope);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 已校验token的上下文快照（不可变），apply() 一次写入 BaseContext
+     */
+    public static class AuthContext {
+
+        private final long expiresAt;
+        private final Long id;
+        private final String username;
+        private final String userType;
+        private final Long agentId;
+        private final Long operatorId;
+
+        public AuthContext(Claims claims, Long id, String username, String userType, Long agentId, Long operatorId) {
+            // 没有exp的token只在本次请求使用，不缓存
+            this.expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : 0;
+            this.id = id;
+            this.username = username;
+            this.userType = userType;
+            this.agentId = agentId;
+            this.operatorId = operatorId;
+        }
+
+        public void apply() {
+            BaseContext.setContext(id, username, userType, agentId, operatorId);
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getUserType() {
+            return userType;
+        }
+
+        public Long getAgentId() {
+            return agentId;
+        }
+
+        public Long getOperatorId() {
+            return operatorId;
+        }
+    }
+}
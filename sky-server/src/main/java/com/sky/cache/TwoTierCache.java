@@ -0,0 +1,295 @@
+package com.sky.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.vo.CacheStatsVO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 两级缓存：本地（有界、按TTL过期）+ Redis（多节点共享）
+ * 读取顺序：本地 -> Redis -> 回源加载；加载结果为null时同样缓存，避免反复查询没有配置的数据。
+ * Redis不可用时只使用本地缓存，业务不受影响。
+ * 数据修改后调用 {@link #evict(String)} / {@link #evictAll()}，清除本地和Redis，并广播给其他节点清除本地缓存。
+ *
+ * @param <V> 缓存值类型，需能被fastjson序列化
+ */
+@Slf4j
+public class TwoTierCache<V> {
+
+    private static final String NULL_JSON = "null";
+
+    private final String name;
+    private final Type valueType;
+    private final int maxSize;
+    private final long localTtlMillis;
+    private final long redisTtlMillis;
+    private final TwoTierCacheManager manager;
+
+    /**
+     * 按访问顺序排列，超过maxSize时淘汰最久未访问的条目
+     */
+    private final LinkedHashMap<String, LocalEntry> local;
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder getCount = new LongAdder();
+    private final LongAdder getNanos = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final AtomicLong maxLoadNanos = new AtomicLong();
+    private final LongAdder evictions = new LongAdder();
+
+    TwoTierCache(String name, Type valueType, int maxSize, long localTtlMillis, long redisTtlMillis,
+                 TwoTierCacheManager manager) {
+        this.name = name;
+        this.valueType = valueType;
+        this.maxSize = maxSize;
+        this.localTtlMillis = localTtlMillis;
+        this.redisTtlMillis = redisTtlMillis;
+        this.manager = manager;
+        this.local = new LinkedHashMap<String, LocalEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LocalEntry> eldest) {
+                return size() > TwoTierCache.this.maxSize;
+            }
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 查询缓存，未命中时调用loader加载并写入两级缓存；loader抛出的异常直接向上抛出，不会被缓存
+     */
+    @SuppressWarnings("unchecked")
+    public V get(String key, Supplier<V> loader) {
+        long start = System.nanoTime();
+        try {
+            LocalEntry entry = getLocal(key);
+            if (entry != null) {
+                localHits.increment();
+                return (V) entry.value;
+            }
+
+            String json = unwrapRedisValue(key, manager.redisGet(redisKey(), key));
+            if (json != null) {
+                V value = JSON.parseObject(json, valueType);
+                putLocal(key, value);
+                redisHits.increment();
+                return value;
+            }
+
+            misses.increment();
+            long loadStart = System.nanoTime();
+            V value = loader.get();
+            recordLoad(System.nanoTime() - loadStart);
+
+            put(key, value);
+            return value;
+        } finally {
+            getCount.increment();
+            getNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 批量查询缓存，未命中的键一次性交给loader加载（loader结果中没有的键按null缓存），
+     * Redis也只读一次，查询次数与键的数量无关；loader抛出的异常直接向上抛出
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, V> getAll(Collection<String> keys, Function<Set<String>, Map<String, V>> loader) {
+        long start = System.nanoTime();
+        Map<String, V> result = new LinkedHashMap<>();
+        List<String> remoteKeys = new ArrayList<>();
+        try {
+            for (String key : new LinkedHashSet<>(keys)) {
+                LocalEntry entry = getLocal(key);
+                if (entry != null) {
+                    localHits.increment();
+                    result.put(key, (V) entry.value);
+                } else {
+                    remoteKeys.add(key);
+                }
+            }
+            if (remoteKeys.isEmpty()) {
+                return result;
+            }
+
+            Set<String> missing = new LinkedHashSet<>(remoteKeys);
+            List<String> cached = manager.redisMultiGet(redisKey(), remoteKeys);
+            if (cached != null) {
+                for (int i = 0; i < remoteKeys.size(); i++) {
+                    String json = unwrapRedisValue(remoteKeys.get(i), cached.get(i));
+                    if (json != null) {
+                        V value = JSON.parseObject(json, valueType);
+                        putLocal(remoteKeys.get(i), value);
+                        redisHits.increment();
+                        result.put(remoteKeys.get(i), value);
+                        missing.remove(remoteKeys.get(i));
+                    }
+                }
+            }
+            if (missing.isEmpty()) {
+                return result;
+            }
+
+            misses.add(missing.size());
+            long loadStart = System.nanoTime();
+            Map<String, V> loaded = loader.apply(missing);
+            recordLoad(System.nanoTime() - loadStart);
+
+            for (String key : missing) {
+                V value = loaded != null ? loaded.get(key) : null;
+                put(key, value);
+                result.put(key, value);
+            }
+            return result;
+        } finally {
+            getCount.increment();
+            getNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 清除单个键（当前事务提交后执行，并广播给其他节点）
+     */
+    public void evict(String key) {
+        manager.afterCommit(() -> {
+            evictLocal(key);
+            manager.redisDelete(redisKey(), key);
+            manager.publishEviction(name, key);
+        });
+    }
+
+    /**
+     * 清除全部（当前事务提交后执行，并广播给其他节点）
+     */
+    public void evictAll() {
+        manager.afterCommit(() -> {
+            evictLocalAll();
+            manager.redisDelete(redisKey());
+            manager.publishEviction(name, null);
+        });
+    }
+
+    void evictLocal(String key) {
+        synchronized (local) {
+            local.remove(key);
+        }
+        evictions.increment();
+    }
+
+    void evictLocalAll() {
+        synchronized (local) {
+            local.clear();
+        }
+        evictions.increment();
+    }
+
+    CacheStatsVO stats(boolean redisAvailable, long redisErrors) {
+        long local = localHits.sum();
+        long redis = redisHits.sum();
+        long miss = misses.sum();
+        long total = local + redis + miss;
+        long gets = getCount.sum();
+        int size;
+        synchronized (this.local) {
+            size = this.local.size();
+        }
+        return CacheStatsVO.builder()
+                .name(name)
+                .localSize(size)
+                .maxSize(maxSize)
+                .localHits(local)
+                .redisHits(redis)
+                .misses(miss)
+                .hitRate(total > 0 ? (double) (local + redis) / total : 0)
+                .averageGetMicros(gets > 0 ? getNanos.sum() / 1000.0 / gets : 0)
+                .averageLoadMillis(miss > 0 ? loadNanos.sum() / 1_000_000.0 / miss : 0)
+                .maxLoadMillis(maxLoadNanos.get() / 1_000_000.0)
+                .evictions(evictions.sum())
+                .redisAvailable(redisAvailable)
+                .redisErrors(redisErrors)
+                .build();
+    }
+
+    private LocalEntry getLocal(String key) {
+        synchronized (local) {
+            LocalEntry entry = local.get(key);
+            if (entry != null && entry.expireAt <= System.currentTimeMillis()) {
+                local.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void putLocal(String key, V value) {
+        synchronized (local) {
+            local.put(key, new LocalEntry(value, System.currentTimeMillis() + localTtlMillis));
+        }
+    }
+
+    /**
+     * 写入两级缓存
+     */
+    private void put(String key, V value) {
+        putLocal(key, value);
+        String json = value != null ? JSON.toJSONString(value) : NULL_JSON;
+        manager.redisPut(redisKey(), key, (System.currentTimeMillis() + redisTtlMillis) + "|" + json, redisTtlMillis);
+    }
+
+    /**
+     * Redis中的值格式为 过期时间|JSON，已过期时返回null；格式不对时按未命中处理并删除该字段
+     */
+    private String unwrapRedisValue(String key, String cached) {
+        if (cached == null) {
+            return null;
+        }
+        int separator = cached.indexOf('|');
+        long expireAt;
+        try {
+            expireAt = separator > 0 ? Long.parseLong(cached.substring(0, separator)) : -1;
+        } catch (NumberFormatException e) {
+            expireAt = -1;
+        }
+        if (expireAt < 0) {
+            log.warn("Redis缓存值格式不正确，按未命中处理并删除: cache={}, key={}", name, key);
+            manager.redisDelete(redisKey(), key);
+            return null;
+        }
+        return expireAt > System.currentTimeMillis() ? cached.substring(separator + 1) : null;
+    }
+
+    private void recordLoad(long nanos) {
+        loadNanos.add(nanos);
+        maxLoadNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private String redisKey() {
+        return TwoTierCacheManager.KEY_PREFIX + name;
+    }
+
+    private static class LocalEntry {
+        final Object value;
+        final long expireAt;
+
+        LocalEntry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
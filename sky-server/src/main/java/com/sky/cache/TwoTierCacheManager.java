@@ -0,0 +1,229 @@
+package com.sky.cache;
+
+import com.sky.vo.CacheStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 两级缓存管理器
+ * 负责创建 {@link TwoTierCache}、封装Redis访问和跨节点失效广播。
+ * Redis操作失败后在一段时间内不再访问Redis（只用本地缓存），到期后自动重试。
+ * Redis删除失败的缓存记为待清除，Redis恢复后、再次读写前先整体删除这些缓存，避免恢复后读到失效前的旧数据。
+ */
+@Component
+@Slf4j
+public class TwoTierCacheManager implements MessageListener {
+
+    /**
+     * 失效广播频道，消息格式：节点ID\n缓存名\n键（键为空表示清除全部）
+     */
+    public static final String EVICT_CHANNEL = "sky:cache:evict";
+
+    static final String KEY_PREFIX = "sky:cache:";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * Redis操作失败后暂停访问Redis的时长
+     */
+    @Value("${sky.cache.redis-retry-interval-ms:30000}")
+    private long redisRetryIntervalMillis;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoTierCache<?>> caches = new ConcurrentHashMap<>();
+    private final LongAdder redisErrors = new LongAdder();
+
+    /**
+     * Redis删除失败、待Redis恢复后整体删除的缓存（Redis哈希键）
+     */
+    private final Set<String> pendingDeletes = ConcurrentHashMap.newKeySet();
+    private volatile long redisUnavailableUntil;
+
+    /**
+     * 创建缓存，同名缓存只能创建一次
+     */
+    public <V> TwoTierCache<V> create(String name, Type valueType, int maxSize, Duration localTtl, Duration redisTtl) {
+        TwoTierCache<V> cache = new TwoTierCache<>(name, valueType, maxSize,
+                localTtl.toMillis(), redisTtl.toMillis(), this);
+        if (caches.putIfAbsent(name, cache) != null) {
+            throw new IllegalStateException("缓存已存在: " + name);
+        }
+        return cache;
+    }
+
+    /**
+     * 所有缓存的统计信息
+     */
+    public List<CacheStatsVO> stats() {
+        boolean redisAvailable = isRedisAvailable();
+        long errors = redisErrors.sum();
+        List<CacheStatsVO> result = new ArrayList<>();
+        for (TwoTierCache<?> cache : caches.values()) {
+            result.add(cache.stats(redisAvailable, errors));
+        }
+        return result;
+    }
+
+    /**
+     * 接收其他节点的失效广播，清除本地缓存
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", -1);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoTierCache<?> cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        if (parts[2].isEmpty()) {
+            cache.evictLocalAll();
+        } else {
+            cache.evictLocal(parts[2]);
+        }
+        log.debug("收到缓存失效广播: cache={}, key={}", parts[1], parts[2].isEmpty() ? "*" : parts[2]);
+    }
+
+    /**
+     * 有事务时在事务提交后执行，避免其他请求在提交前把旧数据重新加载进缓存
+     */
+    void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    String redisGet(String hashKey, String field) {
+        if (!isRedisAvailable() || !replayPendingDeletes()) {
+            return null;
+        }
+        try {
+            Object value = stringRedisTemplate.opsForHash().get(hashKey, field);
+            return value != null ? value.toString() : null;
+        } catch (Exception e) {
+            markRedisUnavailable("读取", e);
+            return null;
+        }
+    }
+
+    List<String> redisMultiGet(String hashKey, List<String> fields) {
+        if (!isRedisAvailable() || !replayPendingDeletes()) {
+            return null;
+        }
+        try {
+            List<Object> values = stringRedisTemplate.opsForHash().multiGet(hashKey, new ArrayList<Object>(fields));
+            List<String> result = new ArrayList<>(values.size());
+            for (Object value : values) {
+                result.add(value != null ? value.toString() : null);
+            }
+            return result;
+        } catch (Exception e) {
+            markRedisUnavailable("读取", e);
+            return null;
+        }
+    }
+
+    void redisPut(String hashKey, String field, String value, long ttlMillis) {
+        if (!isRedisAvailable() || !replayPendingDeletes()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForHash().put(hashKey, field, value);
+            // 单个条目的过期时间保存在值中，这里只保证整个缓存在不再写入后最终被清理
+            stringRedisTemplate.expire(hashKey, ttlMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            markRedisUnavailable("写入", e);
+        }
+    }
+
+    void redisDelete(String hashKey, String field) {
+        try {
+            stringRedisTemplate.opsForHash().delete(hashKey, field);
+        } catch (Exception e) {
+            pendingDeletes.add(hashKey);
+            markRedisUnavailable("删除", e);
+        }
+    }
+
+    void redisDelete(String hashKey) {
+        try {
+            stringRedisTemplate.delete(hashKey);
+        } catch (Exception e) {
+            pendingDeletes.add(hashKey);
+            markRedisUnavailable("删除", e);
+        }
+    }
+
+    void publishEviction(String cacheName, String key) {
+        try {
+            stringRedisTemplate.convertAndSend(EVICT_CHANNEL, nodeId + "\n" + cacheName + "\n" + (key != null ? key : ""));
+        } catch (Exception e) {
+            // 广播失败时其他节点的本地缓存会在TTL到期后自然失效
+            markRedisUnavailable("广播失效", e);
+        }
+    }
+
+    /**
+     * 整体删除Redis不可用期间删除失败的缓存
+     * @return 是否已全部删除（失败时Redis再次标记为不可用）
+     */
+    private boolean replayPendingDeletes() {
+        if (pendingDeletes.isEmpty()) {
+            return true;
+        }
+        for (String hashKey : pendingDeletes) {
+            if (!pendingDeletes.remove(hashKey)) {
+                continue;
+            }
+            try {
+                stringRedisTemplate.delete(hashKey);
+                log.info("Redis恢复，已清除不可用期间失效的缓存: {}", hashKey);
+            } catch (Exception e) {
+                pendingDeletes.add(hashKey);
+                markRedisUnavailable("删除", e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isRedisAvailable() {
+        return System.currentTimeMillis() >= redisUnavailableUntil;
+    }
+
+    private void markRedisUnavailable(String operation, Exception e) {
+        redisErrors.increment();
+        if (isRedisAvailable()) {
+            log.warn("Redis缓存{}失败，{}ms内只使用本地缓存: {}", operation, redisRetryIntervalMillis, e.getMessage());
+        }
+        redisUnavailableUntil = System.currentTimeMillis() + redisRetryIntervalMillis;
+    }
+}
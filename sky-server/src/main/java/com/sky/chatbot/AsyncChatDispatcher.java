@@ -0,0 +1,385 @@
+package com.sky.chatbot;
+
+import com.sky.context.BaseContext;
+import com.sky.dto.ChatRequest;
+import com.sky.exception.BusinessException;
+import com.sky.service.ChatBotService;
+import com.sky.vo.ChatAcceptedVO;
+import com.sky.vo.ChatResponse;
+import com.sky.webSocket.UserWebSocketServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步聊天消息调度器
+ * 请求线程只做受理并立即返回消息ID，完整的处理流程（限流、去重、解析、查库、大模型调用）在专用的有界线程池中执行，
+ * 处理进度和最终结果通过 {@link UserWebSocketServer} 推送给发起用户。
+ * 同一会话的消息按提交顺序逐条处理（每个会话一条串行队列），不同会话之间并行；
+ * 全局排队数和单会话排队数都有上限，超过时直接拒绝，避免请求堆积。
+ * 会话队列和处理结果都按登录身份隔离，知道别人的会话ID或消息ID也无法占用其队列或读取其结果。
+ */
+@Component
+@Slf4j
+public class AsyncChatDispatcher {
+
+    private static final String TEMP_USER_PREFIX = "temp_";
+
+    @Autowired
+    private ChatBotService chatBotService;
+
+    @Value("${sky.chatbot.async.threads:4}")
+    private int threads;
+
+    /**
+     * 全局最多排队（含处理中）的消息数
+     */
+    @Value("${sky.chatbot.async.max-pending:200}")
+    private int maxPending;
+
+    /**
+     * 单个会话最多排队（含处理中）的消息数
+     */
+    @Value("${sky.chatbot.async.max-pending-per-session:5}")
+    private int maxPendingPerSession;
+
+    /**
+     * 保留最近多少条处理结果供WebSocket未连接的客户端查询
+     */
+    @Value("${sky.chatbot.async.result-retention:1000}")
+    private int resultRetention;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * 登录身份:会话ID -> 该会话的串行队列；队列处理完后移除
+     */
+    private final Map<String, SessionLane> lanes = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * 最近完成的结果（消息ID -> 发起身份和响应），按插入顺序淘汰
+     */
+    private final LinkedHashMap<String, CompletedResult> results = new LinkedHashMap<String, CompletedResult>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletedResult> eldest) {
+            return size() > resultRetention;
+        }
+    };
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+    private final LongAdder rejectedSession = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder processNanos = new LongAdder();
+    private final AtomicLong maxProcessNanos = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        // 工作队列里每个会话最多一个条目，长度受 maxPending 约束
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "chat-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        log.info("异步聊天调度器已启动: 线程数={}, 全局排队上限={}, 单会话排队上限={}", threads, maxPending, maxPendingPerSession);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 受理消息，立即返回消息ID；排队已满时抛出业务异常
+     * 需在请求线程中调用，当前登录用户信息会传递到工作线程
+     */
+    public ChatAcceptedVO submit(ChatRequest request) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            rejectedFull.increment();
+            log.warn("异步聊天排队已满，拒绝消息: sessionId={}, 排队数={}", request.getSessionId(), maxPending);
+            throw new BusinessException("当前咨询人数较多，请稍后再试");
+        }
+
+        ChatTask task = new ChatTask(UUID.randomUUID().toString(), request, UserContext.capture());
+        int[] queuedAhead = {-1};
+        try {
+            lanes.compute(laneKey(task.context, request), (key, lane) -> {
+                if (lane == null) {
+                    lane = new SessionLane(key);
+                }
+                if (lane.tasks.size() >= maxPendingPerSession) {
+                    return lane.scheduled ? lane : null;
+                }
+                queuedAhead[0] = lane.tasks.size();
+                lane.tasks.add(task);
+                if (!lane.scheduled) {
+                    lane.scheduled = true;
+                    executor.execute(lane);
+                }
+                return lane;
+            });
+        } catch (RejectedExecutionException e) {
+            pending.decrementAndGet();
+            rejectedFull.increment();
+            throw new BusinessException("聊天服务正在停止，请稍后再试");
+        }
+
+        if (queuedAhead[0] < 0) {
+            pending.decrementAndGet();
+            rejectedSession.increment();
+            throw new BusinessException("您的消息还在处理中，请等待回复后再发送");
+        }
+
+        submitted.increment();
+        return ChatAcceptedVO.builder()
+                .messageId(task.messageId)
+                .sessionId(request.getSessionId())
+                .queuedAhead(queuedAhead[0])
+                .build();
+    }
+
+    /**
+     * 查询已完成的处理结果，处理中、已过期或不是当前登录身份发起的消息时返回null
+     * 需在请求线程中调用
+     */
+    public ChatResponse getResult(String messageId) {
+        CompletedResult result;
+        synchronized (results) {
+            result = results.get(messageId);
+        }
+        if (result == null) {
+            return null;
+        }
+        if (!Objects.equals(result.owner, UserContext.capture().identity())) {
+            log.warn("拒绝读取其他身份的聊天结果: messageId={}", messageId);
+            return null;
+        }
+        return result.response;
+    }
+
+    /**
+     * 调度器统计：排队情况、拒绝次数、排队等待和处理耗时
+     */
+    public Map<String, Object> stats() {
+        long done = completed.sum() + failed.sum();
+        long started = done + executor.getActiveCount();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pending.get());
+        stats.put("maxPending", maxPending);
+        stats.put("activeSessions", lanes.size());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("threads", threads);
+        stats.put("submitted", submitted.sum());
+        stats.put("rejectedQueueFull", rejectedFull.sum());
+        stats.put("rejectedSessionLimit", rejectedSession.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("averageWaitMillis", started > 0 ? waitNanos.sum() / 1_000_000.0 / started : 0);
+        stats.put("maxWaitMillis", maxWaitNanos.get() / 1_000_000.0);
+        stats.put("averageProcessMillis", done > 0 ? processNanos.sum() / 1_000_000.0 / done : 0);
+        stats.put("maxProcessMillis", maxProcessNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    private void process(ChatTask task) {
+        long startNanos = System.nanoTime();
+        long wait = startNanos - task.submittedNanos;
+        waitNanos.add(wait);
+        maxWaitNanos.accumulateAndGet(wait, Math::max);
+
+        ChatRequest request = task.request;
+        push(request, "chat_processing", "正在处理", task.messageId, null);
+
+        ChatResponse response;
+        task.context.apply();
+        try {
+            response = chatBotService.processMessage(request);
+            completed.increment();
+        } catch (Exception e) {
+            failed.increment();
+            log.error("异步处理聊天消息失败: messageId={}, {}", task.messageId, e.getMessage(), e);
+            response = ChatResponse.error("抱歉，我现在无法回答您的问题，请稍后重试。");
+        } finally {
+            BaseContext.removeAll();
+            long nanos = System.nanoTime() - startNanos;
+            processNanos.add(nanos);
+            maxProcessNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        synchronized (results) {
+            results.put(task.messageId, new CompletedResult(task.context.identity(), response));
+        }
+        push(request, "chat_reply", "收到回复", task.messageId, response);
+    }
+
+    /**
+     * 按请求中的用户ID推送：数字ID为登录用户，temp_开头为临时用户
+     */
+    private void push(ChatRequest request, String type, String message, String messageId, ChatResponse response) {
+        String userId = request.getUserId();
+        if (userId == null) {
+            return;
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("messageId", messageId);
+        data.put("sessionId", request.getSessionId());
+        if (response != null) {
+            data.put("response", response);
+        }
+        String payload = UserWebSocketServer.createMessage(type, message, data);
+        if (userId.startsWith(TEMP_USER_PREFIX)) {
+            UserWebSocketServer.sendMessageToTempUser(userId, payload);
+        } else {
+            try {
+                UserWebSocketServer.sendMessage(Long.parseLong(userId), payload);
+            } catch (NumberFormatException e) {
+                log.debug("用户ID无法推送WebSocket消息，客户端需通过消息ID查询结果: userId={}", userId);
+            }
+        }
+    }
+
+    /**
+     * 队列键以登录身份开头，会话ID只在同一身份内区分；未登录时退回请求中的用户ID
+     */
+    private static String laneKey(UserContext context, ChatRequest request) {
+        String identity = context.identity();
+        String owner = identity != null ? identity : "guest:" + request.getUserId();
+        return owner + ":" + (request.getSessionId() != null ? request.getSessionId() : "");
+    }
+
+    /**
+     * 单个会话的串行队列：每次只把自己提交到线程池一次，处理完一条后若还有消息再重新提交，保证同一会话按顺序处理
+     * scheduled 只在 lanes.compute 中读写（同一会话的键上互斥）
+     */
+    private final class SessionLane implements Runnable {
+        private final String key;
+        private final Queue<ChatTask> tasks = new ConcurrentLinkedQueue<>();
+        private boolean scheduled;
+
+        SessionLane(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            try {
+                process(tasks.peek());
+            } finally {
+                pending.decrementAndGet();
+                lanes.compute(key, (k, lane) -> {
+                    tasks.poll();
+                    if (tasks.isEmpty()) {
+                        scheduled = false;
+                        return null;
+                    }
+                    try {
+                        executor.execute(this);
+                    } catch (RejectedExecutionException e) {
+                        log.warn("线程池已停止，丢弃会话{}中剩余的{}条消息", key, tasks.size());
+                        pending.addAndGet(-tasks.size());
+                        tasks.clear();
+                        scheduled = false;
+                        return null;
+                    }
+                    return this;
+                });
+            }
+        }
+    }
+
+    private static final class CompletedResult {
+        final String owner;
+        final ChatResponse response;
+
+        CompletedResult(String owner, ChatResponse response) {
+            this.owner = owner;
+            this.response = response;
+        }
+    }
+
+    private static final class ChatTask {
+        final String messageId;
+        final ChatRequest request;
+        final UserContext context;
+        final long submittedNanos = System.nanoTime();
+
+        ChatTask(String messageId, ChatRequest request, UserContext context) {
+            this.messageId = messageId;
+            this.request = request;
+            this.context = context;
+        }
+    }
+
+    /**
+     * 请求线程中的登录用户信息（BaseContext），在工作线程中恢复
+     */
+    private static final class UserContext {
+        final Long currentId;
+        final String username;
+        final String userType;
+        final Long agentId;
+        final Long operatorId;
+
+        private UserContext(Long currentId, String username, String userType, Long agentId, Long operatorId) {
+            this.currentId = currentId;
+            this.username = username;
+            this.userType = userType;
+            this.agentId = agentId;
+            this.operatorId = operatorId;
+        }
+
+        static UserContext capture() {
+            return new UserContext(BaseContext.getCurrentId(), BaseContext.getCurrentUsername(),
+                    BaseContext.getCurrentUserType(), BaseContext.getCurrentAgentId(), BaseContext.getCurrentOperatorId());
+        }
+
+        /**
+         * 登录身份（用户类型:用户ID），未登录时为null
+         */
+        String identity() {
+            return currentId != null ? userType + ":" + currentId : null;
+        }
+
+        void apply() {
+            BaseContext.setCurrentId(currentId);
+            BaseContext.setCurrentUsername(username);
+            BaseContext.setCurrentUserType(userType);
+            BaseContext.setCurrentAgentId(agentId);
+            BaseContext.setCurrentOperatorId(operatorId);
+        }
+    }
+}
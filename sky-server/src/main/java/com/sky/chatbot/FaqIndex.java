@@ -0,0 +1,290 @@
+package com.sky.chatbot;
+
+import com.sky.entity.DayTourFaq;
+import com.sky.mapper.DayTourFaqMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * FAQ内存索引
+ * 问题预先归一化（小写、去掉标点和空白），按字符二元组（bigram，适合中文）建立倒排索引，
+ * 查询时只对共享二元组的FAQ打分（Dice系数，包含关系记为满分），聊天路径不访问数据库。
+ * 后台新增/删除FAQ时在内存中增量更新，另有定时全量重载兜底。
+ */
+@Component
+@Slf4j
+public class FaqIndex {
+
+    /**
+     * 相似度不足时的兜底规则：与FAQ有2个及以上共同关键词即认为相关（沿用原匹配规则）
+     */
+    private static final String[] KEYWORDS = {"价格", "费用", "多少钱", "时间", "几点", "什么时候", "天气", "气候",
+            "景点", "地方", "推荐", "好玩", "美食", "吃", "住宿", "酒店", "交通",
+            "接送", "航班", "行程", "几天", "一日游", "跟团", "预订", "取消",
+            "退款", "优惠", "折扣", "包含", "不含", "儿童", "老人", "团费"};
+
+    private static final int MIN_COMMON_KEYWORDS = 2;
+
+    @Autowired
+    private DayTourFaqMapper dayTourFaqMapper;
+
+    /**
+     * 最低相似度（Dice系数），低于该值的FAQ不返回
+     */
+    @Value("${sky.chatbot.faq.min-score:0.6}")
+    private double minScore;
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * 定时全量重载，兜底未经过后台接口的数据修改
+     */
+    @Scheduled(fixedDelayString = "${sky.chatbot.faq.reload-interval-ms:1800000}",
+               initialDelayString = "${sky.chatbot.faq.reload-interval-ms:1800000}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    /**
+     * 从数据库全量重建索引
+     */
+    public synchronized void reload() {
+        try {
+            List<DayTourFaq> faqs = dayTourFaqMapper.findAll();
+            snapshot = new Snapshot(faqs != null ? faqs : Collections.emptyList());
+            log.info("FAQ索引已重建: {}条", snapshot.entries.size());
+        } catch (Exception e) {
+            log.error("FAQ索引重建失败，继续使用原索引: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 新增或修改FAQ后增量更新
+     */
+    public synchronized void put(DayTourFaq faq) {
+        if (faq == null || faq.getId() == null) {
+            // 没有ID无法定位，退回全量重建
+            reload();
+            return;
+        }
+        List<DayTourFaq> faqs = snapshot.faqs();
+        boolean replaced = false;
+        for (int i = 0; i < faqs.size(); i++) {
+            if (faq.getId().equals(faqs.get(i).getId())) {
+                faqs.set(i, faq);
+                replaced = true;
+                break;
+            }
+        }
+        if (!replaced) {
+            faqs.add(faq);
+        }
+        snapshot = new Snapshot(faqs);
+    }
+
+    /**
+     * 删除FAQ后增量更新
+     */
+    public synchronized void remove(Integer faqId) {
+        List<DayTourFaq> faqs = snapshot.faqs();
+        if (faqs.removeIf(faq -> faqId != null && faqId.equals(faq.getId()))) {
+            snapshot = new Snapshot(faqs);
+        }
+    }
+
+    /**
+     * 删除一日游的所有FAQ后增量更新
+     */
+    public synchronized void removeByDayTourId(Integer dayTourId) {
+        List<DayTourFaq> faqs = snapshot.faqs();
+        if (faqs.removeIf(faq -> dayTourId != null && dayTourId.equals(faq.getDayTourId()))) {
+            snapshot = new Snapshot(faqs);
+        }
+    }
+
+    /**
+     * 最匹配的FAQ，没有达到阈值的FAQ时返回null
+     */
+    public DayTourFaq findBest(String question) {
+        List<FaqMatch> matches = search(question, 1);
+        return matches.isEmpty() ? null : matches.get(0).getFaq();
+    }
+
+    /**
+     * 按相似度从高到低返回前k个FAQ；相似度都不够时按共同关键词兜底（分数记为0）
+     */
+    public List<FaqMatch> search(String question, int k) {
+        Snapshot current = snapshot;
+        String normalized = normalize(question);
+        if (normalized.length() < 2 || current.entries.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<String> grams = bigrams(normalized);
+        int[] common = new int[current.entries.size()];
+        for (String gram : grams) {
+            int[] posting = current.postings.get(gram);
+            if (posting != null) {
+                for (int index : posting) {
+                    common[index]++;
+                }
+            }
+        }
+
+        List<FaqMatch> matches = new ArrayList<>();
+        for (int i = 0; i < common.length; i++) {
+            if (common[i] == 0) {
+                continue;
+            }
+            Entry entry = current.entries.get(i);
+            double score = entry.normalized.contains(normalized) || normalized.contains(entry.normalized)
+                    ? 1.0
+                    : 2.0 * common[i] / (grams.size() + entry.gramCount);
+            if (score >= minScore) {
+                matches.add(new FaqMatch(entry.faq, score, i));
+            }
+        }
+
+        if (matches.isEmpty()) {
+            long mask = keywordMask(normalized);
+            if (Long.bitCount(mask) >= MIN_COMMON_KEYWORDS) {
+                for (int i = 0; i < current.entries.size() && matches.size() < k; i++) {
+                    if (Long.bitCount(mask & current.entries.get(i).keywordMask) >= MIN_COMMON_KEYWORDS) {
+                        matches.add(new FaqMatch(current.entries.get(i).faq, 0, i));
+                    }
+                }
+            }
+            return matches;
+        }
+
+        // 分数相同时按FAQ原有顺序（position）
+        matches.sort((a, b) -> a.score != b.score ? Double.compare(b.score, a.score) : Integer.compare(a.order, b.order));
+        return matches.size() > k ? new ArrayList<>(matches.subList(0, k)) : matches;
+    }
+
+    /**
+     * 归一化：转小写，只保留字母、数字和汉字
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Set<String> bigrams(String normalized) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 2 <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    private static long keywordMask(String normalized) {
+        long mask = 0;
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            if (normalized.contains(KEYWORDS[i])) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * FAQ匹配结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class FaqMatch {
+        private final DayTourFaq faq;
+        private final double score;
+        private final int order;
+    }
+
+    private static class Entry {
+        final DayTourFaq faq;
+        final String normalized;
+        final int gramCount;
+        final long keywordMask;
+
+        Entry(DayTourFaq faq, String normalized, int gramCount, long keywordMask) {
+            this.faq = faq;
+            this.normalized = normalized;
+            this.gramCount = gramCount;
+            this.keywordMask = keywordMask;
+        }
+    }
+
+    /**
+     * 不可变的索引快照，更新时整体替换
+     */
+    private static class Snapshot {
+        final List<Entry> entries;
+        final Map<String, int[]> postings;
+
+        Snapshot(List<DayTourFaq> faqs) {
+            List<Entry> entryList = new ArrayList<>();
+            Map<String, List<Integer>> postingLists = new HashMap<>();
+            for (DayTourFaq faq : faqs) {
+                if (faq.getQuestion() == null || faq.getAnswer() == null) {
+                    continue;
+                }
+                String normalized = normalize(faq.getQuestion());
+                if (normalized.isEmpty()) {
+                    continue;
+                }
+                Set<String> grams = bigrams(normalized);
+                int index = entryList.size();
+                entryList.add(new Entry(faq, normalized, grams.size(), keywordMask(normalized)));
+                for (String gram : grams) {
+                    postingLists.computeIfAbsent(gram, g -> new ArrayList<>()).add(index);
+                }
+            }
+
+            Map<String, int[]> postingArrays = new HashMap<>(postingLists.size() * 2);
+            for (Map.Entry<String, List<Integer>> posting : postingLists.entrySet()) {
+                postingArrays.put(posting.getKey(), posting.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            this.entries = Collections.unmodifiableList(entryList);
+            this.postings = postingArrays;
+        }
+
+        /**
+         * 当前所有FAQ的可修改副本
+         */
+        List<DayTourFaq> faqs() {
+            List<DayTourFaq> faqs = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                faqs.add(entry.faq);
+            }
+            return faqs;
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package com.sky.chatbot;
+
+import com.sky.dto.GroupTourDTO;
+import com.sky.entity.DayTour;
+import com.sky.mapper.DayTourMapper;
+import com.sky.mapper.DayTourThemeMapper;
+import com.sky.mapper.GroupTourMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 聊天机器人产品检索索引
+ * 把上架的跟团游和一日游（名称、产品代码、天数/晚数、地区、主题）加载到内存，按字符二元组建立倒排索引，
+ * 订单解析时在进程内完成模糊匹配和打分，不再逐级执行多次 LIKE 查询；只有最高分低于阈值时才需要调用大模型。
+ * 管理端修改产品后通过 {@link #requestRebuild()} 在后台重建，另有定时全量重建兜底。
+ */
+@Component
+@Slf4j
+public class ProductSearchIndex {
+
+    public enum ProductType {
+        GROUP_TOUR, DAY_TOUR
+    }
+
+    private static final Pattern DAYS_PATTERN = Pattern.compile("(\\d+)(?:日|天)");
+    private static final Pattern NIGHTS_PATTERN = Pattern.compile("(\\d+)(?:晚|夜)");
+    private static final Pattern CHINESE_COUNT_PATTERN = Pattern.compile("([一二两三四五六七八九十])(日|天|晚|夜)");
+    private static final String CHINESE_DIGITS = "一二三四五六七八九十";
+
+    /**
+     * 同义词归一（先替换长词）
+     */
+    private static final String[][] SYNONYMS = {
+            {"tasmania", "塔斯马尼亚"}, {"塔斯曼尼亚", "塔斯马尼亚"}, {"塔州", "塔斯马尼亚"}, {"塔塔", "塔斯马尼亚"},
+            {"朗赛斯顿", "朗塞斯顿"}, {"朗赛", "朗塞"}, {"南线", "南部"}, {"北线", "北部"},
+            {"东海岸", "东部"}, {"西海岸", "西部"}
+    };
+
+    /**
+     * 不参与匹配的填充词
+     */
+    private static final String[] FILLER_WORDS = {"服务类型", "跟团游", "跟团", "团游", "游"};
+
+    private static final String[] DIRECTIONS = {"南北", "南部", "北部", "东部", "西部"};
+
+    @Autowired
+    private GroupTourMapper groupTourMapper;
+
+    @Autowired
+    private DayTourMapper dayTourMapper;
+
+    @Autowired
+    private DayTourThemeMapper dayTourThemeMapper;
+
+    /**
+     * 最低匹配分，最高分低于该值时视为本地未匹配（由调用方决定是否调用大模型）
+     */
+    @Value("${sky.chatbot.product-search.min-score:0.5}")
+    private double minScore;
+
+    /**
+     * 第一名比第二名至少高出该分数时视为唯一匹配，否则返回候选列表让用户选择
+     */
+    @Value("${sky.chatbot.product-search.unique-margin:0.15}")
+    private double uniqueMargin;
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList(), Collections.emptyList());
+
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "product-search-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * 定时全量重建，兜底未经过管理端接口的数据修改
+     */
+    @Scheduled(fixedDelayString = "${sky.chatbot.product-search.refresh-interval-ms:1800000}",
+               initialDelayString = "${sky.chatbot.product-search.refresh-interval-ms:1800000}")
+    public void scheduledRebuild() {
+        requestRebuild();
+    }
+
+    /**
+     * 请求后台重建索引；已有排队中的重建时直接合并
+     */
+    public void requestRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    /**
+     * 同步重建索引，失败时继续使用旧索引
+     */
+    public synchronized void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            List<GroupTourDTO> groupTours = groupTourMapper.listSearchInfo();
+            List<DayTour> dayTours = dayTourMapper.listSearchInfo();
+            Map<Integer, List<String>> groupTourThemes = groupByTour(groupTourMapper.listThemeNames());
+            Map<Integer, List<String>> dayTourThemes = groupByTour(dayTourThemeMapper.listThemeNames());
+
+            List<Document> documents = new ArrayList<>();
+            List<GroupTourDTO> displayed = new ArrayList<>();
+            for (GroupTourDTO tour : groupTours) {
+                List<String> themes = groupTourThemes.getOrDefault(tour.getId(), Collections.emptyList());
+                tour.setThemes(themes);
+                Integer days = tour.getDays() != null ? tour.getDays() : extractCount(DAYS_PATTERN, normalize(tour.getName()));
+                Integer nights = tour.getNights() != null ? tour.getNights() : extractCount(NIGHTS_PATTERN, normalize(tour.getName()));
+                documents.add(new Document(ProductType.GROUP_TOUR, tour.getId(), tour.getName(), tour.getTourCode(),
+                        days, nights, attributes(tour.getRegionName(), tour.getLocation(), tour.getCategory(), themes), tour));
+                if (tour.getShowOnUserSite() != null && tour.getShowOnUserSite() == 1) {
+                    displayed.add(tour);
+                }
+            }
+            for (DayTour tour : dayTours) {
+                List<String> themes = dayTourThemes.getOrDefault(tour.getId(), Collections.emptyList());
+                documents.add(new Document(ProductType.DAY_TOUR, tour.getId(), tour.getName(), null,
+                        1, 0, attributes(tour.getRegionName(), tour.getLocation(), tour.getCategory(), themes), tour));
+            }
+
+            snapshot = new Snapshot(documents, displayed);
+            log.info("产品检索索引已重建: 跟团游{}个, 一日游{}个, 耗时{}ms",
+                    groupTours.size(), dayTours.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("产品检索索引重建失败，继续使用原索引: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * 按匹配分从高到低返回前k个产品，只返回不低于最低匹配分的结果
+     * @param query 用户输入（服务类型、产品名称或整句消息）
+     * @param type 产品类型，为null时同时检索跟团游和一日游
+     */
+    public List<ProductMatch> search(String query, ProductType type, int k) {
+        Snapshot current = snapshot;
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || current.documents.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<String> grams = bigrams(normalized);
+        int[] common = new int[current.documents.size()];
+        for (String gram : grams) {
+            int[] posting = current.postings.get(gram);
+            if (posting != null) {
+                for (int index : posting) {
+                    common[index]++;
+                }
+            }
+        }
+
+        Integer days = extractCount(DAYS_PATTERN, normalized);
+        Integer nights = extractCount(NIGHTS_PATTERN, normalized);
+        Set<String> directions = directions(normalized);
+
+        List<ProductMatch> matches = new ArrayList<>();
+        for (int i = 0; i < current.documents.size(); i++) {
+            Document document = current.documents.get(i);
+            if (type != null && document.type != type) {
+                continue;
+            }
+            boolean codeMatch = document.code != null && normalized.contains(document.code);
+            if (common[i] == 0 && !codeMatch) {
+                continue;
+            }
+            double score = codeMatch ? 1.0 : score(document, normalized, grams, days, nights, directions);
+            if (score >= minScore) {
+                matches.add(new ProductMatch(document.type, document.id, document.name, score, i, document.product));
+            }
+        }
+
+        // 分数相同时按产品ID顺序
+        matches.sort((a, b) -> a.score != b.score ? Double.compare(b.score, a.score) : Integer.compare(a.order, b.order));
+        return matches.size() > k ? new ArrayList<>(matches.subList(0, k)) : matches;
+    }
+
+    /**
+     * 从检索结果中确定唯一匹配：只有一个结果，或第一名明显领先第二名；否则返回null
+     */
+    public ProductMatch uniqueMatch(List<ProductMatch> matches) {
+        if (matches.isEmpty()) {
+            return null;
+        }
+        if (matches.size() == 1 || matches.get(0).score - matches.get(1).score >= uniqueMargin) {
+            return matches.get(0);
+        }
+        return null;
+    }
+
+    /**
+     * 在用户端显示的跟团游（按ID排序）
+     */
+    public List<GroupTourDTO> getDisplayedGroupTours() {
+        return snapshot.displayedGroupTours;
+    }
+
+    /**
+     * 打分：名称模糊相似度为主，天数/晚数不一致和方位（南部/北部等）冲突时降权
+     */
+    private double score(Document document, String normalized, Set<String> grams,
+                         Integer days, Integer nights, Set<String> directions) {
+        double text;
+        if (document.title.length() >= 4 && normalized.contains(document.title)) {
+            text = 0.95;
+        } else {
+            int titleCommon = countCommon(grams, document.titleGrams);
+            int allCommon = countCommon(grams, document.grams);
+            double dice = grams.isEmpty() ? 0 : 2.0 * titleCommon / (grams.size() + document.titleGrams.size());
+            double coverage = grams.isEmpty() ? 0 : (double) allCommon / grams.size();
+            double titleRecall = document.titleGrams.isEmpty() ? 0 : (double) titleCommon / document.titleGrams.size();
+            // 输入较短时看覆盖率，输入是整句消息时看产品名称被包含的比例
+            text = Math.max(0.5 * dice + 0.5 * coverage, 0.9 * titleRecall);
+        }
+
+        double score = text;
+        if (days != null && document.days != null) {
+            score = days.equals(document.days) ? score + 0.1 : score * 0.4;
+        }
+        if (nights != null && document.nights != null && !nights.equals(document.nights)) {
+            score *= 0.6;
+        }
+        if (!directions.isEmpty() && !document.directions.isEmpty()) {
+            boolean matched = false;
+            for (String direction : directions) {
+                if (document.directions.contains(direction)) {
+                    matched = true;
+                    break;
+                }
+            }
+            score = matched ? score + 0.05 : score * 0.6;
+        }
+        return Math.min(score, 1.0);
+    }
+
+    /**
+     * 归一化：转小写，中文数字天数转阿拉伯数字，同义词替换，去掉填充词，只保留字母、数字和汉字
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase();
+        Matcher matcher = CHINESE_COUNT_PATTERN.matcher(lower);
+        StringBuffer converted = new StringBuffer();
+        while (matcher.find()) {
+            String digit = matcher.group(1);
+            int value = "两".equals(digit) ? 2 : CHINESE_DIGITS.indexOf(digit) + 1;
+            matcher.appendReplacement(converted, value + matcher.group(2));
+        }
+        matcher.appendTail(converted);
+        lower = converted.toString();
+        for (String[] synonym : SYNONYMS) {
+            lower = lower.replace(synonym[0], synonym[1]);
+        }
+        for (String filler : FILLER_WORDS) {
+            lower = lower.replace(filler, "");
+        }
+
+        StringBuilder sb = new StringBuilder(lower.length());
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Integer extractCount(Pattern pattern, String normalized) {
+        Matcher matcher = pattern.matcher(normalized);
+        if (matcher.find()) {
+            try {
+                return Integer.parseInt(matcher.group(1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 方位词：包含"南北"时只识别为南北线路，避免同时命中南部和北部
+     */
+    private static Set<String> directions(String normalized) {
+        Set<String> result = new LinkedHashSet<>();
+        if (normalized.contains(DIRECTIONS[0])) {
+            result.add(DIRECTIONS[0]);
+            return result;
+        }
+        for (int i = 1; i < DIRECTIONS.length; i++) {
+            if (normalized.contains(DIRECTIONS[i])) {
+                result.add(DIRECTIONS[i]);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> bigrams(String normalized) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (normalized.length() == 1) {
+            grams.add(normalized);
+        }
+        for (int i = 0; i + 2 <= normalized.length(); i++) {
+            grams.add(normalized.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    private static int countCommon(Set<String> grams, Set<String> documentGrams) {
+        int count = 0;
+        for (String gram : grams) {
+            if (documentGrams.contains(gram)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String attributes(String regionName, String location, String category, Collection<String> themes) {
+        StringBuilder sb = new StringBuilder();
+        for (String value : new String[]{regionName, location, category}) {
+            if (value != null) {
+                sb.append(value).append(' ');
+            }
+        }
+        for (String theme : themes) {
+            sb.append(theme).append(' ');
+        }
+        return sb.toString();
+    }
+
+    private static Map<Integer, List<String>> groupByTour(List<Map<String, Object>> rows) {
+        Map<Integer, List<String>> result = new HashMap<>();
+        if (rows == null) {
+            return result;
+        }
+        for (Map<String, Object> row : rows) {
+            Object tourId = row.get("tourId");
+            Object name = row.get("name");
+            if (tourId instanceof Number && name != null) {
+                result.computeIfAbsent(((Number) tourId).intValue(), id -> new ArrayList<>()).add(name.toString());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 产品匹配结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ProductMatch {
+        private final ProductType type;
+        private final Integer id;
+        private final String name;
+        private final double score;
+        private final int order;
+        private final Object product;
+
+        /**
+         * 跟团游产品，类型不是跟团游时返回null
+         */
+        public GroupTourDTO getGroupTour() {
+            return type == ProductType.GROUP_TOUR ? (GroupTourDTO) product : null;
+        }
+
+        /**
+         * 一日游产品，类型不是一日游时返回null
+         */
+        public DayTour getDayTour() {
+            return type == ProductType.DAY_TOUR ? (DayTour) product : null;
+        }
+    }
+
+    private static class Document {
+        final ProductType type;
+        final Integer id;
+        final String name;
+        final String title;
+        final String code;
+        final Integer days;
+        final Integer nights;
+        final Set<String> directions;
+        final Set<String> titleGrams;
+        final Set<String> grams;
+        final Object product;
+
+        Document(ProductType type, Integer id, String name, String code, Integer days, Integer nights,
+                 String attributes, Object product) {
+            this.type = type;
+            this.id = id;
+            this.name = name;
+            this.title = normalize(name);
+            String normalizedCode = normalize(code);
+            this.code = normalizedCode.length() >= 3 ? normalizedCode : null;
+            this.days = days;
+            this.nights = nights;
+            this.directions = directions(title);
+            this.titleGrams = bigrams(title);
+            Set<String> allGrams = new LinkedHashSet<>(titleGrams);
+            allGrams.addAll(bigrams(normalize(attributes)));
+            this.grams = allGrams;
+            this.product = product;
+        }
+    }
+
+    /**
+     * 不可变的索引快照，重建时整体替换
+     */
+    private static class Snapshot {
+        final List<Document> documents;
+        final Map<String, int[]> postings;
+        final List<GroupTourDTO> displayedGroupTours;
+
+        Snapshot(List<Document> documents, List<GroupTourDTO> displayedGroupTours) {
+            Map<String, List<Integer>> postingLists = new HashMap<>();
+            for (int i = 0; i < documents.size(); i++) {
+                for (String gram : documents.get(i).grams) {
+                    postingLists.computeIfAbsent(gram, g -> new ArrayList<>()).add(i);
+                }
+            }
+            Map<String, int[]> postingArrays = new HashMap<>(postingLists.size() * 2);
+            for (Map.Entry<String, List<Integer>> posting : postingLists.entrySet()) {
+                postingArrays.put(posting.getKey(), posting.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            this.documents = Collections.unmodifiableList(documents);
+            this.postings = postingArrays;
+            this.displayedGroupTours = Collections.unmodifiableList(displayedGroupTours);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.sky.chatbot;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.sky.cache.TwoTierCache;
+import com.sky.cache.TwoTierCacheManager;
+import com.sky.utils.HttpClientUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Qwen大模型调用网关（阿里云DashScope OpenAI兼容API）
+ * 按 模型+参数+提示词 的内容摘要缓存响应（本地+Redis两级，带TTL）；
+ * 同一提示词的并发请求只向上游发一次，其余请求等待同一结果；
+ * 统计调用次数、缓存命中、合并次数、上游耗时和token用量。
+ * 上游地址由 qwen.api.base-url 配置，可指向本地桩服务联调。
+ */
+@Component
+@Slf4j
+public class QwenGateway {
+
+    @Value("${qwen.api.key:}")
+    private String apiKey;
+
+    @Value("${qwen.api.base-url:https://dashscope.aliyuncs.com/compatible-mode/v1}")
+    private String baseUrl;
+
+    @Value("${qwen.model:qwen-turbo}")
+    private String model;
+
+    @Value("${qwen.timeout:90000}")
+    private int timeout;
+
+    @Value("${qwen.max-tokens:2000}")
+    private int maxTokens;
+
+    @Value("${qwen.temperature:0.7}")
+    private double temperature;
+
+    @Value("${sky.chatbot.llm.cache-max-size:500}")
+    private int cacheMaxSize;
+
+    @Value("${sky.chatbot.llm.cache-ttl-seconds:600}")
+    private long cacheTtlSeconds;
+
+    @Autowired
+    private TwoTierCacheManager cacheManager;
+
+    private TwoTierCache<String> responseCache;
+
+    /**
+     * 正在向上游请求中的提示词（键为内容摘要）
+     */
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder upstreamCalls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder upstreamNanos = new LongAdder();
+    private final AtomicLong maxUpstreamNanos = new AtomicLong();
+    private final LongAdder promptTokens = new LongAdder();
+    private final LongAdder completionTokens = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        this.responseCache = cacheManager.create("qwenResponses", String.class, cacheMaxSize,
+                Duration.ofSeconds(cacheTtlSeconds), Duration.ofSeconds(cacheTtlSeconds));
+
+        if (isConfigured()) {
+            log.info("Qwen AI服务初始化成功，模型: {}", model);
+        } else {
+            log.warn("Qwen API Key未配置，聊天功能将受限");
+        }
+    }
+
+    /**
+     * 是否已配置API Key
+     */
+    public boolean isConfigured() {
+        return apiKey != null && !apiKey.isEmpty();
+    }
+
+    /**
+     * 单轮对话补全，返回清理过markdown代码块标记的内容
+     */
+    public String complete(String prompt) {
+        if (!isConfigured()) {
+            throw new RuntimeException("Qwen API Key未配置");
+        }
+        requests.increment();
+        String key = cacheKey(prompt);
+        return responseCache.get(key, () -> loadSingleFlight(key, prompt));
+    }
+
+    /**
+     * 网关统计：请求数、缓存命中、并发合并、上游调用耗时和token用量
+     */
+    public Map<String, Object> stats() {
+        long total = requests.sum();
+        long calls = upstreamCalls.sum();
+        long merged = coalesced.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("model", model);
+        stats.put("requests", total);
+        stats.put("cacheHits", Math.max(total - calls - merged, 0));
+        stats.put("coalesced", merged);
+        stats.put("upstreamCalls", calls);
+        stats.put("failures", failures.sum());
+        stats.put("inFlight", inFlight.size());
+        stats.put("averageUpstreamMillis", calls > 0 ? upstreamNanos.sum() / 1_000_000.0 / calls : 0);
+        stats.put("maxUpstreamMillis", maxUpstreamNanos.get() / 1_000_000.0);
+        stats.put("promptTokens", promptTokens.sum());
+        stats.put("completionTokens", completionTokens.sum());
+        return stats;
+    }
+
+    /**
+     * 同一提示词只有第一个请求访问上游，其余请求等待其结果；失败时所有等待者都收到同一异常
+     */
+    private String loadSingleFlight(String key, String prompt) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        try {
+            String content = invoke(prompt);
+            future.complete(content);
+            return content;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private String await(CompletableFuture<String> future) {
+        try {
+            return future.get(timeout * 3L, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Qwen AI调用失败: " + e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Qwen AI调用超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Qwen AI调用被中断");
+        }
+    }
+
+    private String invoke(String prompt) {
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("model", model);
+
+        // 使用OpenAI兼容格式的messages
+        JSONArray messages = new JSONArray();
+        JSONObject message = new JSONObject();
+        message.put("role", "user");
+        message.put("content", prompt);
+        messages.add(message);
+
+        requestBody.put("messages", messages);
+        requestBody.put("max_tokens", maxTokens);
+        requestBody.put("temperature", temperature);
+
+        long start = System.nanoTime();
+        upstreamCalls.increment();
+        try {
+            HttpClientUtil.HttpResult response = HttpClientUtil.postJson(baseUrl + "/chat/completions",
+                    requestBody.toString(), Collections.singletonMap("Authorization", "Bearer " + apiKey), timeout);
+            if (!response.isSuccessful()) {
+                log.error("Qwen API调用失败: {}, 响应体: {}", response.getStatusCode(), response.getBody());
+                throw new RuntimeException("Qwen API调用失败: " + response.getStatusCode());
+            }
+
+            String responseBody = response.getBody();
+            log.debug("Qwen API响应: {}", responseBody);
+
+            JSONObject jsonResponse = JSON.parseObject(responseBody);
+            JSONObject usage = jsonResponse.getJSONObject("usage");
+            if (usage != null) {
+                promptTokens.add(usage.getLongValue("prompt_tokens"));
+                completionTokens.add(usage.getLongValue("completion_tokens"));
+            }
+
+            String content = jsonResponse.getJSONArray("choices")
+                    .getJSONObject(0)
+                    .getJSONObject("message")
+                    .getString("content");
+
+            // 清理Qwen响应中的markdown代码块标记
+            if (content.startsWith("```json")) {
+                content = content.substring(7);
+            }
+            if (content.endsWith("```")) {
+                content = content.substring(0, content.length() - 3);
+            }
+            return content.trim();
+        } catch (IOException e) {
+            failures.increment();
+            log.error("Qwen API调用异常", e);
+            throw new RuntimeException("Qwen AI调用失败: " + e.getMessage());
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            upstreamNanos.add(nanos);
+            maxUpstreamNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * 缓存键：模型、生成参数和提示词的MD5摘要，参数变化时不会命中旧结果
+     */
+    private String cacheKey(String prompt) {
+        String content = model + "\n" + maxTokens + "\n" + temperature + "\n" + prompt;
+        return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
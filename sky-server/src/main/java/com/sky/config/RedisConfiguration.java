@@ -1,11 +1,17 @@
 package com.sky.config;
 
+import com.sky.cache.JwtTokenCache;
+import com.sky.cache.TwoTierCacheManager;
+import com.sky.permission.PermissionMatrix;
+import com.sky.pricing.HotelPriceIndex;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
@@ -30,4 +36,22 @@ public class RedisConfiguration {
 
         return redisTemplate;
     }
+
+    /**
+     * Redis消息监听容器，订阅两级缓存、权限矩阵的跨节点失效广播、token注销广播和酒店每日价格变更广播
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       TwoTierCacheManager twoTierCacheManager,
+                                                                       PermissionMatrix permissionMatrix,
+                                                                       JwtTokenCache jwtTokenCache,
+                                                                       HotelPriceIndex hotelPriceIndex) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(twoTierCacheManager, new ChannelTopic(TwoTierCacheManager.EVICT_CHANNEL));
+        container.addMessageListener(permissionMatrix, new ChannelTopic(PermissionMatrix.CHANGED_CHANNEL));
+        container.addMessageListener(jwtTokenCache, new ChannelTopic(JwtTokenCache.REVOKED_CHANNEL));
+        container.addMessageListener(hotelPriceIndex, new ChannelTopic(HotelPriceIndex.CHANGED_CHANNEL));
+        return container;
+    }
 }
@@ -1,8 +1,9 @@
 package com.sky.config;
 
+import com.sky.utils.HttpClientUtil;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -14,10 +15,12 @@ public class RestTemplateConfig {
     /**
      * 创建 RestTemplate Bean
      * 用于 HTTP 请求，特别是 Google OAuth 请求
+     * 使用 HttpClientUtil 的共用连接池（参数中注入 HttpClientUtil，保证连接池按配置初始化后再创建）
      */
     @Bean
-    public RestTemplate restTemplate() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+    public RestTemplate restTemplate(HttpClientUtil httpClientUtil) {
+        HttpComponentsClientHttpRequestFactory factory =
+                new HttpComponentsClientHttpRequestFactory(HttpClientUtil.sharedClient());
         
         // 设置连接超时时间（10秒）
         factory.setConnectTimeout(10000);
@@ -5,6 +5,7 @@ import com.sky.interceptor.JwtTokenAdminInterceptor;
 import com.sky.interceptor.JwtTokenUserInterceptor;
 import com.sky.interceptor.JwtTokenAgentInterceptor;
 import com.sky.json.JacksonObjectMapper;
+import com.sky.storage.LocalFileStorageService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -23,6 +24,7 @@ import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import org.springframework.format.FormatterRegistry;
 import org.springframework.format.datetime.standard.DateTimeFormatterRegistrar;
+import java.net.URI;
 import java.time.format.DateTimeFormatter;
 
 import java.util.List;
@@ -42,6 +44,12 @@ public class WebMvcConfiguration extends WebMvcConfigurationSupport {
     
     @Autowired
     private JwtTokenAgentInterceptor jwtTokenAgentInterceptor;
+
+    /**
+     * 使用本地文件存储时存在（sky.storage.type=local）
+     */
+    @Autowired(required = false)
+    private LocalFileStorageService localFileStorageService;
     
     /**
      * 注册自定义拦截器
@@ -159,6 +167,13 @@ public class WebMvcConfiguration extends WebMvcConfigurationSupport {
     protected void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/doc.html").addResourceLocations("classpath:/META-INF/resources/");
         registry.addResourceHandler("/webjars/**").addResourceLocations("classpath:/META-INF/resources/webjars/");
+
+        // 本地文件存储的访问路径
+        if (localFileStorageService != null) {
+            String path = URI.create(localFileStorageService.getBaseUrl()).getPath();
+            registry.addResourceHandler(path + "**")
+                    .addResourceLocations(localFileStorageService.getRootPath().toUri().toString());
+        }
     }
 
 
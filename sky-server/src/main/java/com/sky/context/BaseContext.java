@@ -91,6 +91,17 @@ public class BaseContext {
         return operatorIdThreadLocal.get();
     }
     
+    /**
+     * 一次设置当前请求的全部身份信息（JWT拦截器使用）
+     */
+    public static void setContext(Long id, String username, String userType, Long agentId, Long operatorId) {
+        threadLocal.set(id);
+        usernameThreadLocal.set(username);
+        userTypeThreadLocal.set(userType);
+        agentIdThreadLocal.set(agentId);
+        operatorIdThreadLocal.set(operatorId);
+    }
+
     /**
      * 移除当前线程的所有信息
      */
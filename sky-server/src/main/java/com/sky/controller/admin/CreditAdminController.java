@@ -153,6 +153,7 @@ public class CreditAdminController {
      * @param transactionNo 交易编号（可选）
      * @param startDate 开始日期（可选）
      * @param endDate 结束日期（可选）
+     * @param format 导出格式（xlsx/csv，默认xlsx）
      */
     @GetMapping("/transactions/export")
     @ApiOperation("导出信用交易记录")
@@ -162,10 +163,11 @@ public class CreditAdminController {
             @RequestParam(required = false) String transactionType,
             @RequestParam(required = false) String transactionNo,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
-        log.info("导出信用交易记录：agentId={}, transactionType={}, transactionNo={}, startDate={}, endDate={}",
-                agentId, transactionType, transactionNo, startDate, endDate);
-        adminCreditService.exportCreditTransactions(response, agentId, transactionType, transactionNo, startDate, endDate);
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "xlsx") @ApiParam(value = "导出格式", allowableValues = "xlsx,csv") String format) {
+        log.info("导出信用交易记录：agentId={}, transactionType={}, transactionNo={}, startDate={}, endDate={}, format={}",
+                agentId, transactionType, transactionNo, startDate, endDate, format);
+        adminCreditService.exportCreditTransactions(response, agentId, transactionType, transactionNo, startDate, endDate, format);
     }
     
     /**
@@ -1,10 +1,12 @@
 package com.sky.controller.admin;
 
+import com.sky.cache.TwoTierCacheManager;
 import com.sky.entity.AgentDiscountLevel;
 import com.sky.entity.AgentDiscountLog;
 import com.sky.entity.ProductAgentDiscount;
 import com.sky.result.Result;
 import com.sky.service.EnhancedDiscountService;
+import com.sky.vo.CacheStatsVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
@@ -28,6 +30,9 @@ public class DiscountManagementController {
     @Autowired
     private EnhancedDiscountService enhancedDiscountService;
 
+    @Autowired
+    private TwoTierCacheManager twoTierCacheManager;
+
     // ===================== 折扣等级管理 =====================
 
     @GetMapping("/levels")
@@ -149,4 +154,12 @@ public class DiscountManagementController {
         return Result.success("成功创建 " + count + " 个配置");
     }
 
+    // ===================== 缓存监控 =====================
+
+    @GetMapping("/cache-stats")
+    @ApiOperation("获取折扣缓存命中率和耗时统计")
+    public Result<List<CacheStatsVO>> getCacheStats() {
+        return Result.success(twoTierCacheManager.stats());
+    }
+
 } 
\ No newline at end of file
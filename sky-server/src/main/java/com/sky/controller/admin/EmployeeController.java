@@ -1,5 +1,6 @@
 package com.sky.controller.admin;
 
+import com.sky.cache.JwtTokenCache;
 import com.sky.constant.JwtClaimsConstant;
 import com.sky.dto.EmployeeDTO;
 import com.sky.dto.EmployeeLoginDTO;
@@ -17,6 +18,7 @@ import com.sky.vo.EmployeeLoginVO;
 import com.sky.vo.TokenRefreshVO;
 import com.sky.vo.EmployeeWithDeptVO;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -39,6 +41,8 @@ public class EmployeeController {
     private EmployeeService employeeService;
     @Autowired
     private JwtProperties jwtProperties;
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
 
     /**
      * 管理员登录 - 支持Cookie-only模式，与用户端完全隔离
@@ -144,13 +148,16 @@ public class EmployeeController {
     }
     
     /**
-     * 管理员退出 - 清理管理后台专用Cookie
+     * 管理员退出 - 注销当前token并清理管理后台专用Cookie
      */
     @PostMapping("/logout")
-    public Result<String> logout(HttpServletResponse response) {
+    public Result<String> logout(HttpServletRequest request, HttpServletResponse response) {
         log.info("管理员退出登录");
         
         try {
+            // 注销请求中的access token和refresh token，退出后即使token被保留也不能再使用
+            jwtTokenCache.revokeRequestTokens(JwtTokenCache.SCOPE_ADMIN, request);
+            
             // 清理管理后台专用Cookie
             clearAdminCookies(response);
             
@@ -185,6 +192,9 @@ public class EmployeeController {
             Claims claims;
             try {
                 claims = JwtUtil.parseJWT(jwtProperties.getAdminSecretKey(), adminRefreshToken);
+                if (jwtTokenCache.isRevokedToken(adminRefreshToken)) {
+                    throw new JwtException("AdminRefreshToken已注销");
+                }
                 log.debug("AdminRefreshToken验证成功");
             } catch (Exception e) {
                 log.warn("AdminRefreshToken无效或已过期: {}", e.getMessage());
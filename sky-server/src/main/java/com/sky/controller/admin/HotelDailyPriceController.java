@@ -1,6 +1,7 @@
 package com.sky.controller.admin;
 
 import com.sky.entity.HotelDailyPrice;
+import com.sky.pricing.HotelPriceIndex;
 import com.sky.result.Result;
 import com.sky.service.HotelDailyPriceService;
 import io.swagger.annotations.Api;
@@ -25,6 +26,9 @@ public class HotelDailyPriceController {
     @Autowired
     private HotelDailyPriceService hotelDailyPriceService;
 
+    @Autowired
+    private HotelPriceIndex hotelPriceIndex;
+
     /**
      * 根据酒店星级和日期范围查询每日价格
      */
@@ -74,6 +78,8 @@ public class HotelDailyPriceController {
         log.info("添加或更新每日价格：{}", hotelDailyPrice);
         boolean success = hotelDailyPriceService.saveOrUpdate(hotelDailyPrice);
         if (success) {
+            hotelPriceIndex.put(hotelDailyPrice.getHotelLevel(), hotelDailyPrice.getPriceDate(),
+                    hotelDailyPrice.getPriceDifference(), hotelDailyPrice.getDailySingleRoomSupplement());
             return Result.success("保存成功");
         }
         return Result.error("保存失败");
@@ -88,6 +94,10 @@ public class HotelDailyPriceController {
         log.info("批量添加或更新每日价格，数量：{}", list.size());
         boolean success = hotelDailyPriceService.batchSaveOrUpdate(list);
         if (success) {
+            for (HotelDailyPrice hotelDailyPrice : list) {
+                hotelPriceIndex.put(hotelDailyPrice.getHotelLevel(), hotelDailyPrice.getPriceDate(),
+                        hotelDailyPrice.getPriceDifference(), hotelDailyPrice.getDailySingleRoomSupplement());
+            }
             return Result.success("批量保存成功");
         }
         return Result.error("批量保存失败");
@@ -100,8 +110,12 @@ public class HotelDailyPriceController {
     @ApiOperation("删除每日价格")
     public Result<String> delete(@PathVariable Long id) {
         log.info("删除每日价格，ID：{}", id);
+        HotelDailyPrice existing = hotelDailyPriceService.getById(id);
         boolean success = hotelDailyPriceService.delete(id);
         if (success) {
+            if (existing != null) {
+                hotelPriceIndex.remove(existing.getHotelLevel(), existing.getPriceDate());
+            }
             return Result.success("删除成功");
         }
         return Result.error("删除失败");
@@ -118,6 +132,7 @@ public class HotelDailyPriceController {
         log.info("根据星级和日期删除：{}, {}", hotelLevel, priceDate);
         boolean success = hotelDailyPriceService.deleteByLevelAndDate(hotelLevel, priceDate);
         if (success) {
+            hotelPriceIndex.remove(hotelLevel, priceDate);
             return Result.success("删除成功");
         }
         return Result.error("删除失败");
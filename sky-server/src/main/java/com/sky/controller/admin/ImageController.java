@@ -72,6 +72,51 @@ public class ImageController {
         ImageVO imageVO = imageService.saveImage(file, imageDTO);
         return Result.success(imageVO);
     }
+
+    /**
+     * 批量上传图片
+     *
+     * @param files 图片文件
+     * @return 图片URL列表
+     */
+    @PostMapping("/upload/batch")
+    @ApiOperation("批量上传图片")
+    public Result<List<String>> uploadBatch(@RequestParam("files") List<MultipartFile> files) {
+        log.info("批量上传图片，数量：{}", files.size());
+        return Result.success(imageService.uploadBatch(files));
+    }
+
+    /**
+     * 批量上传并保存图片（图集）
+     *
+     * @param files     图片文件
+     * @param type      图片类型
+     * @param relatedId 关联ID
+     * @param description 图片描述
+     * @param isPrimary 第一张是否设为主图
+     * @param position 起始位置
+     * @return 图片视图对象列表
+     */
+    @PostMapping("/save/batch")
+    @ApiOperation("批量上传并保存图片")
+    public Result<List<ImageVO>> saveBatch(@RequestParam("files") List<MultipartFile> files,
+                                           @RequestParam("type") String type,
+                                           @RequestParam("relatedId") Integer relatedId,
+                                           @RequestParam(value = "description", required = false) String description,
+                                           @RequestParam(value = "isPrimary", required = false) Integer isPrimary,
+                                           @RequestParam(value = "position", required = false) Integer position) {
+        log.info("批量上传并保存图片，数量：{}，类型：{}，关联ID：{}", files.size(), type, relatedId);
+
+        ImageDTO imageDTO = ImageDTO.builder()
+                .type(type)
+                .relatedId(relatedId)
+                .description(description)
+                .isPrimary(isPrimary)
+                .position(position)
+                .build();
+
+        return Result.success(imageService.saveImages(files, imageDTO));
+    }
     
     /**
      * 获取图片列表
@@ -0,0 +1,169 @@
+package com.sky.controller.admin;
+
+import com.sky.audit.PriceAuditLogWriter;
+import com.sky.cache.JwtTokenCache;
+import com.sky.chatbot.AsyncChatDispatcher;
+import com.sky.chatbot.QwenGateway;
+import com.sky.lock.KeyedLockService;
+import com.sky.permission.PermissionMatrix;
+import com.sky.result.Result;
+import com.sky.service.AdminCreditService;
+import com.sky.service.AgentCreditService;
+import com.sky.service.BusinessRollupService;
+import com.sky.service.PdfService;
+import com.sky.storage.FileStorageService;
+import com.sky.storage.ImageDerivativePipeline;
+import com.sky.utils.HttpClientUtil;
+import com.sky.webSocket.WebSocketCluster;
+import com.sky.webSocket.WebSocketPushEngine;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 系统运行指标监控
+ */
+@RestController
+@RequestMapping("/admin/monitor")
+@Api(tags = "系统运行指标监控接口")
+@Slf4j
+public class MonitorController {
+
+    @Autowired
+    private PriceAuditLogWriter priceAuditLogWriter;
+
+    @Autowired
+    private QwenGateway qwenGateway;
+
+    @Autowired
+    private AsyncChatDispatcher asyncChatDispatcher;
+
+    @Autowired
+    private WebSocketPushEngine webSocketPushEngine;
+
+    @Autowired
+    private WebSocketCluster webSocketCluster;
+
+    @Autowired
+    private BusinessRollupService businessRollupService;
+
+    @Autowired
+    private KeyedLockService keyedLockService;
+
+    @Autowired
+    private AgentCreditService agentCreditService;
+
+    @Autowired
+    private AdminCreditService adminCreditService;
+
+    @Autowired
+    private PermissionMatrix permissionMatrix;
+
+    @Autowired
+    private PdfService pdfService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageDerivativePipeline imageDerivativePipeline;
+
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
+
+    @GetMapping("/price-audit")
+    @ApiOperation("价格计算审计日志写入器指标")
+    public Result<Map<String, Object>> getPriceAuditStats() {
+        return Result.success(priceAuditLogWriter.stats());
+    }
+
+    @GetMapping("/llm")
+    @ApiOperation("大模型调用网关指标")
+    public Result<Map<String, Object>> getLlmStats() {
+        return Result.success(qwenGateway.stats());
+    }
+
+    @GetMapping("/chat-dispatcher")
+    @ApiOperation("异步聊天调度器指标")
+    public Result<Map<String, Object>> getChatDispatcherStats() {
+        return Result.success(asyncChatDispatcher.stats());
+    }
+
+    @GetMapping("/websocket")
+    @ApiOperation("WebSocket推送引擎指标")
+    public Result<Map<String, Object>> getWebSocketStats() {
+        return Result.success(webSocketPushEngine.stats());
+    }
+
+    @GetMapping("/websocket-cluster")
+    @ApiOperation("WebSocket集群投递指标")
+    public Result<Map<String, Object>> getWebSocketClusterStats() {
+        return Result.success(webSocketCluster.stats());
+    }
+
+    @GetMapping("/business-rollup")
+    @ApiOperation("营业数据日汇总刷新指标")
+    public Result<Map<String, Object>> getBusinessRollupStats() {
+        return Result.success(businessRollupService.stats());
+    }
+
+    @GetMapping("/locks")
+    @ApiOperation("分布式锁指标")
+    public Result<Map<String, Object>> getLockStats() {
+        return Result.success(keyedLockService.stats());
+    }
+
+    @GetMapping("/credit-payment")
+    @ApiOperation("信用支付扣款指标")
+    public Result<Map<String, Object>> getCreditPaymentStats() {
+        return Result.success(agentCreditService.paymentStats());
+    }
+
+    @GetMapping("/credit-export")
+    @ApiOperation("信用交易记录导出指标")
+    public Result<Map<String, Object>> getCreditExportStats() {
+        return Result.success(adminCreditService.exportStats());
+    }
+
+    @GetMapping("/permission-matrix")
+    @ApiOperation("权限矩阵指标")
+    public Result<Map<String, Object>> getPermissionMatrixStats() {
+        return Result.success(permissionMatrix.stats());
+    }
+
+    @GetMapping("/pdf")
+    @ApiOperation("PDF渲染指标")
+    public Result<Map<String, Object>> getPdfStats() {
+        return Result.success(pdfService.stats());
+    }
+
+    @GetMapping("/http-client")
+    @ApiOperation("对外HTTP连接池指标")
+    public Result<Map<String, Object>> getHttpClientStats() {
+        return Result.success(HttpClientUtil.stats());
+    }
+
+    @GetMapping("/storage")
+    @ApiOperation("文件存储指标")
+    public Result<Map<String, Object>> getStorageStats() {
+        return Result.success(fileStorageService.stats());
+    }
+
+    @GetMapping("/image-derivatives")
+    @ApiOperation("图片衍生图生成指标")
+    public Result<Map<String, Object>> getImageDerivativeStats() {
+        return Result.success(imageDerivativePipeline.stats());
+    }
+
+    @GetMapping("/jwt-cache")
+    @ApiOperation("JWT校验缓存指标")
+    public Result<Map<String, Object>> getJwtCacheStats() {
+        return Result.success(jwtTokenCache.stats());
+    }
+}
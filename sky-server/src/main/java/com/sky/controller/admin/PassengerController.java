@@ -2,6 +2,7 @@ package com.sky.controller.admin;
 
 import com.sky.dto.PassengerDTO;
 import com.sky.result.Result;
+import com.sky.service.PassengerCountReconcileService;
 import com.sky.service.PassengerService;
 import com.sky.vo.PassengerVO;
 import io.swagger.annotations.Api;
@@ -13,6 +14,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 乘客管理控制器
@@ -26,6 +28,9 @@ public class PassengerController {
     @Autowired
     private PassengerService passengerService;
 
+    @Autowired
+    private PassengerCountReconcileService passengerCountReconcileService;
+
     /**
      * 根据ID查询乘客
      */
@@ -136,22 +141,25 @@ public class PassengerController {
     }
     
     /**
-     * 🆕 批量修复所有订单的乘客人数统计
+     * 🆕 批量修复所有订单的乘客人数统计（后台执行，进度见 /fix-passenger-counts/progress）
      */
     @PostMapping("/fix-passenger-counts")
     @ApiOperation("批量修复所有订单的乘客人数统计")
     public Result<String> fixAllBookingPassengerCounts() {
         log.info("🚀 管理员手动执行批量修复所有订单的乘客人数统计");
-        try {
-            Integer fixedCount = passengerService.fixAllBookingPassengerCounts();
-            String message = String.format("✅ 批量修复完成！实际修复了 %d 个订单的人数统计", fixedCount);
-            log.info(message);
-            return Result.success(message);
-        } catch (Exception e) {
-            String errorMessage = "❌ 批量修复失败: " + e.getMessage();
-            log.error(errorMessage, e);
-            return Result.error(errorMessage);
+        if (!passengerCountReconcileService.startReconcile()) {
+            return Result.error("人数修复任务正在执行，请稍后查看进度");
         }
+        return Result.success("✅ 已开始在后台修复订单人数统计");
+    }
+
+    /**
+     * 🆕 乘客人数修复进度
+     */
+    @GetMapping("/fix-passenger-counts/progress")
+    @ApiOperation("查询乘客人数修复进度")
+    public Result<Map<String, Object>> getFixPassengerCountsProgress() {
+        return Result.success(passengerCountReconcileService.progress());
     }
     
     /**
@@ -1,6 +1,7 @@
 package com.sky.controller.admin;
 
 import com.sky.result.Result;
+import com.sky.service.BusinessRollupService;
 import com.sky.service.StatisticsService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -11,6 +12,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -31,6 +33,9 @@ public class StatisticsController {
     @Autowired
     private StatisticsService statisticsService;
 
+    @Autowired
+    private BusinessRollupService businessRollupService;
+
     @GetMapping("/turnover")
     @ApiOperation("营业额统计（按天）")
     public Result<Map<String, Object>> getTurnover(
@@ -118,4 +123,13 @@ public class StatisticsController {
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end) {
         return Result.success(statisticsService.getVehicleUtilization(begin, end));
     }
+
+    @PostMapping("/rollup/rebuild")
+    @ApiOperation("重建营业数据日汇总（回填历史数据）")
+    public Result<Integer> rebuildRollup(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end) {
+        log.info("重建营业数据日汇总: {} - {}", begin, end);
+        return Result.success(businessRollupService.rebuild(begin, end));
+    }
 }
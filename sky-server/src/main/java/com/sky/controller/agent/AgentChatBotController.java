@@ -1,10 +1,12 @@
 package com.sky.controller.agent;
 
+import com.sky.chatbot.AsyncChatDispatcher;
 import com.sky.context.BaseContext;
 import com.sky.dto.ChatRequest;
 import com.sky.entity.ChatMessage;
 import com.sky.result.Result;
 import com.sky.service.ChatBotService;
+import com.sky.vo.ChatAcceptedVO;
 import com.sky.vo.ChatResponse;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -27,6 +29,9 @@ public class AgentChatBotController {
     @Autowired
     private ChatBotService chatBotService;
     
+    @Autowired
+    private AsyncChatDispatcher asyncChatDispatcher;
+    
     /**
      * 代理商发送消息
      */
@@ -37,6 +42,41 @@ public class AgentChatBotController {
                                           @RequestHeader(value = "X-Current-URL", required = false) String currentUrl,
                                           @RequestHeader(value = "X-Request-Priority", required = false) String priority,
                                           @RequestHeader(value = "X-AI-Provider", required = false) String provider) {
+        prepareRequest(request, currentPage, currentUrl, priority, provider);
+        
+        // 调用通用的ChatBot服务
+        ChatResponse response = chatBotService.processMessage(request);
+        return Result.success(response);
+    }
+    
+    /**
+     * 异步发送消息：立即返回消息ID，处理进度和回复通过WebSocket推送
+     */
+    @PostMapping("/message/async")
+    @ApiOperation("代理商异步发送消息")
+    public Result<ChatAcceptedVO> sendMessageAsync(@Valid @RequestBody ChatRequest request,
+                                                  @RequestHeader(value = "X-Current-Page", required = false) String currentPage,
+                                                  @RequestHeader(value = "X-Current-URL", required = false) String currentUrl,
+                                                  @RequestHeader(value = "X-Request-Priority", required = false) String priority,
+                                                  @RequestHeader(value = "X-AI-Provider", required = false) String provider) {
+        prepareRequest(request, currentPage, currentUrl, priority, provider);
+        return Result.success(asyncChatDispatcher.submit(request));
+    }
+    
+    /**
+     * 查询异步消息的处理结果（WebSocket未连接时使用）
+     */
+    @GetMapping("/message/{messageId}/result")
+    @ApiOperation("代理商查询异步消息处理结果")
+    public Result<ChatResponse> getMessageResult(@PathVariable String messageId) {
+        return Result.success(asyncChatDispatcher.getResult(messageId));
+    }
+    
+    /**
+     * 从JWT和请求头补全请求中的用户和页面信息
+     */
+    private void prepareRequest(ChatRequest request, String currentPage, String currentUrl,
+                                String priority, String provider) {
         log.info("收到代理商聊天消息: sessionId={}, userType={}, message={}, currentPage={}", 
                 request.getSessionId(), request.getUserType(), request.getMessage(), currentPage);
         
@@ -83,10 +123,6 @@ public class AgentChatBotController {
         if (provider != null) {
             log.debug("代理商AI提供商: {}", provider);
         }
-        
-        // 调用通用的ChatBot服务
-        ChatResponse response = chatBotService.processMessage(request);
-        return Result.success(response);
     }
     
     /**
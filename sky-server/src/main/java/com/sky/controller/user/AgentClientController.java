@@ -1,5 +1,6 @@
 package com.sky.controller.user;
 
+import com.sky.cache.JwtTokenCache;
 import com.sky.constant.JwtClaimsConstant;
 import com.sky.dto.AgentLoginDTO;
 import com.sky.dto.UserLoginDTO;
@@ -25,7 +26,6 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -55,6 +55,9 @@ public class AgentClientController {
     @Autowired
     private JwtProperties jwtProperties;
     
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
+    
     @Autowired
     private AgentMapper agentMapper;
     
@@ -402,6 +405,9 @@ public class AgentClientController {
         log.info("代理商退出登录（多路径清理）");
         
         try {
+            // 注销请求中的access token和refresh token
+            jwtTokenCache.revokeRequestTokens(JwtTokenCache.SCOPE_AGENT, request);
+            
             // 使用统一的Cookie工具类清理所有代理商相关Cookie
             CookieUtil.clearAllAgentCookies(response);
             
@@ -624,55 +630,7 @@ public class AgentClientController {
         
         log.info("批量计算旅游产品折扣价格，请求数量：{}", requests.size());
         
-        List<Map<String, Object>> resultList = new ArrayList<>();
-        
-        for (Map<String, Object> request : requests) {
-            try {
-                // 提取请求参数
-                Integer id = request.get("id") != null ? Integer.valueOf(request.get("id").toString()) : null;
-                Long tourId = request.get("tourId") != null ? Long.valueOf(request.get("tourId").toString()) : null;
-                String tourType = (String) request.get("tourType");
-                BigDecimal originalPrice = new BigDecimal(request.get("originalPrice").toString());
-                Long agentId = Long.valueOf(request.get("agentId").toString());
-                
-                // 计算折扣价格
-                BigDecimal discountedPrice = discountService.getDiscountedPrice(originalPrice, agentId);
-                
-                // 获取折扣率
-                BigDecimal discountRate = discountService.getAgentDiscountRate(agentId);
-                
-                // 计算节省金额
-                BigDecimal savedAmount = originalPrice.subtract(discountedPrice);
-                
-                // 构建结果
-                Map<String, Object> result = new HashMap<>();
-                if (id != null) {
-                    result.put("id", id); // 保留原始请求的ID，用于前端匹配
-                }
-                result.put("tourId", tourId);
-                result.put("tourType", tourType);
-                result.put("originalPrice", originalPrice);
-                result.put("discountedPrice", discountedPrice);
-                result.put("discountRate", discountRate);
-                result.put("savedAmount", savedAmount);
-                
-                resultList.add(result);
-            } catch (Exception e) {
-                log.error("计算旅游折扣价格失败", e);
-                // 创建错误结果
-                Map<String, Object> errorResult = new HashMap<>();
-                if (request.get("id") != null) {
-                    errorResult.put("id", request.get("id"));
-                }
-                errorResult.put("error", "计算折扣价格失败: " + e.getMessage());
-                errorResult.put("originalPrice", request.get("originalPrice"));
-                errorResult.put("discountedPrice", request.get("originalPrice")); // 发生错误时使用原价
-                errorResult.put("discountRate", BigDecimal.ONE);
-                errorResult.put("savedAmount", BigDecimal.ZERO);
-                
-                resultList.add(errorResult);
-            }
-        }
+        List<Map<String, Object>> resultList = discountService.calculateTourDiscountsBatch(requests);
         
         log.info("批量计算旅游产品折扣价格完成，结果数量：{}", resultList.size());
         return Result.success(resultList);
@@ -1,6 +1,7 @@
 package com.sky.controller.user;
 
 import com.sky.config.SecurityConfig;
+import com.sky.cache.JwtTokenCache;
 import com.sky.constant.JwtClaimsConstant;
 
 import com.sky.entity.User;
@@ -37,6 +38,9 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
+
     /**
      * 获取CSRF Token
      */
@@ -56,7 +60,7 @@ public class AuthController {
     }
     
     /**
-     * 安全登出 - 清除HttpOnly Cookie
+     * 安全登出 - 注销当前token并清除HttpOnly Cookie
      */
     @PostMapping("/logout")
     @ApiOperation("安全登出")
@@ -69,6 +73,9 @@ public class AuthController {
             String clientIp = request.getRemoteAddr();
             log.info("登出请求 - IP: {}, User-Agent: {}", clientIp, userAgent);
             
+            // 注销请求中的access token和refresh token
+            jwtTokenCache.revokeRequestTokens(JwtTokenCache.SCOPE_USER, request);
+            
             // 使用统一的Cookie工具类清理所有用户相关Cookie
             CookieUtil.clearAllUserCookies(response);
             
@@ -106,6 +113,13 @@ public class AuthController {
             String username = null;
             String userType = null;
             
+            // 已注销的refresh token不能再换取新token
+            if (jwtTokenCache.isRevokedToken(refreshToken)) {
+                log.warn("Refresh Token已注销");
+                CookieUtil.clearAllUserCookies(response);
+                return Result.error(4001, "认证已过期，请重新登录");
+            }
+
             // TODO: 暂时简化JWT验证逻辑
             try {
                 Map<String, Object> claims = JwtUtil.parseJWT(jwtProperties.getUserSecretKey(), refreshToken);
@@ -1,5 +1,6 @@
 package com.sky.controller.user;
 
+import com.sky.cache.JwtTokenCache;
 import com.sky.constant.JwtClaimsConstant;
 import com.sky.dto.UserLoginDTO;
 import com.sky.entity.User;
@@ -18,6 +19,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.HashMap;
 import java.util.Map;
@@ -36,6 +38,8 @@ public class UserController {
     @Autowired
     private JwtProperties jwtProperties;
     @Autowired
+    private JwtTokenCache jwtTokenCache;
+    @Autowired
     private AgentMapper agentMapper;
     @Autowired
     private GoogleOAuthService googleOAuthService;
@@ -137,10 +141,13 @@ public class UserController {
      */
     @PostMapping("/logout")
     @ApiOperation("用户登出")
-    public Result<String> logout(HttpServletResponse response) {
+    public Result<String> logout(HttpServletRequest request, HttpServletResponse response) {
         log.info("普通用户退出登录");
         
         try {
+            // 注销请求中的access token和refresh token
+            jwtTokenCache.revokeRequestTokens(JwtTokenCache.SCOPE_USER, request);
+            
             // 使用统一的Cookie工具类清理所有用户相关Cookie
             CookieUtil.clearAllUserCookies(response);
             
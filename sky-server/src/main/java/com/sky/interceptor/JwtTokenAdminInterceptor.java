@@ -1,11 +1,14 @@
 package com.sky.interceptor;
 
+import com.sky.cache.JwtTokenCache;
+import com.sky.cache.JwtTokenCache.AuthContext;
 import com.sky.constant.JwtClaimsConstant;
 import com.sky.context.BaseContext;
 import com.sky.properties.JwtProperties;
 import com.sky.utils.JwtUtil;
 import com.sky.utils.CookieUtil;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -20,14 +23,20 @@ import java.util.Map;
 
 /**
  * 管理后台JWT令牌校验的拦截器 - 支持Cookie-only模式，与用户端完全隔离
+ * 校验结果由 JwtTokenCache 缓存到token过期，同一token只做一次签名校验
  */
 @Component
 @Slf4j
 public class JwtTokenAdminInterceptor implements HandlerInterceptor {
 
+    private static final String CACHE_SCOPE = JwtTokenCache.SCOPE_ADMIN;
+
     @Autowired
     private JwtProperties jwtProperties;
 
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
+
     /**
      * 校验JWT
      */
@@ -59,120 +68,32 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
         // 2. 校验令牌
         if (token == null || token.isEmpty()) {
             log.warn("❌ 管理后台请求缺少Access Token，尝试使用Refresh Token: {}", requestURI);
-            
-            // 尝试使用Refresh Token自动刷新
-            String refreshedToken = tryRefreshAdminToken(request, response);
-            if (refreshedToken == null) {
-                log.error("❌ 管理员认证失败且无法刷新Token: {}", requestURI);
-                response.setStatus(401);
-                return false;
-            }
-            
-            // 刷新成功，直接使用返回的新token验证
-            try {
-                Claims newClaims = JwtUtil.parseJWT(jwtProperties.getAdminSecretKey(), refreshedToken);
-                
-                // 设置管理员信息到BaseContext
-                Long empId = Long.valueOf(newClaims.get(JwtClaimsConstant.EMP_ID).toString());
-                String username = newClaims.get(JwtClaimsConstant.USERNAME) != null ? 
-                                 newClaims.get(JwtClaimsConstant.USERNAME).toString() : null;
-                String userType = newClaims.get(JwtClaimsConstant.USER_TYPE) != null ?
-                                 newClaims.get(JwtClaimsConstant.USER_TYPE).toString() : "admin";
-                
-                BaseContext.setCurrentId(empId);
-                BaseContext.setCurrentUsername(username);
-                BaseContext.setCurrentUserType(userType);
-                BaseContext.setCurrentAgentId(null);
-                BaseContext.setCurrentOperatorId(null);
-                
-                log.info("✅ 管理员Token刷新后验证成功: empId={}, username={}", empId, username);
-                return true;
-                
-            } catch (Exception refreshEx) {
-                log.error("❌ 刷新后的Token验证失败: {}", refreshEx.getMessage());
-                response.setStatus(401);
-                return false;
-            }
+            return refreshAndApply(request, response);
         }
 
         try {
-            log.info("🔍 管理员JWT验证开始: {}", token.substring(0, Math.min(token.length(), 20)) + "...");
-            Claims claims = JwtUtil.parseJWT(jwtProperties.getAdminSecretKey(), token);
-            
-            // 检查Token是否即将过期（提前30分钟刷新）
-            long currentTime = System.currentTimeMillis() / 1000;
-            long exp = claims.getExpiration().getTime() / 1000;
-            long timeUntilExpiry = exp - currentTime;
-            
-            log.debug("🕐 Token剩余时间: {}秒", timeUntilExpiry);
-            
+            AuthContext context = jwtTokenCache.verify(CACHE_SCOPE, token, this::loadContext);
+
             // 如果Token在5分钟内过期，尝试自动刷新
+            long timeUntilExpiry = (context.getExpiresAt() - System.currentTimeMillis()) / 1000;
             if (timeUntilExpiry < 5 * 60) { // 5分钟 = 300秒
-                log.info("⏰ 管理员Token即将过期，开始自动刷新");
+                log.info("⏰ 管理员Token即将过期（剩余{}秒），开始自动刷新", timeUntilExpiry);
                 String newToken = tryRefreshAdminToken(request, response);
                 if (newToken == null) {
                     log.warn("❌ Token自动刷新失败，但继续使用当前Token");
                     // 不阻止请求，让用户继续使用当前token直到真正过期
-                } else {
-                    log.info("✅ Token自动刷新成功，已设置新Token到Cookie");
                 }
             }
-            
-            // 3. 提取管理员信息并设置到BaseContext
-            Long empId = Long.valueOf(claims.get(JwtClaimsConstant.EMP_ID).toString());
-            String username = claims.get(JwtClaimsConstant.USERNAME) != null ? 
-                             claims.get(JwtClaimsConstant.USERNAME).toString() : null;
-            String userType = claims.get(JwtClaimsConstant.USER_TYPE) != null ?
-                             claims.get(JwtClaimsConstant.USER_TYPE).toString() : "admin";
 
-            log.info("🎯 管理员身份验证成功: empId={}, username={}, userType={}", empId, username, userType);
-
-            // 设置管理员信息到BaseContext
-            BaseContext.setCurrentId(empId);
-            BaseContext.setCurrentUsername(username);
-            BaseContext.setCurrentUserType(userType);
-            
-            // 管理员不需要设置agentId和operatorId
-            BaseContext.setCurrentAgentId(null);
-            BaseContext.setCurrentOperatorId(null);
-
-            log.debug("✅ 管理员BaseContext设置完成: empId={}, userType={}", empId, userType);
+            // 3. 设置管理员信息到BaseContext（管理员不设置agentId和operatorId）
+            context.apply();
+            log.debug("🎯 管理员身份验证成功: empId={}, username={}, userType={}",
+                    context.getId(), context.getUsername(), context.getUserType());
 
         } catch (Exception ex) {
             log.warn("❌ 管理员JWT验证失败，尝试使用Refresh Token: {}", ex.getMessage());
-            
             // JWT验证失败，尝试使用Refresh Token自动刷新
-            String newToken = tryRefreshAdminToken(request, response);
-            if (newToken == null) {
-                log.error("❌ 管理员认证失败且无法刷新Token");
-                response.setStatus(401);
-                return false;
-            }
-            
-            // 刷新成功，直接使用返回的新token验证
-            try {
-                Claims newClaims = JwtUtil.parseJWT(jwtProperties.getAdminSecretKey(), newToken);
-                
-                // 设置管理员信息到BaseContext
-                Long empId = Long.valueOf(newClaims.get(JwtClaimsConstant.EMP_ID).toString());
-                String username = newClaims.get(JwtClaimsConstant.USERNAME) != null ? 
-                                 newClaims.get(JwtClaimsConstant.USERNAME).toString() : null;
-                String userType = newClaims.get(JwtClaimsConstant.USER_TYPE) != null ?
-                                 newClaims.get(JwtClaimsConstant.USER_TYPE).toString() : "admin";
-                
-                BaseContext.setCurrentId(empId);
-                BaseContext.setCurrentUsername(username);
-                BaseContext.setCurrentUserType(userType);
-                BaseContext.setCurrentAgentId(null);
-                BaseContext.setCurrentOperatorId(null);
-                
-                log.info("✅ 管理员Token刷新后验证成功: empId={}, username={}", empId, username);
-                
-            } catch (Exception refreshEx) {
-                log.error("❌ 刷新后的Token验证失败: {}", refreshEx.getMessage());
-                response.setStatus(401);
-                return false;
-            }
+            return refreshAndApply(request, response);
         }
 
         // 3. 通过，放行
@@ -180,20 +101,57 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
         return true;
     }
 
+    /**
+     * 使用Refresh Token刷新后，用新token设置BaseContext
+     */
+    private boolean refreshAndApply(HttpServletRequest request, HttpServletResponse response) {
+        String newToken = tryRefreshAdminToken(request, response);
+        if (newToken == null) {
+            log.error("❌ 管理员认证失败且无法刷新Token: {}", request.getRequestURI());
+            response.setStatus(401);
+            return false;
+        }
+        try {
+            AuthContext context = jwtTokenCache.verify(CACHE_SCOPE, newToken, this::loadContext);
+            context.apply();
+            log.info("✅ 管理员Token刷新后验证成功: empId={}, username={}", context.getId(), context.getUsername());
+            return true;
+        } catch (Exception refreshEx) {
+            log.error("❌ 刷新后的Token验证失败: {}", refreshEx.getMessage());
+            response.setStatus(401);
+            return false;
+        }
+    }
+
+    /**
+     * 校验签名并提取管理员信息（缓存未命中时调用）
+     */
+    private AuthContext loadContext(String token) {
+        Claims claims = JwtUtil.parseJWT(jwtProperties.getAdminSecretKey(), token);
+        Long empId = Long.valueOf(claims.get(JwtClaimsConstant.EMP_ID).toString());
+        String username = claims.get(JwtClaimsConstant.USERNAME) != null ?
+                         claims.get(JwtClaimsConstant.USERNAME).toString() : null;
+        String userType = claims.get(JwtClaimsConstant.USER_TYPE) != null ?
+                         claims.get(JwtClaimsConstant.USER_TYPE).toString() : "admin";
+        return new AuthContext(claims, empId, username, userType, null, null);
+    }
+
     /**
      * 从管理后台专用Cookie中获取token
      */
     private String getAdminTokenFromCookie(HttpServletRequest request) {
         if (request.getCookies() != null) {
             // 记录所有Cookie用于调试
-            StringBuilder cookieDebug = new StringBuilder("管理后台Cookie检查: ");
-            for (Cookie cookie : request.getCookies()) {
-                String cookieValue = cookie.getValue();
-                String displayValue = cookieValue != null && cookieValue.length() > 10 ? 
-                                    cookieValue.substring(0, 10) + "..." : cookieValue;
-                cookieDebug.append(cookie.getName()).append("=").append(displayValue).append(", ");
+            if (log.isDebugEnabled()) {
+                StringBuilder cookieDebug = new StringBuilder("管理后台Cookie检查: ");
+                for (Cookie cookie : request.getCookies()) {
+                    String cookieValue = cookie.getValue();
+                    String displayValue = cookieValue != null && cookieValue.length() > 10 ?
+                                        cookieValue.substring(0, 10) + "..." : cookieValue;
+                    cookieDebug.append(cookie.getName()).append("=").append(displayValue).append(", ");
+                }
+                log.debug(cookieDebug.toString());
             }
-            log.info(cookieDebug.toString()); // 改为info级别，便于调试
 
             // 管理后台专用Cookie名称，避免与用户端冲突
             String[] adminTokenCookieNames = {"adminToken", "adminAuthToken", "admin_token"};
@@ -204,7 +162,7 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
                         String tokenValue = cookie.getValue();
                         if (tokenValue != null && !tokenValue.trim().isEmpty() && 
                             !"null".equals(tokenValue) && !"undefined".equals(tokenValue)) {
-                            log.info("✅ 从管理后台Cookie中找到有效token: {}", cookieName);
+                            log.debug("✅ 从管理后台Cookie中找到有效token: {}", cookieName);
                             return tokenValue;
                         } else {
                             log.warn("❌ 找到Cookie {} 但值无效: '{}'", cookieName, tokenValue);
@@ -213,10 +171,10 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
                 }
             }
         } else {
-            log.warn("❌ 请求中没有任何Cookie");
+            log.debug("❌ 请求中没有任何Cookie");
         }
 
-        log.warn("🔍 未从管理后台Cookie中找到有效token");
+        log.debug("🔍 未从管理后台Cookie中找到有效token");
         return null;
     }
 
@@ -238,6 +196,9 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
             Claims refreshClaims;
             try {
                 refreshClaims = JwtUtil.parseJWT(jwtProperties.getAdminSecretKey(), refreshToken);
+                if (jwtTokenCache.isRevokedToken(refreshToken)) {
+                    throw new JwtException("AdminRefreshToken已注销");
+                }
                 log.debug("✅ AdminRefreshToken验证成功");
             } catch (Exception e) {
                 log.warn("❌ AdminRefreshToken无效或已过期: {}", e.getMessage());
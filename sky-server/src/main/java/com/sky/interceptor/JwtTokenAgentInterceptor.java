@@ -1,6 +1,8 @@
 package com.sky.interceptor;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.cache.JwtTokenCache;
+import com.sky.cache.JwtTokenCache.AuthContext;
 import com.sky.constant.JwtClaimsConstant;
 import com.sky.context.BaseContext;
 import com.sky.properties.JwtProperties;
@@ -23,13 +25,19 @@ import java.io.PrintWriter;
 
 /**
  * jwt令牌校验的拦截器（代理商端）
+ * 校验结果由 JwtTokenCache 缓存到token过期，同一token只做一次签名校验
  */
 @Component
 @Slf4j
 public class JwtTokenAgentInterceptor implements HandlerInterceptor {
 
+    private static final String CACHE_SCOPE = JwtTokenCache.SCOPE_AGENT;
+
     @Autowired
     private JwtProperties jwtProperties;
+
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
     
     @Autowired
     private ObjectMapper objectMapper;
@@ -99,64 +107,20 @@ public class JwtTokenAgentInterceptor implements HandlerInterceptor {
         
         // 3. 校验令牌
         try {
-            log.info("代理商JWT校验:{}", token);
-            Claims claims = JwtUtil.parseJWT(jwtProperties.getAgentSecretKey(), token);
-            
-            // 4. 获取用户ID、用户名和用户类型
-            Long userId = Long.valueOf(claims.get(JwtClaimsConstant.USER_ID).toString());
-            String username = claims.get("username") != null ? claims.get("username").toString() : null;
-            String userType = claims.get("userType") != null ? claims.get("userType").toString() : "agent";
+            AuthContext context = jwtTokenCache.verify(CACHE_SCOPE, token, this::loadContext);
             
-            // 5. 检查用户类型
+            // 4. 检查用户类型
+            String userType = context.getUserType();
             if (!"agent".equals(userType) && !"agent_operator".equals(userType)) {
                 log.warn("非代理商用户尝试访问代理商接口, 用户类型:{}", userType);
                 handleError(response, "非代理商用户，无权访问此接口", 403);
                 return false;
             }
             
-            // 6. 获取代理商ID
-            Long agentId = null;
-            if (claims.get(JwtClaimsConstant.AGENT_ID) != null) {
-                agentId = Long.valueOf(claims.get(JwtClaimsConstant.AGENT_ID).toString());
-            } else if ("agent".equals(userType)) {
-                // 如果是代理商主账号且没有专门的代理商ID字段，则代理商ID就是用户ID
-                agentId = userId;
-            }
-            
-            // 7. 获取操作员ID（如果存在）
-            Long operatorId = null;
-            if (claims.get(JwtClaimsConstant.OPERATOR_ID) != null) {
-                operatorId = Long.valueOf(claims.get(JwtClaimsConstant.OPERATOR_ID).toString());
-            }
-            
-            // 8. 将用户信息存储到ThreadLocal
-            BaseContext.setCurrentId(userId);
-            if (username != null) {
-                BaseContext.setCurrentUsername(username);
-            }
-            BaseContext.setCurrentUserType(userType);
-            if (agentId != null) {
-                BaseContext.setCurrentAgentId(agentId);
-            }
-            if (operatorId != null) {
-                BaseContext.setCurrentOperatorId(operatorId);
-            }
-            
-            // 🔍 详细记录BaseContext设置状态
-            log.info("🔍 JWT校验通过，BaseContext设置完成:");
-            log.info("  - 用户ID: {} (设置状态: {})", userId, BaseContext.getCurrentId());
-            log.info("  - 用户名: {} (设置状态: {})", username, BaseContext.getCurrentUsername());
-            log.info("  - 用户类型: {} (设置状态: {})", userType, BaseContext.getCurrentUserType());
-            log.info("  - 代理商ID: {} (设置状态: {})", agentId, BaseContext.getCurrentAgentId());
-            log.info("  - 操作员ID: {} (设置状态: {})", operatorId, BaseContext.getCurrentOperatorId());
-            
-            // 🔒 验证BaseContext设置是否成功
-            if (BaseContext.getCurrentId() == null || !BaseContext.getCurrentId().equals(userId)) {
-                log.error("❌ BaseContext.setCurrentId设置失败！预期: {}, 实际: {}", userId, BaseContext.getCurrentId());
-            }
-            if (agentId != null && (BaseContext.getCurrentAgentId() == null || !BaseContext.getCurrentAgentId().equals(agentId))) {
-                log.error("❌ BaseContext.setCurrentAgentId设置失败！预期: {}, 实际: {}", agentId, BaseContext.getCurrentAgentId());
-            }
+            // 5. 将用户信息存储到ThreadLocal
+            context.apply();
+            log.debug("🔍 JWT校验通过，BaseContext设置完成: userId={}, username={}, userType={}, agentId={}, operatorId={}",
+                    context.getId(), context.getUsername(), userType, context.getAgentId(), context.getOperatorId());
             
             return true;
         } catch (ExpiredJwtException ex) {
@@ -174,6 +138,33 @@ public class JwtTokenAgentInterceptor implements HandlerInterceptor {
         }
     }
     
+    /**
+     * 校验签名并提取代理商信息（缓存未命中时调用）
+     */
+    private AuthContext loadContext(String token) {
+        Claims claims = JwtUtil.parseJWT(jwtProperties.getAgentSecretKey(), token);
+        
+        Long userId = Long.valueOf(claims.get(JwtClaimsConstant.USER_ID).toString());
+        String username = claims.get("username") != null ? claims.get("username").toString() : null;
+        String userType = claims.get("userType") != null ? claims.get("userType").toString() : "agent";
+        
+        // 代理商ID：代理商主账号没有专门的代理商ID字段时，代理商ID就是用户ID
+        Long agentId = null;
+        if (claims.get(JwtClaimsConstant.AGENT_ID) != null) {
+            agentId = Long.valueOf(claims.get(JwtClaimsConstant.AGENT_ID).toString());
+        } else if ("agent".equals(userType)) {
+            agentId = userId;
+        }
+        
+        // 操作员ID（如果存在）
+        Long operatorId = null;
+        if (claims.get(JwtClaimsConstant.OPERATOR_ID) != null) {
+            operatorId = Long.valueOf(claims.get(JwtClaimsConstant.OPERATOR_ID).toString());
+        }
+        
+        return new AuthContext(claims, userId, username, userType, agentId, operatorId);
+    }
+    
     /**
      * 处理错误响应
      * 
@@ -203,11 +194,13 @@ public class JwtTokenAgentInterceptor implements HandlerInterceptor {
     private String getTokenFromCookie(HttpServletRequest request) {
         if (request.getCookies() != null) {
             // 记录所有Cookie用于调试
-            StringBuilder cookieDebug = new StringBuilder("所有Cookie: ");
-            for (Cookie cookie : request.getCookies()) {
-                cookieDebug.append(cookie.getName()).append("=").append(cookie.getValue().substring(0, Math.min(cookie.getValue().length(), 10))).append("..., ");
+            if (log.isDebugEnabled()) {
+                StringBuilder cookieDebug = new StringBuilder("所有Cookie: ");
+                for (Cookie cookie : request.getCookies()) {
+                    cookieDebug.append(cookie.getName()).append("=").append(cookie.getValue().substring(0, Math.min(cookie.getValue().length(), 10))).append("..., ");
+                }
+                log.debug(cookieDebug.toString());
             }
-            log.debug(cookieDebug.toString());
             
             // 按优先级查找token
             String[] tokenCookieNames = {"authToken", "token", "refreshToken", "agentToken"};
@@ -1,5 +1,7 @@
 package com.sky.interceptor;
 
+import com.sky.cache.JwtTokenCache;
+import com.sky.cache.JwtTokenCache.AuthContext;
 import com.sky.constant.JwtClaimsConstant;
 import com.sky.context.BaseContext;
 import com.sky.properties.JwtProperties;
@@ -17,14 +19,20 @@ import javax.servlet.http.HttpServletResponse;
 
 /**
  * jwt令牌校验的拦截器
+ * 校验结果由 JwtTokenCache 缓存到token过期，同一token只做一次签名校验
  */
 @Component
 @Slf4j
 public class JwtTokenUserInterceptor implements HandlerInterceptor {
 
+    private static final String CACHE_SCOPE = JwtTokenCache.SCOPE_USER;
+
     @Autowired
     private JwtProperties jwtProperties;
 
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
+
     /**
      * 校验jwt
      *
@@ -36,8 +44,6 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
      */
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
-        log.info("用户JWT拦截器...");
-        
         //判断当前拦截到的是Controller的方法还是其他资源
         if (!(handler instanceof HandlerMethod)) {
             //当前拦截到的不是动态方法，直接放行
@@ -52,7 +58,7 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
         Long existingUserId = BaseContext.getCurrentId();
         String existingUserType = BaseContext.getCurrentUserType();
         if (existingUserId != null && "agent".equals(existingUserType)) {
-            log.info("⚡ 代理商已通过认证，用户拦截器跳过验证: userId={}, path={}", existingUserId, requestURI);
+            log.debug("⚡ 代理商已通过认证，用户拦截器跳过验证: userId={}, path={}", existingUserId, requestURI);
             return true; // 代理商已验证，跳过用户验证
         }
         
@@ -74,37 +80,36 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
         
         // 特殊判断旅游详情API
         if (requestURI.matches("/user/tours/\\d+")) {
-            log.info("旅游详情API，无需验证: {}", requestURI);
+            log.debug("旅游详情API，无需验证: {}", requestURI);
             return true;
         }
 
         //1、尝试获取令牌（优先从HttpOnly Cookie，然后从请求头）
         String token = null;
-        log.info("🔍 开始获取JWT token，请求路径: {}", requestURI);
         
         // 首先尝试从HttpOnly Cookie获取token
         token = getTokenFromCookie(request);
         if (token != null) {
-            log.info("✅ 从HttpOnly Cookie获取到token，长度: {}", token.length());
+            log.debug("✅ 从HttpOnly Cookie获取到token，长度: {}", token.length());
         } else {
-            log.info("❌ HttpOnly Cookie中没有找到token");
+            log.debug("❌ HttpOnly Cookie中没有找到token");
         }
         
         // 如果Cookie中没有token，尝试从请求头获取（向后兼容）
         if (token == null) {
-            log.info("🔍 尝试从请求头获取token...");
+            log.debug("🔍 尝试从请求头获取token...");
             
             // 首先尝试从配置的用户token名称中获取
             token = request.getHeader(jwtProperties.getUserTokenName());
             if (token != null) {
-                log.info("✅ 从配置的用户token名称({})获取到token", jwtProperties.getUserTokenName());
+                log.debug("✅ 从配置的用户token名称({})获取到token", jwtProperties.getUserTokenName());
             }
             
             // 如果上面方式获取失败，尝试从"token"头获取
             if (token == null) {
                 token = request.getHeader("token");
                 if (token != null) {
-                    log.info("✅ 从'token'请求头获取到token");
+                    log.debug("✅ 从'token'请求头获取到token");
                 }
             }
             
@@ -112,7 +117,7 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
             if (token == null) {
                 token = request.getHeader("Authentication");
                 if (token != null) {
-                    log.info("✅ 从'Authentication'请求头获取到token");
+                    log.debug("✅ 从'Authentication'请求头获取到token");
                 }
             }
             
@@ -121,14 +126,14 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
                 String authHeader = request.getHeader("Authorization");
                 if (authHeader != null && authHeader.startsWith("Bearer ")) {
                     token = authHeader.substring(7);
-                    log.info("✅ 从'Authorization'请求头获取到Bearer token");
+                    log.debug("✅ 从'Authorization'请求头获取到Bearer token");
                 } else if (authHeader != null) {
-                    log.info("🔍 'Authorization'请求头存在但不是Bearer格式: {}", authHeader.substring(0, Math.min(20, authHeader.length())) + "...");
+                    log.debug("🔍 'Authorization'请求头存在但不是Bearer格式: {}", authHeader.substring(0, Math.min(20, authHeader.length())) + "...");
                 }
             }
             
             if (token == null) {
-                log.warn("❌ 所有请求头中都没有找到token");
+                log.debug("❌ 所有请求头中都没有找到token");
             }
         }
         
@@ -158,85 +163,15 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
 
         //2、校验令牌
         try {
-            log.info("🔍 开始解析JWT token，token长度: {}", token.length());
-            Claims claims = null;
-            try {
-                // 首先尝试用户密钥解析
-                log.debug("尝试使用用户密钥解析JWT...");
-                claims = JwtUtil.parseJWT(jwtProperties.getUserSecretKey(), token);
-                log.info("✅ 使用用户密钥解析JWT成功");
-            } catch (Exception e) {
-                log.warn("❌ 用户密钥解析失败: {}", e.getMessage());
-                // 如果用户密钥解析失败，尝试代理商密钥
-                try {
-                    log.debug("尝试使用代理商密钥解析JWT...");
-                    claims = JwtUtil.parseJWT(jwtProperties.getAgentSecretKey(), token);
-                    log.info("✅ 使用代理商密钥解析JWT成功");
-                } catch (Exception ex) {
-                    log.error("❌ 代理商密钥解析也失败: {}", ex.getMessage());
-                    log.debug("JWT解析失败: {}", ex.getMessage());
-                    response.setStatus(401);
-                    return false;
-                }
-            }
-            
-            Long userId = Long.valueOf(claims.get(JwtClaimsConstant.USER_ID).toString());
-            log.info("🔍 从JWT解析用户ID: {}", userId);
-            BaseContext.setCurrentId(userId);
-            log.info("✅ BaseContext.setCurrentId({}) 设置完成", userId);
-            
-            // 从JWT中获取用户名并存入BaseContext
-            String username = claims.get(JwtClaimsConstant.USERNAME, String.class);
-            if (username != null) {
-                BaseContext.setCurrentUsername(username);
-                log.info("✅ 设置用户名到BaseContext: {}, ID: {}", username, userId);
-            } else {
-                log.warn("⚠️ JWT中没有用户名信息");
-            }
-            
-            // 从JWT中获取用户类型并存入BaseContext
-            String userType = claims.get(JwtClaimsConstant.USER_TYPE, String.class);
-            if (userType != null) {
-                BaseContext.setCurrentUserType(userType);
-                log.info("✅ 设置用户类型到BaseContext: {}", userType);
-            } else {
-                // 默认设置为普通用户
-                BaseContext.setCurrentUserType("regular");
-                log.warn("⚠️ JWT中没有用户类型信息，默认设置为regular");
-            }
-            
-            // 从JWT中获取代理商ID并存入BaseContext（只有代理商用户才设置）
-            Object agentIdClaim = claims.get(JwtClaimsConstant.AGENT_ID);
-            log.info("🔍 JWT中的代理商ID声明: {}, 用户类型: {}", agentIdClaim, userType);
-            
-            if (agentIdClaim != null && 
-                ("agent".equals(userType) || "agent_operator".equals(userType))) {
-                Long agentId = Long.valueOf(agentIdClaim.toString());
-                BaseContext.setCurrentAgentId(agentId);
-                log.info("✅ 设置代理商ID到BaseContext: {}", agentId);
-            } else {
-                // 清空代理商ID，确保普通用户不会获得代理商折扣
-                BaseContext.setCurrentAgentId(null);
-                if (agentIdClaim != null) {
-                    log.warn("⚠️ 普通用户({})的Token中包含代理商ID({}), 已忽略", userType, agentIdClaim);
-                } else {
-                    log.info("🔍 JWT中没有代理商ID声明，设置为null");
-                }
-            }
-            
-            // 从JWT中获取操作员ID并存入BaseContext（如果存在）
-            Object operatorIdClaim = claims.get(JwtClaimsConstant.OPERATOR_ID);
-            if (operatorIdClaim != null) {
-                Long operatorId = Long.valueOf(operatorIdClaim.toString());
-                BaseContext.setCurrentOperatorId(operatorId);
-                log.info("✅ 设置操作员ID到BaseContext: {}", operatorId);
-            } else {
-                log.info("🔍 JWT中没有操作员ID声明");
-            }
+            AuthContext context = jwtTokenCache.verify(CACHE_SCOPE, token, this::loadContext);
+            context.apply();
+            String userType = context.getUserType();
+            log.debug("✅ 用户JWT校验通过: userId={}, username={}, userType={}, agentId={}, operatorId={}",
+                    context.getId(), context.getUsername(), userType, context.getAgentId(), context.getOperatorId());
             
             // 允许代理商访问tour-bookings相关接口
             if (requestURI.contains("/user/tour-bookings") && "agent".equals(userType)) {
-                log.info("允许代理商访问旅游订单接口: {}", requestURI);
+                log.debug("允许代理商访问旅游订单接口: {}", requestURI);
                 return true;
             }
             
@@ -259,6 +194,42 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
         }
     }
     
+    /**
+     * 校验签名并提取用户信息（缓存未命中时调用）：先用用户密钥，失败再用代理商密钥
+     */
+    private AuthContext loadContext(String token) {
+        Claims claims;
+        try {
+            claims = JwtUtil.parseJWT(jwtProperties.getUserSecretKey(), token);
+        } catch (Exception e) {
+            log.debug("用户密钥解析失败，尝试代理商密钥: {}", e.getMessage());
+            claims = JwtUtil.parseJWT(jwtProperties.getAgentSecretKey(), token);
+        }
+
+        Long userId = Long.valueOf(claims.get(JwtClaimsConstant.USER_ID).toString());
+        String username = claims.get(JwtClaimsConstant.USERNAME, String.class);
+
+        // 没有用户类型时默认为普通用户
+        String userType = claims.get(JwtClaimsConstant.USER_TYPE, String.class);
+        if (userType == null) {
+            userType = "regular";
+        }
+
+        // 只有代理商用户才设置代理商ID，确保普通用户不会获得代理商折扣
+        Long agentId = null;
+        Object agentIdClaim = claims.get(JwtClaimsConstant.AGENT_ID);
+        if (agentIdClaim != null && ("agent".equals(userType) || "agent_operator".equals(userType))) {
+            agentId = Long.valueOf(agentIdClaim.toString());
+        } else if (agentIdClaim != null) {
+            log.warn("⚠️ 普通用户({})的Token中包含代理商ID({}), 已忽略", userType, agentIdClaim);
+        }
+
+        Object operatorIdClaim = claims.get(JwtClaimsConstant.OPERATOR_ID);
+        Long operatorId = operatorIdClaim != null ? Long.valueOf(operatorIdClaim.toString()) : null;
+
+        return new AuthContext(claims, userId, username, userType, agentId, operatorId);
+    }
+
     /**
      * 从HttpOnly Cookie中获取token
      */
@@ -278,13 +249,13 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
                     "userToken".equals(cookie.getName()) ||
                     "jwt".equals(cookie.getName())) {
                     authToken = cookie.getValue();
-                    log.info("✅ 从Cookie中找到认证token: {}", cookie.getName());
+                    log.debug("✅ 从Cookie中找到认证token: {}", cookie.getName());
                 }
                 
                 // 也记录 refreshToken（作为备用）
                 if ("refreshToken".equals(cookie.getName())) {
                     refreshToken = cookie.getValue();
-                    log.info("🔄 从Cookie中找到refreshToken");
+                    log.debug("🔄 从Cookie中找到refreshToken");
                 }
             }
             
@@ -295,13 +266,13 @@ public class JwtTokenUserInterceptor implements HandlerInterceptor {
             
             // 如果没有 authToken 但有 refreshToken，使用 refreshToken
             if (refreshToken != null) {
-                log.info("⚡ authToken已过期，使用refreshToken进行认证");
+                log.debug("⚡ authToken已过期，使用refreshToken进行认证");
                 return refreshToken;
             }
             
-            log.warn("❌ 未找到认证token Cookie，所有Cookie: [{}]", cookieList.toString());
+            log.debug("❌ 未找到认证token Cookie，所有Cookie: [{}]", cookieList.toString());
         } else {
-            log.warn("❌ 请求中没有任何Cookie");
+            log.debug("❌ 请求中没有任何Cookie");
         }
         return null;
     }
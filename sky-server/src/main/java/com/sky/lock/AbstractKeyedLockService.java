@@ -0,0 +1,117 @@
+package com.sky.lock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 加锁服务公共部分：有界等待（退避重试）和运行指标，各实现只负责单次加锁、校验和释放
+ */
+@Slf4j
+public abstract class AbstractKeyedLockService implements KeyedLockService {
+
+    private static final long MIN_BACKOFF_MILLIS = 10;
+    private static final long MAX_BACKOFF_MILLIS = 200;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder releaseMissed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    /**
+     * 单次尝试加锁
+     * @return 成功时返回fencing token（大于0），锁被占用时返回0
+     */
+    protected abstract long acquire(String key, String owner, long leaseMillis);
+
+    /**
+     * 释放锁
+     * @return 是否确实释放（锁已过期或被其他请求取得时为false）
+     */
+    protected abstract boolean doRelease(LockLease lease);
+
+    /**
+     * 实现名称，用于指标
+     */
+    protected abstract String type();
+
+    @Override
+    public LockLease tryLock(String key, long waitMillis, long leaseMillis) {
+        String owner = UUID.randomUUID().toString();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(Math.max(waitMillis, 0));
+        long backoff = MIN_BACKOFF_MILLIS;
+        boolean waited = false;
+        try {
+            while (true) {
+                long leaseStart = System.currentTimeMillis();
+                long token = acquire(key, owner, leaseMillis);
+                if (token > 0) {
+                    acquired.increment();
+                    return new LockLease(key, owner, token, leaseStart + leaseMillis, this);
+                }
+                if (!waited) {
+                    contended.increment();
+                    waited = true;
+                }
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    timeouts.increment();
+                    log.info("加锁等待超时: key={}, wait={}ms", key, waitMillis);
+                    return null;
+                }
+                Thread.sleep(Math.min(remainingMillis, backoff + ThreadLocalRandom.current().nextLong(backoff)));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            timeouts.increment();
+            return null;
+        } catch (RuntimeException e) {
+            errors.increment();
+            throw e;
+        } finally {
+            waitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void release(LockLease lease) {
+        try {
+            if (doRelease(lease)) {
+                released.increment();
+            } else {
+                // 租约已到期，期间可能有其他请求取得过锁
+                releaseMissed.increment();
+                log.warn("释放锁时租约已失效: {}", lease);
+            }
+        } catch (Exception e) {
+            // 释放失败时锁在租约到期后自动失效
+            errors.increment();
+            log.error("释放锁失败: {}, {}", lease, e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        long count = acquired.sum() + timeouts.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", type());
+        stats.put("acquired", acquired.sum());
+        stats.put("contended", contended.sum());
+        stats.put("timeouts", timeouts.sum());
+        stats.put("released", released.sum());
+        stats.put("releaseMissed", releaseMissed.sum());
+        stats.put("errors", errors.sum());
+        stats.put("averageWaitMillis", count > 0 ? waitNanos.sum() / 1_000_000.0 / count : 0);
+        return stats;
+    }
+}
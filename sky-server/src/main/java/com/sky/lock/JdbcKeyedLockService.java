@@ -0,0 +1,94 @@
+package com.sky.lock;
+
+import com.sky.mapper.DistributedLockMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+
+/**
+ * 基于数据库表的加锁服务（distributed_lock，见 create_distributed_lock.sql）
+ * 每个键一行，租约到期时间和 fencing token 都在行上，使用数据库时间判断是否到期，不受各节点时钟偏差影响。
+ * 加锁、释放都在独立的短事务中提交（REQUIRES_NEW），不受调用方业务事务影响。
+ */
+@Component
+@ConditionalOnProperty(name = "sky.lock.type", havingValue = "jdbc")
+@Slf4j
+public class JdbcKeyedLockService extends AbstractKeyedLockService {
+
+    @Autowired
+    private DistributedLockMapper distributedLockMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 租约到期多久后删除锁记录
+     */
+    @Value("${sky.lock.jdbc.purge-after-hours:24}")
+    private int purgeAfterHours;
+
+    private TransactionTemplate lockTransaction;
+
+    @PostConstruct
+    public void init() {
+        lockTransaction = new TransactionTemplate(transactionManager);
+        lockTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    protected long acquire(String key, String owner, long leaseMillis) {
+        Long token = lockTransaction.execute(status -> {
+            distributedLockMapper.acquire(key, owner, leaseMillis * 1000);
+            Map<String, Object> row = distributedLockMapper.getHolder(key);
+            if (row != null && owner.equals(row.get("owner"))) {
+                return ((Number) row.get("fencing_token")).longValue();
+            }
+            return 0L;
+        });
+        return token != null ? token : 0;
+    }
+
+    @Override
+    protected boolean doRelease(LockLease lease) {
+        Integer updated = lockTransaction.execute(status -> distributedLockMapper.release(lease.getKey(), lease.getOwner()));
+        return updated != null && updated > 0;
+    }
+
+    /**
+     * 在独立事务中查询，避免读到调用方事务的一致性快照
+     */
+    @Override
+    public boolean isHeld(LockLease lease) {
+        Integer held = lockTransaction.execute(status -> distributedLockMapper.countHeld(lease.getKey(), lease.getOwner()));
+        return held != null && held > 0;
+    }
+
+    @Override
+    protected String type() {
+        return "jdbc";
+    }
+
+    /**
+     * 删除长时间未使用的锁记录
+     */
+    @Scheduled(cron = "${sky.lock.jdbc.purge-cron:0 40 3 * * ?}")
+    public void purgeExpired() {
+        try {
+            int deleted = distributedLockMapper.deleteExpiredBefore(purgeAfterHours);
+            if (deleted > 0) {
+                log.info("已删除过期锁记录: {}条", deleted);
+            }
+        } catch (Exception e) {
+            log.error("删除过期锁记录失败: {}", e.getMessage());
+        }
+    }
+}
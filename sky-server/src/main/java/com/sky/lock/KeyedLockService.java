@@ -0,0 +1,54 @@
+package com.sky.lock;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+
+/**
+ * 按键加锁服务
+ * 实现由 sky.lock.type 选择：redis（默认，多节点）、jdbc（数据库表，多节点）、local（单进程，测试用）
+ */
+public interface KeyedLockService {
+
+    /**
+     * 尝试加锁，最多等待 waitMillis
+     * @param key 锁的键
+     * @param waitMillis 最长等待时间，0表示只尝试一次
+     * @param leaseMillis 租约时长，到期未释放时锁自动失效
+     * @return 租约，等待超时返回null
+     */
+    LockLease tryLock(String key, long waitMillis, long leaseMillis);
+
+    /**
+     * 是否仍持有锁（租约未到期且未被其他请求取得），在执行不可重复的写操作前校验
+     */
+    boolean isHeld(LockLease lease);
+
+    /**
+     * 释放锁，锁已过期或已被其他请求取得时忽略
+     */
+    void release(LockLease lease);
+
+    /**
+     * 运行指标
+     */
+    Map<String, Object> stats();
+
+    /**
+     * 当前事务结束（提交或回滚）后释放锁，避免其他请求在提交前读到旧数据
+     * @return 没有事务时返回false，由调用方自行释放
+     */
+    default boolean releaseAfterTransaction(LockLease lease) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                release(lease);
+            }
+        });
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+package com.sky.lock;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内加锁服务（单节点部署或测试使用），语义与Redis实现相同：租约到期自动失效，fencing token 单调递增
+ */
+@Component
+@ConditionalOnProperty(name = "sky.lock.type", havingValue = "local")
+public class LocalKeyedLockService extends AbstractKeyedLockService {
+
+    private final Map<String, Holder> locks = new ConcurrentHashMap<>();
+    private final AtomicLong fence = new AtomicLong();
+
+    @Override
+    protected long acquire(String key, String owner, long leaseMillis) {
+        long now = System.currentTimeMillis();
+        Holder holder = locks.compute(key, (k, current) -> current == null || current.expireAt <= now
+                ? new Holder(owner, fence.incrementAndGet(), now + leaseMillis)
+                : current);
+        return owner.equals(holder.owner) ? holder.token : 0;
+    }
+
+    @Override
+    protected boolean doRelease(LockLease lease) {
+        boolean[] released = new boolean[1];
+        locks.computeIfPresent(lease.getKey(), (k, current) -> {
+            if (current.owner.equals(lease.getOwner())) {
+                released[0] = current.expireAt > System.currentTimeMillis();
+                return null;
+            }
+            return current;
+        });
+        return released[0];
+    }
+
+    @Override
+    public boolean isHeld(LockLease lease) {
+        Holder holder = locks.get(lease.getKey());
+        return holder != null && holder.owner.equals(lease.getOwner()) && holder.expireAt > System.currentTimeMillis();
+    }
+
+    @Override
+    protected String type() {
+        return "local";
+    }
+
+    private static class Holder {
+        final String owner;
+        final long token;
+        final long expireAt;
+
+        Holder(String owner, long token, long expireAt) {
+            this.owner = owner;
+            this.token = token;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.sky.lock;
+
+import lombok.Getter;
+
+/**
+ * 锁租约
+ * 持有期间最长到 expireAt（租约到期后锁自动失效，其他请求可以取得）；
+ * fencingToken 在同一个键上单调递增，后取得锁的请求令牌更大，可用于识别租约过期后仍在执行的旧持有者。
+ * 支持 try-with-resources 释放。
+ */
+@Getter
+public class LockLease implements AutoCloseable {
+
+    private final String key;
+    private final String owner;
+    private final long fencingToken;
+    private final long expireAt;
+    private final KeyedLockService lockService;
+
+    LockLease(String key, String owner, long fencingToken, long expireAt, KeyedLockService lockService) {
+        this.key = key;
+        this.owner = owner;
+        this.fencingToken = fencingToken;
+        this.expireAt = expireAt;
+        this.lockService = lockService;
+    }
+
+    /**
+     * 本地时钟判断租约是否已到期（只作快速判断，是否仍持有锁以 {@link KeyedLockService#isHeld} 为准）
+     */
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= expireAt;
+    }
+
+    @Override
+    public void close() {
+        lockService.release(this);
+    }
+
+    @Override
+    public String toString() {
+        return key + "#" + fencingToken;
+    }
+}
@@ -0,0 +1,74 @@
+package com.sky.lock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * 基于Redis的加锁服务
+ * 锁：sky:lock:{键}，值为持有者标识，带租约过期时间；
+ * fencing token：sky:lock:fence:{键} 计数器，每次取得锁时加一，较长时间不再加锁后过期。
+ */
+@Component
+@ConditionalOnProperty(name = "sky.lock.type", havingValue = "redis", matchIfMissing = true)
+public class RedisKeyedLockService extends AbstractKeyedLockService {
+
+    private static final String LOCK_KEY_PREFIX = "sky:lock:";
+    private static final String FENCE_KEY_PREFIX = "sky:lock:fence:";
+
+    /**
+     * 加锁成功时同时递增fencing token
+     */
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then "
+                    + "local token = redis.call('INCR', KEYS[2]) "
+                    + "redis.call('PEXPIRE', KEYS[2], ARGV[3]) "
+                    + "return token end return 0", Long.class);
+
+    /**
+     * 仍由自己持有时才删除，避免租约过期后删掉其他请求的锁
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * fencing token 计数器在最后一次加锁后保留的时长
+     */
+    @Value("${sky.lock.fence-ttl-hours:24}")
+    private long fenceTtlHours;
+
+    @Override
+    protected long acquire(String key, String owner, long leaseMillis) {
+        Long token = stringRedisTemplate.execute(ACQUIRE_SCRIPT,
+                Arrays.asList(LOCK_KEY_PREFIX + key, FENCE_KEY_PREFIX + key),
+                owner, String.valueOf(leaseMillis), String.valueOf(fenceTtlHours * 3_600_000L));
+        return token != null ? token : 0;
+    }
+
+    @Override
+    protected boolean doRelease(LockLease lease) {
+        Long deleted = stringRedisTemplate.execute(RELEASE_SCRIPT,
+                Collections.singletonList(LOCK_KEY_PREFIX + lease.getKey()), lease.getOwner());
+        return deleted != null && deleted > 0;
+    }
+
+    @Override
+    public boolean isHeld(LockLease lease) {
+        return lease.getOwner().equals(stringRedisTemplate.opsForValue().get(LOCK_KEY_PREFIX + lease.getKey()));
+    }
+
+    @Override
+    protected String type() {
+        return "redis";
+    }
+}
@@ -42,6 +42,24 @@ public interface AgentCreditMapper {
      */
     int updateWithVersion(AgentCredit agentCredit);
 
+    /**
+     * 条件扣款（信用支付）：账户未冻结且总可用额度（信用额度 - 已用 + 预存余额）足够时扣款，
+     * 优先扣预存余额，不足部分计入已用信用额度；MySQL按顺序赋值，used_credit 须在 deposit_balance 之前计算
+     * @param agentId 代理商ID
+     * @param amount 扣款金额
+     * @return 影响的行数（0表示冻结、额度不足或记录不存在）
+     */
+    @Update("UPDATE agent_credit SET " +
+            "used_credit = used_credit + GREATEST(#{amount} - GREATEST(deposit_balance, 0), 0), " +
+            "deposit_balance = IF(deposit_balance > 0, GREATEST(deposit_balance - #{amount}, 0), deposit_balance), " +
+            "available_credit = total_credit - used_credit + deposit_balance, " +
+            "version = IFNULL(version, 0) + 1, " +
+            "last_updated = NOW() " +
+            "WHERE agent_id = #{agentId} " +
+            "AND (is_frozen IS NULL OR is_frozen = 0) " +
+            "AND total_credit - used_credit + deposit_balance >= #{amount}")
+    int deductCredit(@Param("agentId") Long agentId, @Param("amount") BigDecimal amount);
+
     /**
      * 获取所有代理商信用额度记录
      * @param agentId 代理商ID（可选）
@@ -148,4 +148,10 @@ public interface AgentMapper {
      * @return 代理商表现统计
      */
     Map<String, Object> getAgentPerformanceData();
+
+    /**
+     * 查询所有已设置折扣等级的代理商（仅包含id和discountLevelId）
+     * @return 代理商列表
+     */
+    List<Agent> listDiscountLevels();
 } 
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.sky.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 营业数据日汇总（business_daily_rollup、registration_daily_rollup）
+ * 日期参数均为闭区间 [begin, end]
+ */
+@Mapper
+public interface BusinessRollupMapper {
+
+    /**
+     * 订单的下单日期（去重）
+     */
+    List<LocalDate> getBookingDates(@Param("bookingIds") Collection<Integer> bookingIds);
+
+    /**
+     * 单个订单的下单日期
+     */
+    @Select("SELECT DATE(created_at) FROM tour_bookings WHERE booking_id = #{bookingId}")
+    LocalDate getBookingDate(@Param("bookingId") Integer bookingId);
+
+    /**
+     * 最早的下单/注册日期，用于回填
+     */
+    @Select("SELECT DATE(MIN(first_at)) FROM ("
+            + "SELECT MIN(created_at) AS first_at FROM tour_bookings"
+            + " UNION ALL SELECT MIN(created_at) FROM users"
+            + " UNION ALL SELECT MIN(created_at) FROM agents) t")
+    LocalDate getFirstActivityDate();
+
+    /**
+     * 汇总表是否为空
+     */
+    @Select("SELECT COUNT(*) FROM (SELECT 1 FROM business_daily_rollup LIMIT 1) t")
+    int countBookingRollupSample();
+
+    /**
+     * 删除区间内的订单汇总
+     */
+    void deleteBookingRollup(@Param("begin") LocalDate begin, @Param("end") LocalDate end);
+
+    /**
+     * 从订单表重算区间内的订单汇总
+     */
+    void insertBookingRollup(@Param("begin") LocalDate begin, @Param("end") LocalDate end);
+
+    /**
+     * 删除区间内的注册汇总
+     */
+    void deleteRegistrationRollup(@Param("begin") LocalDate begin, @Param("end") LocalDate end);
+
+    /**
+     * 从用户表、代理商表重算区间内的注册汇总
+     */
+    void insertRegistrationRollup(@Param("begin") LocalDate begin, @Param("end") LocalDate end);
+
+    /**
+     * 按日的营业数据：date(yyyy-MM-dd), orders, revenue, pending, confirmed, completed, cancelled
+     * 没有订单的日期不返回
+     */
+    List<Map<String, Object>> getDailyBusinessData(@Param("begin") LocalDate begin, @Param("end") LocalDate end);
+
+    /**
+     * 区间汇总：totalOrders, totalRevenue, pendingOrders, confirmedOrders, completedOrders, cancelledOrders
+     */
+    Map<String, Object> getRangeSummary(@Param("begin") LocalDate begin, @Param("end") LocalDate end);
+
+    /**
+     * 全部订单的状态分布：pending, confirmed, completed, cancelled
+     */
+    Map<String, Object> getOrderStatusDistribution();
+
+    /**
+     * 按产品类型的销售数据（已确认和已完成订单）：bookings, revenue
+     */
+    Map<String, Object> getSalesByTourType(@Param("tourType") String tourType);
+
+    /**
+     * 按日的注册数据：date(yyyy-MM-dd), newUsers, newAgents
+     */
+    List<Map<String, Object>> getDailyRegistrations(@Param("begin") LocalDate begin, @Param("end") LocalDate end);
+
+    /**
+     * 区间注册汇总：newUsers, newAgents
+     */
+    Map<String, Object> getRegistrationSummary(@Param("begin") LocalDate begin, @Param("end") LocalDate end);
+}
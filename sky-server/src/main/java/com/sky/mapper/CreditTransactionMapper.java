@@ -1,10 +1,12 @@
 package com.sky.mapper;
 
 import com.sky.entity.CreditTransaction;
+import com.sky.vo.CreditTransactionVO;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -130,6 +132,22 @@ public interface CreditTransactionMapper {
                                           @Param("startDate") LocalDateTime startDate, 
                                           @Param("endDate") LocalDateTime endDate);
 
+    /**
+     * 流式读取导出的交易记录（含代理商名称），逐行交给 handler，不在内存中保留结果列表
+     * @param agentId 代理商ID（可选）
+     * @param transactionType 交易类型（可选）
+     * @param transactionNo 交易编号（可选，模糊匹配）
+     * @param startDate 开始日期（可选）
+     * @param endDate 结束日期（可选）
+     * @param handler 逐行处理器
+     */
+    void streamForExport(@Param("agentId") Long agentId,
+                         @Param("transactionType") String transactionType,
+                         @Param("transactionNo") String transactionNo,
+                         @Param("startDate") LocalDateTime startDate,
+                         @Param("endDate") LocalDateTime endDate,
+                         ResultHandler<CreditTransactionVO> handler);
+
     /**
      * 创建信用额度交易记录
      * @param transaction 交易记录对象
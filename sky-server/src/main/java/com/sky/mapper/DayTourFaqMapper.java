@@ -4,6 +4,7 @@ import com.sky.entity.DayTourFaq;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Select;
 
 import java.util.List;
@@ -29,6 +30,7 @@ public interface DayTourFaqMapper {
      */
     @Insert("insert into day_tour_faqs(day_tour_id, question, answer, position, created_at, updated_at) " +
             "values(#{dayTourId}, #{question}, #{answer}, #{position}, #{createdAt}, #{updatedAt})")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
     void insert(DayTourFaq dayTourFaq);
 
     /**
@@ -95,4 +95,22 @@ public interface DayTourMapper {
      */
     @Select("SELECT AVG(price) FROM day_tours WHERE is_active = 1")
     java.math.BigDecimal getAveragePrice();
+
+    /**
+     * 查询所有一日游的计价字段（供价格目录快照使用）
+     * @return 一日游价格列表
+     */
+    @Select("SELECT day_tour_id AS id, day_tour_id AS dayTourId, name, price, " +
+            "small_group_price_difference AS smallGroupPriceDifference FROM day_tours")
+    java.util.List<DayTour> listPriceInfo();
+
+    /**
+     * 查询所有上架一日游的检索字段（供聊天机器人产品检索索引使用）
+     * @return 一日游列表
+     */
+    @Select("SELECT dt.day_tour_id AS id, dt.day_tour_id AS dayTourId, dt.name, dt.price, dt.duration, dt.location, " +
+            "dt.category, dt.region_id AS regionId, r.name AS regionName, dt.is_active AS isActive " +
+            "FROM day_tours dt LEFT JOIN regions r ON dt.region_id = r.region_id " +
+            "WHERE dt.is_active = 1 ORDER BY dt.day_tour_id")
+    java.util.List<DayTour> listSearchInfo();
 } 
\ No newline at end of file
@@ -71,4 +71,11 @@ public interface DayTourThemeMapper {
      */
     @Insert("insert into day_tour_theme_relation(day_tour_id, theme_id) values(#{dayTourId}, #{themeId})")
     void insertAssociation(Integer dayTourId, Integer themeId);
+
+    /**
+     * 查询所有一日游与主题名称的关联（供聊天机器人产品检索索引使用）
+     * @return 关联列表（tourId, name）
+     */
+    @Select("select dt.day_tour_id as tourId, t.name from day_tour_theme_relation dt join day_tour_themes t on t.theme_id = dt.theme_id")
+    List<java.util.Map<String, Object>> listThemeNames();
 } 
\ No newline at end of file
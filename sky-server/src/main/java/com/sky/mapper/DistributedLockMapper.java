@@ -0,0 +1,51 @@
+package com.sky.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Map;
+
+/**
+ * 数据库锁（distributed_lock），时间均使用数据库的 NOW(3)
+ */
+@Mapper
+public interface DistributedLockMapper {
+
+    /**
+     * 没有记录或租约已到期时取得锁（fencing token 加一），否则保持原持有者不变
+     * 注意 ON DUPLICATE KEY UPDATE 按顺序赋值，expire_at 必须最后更新
+     */
+    @Insert("INSERT INTO distributed_lock (lock_key, owner, fencing_token, expire_at) " +
+            "VALUES (#{key}, #{owner}, 1, DATE_ADD(NOW(3), INTERVAL #{leaseMicros} MICROSECOND)) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "fencing_token = IF(expire_at <= NOW(3), fencing_token + 1, fencing_token), " +
+            "owner = IF(expire_at <= NOW(3), VALUES(owner), owner), " +
+            "expire_at = IF(expire_at <= NOW(3), VALUES(expire_at), expire_at)")
+    void acquire(@Param("key") String key, @Param("owner") String owner, @Param("leaseMicros") long leaseMicros);
+
+    /**
+     * 当前持有者和 fencing token
+     */
+    @Select("SELECT owner, fencing_token FROM distributed_lock WHERE lock_key = #{key}")
+    Map<String, Object> getHolder(@Param("key") String key);
+
+    /**
+     * 释放：把租约设为已到期，保留记录以便 fencing token 继续递增
+     */
+    @Update("UPDATE distributed_lock SET expire_at = NOW(3) " +
+            "WHERE lock_key = #{key} AND owner = #{owner} AND expire_at > NOW(3)")
+    int release(@Param("key") String key, @Param("owner") String owner);
+
+    @Select("SELECT COUNT(*) FROM distributed_lock WHERE lock_key = #{key} AND owner = #{owner} AND expire_at > NOW(3)")
+    int countHeld(@Param("key") String key, @Param("owner") String owner);
+
+    /**
+     * 删除租约到期超过指定小时数的记录
+     */
+    @Delete("DELETE FROM distributed_lock WHERE expire_at < DATE_SUB(NOW(3), INTERVAL #{hours} HOUR)")
+    int deleteExpiredBefore(@Param("hours") int hours);
+}
@@ -136,4 +136,10 @@ public interface GroupTourDayTourRelationMapper {
     BigDecimal getPriceDifferenceByTourAndDay(@Param("groupTourId") Integer groupTourId, 
                                               @Param("dayTourId") Integer dayTourId, 
                                               @Param("dayNumber") Integer dayNumber);
+
+    /**
+     * 查询所有跟团游-一日游关联的价格差异（供价格目录快照使用）
+     */
+    @Select("SELECT group_tour_id, day_tour_id, day_number, price_difference FROM group_tour_day_tour_relation")
+    List<GroupTourDayTourRelation> listPriceDifferences();
 } 
\ No newline at end of file
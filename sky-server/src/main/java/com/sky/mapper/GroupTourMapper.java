@@ -10,6 +10,7 @@ import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Update;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -53,6 +54,13 @@ public interface GroupTourMapper {
             "FROM group_tours WHERE group_tour_id = #{id}")
     GroupTourDTO getById(Integer id);
 
+    /**
+     * 根据ID批量查询跟团游（列与 getById 相同）
+     * @param ids 跟团游ID列表
+     * @return 跟团游信息
+     */
+    List<GroupTourDTO> getByIds(@Param("ids") Collection<Integer> ids);
+
     /**
      * 查询跟团游行程安排
      * @param tourId 跟团游ID
@@ -135,7 +143,7 @@ public interface GroupTourMapper {
      * @param tourId 跟团游ID
      * @return 图片列表
      */
-    @Select("SELECT image_url, thumbnail_url, description FROM group_tour_images WHERE group_tour_id = #{tourId}")
+    @Select("SELECT image_url, thumbnail_url, card_url, banner_url, webp, description FROM group_tour_images WHERE group_tour_id = #{tourId}")
     List<Map<String, Object>> getImages(Integer tourId);
 
     /**
@@ -167,6 +175,20 @@ public interface GroupTourMapper {
             "ORDER BY r.day_number, r.id")
     List<Map<String, Object>> getGroupTourDayTours(Integer groupTourId);
 
+    /**
+     * 批量查询多个团队游关联的一日游（列与 getGroupTourDayTours 相同，另含 group_tour_id）
+     * @param groupTourIds 团队游ID列表
+     * @return 关联的一日游列表
+     */
+    List<Map<String, Object>> getGroupTourDayToursByTourIds(@Param("groupTourIds") Collection<Integer> groupTourIds);
+
+    /**
+     * 批量查询多个跟团游的标准行程（列与 getItinerary 相同）
+     * @param tourIds 跟团游ID列表
+     * @return 行程列表
+     */
+    List<Map<String, Object>> getItineraryByTourIds(@Param("tourIds") Collection<Integer> tourIds);
+
     /**
      * 删除团队游关联的一日游
      * @param groupTourId 团队游ID
@@ -419,6 +441,14 @@ public interface GroupTourMapper {
     @Update("UPDATE group_tours SET show_on_user_site = #{showOnUserSite}, updated_at = NOW() WHERE group_tour_id = #{id}")
     void updateUserSiteVisibility(@Param("id") Integer id, @Param("showOnUserSite") Integer showOnUserSite);
     
+    /**
+     * 更新团队游产品展示图片
+     * @param id 团队游ID
+     * @param imageUrl 图片URL
+     */
+    @Update("UPDATE group_tours SET product_showcase_image = #{imageUrl}, updated_at = NOW() WHERE group_tour_id = #{id}")
+    void updateProductShowcaseImage(@Param("id") Integer id, @Param("imageUrl") String imageUrl);
+    
     /**
      * 根据ID删除团队游
      * @param id 团队游ID
@@ -518,4 +548,31 @@ public interface GroupTourMapper {
      */
     @Select("SELECT AVG(price) FROM group_tours WHERE is_active = 1")
     java.math.BigDecimal getAveragePrice();
+
+    /**
+     * 查询所有跟团游的计价字段（供价格目录快照使用）
+     * @return 跟团游价格列表
+     */
+    @Select("SELECT group_tour_id AS id, title AS name, price, discounted_price AS discountedPrice, duration, days, nights, " +
+            "small_group_price_difference AS smallGroupPriceDifference FROM group_tours")
+    List<GroupTourDTO> listPriceInfo();
+
+    /**
+     * 查询所有上架跟团游的检索字段（供聊天机器人产品检索索引使用）
+     * @return 跟团游列表
+     */
+    @Select("SELECT g.group_tour_id AS id, g.title AS name, g.description, g.price, g.discounted_price AS discountedPrice, g.duration, " +
+            "g.days, g.nights, g.tour_code AS tourCode, g.location, g.category, g.region_id AS regionId, r.name AS regionName, " +
+            "g.rating, g.is_active AS isActive, g.show_on_user_site AS showOnUserSite " +
+            "FROM group_tours g LEFT JOIN regions r ON g.region_id = r.region_id " +
+            "WHERE g.is_active = 1 ORDER BY g.group_tour_id")
+    List<GroupTourDTO> listSearchInfo();
+
+    /**
+     * 查询所有跟团游与主题名称的关联（供聊天机器人产品检索索引使用）
+     * @return 关联列表（tourId, name）
+     */
+    @Select("SELECT gtr.group_tour_id AS tourId, gt.name FROM group_tour_theme_relation gtr " +
+            "JOIN group_tour_themes gt ON gtr.theme_id = gt.theme_id")
+    List<Map<String, Object>> listThemeNames();
 } 
\ No newline at end of file
@@ -38,6 +38,11 @@ public interface HotelDailyPriceMapper {
             @Param("priceDate") LocalDate priceDate
     );
     
+    /**
+     * 根据ID查询
+     */
+    HotelDailyPrice selectById(@Param("id") Long id);
+    
     /**
      * 插入每日价格
      */
@@ -0,0 +1,71 @@
+package com.sky.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 产品图片衍生图状态（day_tour_images、group_tour_images）
+ * table 只能由调用方传入这两个表名常量，不能来自请求参数
+ * derivative_status：0待生成 1已生成 2生成失败 3生成中
+ */
+@Mapper
+public interface ImageDerivativeMapper {
+
+    /**
+     * 待生成衍生图的图片：id, imageUrl
+     */
+    @Select("SELECT id, image_url AS imageUrl FROM ${table}"
+            + " WHERE derivative_status = 0 AND image_url IS NOT NULL AND image_url != ''"
+            + " ORDER BY id LIMIT #{limit}")
+    List<Map<String, Object>> findPending(@Param("table") String table, @Param("limit") int limit);
+
+    /**
+     * 认领待生成的图片（状态0改为3），返回1表示认领成功
+     */
+    @Update("UPDATE ${table} SET derivative_status = 3, updated_at = NOW() WHERE id = #{id} AND derivative_status = 0")
+    int claim(@Param("table") String table, @Param("id") Integer id);
+
+    /**
+     * 放弃认领（排队已满时），状态改回0
+     */
+    @Update("UPDATE ${table} SET derivative_status = 0 WHERE id = #{id} AND derivative_status = 3")
+    int unclaim(@Param("table") String table, @Param("id") Integer id);
+
+    /**
+     * 回写衍生图URL（图片URL已变化时不回写）
+     */
+    @Update("UPDATE ${table} SET thumbnail_url = #{thumbnailUrl}, card_url = #{cardUrl}, banner_url = #{bannerUrl},"
+            + " webp = #{webp}, derivative_status = 1 WHERE id = #{id} AND image_url = #{imageUrl}")
+    int saveDerivatives(@Param("table") String table, @Param("id") Integer id, @Param("imageUrl") String imageUrl,
+                        @Param("thumbnailUrl") String thumbnailUrl, @Param("cardUrl") String cardUrl,
+                        @Param("bannerUrl") String bannerUrl, @Param("webp") int webp);
+
+    /**
+     * 图片仍是产品主图时，把卡片图回写为产品列表封面（card_image_url）
+     * productTable、productKey 同样只能由调用方传入常量（产品表主键与图片表外键同名）
+     */
+    @Update("UPDATE ${productTable} p JOIN ${table} i ON i.${productKey} = p.${productKey}"
+            + " SET p.card_image_url = #{cardUrl}"
+            + " WHERE i.id = #{id} AND i.is_primary = 1 AND i.image_url = #{imageUrl} AND p.image_url = #{imageUrl}")
+    int saveCardCover(@Param("table") String table, @Param("productTable") String productTable,
+                      @Param("productKey") String productKey, @Param("id") Integer id,
+                      @Param("imageUrl") String imageUrl, @Param("cardUrl") String cardUrl);
+
+    /**
+     * 标记生成失败
+     */
+    @Update("UPDATE ${table} SET derivative_status = 2 WHERE id = #{id} AND derivative_status = 3")
+    int markFailed(@Param("table") String table, @Param("id") Integer id);
+
+    /**
+     * 生成中超过指定时间的行（节点重启等原因中断）改回待生成
+     */
+    @Update("UPDATE ${table} SET derivative_status = 0 WHERE derivative_status = 3 AND updated_at < #{before}")
+    int resetStale(@Param("table") String table, @Param("before") LocalDateTime before);
+}
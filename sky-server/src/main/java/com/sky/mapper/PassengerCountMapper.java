@@ -0,0 +1,25 @@
+package com.sky.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * 订单乘客人数核对（tour_bookings.adult_count/child_count/group_size 与 booking_passenger_relation 对比）
+ * 订单ID区间均为左开右闭 (fromId, toId]
+ */
+@Mapper
+public interface PassengerCountMapper {
+
+    /**
+     * 最大订单ID（核对的终点）
+     */
+    @Select("SELECT IFNULL(MAX(booking_id), 0) FROM tour_bookings")
+    int getMaxBookingId();
+
+    /**
+     * 按关联乘客重算区间内订单的成人/儿童人数，只更新人数不一致的订单
+     * @return 更新的订单数
+     */
+    int reconcileRange(@Param("fromId") int fromId, @Param("toId") int toId);
+}
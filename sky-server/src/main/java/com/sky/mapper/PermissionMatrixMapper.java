@@ -0,0 +1,36 @@
+package com.sky.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 权限矩阵加载（一次读取全部页面、职位授权和员工权限属性）
+ */
+@Mapper
+public interface PermissionMatrixMapper {
+
+    /**
+     * 启用的页面：id, pagePath, isRequired
+     */
+    @Select("SELECT id, page_path AS pagePath, is_required AS isRequired FROM system_pages WHERE status = 1")
+    List<Map<String, Object>> findActivePages();
+
+    /**
+     * 启用职位的有效授权：positionId, pageId
+     */
+    @Select("SELECT ppp.position_id AS positionId, ppp.page_id AS pageId " +
+            "FROM position_page_permissions ppp " +
+            "JOIN positions p ON p.id = ppp.position_id " +
+            "WHERE ppp.status = 1 AND p.status = 1")
+    List<Map<String, Object>> findActiveGrants();
+
+    /**
+     * 员工的权限相关属性：id, positionId, status, role, operatorType, isTourMaster, canAssignOrders
+     */
+    @Select("SELECT id, position_id AS positionId, status, role, operator_type AS operatorType, " +
+            "is_tour_master AS isTourMaster, can_assign_orders AS canAssignOrders FROM employees")
+    List<Map<String, Object>> findEmployeeFlags();
+}
@@ -19,6 +19,13 @@ public interface PriceCalculationAuditLogMapper {
      */
     void insert(PriceCalculationAuditLog log);
 
+    /**
+     * 批量插入审计日志（多行INSERT）
+     * @param logs 审计日志列表
+     * @return 插入行数
+     */
+    int batchInsert(@Param("logs") List<PriceCalculationAuditLog> logs);
+
     /**
      * 根据ID查询审计日志
      * @param id 日志ID
@@ -5,6 +5,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -42,6 +43,15 @@ public interface ProductAgentDiscountMapper {
      */
     List<ProductAgentDiscount> findByAgentId(@Param("agentId") Long agentId);
 
+    /**
+     * 查询代理商在一批产品上当前有效的折扣配置（批量折扣计算用，产品ID相同但类型不同的由调用方区分）
+     * @param agentId 代理商ID
+     * @param productIds 产品ID列表
+     * @return 折扣配置列表
+     */
+    List<ProductAgentDiscount> findByAgentAndProductIds(@Param("agentId") Long agentId,
+                                                        @Param("productIds") Collection<Long> productIds);
+
     /**
      * 根据等级ID查询所有折扣配置
      * @param levelId 等级ID
@@ -103,4 +113,10 @@ public interface ProductAgentDiscountMapper {
      * @return 折扣配置
      */
     ProductAgentDiscount findById(@Param("id") Long id);
+
+    /**
+     * 查询所有激活的产品折扣配置（有效期由调用方按当前时间判断）
+     * @return 折扣配置列表
+     */
+    List<ProductAgentDiscount> findAllActive();
 } 
\ No newline at end of file
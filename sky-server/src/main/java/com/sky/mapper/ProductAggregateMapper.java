@@ -0,0 +1,63 @@
+package com.sky.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 产品详情子表聚合查询
+ * 一条 UNION ALL 语句取回多个产品的全部子表数据（主题、适合人群、亮点、包含/不包含项目、贴士、常见问题、图片等），
+ * 每行的列统一为：kind(子表类型), product_id, item_id, name, detail, extra, extra2, flag, seq
+ */
+@Mapper
+public interface ProductAggregateMapper {
+
+    String THEME = "theme";
+    String SUITABLE = "suitable";
+    String HIGHLIGHT = "highlight";
+    String INCLUSION = "inclusion";
+    String EXCLUSION = "exclusion";
+    String TIP = "tip";
+    String FAQ = "faq";
+    String IMAGE = "image";
+    String ITINERARY = "itinerary";
+
+    /**
+     * 跟团游子表：theme/suitable(item_id, name)、highlight/inclusion/exclusion/tip(name)、
+     * faq(name=question, detail=answer)、
+     * image(name=image_url, detail=thumbnail_url, extra=description, extra2=card_url, extra3=banner_url)
+     * @param tourIds 跟团游ID列表
+     * @return 子表数据
+     */
+    List<Map<String, Object>> getGroupTourChildren(@Param("tourIds") Collection<Integer> tourIds);
+
+    /**
+     * 一日游子表：在跟团游的基础上增加 itinerary(name=activity, detail=description, extra=time_slot, extra2=location)，
+     * image 另含 flag=is_primary；有排序字段的子表 seq=position
+     * @param dayTourIds 一日游ID列表
+     * @return 子表数据
+     */
+    List<Map<String, Object>> getDayTourChildren(@Param("dayTourIds") Collection<Integer> dayTourIds);
+
+    /**
+     * 按 产品ID -> 子表类型 分组，保持查询返回的顺序
+     * @param rows 子表数据
+     * @return 产品ID -> 子表类型 -> 数据
+     */
+    static Map<Integer, Map<String, List<Map<String, Object>>>> groupByProduct(List<Map<String, Object>> rows) {
+        Map<Integer, Map<String, List<Map<String, Object>>>> result = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            Integer productId = ((Number) row.get("product_id")).intValue();
+            result.computeIfAbsent(productId, k -> new LinkedHashMap<>())
+                    .computeIfAbsent((String) row.get("kind"), k -> new ArrayList<>())
+                    .add(row);
+        }
+        return result;
+    }
+}
@@ -171,6 +171,14 @@ public interface TourBookingMapper {
     @Select("SELECT total_price FROM tour_bookings WHERE booking_id = #{bookingId}")
     java.math.BigDecimal getOrderAmount(Integer bookingId);
 
+    /**
+     * 锁定订单行并读取最新支付状态（FOR UPDATE 读取已提交的最新数据，不受事务快照影响）
+     * @param bookingId 订单ID
+     * @return 支付状态
+     */
+    @Select("SELECT payment_status FROM tour_bookings WHERE booking_id = #{bookingId} FOR UPDATE")
+    String getPaymentStatusForUpdate(Integer bookingId);
+
     /**
      * 通过ID获取订单信息
      * @param bookingId 订单ID
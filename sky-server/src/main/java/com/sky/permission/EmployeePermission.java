@@ -0,0 +1,56 @@
+package com.sky.permission;
+
+import lombok.Getter;
+
+/**
+ * 员工的权限属性（权限矩阵构建时预先计算，不可变）
+ */
+@Getter
+public class EmployeePermission {
+
+    private final Long employeeId;
+    private final Long positionId;
+    private final boolean active;
+
+    /**
+     * 操作员类型，为空时视为 general
+     */
+    private final String operatorType;
+
+    /**
+     * 排团主管（operator_type=tour_master 且 is_tour_master=1）
+     */
+    private final boolean tourMaster;
+
+    /**
+     * 职位头衔属于Manager级别（Manager、经理、Chief Executive、主管）
+     */
+    private final boolean manager;
+
+    /**
+     * 可操作所有订单（排团主管，或职位头衔含 Manager、经理、Chief、主管）
+     */
+    private final boolean allOrders;
+
+    private final boolean canAssignOrders;
+
+    EmployeePermission(Long employeeId, Long positionId, boolean active, String role, String operatorType,
+                       boolean isTourMaster, boolean canAssignOrders) {
+        this.employeeId = employeeId;
+        this.positionId = positionId;
+        this.active = active;
+        this.operatorType = operatorType != null ? operatorType : "general";
+        this.tourMaster = "tour_master".equals(operatorType) && isTourMaster;
+        this.manager = role != null && (role.contains("Manager") || role.contains("经理")
+                || role.contains("Chief Executive") || role.contains("主管"));
+        this.allOrders = tourMaster || manager || (role != null && role.contains("Chief"));
+        this.canAssignOrders = canAssignOrders;
+    }
+
+    /**
+     * Manager或排团主管
+     */
+    public boolean isManagerOrTourMaster() {
+        return manager || tourMaster;
+    }
+}
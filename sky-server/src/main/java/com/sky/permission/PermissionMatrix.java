@@ -0,0 +1,267 @@
+package com.sky.permission;
+
+import com.sky.mapper.PermissionMatrixMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 编译后的权限矩阵
+ * 一次加载全部页面、职位授权和员工权限属性，构建不可变快照：页面路径 → 位下标，职位 → 页面位图，员工 → 权限属性；
+ * 权限检查只读取 volatile 快照，不加锁也不访问数据库。
+ * 权限、职位、页面、员工写操作后（PermissionMatrixAspect，事务提交后）版本号加一并广播给其他节点，
+ * 下一次检查时发现版本变化再重建；另外快照超过最长存活时间也会重建，兜底直接改库等情况。
+ */
+@Component
+@Slf4j
+public class PermissionMatrix implements MessageListener {
+
+    /**
+     * 跨节点失效广播频道，消息内容为发送节点ID
+     */
+    public static final String CHANGED_CHANNEL = "sky:permission:changed";
+
+    @Autowired
+    private PermissionMatrixMapper permissionMatrixMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 快照最长存活时间
+     */
+    @Value("${sky.permission.matrix.max-age-ms:600000}")
+    private long maxAgeMillis;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong version = new AtomicLong(1);
+    private final Object rebuildLock = new Object();
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private volatile long lastRebuildMillis;
+
+    /**
+     * 员工是否有页面权限（必选页面所有人都有）
+     */
+    public boolean hasPagePermission(Long employeeId, String pagePath) {
+        Snapshot current = current();
+        Integer index = pagePath != null ? current.pageIndex.get(pagePath) : null;
+        if (index == null) {
+            return false;
+        }
+        if (current.requiredPages.get(index)) {
+            return true;
+        }
+        EmployeePermission employee = current.employees.get(employeeId);
+        if (employee == null || !employee.isActive()) {
+            return false;
+        }
+        BitSet pages = current.positionPages.get(employee.getPositionId());
+        return pages != null && pages.get(index);
+    }
+
+    /**
+     * 员工有权限的全部页面路径（含必选页面）
+     */
+    public List<String> getPagePaths(Long employeeId) {
+        Snapshot current = current();
+        BitSet pages = (BitSet) current.requiredPages.clone();
+        EmployeePermission employee = current.employees.get(employeeId);
+        if (employee != null && employee.isActive()) {
+            BitSet granted = current.positionPages.get(employee.getPositionId());
+            if (granted != null) {
+                pages.or(granted);
+            }
+        }
+        List<String> paths = new ArrayList<>(pages.cardinality());
+        for (int i = pages.nextSetBit(0); i >= 0; i = pages.nextSetBit(i + 1)) {
+            paths.add(current.pagePaths.get(i));
+        }
+        return paths;
+    }
+
+    /**
+     * 员工的权限属性，员工不存在时返回null
+     */
+    public EmployeePermission getEmployee(Long employeeId) {
+        return current().employees.get(employeeId);
+    }
+
+    /**
+     * 权限数据已变化：当前事务提交后使本节点快照失效并通知其他节点
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateAndPublish();
+                }
+            });
+        } else {
+            invalidateAndPublish();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (!nodeId.equals(new String(message.getBody(), StandardCharsets.UTF_8))) {
+            version.incrementAndGet();
+            invalidations.increment();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Snapshot current = snapshot;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("version", version.get());
+        stats.put("snapshotVersion", current.version);
+        stats.put("pages", current.pagePaths.size());
+        stats.put("positions", current.positionPages.size());
+        stats.put("employees", current.employees.size());
+        stats.put("builtAt", current.builtAt);
+        stats.put("lookups", lookups.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        return stats;
+    }
+
+    private void invalidateAndPublish() {
+        version.incrementAndGet();
+        invalidations.increment();
+        try {
+            stringRedisTemplate.convertAndSend(CHANGED_CHANNEL, nodeId);
+        } catch (Exception e) {
+            // 广播失败时其他节点在快照到期后重建
+            log.warn("广播权限变更失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 当前快照；版本变化或到期时重建（只有重建时才加锁，其他请求等待同一次重建完成）
+     */
+    private Snapshot current() {
+        lookups.increment();
+        Snapshot current = snapshot;
+        if (current.version == version.get() && System.currentTimeMillis() - current.builtAt < maxAgeMillis) {
+            return current;
+        }
+        synchronized (rebuildLock) {
+            current = snapshot;
+            long target = version.get();
+            if (current.version == target && System.currentTimeMillis() - current.builtAt < maxAgeMillis) {
+                return current;
+            }
+            long start = System.currentTimeMillis();
+            current = build(target);
+            snapshot = current;
+            rebuilds.increment();
+            lastRebuildMillis = System.currentTimeMillis() - start;
+            log.debug("权限矩阵已重建: 版本{}，页面{}个，职位{}个，员工{}个，耗时{}ms", target,
+                    current.pagePaths.size(), current.positionPages.size(), current.employees.size(), lastRebuildMillis);
+            return current;
+        }
+    }
+
+    private Snapshot build(long targetVersion) {
+        Map<String, Integer> pageIndex = new HashMap<>();
+        List<String> pagePaths = new ArrayList<>();
+        Map<Long, Integer> pageIdIndex = new HashMap<>();
+        BitSet requiredPages = new BitSet();
+        for (Map<String, Object> page : permissionMatrixMapper.findActivePages()) {
+            String path = (String) page.get("pagePath");
+            if (path == null) {
+                continue;
+            }
+            Integer index = pageIndex.get(path);
+            if (index == null) {
+                index = pagePaths.size();
+                pageIndex.put(path, index);
+                pagePaths.add(path);
+            }
+            pageIdIndex.put(toLong(page.get("id")), index);
+            if (flag(page.get("isRequired"))) {
+                requiredPages.set(index);
+            }
+        }
+
+        Map<Long, BitSet> positionPages = new HashMap<>();
+        for (Map<String, Object> grant : permissionMatrixMapper.findActiveGrants()) {
+            Integer index = pageIdIndex.get(toLong(grant.get("pageId")));
+            if (index != null) {
+                positionPages.computeIfAbsent(toLong(grant.get("positionId")), k -> new BitSet()).set(index);
+            }
+        }
+
+        Map<Long, EmployeePermission> employees = new HashMap<>();
+        for (Map<String, Object> row : permissionMatrixMapper.findEmployeeFlags()) {
+            Long employeeId = toLong(row.get("id"));
+            employees.put(employeeId, new EmployeePermission(employeeId, toLong(row.get("positionId")),
+                    flag(row.get("status")), (String) row.get("role"), (String) row.get("operatorType"),
+                    flag(row.get("isTourMaster")), flag(row.get("canAssignOrders"))));
+        }
+
+        return new Snapshot(targetVersion, System.currentTimeMillis(), pageIndex,
+                Collections.unmodifiableList(pagePaths), requiredPages, positionPages, employees);
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : null;
+    }
+
+    private static boolean flag(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return value instanceof Number && ((Number) value).intValue() != 0;
+    }
+
+    /**
+     * 不可变的权限快照（构建后不再修改，可被多个线程同时读取）
+     */
+    private static class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, 0, Collections.emptyMap(), Collections.emptyList(),
+                new BitSet(), Collections.emptyMap(), Collections.emptyMap());
+
+        final long version;
+        final long builtAt;
+        final Map<String, Integer> pageIndex;
+        final List<String> pagePaths;
+        final BitSet requiredPages;
+        final Map<Long, BitSet> positionPages;
+        final Map<Long, EmployeePermission> employees;
+
+        Snapshot(long version, long builtAt, Map<String, Integer> pageIndex, List<String> pagePaths,
+                 BitSet requiredPages, Map<Long, BitSet> positionPages, Map<Long, EmployeePermission> employees) {
+            this.version = version;
+            this.builtAt = builtAt;
+            this.pageIndex = pageIndex;
+            this.pagePaths = pagePaths;
+            this.requiredPages = requiredPages;
+            this.positionPages = positionPages;
+            this.employees = employees;
+        }
+    }
+}
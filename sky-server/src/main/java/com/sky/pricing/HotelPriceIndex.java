@@ -0,0 +1,337 @@
+package com.sky.pricing;
+
+import com.sky.entity.HotelDailyPrice;
+import com.sky.mapper.HotelDailyPriceMapper;
+import com.sky.service.HotelPriceService;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 酒店每日价格索引
+ * 按星级为滚动窗口（默认往前31天、往后18个月）内的每一天保存价格差异和单房差，
+ * 一次住宿的所有晚上通过 {@link #stay(String, LocalDate, int)} 一次取出，不再逐晚查询数据库。
+ * 管理端通过 HotelDailyPriceController 修改每日价格后增量更新对应的日期，并广播给其他节点，
+ * 其他节点从数据库重新读取该日期；广播失败时其他节点在定时刷新（默认10分钟）后生效。
+ */
+@Component
+@Slf4j
+public class HotelPriceIndex implements MessageListener {
+
+    /**
+     * 每日价格变更广播频道，消息格式：节点ID\n酒店星级\n日期
+     */
+    public static final String CHANGED_CHANNEL = "sky:pricing:hotel-daily-price";
+
+    @Autowired
+    private HotelDailyPriceMapper hotelDailyPriceMapper;
+
+    @Autowired
+    private HotelPriceService hotelPriceService;
+
+    @Autowired
+    private PriceCatalog priceCatalog;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${sky.pricing.hotel-index.past-days:31}")
+    private int pastDays;
+
+    @Value("${sky.pricing.hotel-index.window-months:18}")
+    private int windowMonths;
+
+    /**
+     * 当前窗口，未加载时为null（所有查询回退到数据库）
+     */
+    private volatile Window window;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * 每天凌晨滚动窗口
+     */
+    @Scheduled(cron = "${sky.pricing.hotel-index.reload-cron:0 5 0 * * ?}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    /**
+     * 定时全量刷新，兜底其他节点的变更广播丢失（与价格目录快照的刷新间隔一致）
+     */
+    @Scheduled(initialDelayString = "${sky.pricing.hotel-index.refresh-interval-ms:600000}",
+            fixedDelayString = "${sky.pricing.hotel-index.refresh-interval-ms:600000}")
+    public void scheduledRefresh() {
+        reload();
+    }
+
+    /**
+     * 从数据库重新加载整个窗口
+     */
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        try {
+            LocalDate windowStart = LocalDate.now().minusDays(pastDays);
+            LocalDate windowEnd = LocalDate.now().plusMonths(windowMonths);
+            int days = (int) ChronoUnit.DAYS.between(windowStart, windowEnd) + 1;
+
+            Map<String, BigDecimal[]> priceDifferences = new HashMap<>();
+            Map<String, BigDecimal[]> supplements = new HashMap<>();
+            List<HotelDailyPrice> dailyPrices = hotelDailyPriceMapper.selectByDateRange(windowStart, windowEnd);
+            for (HotelDailyPrice dailyPrice : dailyPrices) {
+                int offset = (int) ChronoUnit.DAYS.between(windowStart, dailyPrice.getPriceDate());
+                priceDifferences.computeIfAbsent(dailyPrice.getHotelLevel(), k -> new BigDecimal[days])[offset] =
+                        dailyPrice.getPriceDifference();
+                supplements.computeIfAbsent(dailyPrice.getHotelLevel(), k -> new BigDecimal[days])[offset] =
+                        dailyPrice.getDailySingleRoomSupplement();
+            }
+
+            Map<String, LevelPrices> levels = new ConcurrentHashMap<>();
+            for (Map.Entry<String, BigDecimal[]> entry : priceDifferences.entrySet()) {
+                levels.put(entry.getKey(), new LevelPrices(entry.getValue(), supplements.get(entry.getKey())));
+            }
+
+            window = new Window(windowStart, days, levels);
+            log.info("酒店每日价格索引已加载: 窗口={}~{}, 星级数={}, 记录数={}, 耗时={}ms",
+                    windowStart, windowEnd, levels.size(), dailyPrices.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("酒店每日价格索引加载失败，继续使用原索引: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 增量更新某星级某天的每日价格（新增或修改后调用），字段为空表示该项未单独配置，并通知其他节点
+     */
+    public void put(String hotelLevel, LocalDate priceDate,
+                    BigDecimal priceDifference, BigDecimal singleRoomSupplement) {
+        apply(hotelLevel, priceDate, priceDifference, singleRoomSupplement);
+        publish(hotelLevel, priceDate);
+    }
+
+    /**
+     * 增量删除某星级某天的每日价格（删除后调用），之后该天使用固定价格，并通知其他节点
+     */
+    public void remove(String hotelLevel, LocalDate priceDate) {
+        put(hotelLevel, priceDate, null, null);
+    }
+
+    /**
+     * 接收其他节点的变更广播：从数据库重新读取该星级该日期的价格（读到的是最新提交，与广播顺序无关）
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\n", -1);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        try {
+            String hotelLevel = parts[1];
+            LocalDate priceDate = LocalDate.parse(parts[2]);
+            List<HotelDailyPrice> prices = hotelDailyPriceMapper.selectByLevelAndDateRange(hotelLevel, priceDate, priceDate);
+            HotelDailyPrice price = prices.isEmpty() ? null : prices.get(0);
+            apply(hotelLevel, priceDate,
+                    price != null ? price.getPriceDifference() : null,
+                    price != null ? price.getDailySingleRoomSupplement() : null);
+        } catch (Exception e) {
+            // 本次变更在下一次定时刷新时生效
+            log.warn("处理酒店每日价格变更广播失败: {}", e.getMessage());
+        }
+    }
+
+    private void publish(String hotelLevel, LocalDate priceDate) {
+        if (hotelLevel == null || priceDate == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.convertAndSend(CHANGED_CHANNEL, nodeId + "\n" + hotelLevel + "\n" + priceDate);
+        } catch (Exception e) {
+            // 广播失败时其他节点在定时刷新后生效
+            log.warn("广播酒店每日价格变更失败: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void apply(String hotelLevel, LocalDate priceDate,
+                                    BigDecimal priceDifference, BigDecimal singleRoomSupplement) {
+        Window current = window;
+        if (current == null || hotelLevel == null || !current.covers(priceDate)) {
+            return;
+        }
+        int offset = current.offset(priceDate);
+        LevelPrices old = current.levels.get(hotelLevel);
+        BigDecimal[] newPriceDifferences = old != null ? old.priceDifferences.clone() : new BigDecimal[current.days];
+        BigDecimal[] newSupplements = old != null ? old.singleRoomSupplements.clone() : new BigDecimal[current.days];
+        newPriceDifferences[offset] = priceDifference;
+        newSupplements[offset] = singleRoomSupplement;
+        // 整体替换该星级的数组，正在读取的住宿计算仍使用旧数组，不会读到一半新一半旧的数据
+        current.levels.put(hotelLevel, new LevelPrices(newPriceDifferences, newSupplements));
+        log.debug("酒店每日价格索引已更新: {} {} 差价={} 单房差={}", hotelLevel, priceDate, priceDifference, singleRoomSupplement);
+    }
+
+    /**
+     * 查询一次住宿每晚的价格差异和单房差
+     * 未配置每日价格的晚上使用 hotel_price_differences 中的固定价格；
+     * 住宿日期超出窗口时对整段住宿执行一次范围查询
+     *
+     * @param hotelLevel 酒店星级
+     * @param checkIn    入住日期（第一晚）
+     * @param nights     住宿晚数
+     */
+    public StayPrices stay(String hotelLevel, LocalDate checkIn, int nights) {
+        BigDecimal[] priceDifferences = new BigDecimal[Math.max(nights, 0)];
+        BigDecimal[] supplements = new BigDecimal[priceDifferences.length];
+        if (priceDifferences.length == 0 || hotelLevel == null) {
+            fillFixedPrices(hotelLevel, priceDifferences, supplements);
+            return new StayPrices(priceDifferences, supplements);
+        }
+
+        Window current = window;
+        LocalDate lastNight = checkIn.plusDays(nights - 1L);
+        if (current != null && current.covers(checkIn) && current.covers(lastNight)) {
+            LevelPrices levelPrices = current.levels.get(hotelLevel);
+            if (levelPrices != null) {
+                int offset = current.offset(checkIn);
+                System.arraycopy(levelPrices.priceDifferences, offset, priceDifferences, 0, nights);
+                System.arraycopy(levelPrices.singleRoomSupplements, offset, supplements, 0, nights);
+            }
+        } else {
+            log.debug("住宿日期{}~{}超出酒店每日价格索引窗口，按范围查询数据库", checkIn, lastNight);
+            for (HotelDailyPrice dailyPrice : hotelDailyPriceMapper.selectByLevelAndDateRange(hotelLevel, checkIn, lastNight)) {
+                int offset = (int) ChronoUnit.DAYS.between(checkIn, dailyPrice.getPriceDate());
+                priceDifferences[offset] = dailyPrice.getPriceDifference();
+                supplements[offset] = dailyPrice.getDailySingleRoomSupplement();
+            }
+        }
+
+        fillFixedPrices(hotelLevel, priceDifferences, supplements);
+        return new StayPrices(priceDifferences, supplements);
+    }
+
+    /**
+     * 未单独配置的晚上使用固定价格（每次住宿最多取一次固定价格）
+     */
+    private void fillFixedPrices(String hotelLevel, BigDecimal[] priceDifferences, BigDecimal[] supplements) {
+        PriceCatalogSnapshot catalog = null;
+        BigDecimal fixedPriceDifference = null;
+        BigDecimal fixedSupplement = null;
+        for (int i = 0; i < priceDifferences.length; i++) {
+            if (priceDifferences[i] == null) {
+                if (fixedPriceDifference == null) {
+                    catalog = catalog != null ? catalog : priceCatalog.snapshot();
+                    fixedPriceDifference = catalog.isLoaded()
+                            ? catalog.getHotelPriceDifference(hotelLevel)
+                            : hotelPriceService.getPriceDifferenceByLevel(hotelLevel);
+                }
+                priceDifferences[i] = fixedPriceDifference;
+            }
+            if (supplements[i] == null) {
+                if (fixedSupplement == null) {
+                    catalog = catalog != null ? catalog : priceCatalog.snapshot();
+                    fixedSupplement = catalog.isLoaded()
+                            ? catalog.getHotelSingleRoomSupplement(hotelLevel)
+                            : hotelPriceService.getDailySingleRoomSupplementByLevel(hotelLevel);
+                }
+                supplements[i] = fixedSupplement;
+            }
+        }
+    }
+
+    /**
+     * 一次住宿每晚的价格，下标0为入住当晚
+     */
+    @Getter
+    public static class StayPrices {
+        /**
+         * 每晚价格差异（元/人）
+         */
+        private final BigDecimal[] priceDifferences;
+        /**
+         * 每晚单房差（元/床位）
+         */
+        private final BigDecimal[] singleRoomSupplements;
+
+        StayPrices(BigDecimal[] priceDifferences, BigDecimal[] singleRoomSupplements) {
+            this.priceDifferences = priceDifferences;
+            this.singleRoomSupplements = singleRoomSupplements;
+        }
+
+        public int getNights() {
+            return priceDifferences.length;
+        }
+
+        public BigDecimal totalPriceDifference() {
+            return sum(priceDifferences);
+        }
+
+        public BigDecimal totalSingleRoomSupplement() {
+            return sum(singleRoomSupplements);
+        }
+
+        private static BigDecimal sum(BigDecimal[] values) {
+            BigDecimal total = BigDecimal.ZERO;
+            for (BigDecimal value : values) {
+                total = total.add(value);
+            }
+            return total;
+        }
+    }
+
+    private static class Window {
+        final LocalDate start;
+        final int days;
+        final Map<String, LevelPrices> levels;
+
+        Window(LocalDate start, int days, Map<String, LevelPrices> levels) {
+            this.start = start;
+            this.days = days;
+            this.levels = levels;
+        }
+
+        boolean covers(LocalDate date) {
+            if (date == null) {
+                return false;
+            }
+            long offset = ChronoUnit.DAYS.between(start, date);
+            return offset >= 0 && offset < days;
+        }
+
+        int offset(LocalDate date) {
+            return (int) ChronoUnit.DAYS.between(start, date);
+        }
+    }
+
+    /**
+     * 某星级窗口内每天的价格，创建后不再修改
+     */
+    private static class LevelPrices {
+        final BigDecimal[] priceDifferences;
+        final BigDecimal[] singleRoomSupplements;
+
+        LevelPrices(BigDecimal[] priceDifferences, BigDecimal[] singleRoomSupplements) {
+            this.priceDifferences = priceDifferences;
+            this.singleRoomSupplements = singleRoomSupplements;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.sky.pricing;
+
+import com.sky.dto.GroupTourDTO;
+import com.sky.entity.Agent;
+import com.sky.entity.DayTour;
+import com.sky.entity.GroupTourDailyPrice;
+import com.sky.entity.GroupTourDayTourRelation;
+import com.sky.entity.HotelPriceDifference;
+import com.sky.entity.ProductAgentDiscount;
+import com.sky.mapper.AgentMapper;
+import com.sky.mapper.DayTourMapper;
+import com.sky.mapper.GroupTourDailyPriceMapper;
+import com.sky.mapper.GroupTourDayTourRelationMapper;
+import com.sky.mapper.GroupTourMapper;
+import com.sky.mapper.HotelPriceDifferenceMapper;
+import com.sky.mapper.ProductAgentDiscountMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 价格目录
+ * 维护报价所需数据的内存快照，报价时不访问数据库。
+ * 管理端修改产品、酒店价格、折扣配置后通过 {@link #requestRebuild()} 触发后台重建，
+ * 新快照构建完成后整体替换旧快照；构建失败时继续使用旧快照。
+ */
+@Component
+@Slf4j
+public class PriceCatalog {
+
+    @Autowired
+    private DayTourMapper dayTourMapper;
+
+    @Autowired
+    private GroupTourMapper groupTourMapper;
+
+    @Autowired
+    private GroupTourDailyPriceMapper groupTourDailyPriceMapper;
+
+    @Autowired
+    private GroupTourDayTourRelationMapper groupTourDayTourRelationMapper;
+
+    @Autowired
+    private HotelPriceDifferenceMapper hotelPriceDifferenceMapper;
+
+    @Autowired
+    private AgentMapper agentMapper;
+
+    @Autowired
+    private ProductAgentDiscountMapper productAgentDiscountMapper;
+
+    /**
+     * 每日价格窗口：从今天往前保留的天数（用于修改历史订单时的重新计算）
+     */
+    @Value("${sky.pricing.catalog.past-days:31}")
+    private int pastDays;
+
+    /**
+     * 每日价格窗口：从今天往后覆盖的月数
+     */
+    @Value("${sky.pricing.catalog.window-months:18}")
+    private int windowMonths;
+
+    private final AtomicReference<PriceCatalogSnapshot> current = new AtomicReference<>(PriceCatalogSnapshot.empty());
+    private final AtomicLong versionSequence = new AtomicLong();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "price-catalog-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 当前快照，调用方在一次报价内应只取一次，保证同一次报价使用同一版本的数据
+     */
+    public PriceCatalogSnapshot snapshot() {
+        return current.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRebuild();
+    }
+
+    /**
+     * 定时重建：滚动每日价格窗口，并兜底未经过管理端接口的数据变更
+     */
+    @Scheduled(fixedDelayString = "${sky.pricing.catalog.refresh-interval-ms:600000}",
+               initialDelayString = "${sky.pricing.catalog.refresh-interval-ms:600000}")
+    public void scheduledRebuild() {
+        requestRebuild();
+    }
+
+    /**
+     * 请求后台重建快照；已有排队中的重建时直接合并
+     */
+    public void requestRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                rebuild();
+            });
+        }
+    }
+
+    /**
+     * 同步重建快照
+     * @return 当前生效的快照（构建失败时为旧快照）
+     */
+    public synchronized PriceCatalogSnapshot rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            PriceCatalogSnapshot snapshot = load();
+            current.set(snapshot);
+            log.info("价格目录快照已更新: version={}, 一日游={}, 跟团游={}, 窗口={}~{}, 耗时={}ms",
+                    snapshot.getVersion(), snapshot.getDayTours().size(), snapshot.getGroupTours().size(),
+                    snapshot.getWindowStart(), snapshot.getWindowEnd(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("价格目录快照构建失败，继续使用版本{}: {}", current.get().getVersion(), e.getMessage(), e);
+        }
+        return current.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private PriceCatalogSnapshot load() {
+        LocalDate today = LocalDate.now();
+        LocalDate windowStart = today.minusDays(pastDays);
+        LocalDate windowEnd = today.plusMonths(windowMonths);
+
+        Map<Integer, PriceCatalogSnapshot.DayTourPrice> dayTours = new HashMap<>();
+        for (DayTour dayTour : dayTourMapper.listPriceInfo()) {
+            dayTours.put(dayTour.getId(), new PriceCatalogSnapshot.DayTourPrice(
+                    dayTour.getName(), dayTour.getPrice(), dayTour.getSmallGroupPriceDifference()));
+        }
+
+        Map<Integer, PriceCatalogSnapshot.GroupTourPrice> groupTours = new HashMap<>();
+        for (GroupTourDTO groupTour : groupTourMapper.listPriceInfo()) {
+            groupTours.put(groupTour.getId(), new PriceCatalogSnapshot.GroupTourPrice(
+                    groupTour.getPrice(), groupTour.getDiscountedPrice(), groupTour.getDays(),
+                    parseNights(groupTour.getDuration()), groupTour.getSmallGroupPriceDifference()));
+        }
+
+        Map<Integer, Map<LocalDate, BigDecimal>> groupTourDailyPrices = new HashMap<>();
+        for (GroupTourDailyPrice dailyPrice : groupTourDailyPriceMapper.selectByDateRange(windowStart, windowEnd)) {
+            if (dailyPrice.getDailyPrice() != null) {
+                groupTourDailyPrices.computeIfAbsent(dailyPrice.getGroupTourId(), k -> new HashMap<>())
+                        .put(dailyPrice.getPriceDate(), dailyPrice.getDailyPrice());
+            }
+        }
+
+        Map<String, BigDecimal> optionalTourPriceDifferences = new HashMap<>();
+        for (GroupTourDayTourRelation relation : groupTourDayTourRelationMapper.listPriceDifferences()) {
+            optionalTourPriceDifferences.put(PriceCatalogSnapshot.optionalTourKey(
+                    relation.getGroupTourId(), relation.getDayTourId(), relation.getDayNumber()),
+                    relation.getPriceDifference());
+        }
+
+        Map<String, PriceCatalogSnapshot.HotelPrice> hotelLevelPrices = new HashMap<>();
+        for (HotelPriceDifference levelPrice : hotelPriceDifferenceMapper.selectAll()) {
+            hotelLevelPrices.put(levelPrice.getHotelLevel(), new PriceCatalogSnapshot.HotelPrice(
+                    levelPrice.getPriceDifference(), levelPrice.getDailySingleRoomSupplement()));
+        }
+
+        Map<Long, Long> agentDiscountLevels = new HashMap<>();
+        for (Agent agent : agentMapper.listDiscountLevels()) {
+            agentDiscountLevels.put(agent.getId(), agent.getDiscountLevelId());
+        }
+
+        Map<String, List<PriceCatalogSnapshot.DiscountRule>> productDiscountRules = new HashMap<>();
+        for (ProductAgentDiscount discount : productAgentDiscountMapper.findAllActive()) {
+            productDiscountRules.computeIfAbsent(PriceCatalogSnapshot.discountKey(
+                    discount.getLevelId(), discount.getProductType(), discount.getProductId()), k -> new ArrayList<>())
+                    .add(new PriceCatalogSnapshot.DiscountRule(
+                            discount.getDiscountRate(), discount.getValidFrom(), discount.getValidUntil()));
+        }
+
+        return new PriceCatalogSnapshot(versionSequence.incrementAndGet(), LocalDateTime.now(), windowStart, windowEnd,
+                dayTours, groupTours, groupTourDailyPrices, optionalTourPriceDifferences,
+                hotelLevelPrices, agentDiscountLevels, productDiscountRules,
+                PriceCatalogSnapshot.ChildPricePolicy.DEFAULT);
+    }
+
+    /**
+     * 解析住宿夜数，规则与原 getBasePriceInfo 一致："5天4晚" -> 4；无法解析时为1
+     */
+    public static int parseNights(String duration) {
+        try {
+            if (duration != null && duration.contains("天")) {
+                int days = Integer.parseInt(duration.substring(0, duration.indexOf("天")));
+                return days > 1 ? days - 1 : 0;
+            }
+            return 0;
+        } catch (Exception e) {
+            log.warn("解析行程天数失败: {}", duration);
+            return 1;
+        }
+    }
+}
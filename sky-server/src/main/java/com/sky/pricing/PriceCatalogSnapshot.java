@@ -0,0 +1,299 @@
+package com.sky.pricing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 价格目录快照（不可变）
+ * 报价所需的产品基础价格、小团差价、儿童价格规则、可选行程差价、酒店星级固定价格和代理商产品折扣，
+ * 酒店每日价格由 {@link HotelPriceIndex} 单独维护；
+ * 由 {@link PriceCatalog} 整体构建后原子替换，报价线程只读不写
+ */
+@Getter
+public final class PriceCatalogSnapshot {
+
+    /**
+     * 3.5星酒店使用3星价格配置（与 HotelPriceServiceImpl 保持一致）
+     */
+    private static final String HOTEL_LEVEL_3_5 = "3.5星";
+    private static final String HOTEL_LEVEL_3 = "3星";
+
+    private final long version;
+    private final LocalDateTime builtAt;
+
+    /**
+     * 每日价格覆盖的日期窗口（含两端），窗口外的日期需回退到数据库查询
+     */
+    private final LocalDate windowStart;
+    private final LocalDate windowEnd;
+
+    private final Map<Integer, DayTourPrice> dayTours;
+    private final Map<Integer, GroupTourPrice> groupTours;
+    private final Map<Integer, Map<LocalDate, BigDecimal>> groupTourDailyPrices;
+
+    /**
+     * key: groupTourId:dayTourId:dayNumber
+     */
+    private final Map<String, BigDecimal> optionalTourPriceDifferences;
+
+    /**
+     * hotel_price_differences 表中的固定价格（按星级）
+     */
+    private final Map<String, HotelPrice> hotelLevelPrices;
+
+    /**
+     * 代理商ID -> 折扣等级ID
+     */
+    private final Map<Long, Long> agentDiscountLevels;
+
+    /**
+     * key: levelId:productType:productId
+     */
+    private final Map<String, List<DiscountRule>> productDiscountRules;
+
+    private final ChildPricePolicy childPricePolicy;
+
+    public PriceCatalogSnapshot(long version, LocalDateTime builtAt, LocalDate windowStart, LocalDate windowEnd,
+                                Map<Integer, DayTourPrice> dayTours,
+                                Map<Integer, GroupTourPrice> groupTours,
+                                Map<Integer, Map<LocalDate, BigDecimal>> groupTourDailyPrices,
+                                Map<String, BigDecimal> optionalTourPriceDifferences,
+                                Map<String, HotelPrice> hotelLevelPrices,
+                                Map<Long, Long> agentDiscountLevels,
+                                Map<String, List<DiscountRule>> productDiscountRules,
+                                ChildPricePolicy childPricePolicy) {
+        this.version = version;
+        this.builtAt = builtAt;
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.dayTours = Collections.unmodifiableMap(dayTours);
+        this.groupTours = Collections.unmodifiableMap(groupTours);
+        this.groupTourDailyPrices = Collections.unmodifiableMap(groupTourDailyPrices);
+        this.optionalTourPriceDifferences = Collections.unmodifiableMap(optionalTourPriceDifferences);
+        this.hotelLevelPrices = Collections.unmodifiableMap(hotelLevelPrices);
+        this.agentDiscountLevels = Collections.unmodifiableMap(agentDiscountLevels);
+        this.productDiscountRules = Collections.unmodifiableMap(productDiscountRules);
+        this.childPricePolicy = childPricePolicy;
+    }
+
+    /**
+     * 启动后首次构建完成前使用的空快照，所有查询都返回null，由调用方回退到数据库
+     */
+    public static PriceCatalogSnapshot empty() {
+        return new PriceCatalogSnapshot(0L, null, null, null,
+                Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(),
+                Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(),
+                ChildPricePolicy.DEFAULT);
+    }
+
+    public boolean isLoaded() {
+        return version > 0;
+    }
+
+    /**
+     * 日期是否在每日价格窗口内
+     */
+    public boolean covers(LocalDate date) {
+        return isLoaded() && date != null && !date.isBefore(windowStart) && !date.isAfter(windowEnd);
+    }
+
+    public DayTourPrice getDayTour(Integer dayTourId) {
+        return dayTourId != null ? dayTours.get(dayTourId) : null;
+    }
+
+    public GroupTourPrice getGroupTour(Integer groupTourId) {
+        return groupTourId != null ? groupTours.get(groupTourId) : null;
+    }
+
+    /**
+     * 跟团游某日价格：有每日价格配置时使用每日价格，否则使用基础价格
+     * @return 产品不存在或日期不在窗口内时返回null
+     */
+    public BigDecimal getGroupTourDailyPrice(Integer groupTourId, LocalDate date) {
+        GroupTourPrice groupTour = getGroupTour(groupTourId);
+        if (groupTour == null || !covers(date)) {
+            return null;
+        }
+        Map<LocalDate, BigDecimal> dailyPrices = groupTourDailyPrices.get(groupTourId);
+        BigDecimal dailyPrice = dailyPrices != null ? dailyPrices.get(date) : null;
+        if (dailyPrice != null) {
+            return dailyPrice;
+        }
+        return groupTour.getPrice() != null ? groupTour.getPrice() : BigDecimal.ZERO;
+    }
+
+    /**
+     * 可选行程价格差异，没有对应关联时返回null
+     */
+    public BigDecimal getOptionalTourPriceDifference(Integer groupTourId, Integer dayTourId, Integer dayNumber) {
+        return optionalTourPriceDifferences.get(optionalTourKey(groupTourId, dayTourId, dayNumber));
+    }
+
+    /**
+     * 酒店星级固定价格差异（元/人/晚）
+     */
+    public BigDecimal getHotelPriceDifference(String hotelLevel) {
+        HotelPrice price = getHotelLevelPrice(hotelLevel);
+        return price != null && price.getPriceDifference() != null ? price.getPriceDifference() : BigDecimal.ZERO;
+    }
+
+    /**
+     * 酒店星级固定单房差（元/晚）
+     */
+    public BigDecimal getHotelSingleRoomSupplement(String hotelLevel) {
+        HotelPrice price = getHotelLevelPrice(hotelLevel);
+        return price != null && price.getSingleRoomSupplement() != null ? price.getSingleRoomSupplement() : BigDecimal.ZERO;
+    }
+
+    /**
+     * 代理商对产品的折扣率，没有生效中的产品折扣配置时返回null（使用原价）
+     */
+    public BigDecimal getProductDiscountRate(Long agentId, String productType, Long productId, LocalDateTime now) {
+        if (agentId == null) {
+            return null;
+        }
+        Long levelId = agentDiscountLevels.get(agentId);
+        if (levelId == null) {
+            return null;
+        }
+        List<DiscountRule> rules = productDiscountRules.get(discountKey(levelId, productType, productId));
+        if (rules == null) {
+            return null;
+        }
+        for (DiscountRule rule : rules) {
+            if (rule.isValidAt(now)) {
+                return rule.getDiscountRate();
+            }
+        }
+        return null;
+    }
+
+    private HotelPrice getHotelLevelPrice(String hotelLevel) {
+        if (hotelLevel == null || hotelLevel.trim().isEmpty()) {
+            return null;
+        }
+        return hotelLevelPrices.get(HOTEL_LEVEL_3_5.equals(hotelLevel) ? HOTEL_LEVEL_3 : hotelLevel);
+    }
+
+    static String optionalTourKey(Integer groupTourId, Integer dayTourId, Integer dayNumber) {
+        return groupTourId + ":" + dayTourId + ":" + dayNumber;
+    }
+
+    static String discountKey(Long levelId, String productType, Long productId) {
+        return levelId + ":" + productType + ":" + productId;
+    }
+
+    /**
+     * 一日游计价信息
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class DayTourPrice {
+        private final String name;
+        private final BigDecimal price;
+        private final BigDecimal smallGroupPriceDifference;
+    }
+
+    /**
+     * 跟团游计价信息
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class GroupTourPrice {
+        private final BigDecimal price;
+        private final BigDecimal discountedPrice;
+        private final Integer days;
+        /**
+         * 由 duration（如"5天4晚"）解析出的住宿夜数
+         */
+        private final int nights;
+        private final BigDecimal smallGroupPriceDifference;
+
+        /**
+         * 未指定出发日期时使用的基础价格：优先使用折扣价
+         */
+        public BigDecimal getBasePrice() {
+            if (discountedPrice != null && discountedPrice.compareTo(BigDecimal.ZERO) > 0) {
+                return discountedPrice;
+            }
+            return price;
+        }
+    }
+
+    /**
+     * 酒店价格差异与单房差
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class HotelPrice {
+        private final BigDecimal priceDifference;
+        private final BigDecimal singleRoomSupplement;
+    }
+
+    /**
+     * 产品折扣规则（含有效期）
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class DiscountRule {
+        private final BigDecimal discountRate;
+        private final LocalDateTime validFrom;
+        private final LocalDateTime validUntil;
+
+        public boolean isValidAt(LocalDateTime now) {
+            return (validFrom == null || !validFrom.isAfter(now))
+                    && (validUntil == null || validUntil.isAfter(now));
+        }
+    }
+
+    /**
+     * 儿童价格规则
+     * 0岁免费；1-2岁按成人价的比例收费；3岁以上成人价减固定金额（不低于0）
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ChildPricePolicy {
+
+        public static final ChildPricePolicy DEFAULT =
+                new ChildPricePolicy(18, 2, new BigDecimal("0.5"), new BigDecimal("50"));
+
+        private final int maxAge;
+        private final int halfPriceMaxAge;
+        private final BigDecimal infantRate;
+        private final BigDecimal childReduction;
+
+        public BigDecimal priceFor(BigDecimal adultPrice, int age) {
+            if (age >= 1 && age <= halfPriceMaxAge) {
+                return adultPrice.multiply(infantRate);
+            } else if (age > halfPriceMaxAge) {
+                BigDecimal childPrice = adultPrice.subtract(childReduction);
+                return childPrice.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : childPrice;
+            }
+            return BigDecimal.ZERO;
+        }
+
+        public String describe(int age) {
+            if (age >= 1 && age <= halfPriceMaxAge) {
+                return "1-" + halfPriceMaxAge + "岁半价";
+            } else if (age > halfPriceMaxAge) {
+                return (halfPriceMaxAge + 1) + "岁以上成人价减" + childReduction.stripTrailingZeros().toPlainString() + "元";
+            }
+            return "0岁免费";
+        }
+
+        public BigDecimal defaultChildPrice(BigDecimal adultPrice, int childCount) {
+            BigDecimal childUnitPrice = adultPrice.subtract(childReduction);
+            if (childUnitPrice.compareTo(BigDecimal.ZERO) < 0) {
+                childUnitPrice = BigDecimal.ZERO;
+            }
+            return childUnitPrice.multiply(BigDecimal.valueOf(childCount));
+        }
+    }
+}
@@ -100,9 +100,16 @@ public interface AdminCreditService {
      * @param transactionNo 交易编号（可选）
      * @param startDate 开始日期（可选）
      * @param endDate 结束日期（可选）
+     * @param format 导出格式 xlsx/csv
      */
     void exportCreditTransactions(HttpServletResponse response, Long agentId, String transactionType, 
-                                 String transactionNo, LocalDate startDate, LocalDate endDate);
+                                 String transactionNo, LocalDate startDate, LocalDate endDate, String format);
+
+    /**
+     * 导出统计（进行中的导出及已写入行数、累计导出次数和行数）
+     * @return 统计数据
+     */
+    Map<String, Object> exportStats();
     
     /**
      * 为没有信用额度记录的现有代理商初始化信用额度
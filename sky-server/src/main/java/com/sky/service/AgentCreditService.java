@@ -13,6 +13,7 @@ import com.sky.vo.CreditTransactionVO;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 代理商信用额度Service
@@ -62,6 +63,13 @@ public interface AgentCreditService {
      */
     CreditPaymentResultVO payWithCredit(Long agentId, CreditPaymentDTO paymentDTO);
 
+    /**
+     * 信用支付统计（成功次数、被拒次数、平均耗时）
+     *
+     * @return 统计数据
+     */
+    Map<String, Object> paymentStats();
+
     /**
      * 检查信用额度是否足够支付
      *
@@ -0,0 +1,37 @@
+package com.sky.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 营业数据日汇总服务
+ * 维护按 日期/产品类型/代理商 汇总的订单数据和按日汇总的注册数据，供仪表盘和统计报表读取
+ */
+public interface BusinessRollupService {
+
+    /**
+     * 订单新增或状态、金额变化后调用，所在日期的汇总会在下一次刷新时重算
+     * @param bookingId 订单ID
+     */
+    void markBookingChanged(Integer bookingId);
+
+    /**
+     * 订单删除前调用（删除后无法再查到下单日期）
+     * @param bookingId 订单ID
+     */
+    void markBookingDeleted(Integer bookingId);
+
+    /**
+     * 重建指定日期范围的汇总（回填历史数据或修正）
+     * @param begin 开始日期
+     * @param end 结束日期
+     * @return 重建的天数
+     */
+    int rebuild(LocalDate begin, LocalDate end);
+
+    /**
+     * 汇总刷新统计
+     * @return 统计数据
+     */
+    Map<String, Object> stats();
+}
@@ -207,6 +207,11 @@ public interface DayTourService {
      */
     DayTourDTO getDayTourById(Integer id);
 
+    /**
+     * 清除一日游详情缓存（一日游或子表修改后调用）
+     */
+    void evictCaches();
+
     /**
      * 获取一日游行程安排
      * @param tourId 一日游ID
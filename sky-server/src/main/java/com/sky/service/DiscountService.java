@@ -1,6 +1,7 @@
 package com.sky.service;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -32,6 +33,14 @@ public interface DiscountService {
      * @return 折扣价格信息Map
      */
     Map<String, Object> calculateTourDiscount(Long tourId, String tourType, BigDecimal originalPrice, Long agentId);
+
+    /**
+     * 批量计算旅游产品折扣价格
+     * 每个代理商只查询一次折扣率和一次产品折扣配置，结果顺序与请求顺序一致
+     * @param requests 请求列表，每个请求包含id、tourId、tourType、originalPrice、agentId
+     * @return 每个产品的折扣价格信息列表
+     */
+    List<Map<String, Object>> calculateTourDiscountsBatch(List<Map<String, Object>> requests);
     
     /**
      * 保存折扣计算历史
@@ -148,6 +148,11 @@ public interface EnhancedDiscountService {
      */
     int batchCreateProductDiscounts(List<ProductAgentDiscount> discounts);
 
+    /**
+     * 清除代理商产品折扣率缓存（代理商折扣等级变更后调用）
+     */
+    void evictProductDiscountRateCache();
+
     // ===================== 折扣日志管理 =====================
     
 } 
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.sky.service;
 import com.sky.dto.GroupTourDTO;
 import com.sky.result.PageResult;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -38,6 +39,25 @@ public interface GroupTourService {
      */
     List<Map<String, Object>> getGroupTourItinerary(Integer tourId);
 
+    /**
+     * 批量获取跟团游行程安排
+     * @param tourIds 跟团游ID列表
+     * @return 跟团游ID -> 行程安排
+     */
+    Map<Integer, List<Map<String, Object>>> getGroupTourItineraries(Collection<Integer> tourIds);
+
+    /**
+     * 批量获取跟团游详情
+     * @param ids 跟团游ID列表
+     * @return 跟团游ID -> 详情
+     */
+    Map<Integer, GroupTourDTO> getGroupTourDetails(Collection<Integer> ids);
+
+    /**
+     * 清除跟团游详情和行程缓存（跟团游、子表或一日游修改后调用）
+     */
+    void evictCaches();
+
     /**
      * 获取跟团游可用日期
      * @param tourId 跟团游ID
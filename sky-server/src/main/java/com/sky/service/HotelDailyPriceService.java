@@ -25,6 +25,11 @@ public interface HotelDailyPriceService {
      */
     HotelDailyPrice getByLevelAndDate(String hotelLevel, LocalDate priceDate);
     
+    /**
+     * 根据ID查询每日价格
+     */
+    HotelDailyPrice getById(Long id);
+    
     /**
      * 添加或更新每日价格
      */
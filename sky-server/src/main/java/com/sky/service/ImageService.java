@@ -27,6 +27,23 @@ public interface ImageService {
      * @return 图片视图对象
      */
     ImageVO saveImage(MultipartFile file, ImageDTO imageDTO);
+
+    /**
+     * 批量上传图片（并行上传）
+     *
+     * @param files 图片文件
+     * @return 图片URL列表，顺序与文件顺序一致
+     */
+    List<String> uploadBatch(List<MultipartFile> files);
+
+    /**
+     * 批量上传并保存图片信息
+     *
+     * @param files    图片文件
+     * @param imageDTO 图片信息（排序号从position开始递增，只有第一张可以是主图）
+     * @return 图片视图对象列表
+     */
+    List<ImageVO> saveImages(List<MultipartFile> files, ImageDTO imageDTO);
     
     /**
      * 根据类型和关联ID获取图片列表
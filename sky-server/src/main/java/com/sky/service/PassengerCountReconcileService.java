@@ -0,0 +1,28 @@
+package com.sky.service;
+
+import java.util.Map;
+
+/**
+ * 订单乘客人数核对服务
+ * 按订单ID分段，用集合SQL根据 booking_passenger_relation 重算成人/儿童人数，只更新不一致的订单
+ */
+public interface PassengerCountReconcileService {
+
+    /**
+     * 同步核对全部订单（分段事务）
+     * @return 更新的订单数
+     */
+    int reconcileAll();
+
+    /**
+     * 在后台开始一次全量核对；上次核对未完成时从中断处继续
+     * @return 是否已开始（已有核对在执行时返回false）
+     */
+    boolean startReconcile();
+
+    /**
+     * 核对进度和统计
+     * @return 进度数据
+     */
+    Map<String, Object> progress();
+}
@@ -1,5 +1,7 @@
 package com.sky.service;
 
+import java.util.Map;
+
 /**
  * PDF生成服务接口
  */
@@ -12,4 +14,11 @@ public interface PdfService {
      * @return PDF字节数组
      */
     byte[] generatePdfFromHtml(String htmlContent);
+
+    /**
+     * 渲染统计（生成次数、拒绝次数、平均耗时、排队数）
+     *
+     * @return 统计数据
+     */
+    Map<String, Object> stats();
 } 
\ No newline at end of file
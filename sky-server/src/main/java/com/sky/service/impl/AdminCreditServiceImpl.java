@@ -23,14 +23,22 @@ import com.sky.vo.CreditTransactionVO;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -38,6 +46,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -47,6 +59,15 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AdminCreditServiceImpl implements AdminCreditService {
 
+    private static final String[] EXPORT_HEADERS = {"交易编号", "代理商ID", "代理商名称", "交易类型", "金额", "交易前余额", "交易后余额", "交易时间", "备注"};
+
+    /**
+     * xlsx 单个工作表的最大数据行数（Excel上限1048576行，含表头），超出后续写到新工作表
+     */
+    private static final int MAX_SHEET_ROWS = 1_000_000;
+
+    private static final DateTimeFormatter EXPORT_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     @Autowired
     private AgentCreditMapper agentCreditMapper;
 
@@ -65,6 +86,33 @@ public class AdminCreditServiceImpl implements AdminCreditService {
     @Autowired
     private AgentOperatorMapper agentOperatorMapper;
 
+    /**
+     * xlsx 导出时内存中保留的行数，更早的行写入临时文件
+     */
+    @Value("${sky.credit.export.window-rows:500}")
+    private int exportWindowRows;
+
+    /**
+     * 同时进行的导出数量上限
+     */
+    @Value("${sky.credit.export.max-concurrent:2}")
+    private int exportMaxConcurrent;
+
+    private Semaphore exportPermits;
+    private final AtomicLong exportSequence = new AtomicLong();
+    private final Map<Long, ExportProgress> activeExports = new ConcurrentHashMap<>();
+    private final LongAdder exports = new LongAdder();
+    private final LongAdder exportedRows = new LongAdder();
+    private final LongAdder exportFailures = new LongAdder();
+    private final LongAdder exportRejected = new LongAdder();
+    private final AtomicLong lastExportRows = new AtomicLong();
+    private final AtomicLong lastExportMillis = new AtomicLong();
+
+    @PostConstruct
+    public void initExport() {
+        exportPermits = new Semaphore(Math.max(exportMaxConcurrent, 1));
+    }
+
     /**
      * 为代理商充值信用额度
      * @param agentId 代理商ID
@@ -525,101 +573,119 @@ public class AdminCreditServiceImpl implements AdminCreditService {
 
     /**
      * 导出信用交易记录
+     * 流式导出：查询结果逐行交给写入器（MySQL流式结果集），xlsx 使用 SXSSF 只在内存保留窗口内的行，
+     * csv 直接写入响应流，内存占用与导出行数无关；同时进行的导出数量受限。
      * @param response HTTP响应对象
      * @param agentId 代理商ID（可选）
      * @param transactionType 交易类型（可选）
      * @param transactionNo 交易编号（可选）
      * @param startDate 开始日期（可选）
      * @param endDate 结束日期（可选）
+     * @param format 导出格式 xlsx/csv
      */
     @Override
     public void exportCreditTransactions(HttpServletResponse response, Long agentId, String transactionType, 
-                                         String transactionNo, LocalDate startDate, LocalDate endDate) {
+                                         String transactionNo, LocalDate startDate, LocalDate endDate, String format) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!exportPermits.tryAcquire()) {
+            exportRejected.increment();
+            throw new BusinessException("导出任务较多，请稍后再试");
+        }
+        long exportId = exportSequence.incrementAndGet();
+        ExportProgress progress = new ExportProgress(csv ? "csv" : "xlsx");
+        activeExports.put(exportId, progress);
         try {
             // 转换日期为DateTime
             LocalDateTime startDateTime = startDate != null ? startDate.atStartOfDay() : null;
             LocalDateTime endDateTime = endDate != null ? endDate.plusDays(1).atStartOfDay() : null;
             
-            log.info("导出信用交易记录, 参数: agentId={}, transactionType={}, transactionNo={}, startDate={}, endDate={}",
-                    agentId, transactionType, transactionNo, startDateTime, endDateTime);
-            
-            // 使用专门的导出方法获取所有符合条件的记录
-            List<CreditTransaction> transactions = creditTransactionMapper.getAllForExport(
-                agentId, transactionType, transactionNo, startDateTime, endDateTime);
-                
-            log.info("找到{}条交易记录准备导出", transactions.size());
-            
-            // 创建工作簿
-            Workbook workbook = new XSSFWorkbook();
-            Sheet sheet = workbook.createSheet("信用交易记录");
-            
-            // 创建表头
-            Row headerRow = sheet.createRow(0);
-            String[] headers = {"交易编号", "代理商ID", "代理商名称", "交易类型", "金额", "交易前余额", "交易后余额", "交易时间", "备注"};
-            
-            CellStyle headerStyle = workbook.createCellStyle();
-            Font headerFont = workbook.createFont();
-            headerFont.setBold(true);
-            headerStyle.setFont(headerFont);
-            
-            for (int i = 0; i < headers.length; i++) {
-                Cell cell = headerRow.createCell(i);
-                cell.setCellValue(headers[i]);
-                cell.setCellStyle(headerStyle);
-                sheet.setColumnWidth(i, 20 * 256); // 设置列宽
-            }
+            log.info("导出信用交易记录, 参数: agentId={}, transactionType={}, transactionNo={}, startDate={}, endDate={}, format={}",
+                    agentId, transactionType, transactionNo, startDateTime, endDateTime, progress.format);
             
-            // 填充数据
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            for (int i = 0; i < transactions.size(); i++) {
-                CreditTransaction transaction = transactions.get(i);
-                Row row = sheet.createRow(i + 1);
-                
-                row.createCell(0).setCellValue(transaction.getTransactionNo());
-                row.createCell(1).setCellValue(transaction.getAgentId());
-                
-                // 添加代理商名称
-                String agentName = "-";
-                if (transaction.getAgentId() != null) {
-                    Agent agent = agentMapper.getById(transaction.getAgentId());
-                    if (agent != null) {
-                        agentName = agent.getCompanyName();
-                    }
-                }
-                row.createCell(2).setCellValue(agentName);
-                
-                // 将交易类型转换为中文
-                String typeText = transaction.getTransactionType();
-                if ("topup".equals(typeText)) {
-                    typeText = "充值";
-                } else if ("payment".equals(typeText)) {
-                    typeText = "支付";
-                } else if ("refund".equals(typeText)) {
-                    typeText = "退款";
-                } else if ("adjustment".equals(typeText)) {
-                    typeText = "调整";
+            String fileName = URLEncoder.encode("信用交易记录", StandardCharsets.UTF_8.toString());
+            if (csv) {
+                response.setContentType("text/csv;charset=UTF-8");
+                response.setHeader("Content-disposition", "attachment;filename=" + fileName + ".csv");
+                BufferedWriter writer = new BufferedWriter(
+                        new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+                CsvRowWriter rowWriter = new CsvRowWriter(writer, progress);
+                creditTransactionMapper.streamForExport(
+                        agentId, transactionType, transactionNo, startDateTime, endDateTime, rowWriter);
+                writer.flush();
+            } else {
+                SXSSFWorkbook workbook = new SXSSFWorkbook(exportWindowRows);
+                workbook.setCompressTempFiles(true);
+                try {
+                    XlsxRowWriter rowWriter = new XlsxRowWriter(workbook, progress);
+                    creditTransactionMapper.streamForExport(
+                            agentId, transactionType, transactionNo, startDateTime, endDateTime, rowWriter);
+                    response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+                    response.setHeader("Content-disposition", "attachment;filename=" + fileName + ".xlsx");
+                    workbook.write(response.getOutputStream());
+                } finally {
+                    // 删除SXSSF临时文件
+                    workbook.dispose();
+                    workbook.close();
                 }
-                row.createCell(3).setCellValue(typeText);
-                
-                row.createCell(4).setCellValue(transaction.getAmount().doubleValue());
-                row.createCell(5).setCellValue(transaction.getBalanceBefore().doubleValue());
-                row.createCell(6).setCellValue(transaction.getBalanceAfter().doubleValue());
-                row.createCell(7).setCellValue(transaction.getCreatedAt().format(formatter));
-                row.createCell(8).setCellValue(transaction.getNote() != null ? transaction.getNote() : "");
             }
             
-            // 设置响应头
-            String fileName = URLEncoder.encode("信用交易记录", StandardCharsets.UTF_8.toString());
-            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-            response.setHeader("Content-disposition", "attachment;filename=" + fileName + ".xlsx");
-            
-            // 写入响应输出流
-            workbook.write(response.getOutputStream());
-            workbook.close();
-        } catch (IOException e) {
-            log.error("导出信用交易记录失败", e);
+            long rows = progress.rows.get();
+            exports.increment();
+            exportedRows.add(rows);
+            lastExportRows.set(rows);
+            lastExportMillis.set(System.currentTimeMillis() - progress.startedAt);
+            log.info("信用交易记录导出完成: {}条，耗时{}ms", rows, lastExportMillis.get());
+        } catch (IOException | UncheckedIOException e) {
+            exportFailures.increment();
+            log.error("导出信用交易记录失败，已写入{}条", progress.rows.get(), e);
             throw new BusinessException("导出失败");
+        } catch (RuntimeException e) {
+            exportFailures.increment();
+            log.error("导出信用交易记录失败，已写入{}条", progress.rows.get(), e);
+            throw e;
+        } finally {
+            activeExports.remove(exportId);
+            exportPermits.release();
+        }
+    }
+
+    @Override
+    public Map<String, Object> exportStats() {
+        List<Map<String, Object>> running = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        activeExports.forEach((id, progress) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", id);
+            item.put("format", progress.format);
+            item.put("rows", progress.rows.get());
+            item.put("elapsedMillis", now - progress.startedAt);
+            running.add(item);
+        });
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", running);
+        stats.put("exports", exports.sum());
+        stats.put("rows", exportedRows.sum());
+        stats.put("failures", exportFailures.sum());
+        stats.put("rejected", exportRejected.sum());
+        stats.put("lastRows", lastExportRows.get());
+        stats.put("lastMillis", lastExportMillis.get());
+        return stats;
+    }
+
+    /**
+     * 交易类型转换为中文
+     */
+    private static String transactionTypeText(String type) {
+        if ("topup".equals(type)) {
+            return "充值";
+        } else if ("payment".equals(type)) {
+            return "支付";
+        } else if ("refund".equals(type)) {
+            return "退款";
+        } else if ("adjustment".equals(type)) {
+            return "调整";
         }
+        return type;
     }
 
     /**
@@ -843,4 +909,140 @@ public class AdminCreditServiceImpl implements AdminCreditService {
         
         return true;
     }
-} 
\ No newline at end of file
+
+    /**
+     * 单次导出的进度
+     */
+    private static class ExportProgress {
+        final String format;
+        final long startedAt = System.currentTimeMillis();
+        final AtomicLong rows = new AtomicLong();
+
+        ExportProgress(String format) {
+            this.format = format;
+        }
+    }
+
+    /**
+     * 逐行写入 SXSSF 工作簿，超过单表行数上限时换到新工作表
+     */
+    private static class XlsxRowWriter implements ResultHandler<CreditTransactionVO> {
+        private final SXSSFWorkbook workbook;
+        private final ExportProgress progress;
+        private final CellStyle headerStyle;
+        private Sheet sheet;
+        private int rowIndex;
+
+        XlsxRowWriter(SXSSFWorkbook workbook, ExportProgress progress) {
+            this.workbook = workbook;
+            this.progress = progress;
+            this.headerStyle = workbook.createCellStyle();
+            Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+            newSheet();
+        }
+
+        private void newSheet() {
+            int number = workbook.getNumberOfSheets();
+            sheet = workbook.createSheet(number == 0 ? "信用交易记录" : "信用交易记录" + (number + 1));
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < EXPORT_HEADERS.length; i++) {
+                Cell cell = headerRow.createCell(i);
+                cell.setCellValue(EXPORT_HEADERS[i]);
+                cell.setCellStyle(headerStyle);
+                sheet.setColumnWidth(i, 20 * 256); // 设置列宽
+            }
+            rowIndex = 0;
+        }
+
+        @Override
+        public void handleResult(ResultContext<? extends CreditTransactionVO> context) {
+            if (rowIndex >= MAX_SHEET_ROWS) {
+                newSheet();
+            }
+            CreditTransactionVO transaction = context.getResultObject();
+            Row row = sheet.createRow(++rowIndex);
+            row.createCell(0).setCellValue(transaction.getTransactionNo());
+            if (transaction.getAgentId() != null) {
+                row.createCell(1).setCellValue(transaction.getAgentId());
+            }
+            row.createCell(2).setCellValue(transaction.getAgentName() != null ? transaction.getAgentName() : "-");
+            row.createCell(3).setCellValue(transactionTypeText(transaction.getTransactionType()));
+            setAmount(row, 4, transaction.getAmount());
+            setAmount(row, 5, transaction.getBalanceBefore());
+            setAmount(row, 6, transaction.getBalanceAfter());
+            row.createCell(7).setCellValue(transaction.getCreatedAt() != null
+                    ? transaction.getCreatedAt().format(EXPORT_TIME_FORMATTER) : "");
+            row.createCell(8).setCellValue(transaction.getDescription() != null ? transaction.getDescription() : "");
+            progress.rows.incrementAndGet();
+        }
+
+        private static void setAmount(Row row, int column, BigDecimal value) {
+            if (value != null) {
+                row.createCell(column).setCellValue(value.doubleValue());
+            }
+        }
+    }
+
+    /**
+     * 逐行写入CSV（UTF-8带BOM，Excel可直接打开中文）
+     */
+    private static class CsvRowWriter implements ResultHandler<CreditTransactionVO> {
+        private final Writer writer;
+        private final ExportProgress progress;
+
+        CsvRowWriter(Writer writer, ExportProgress progress) throws IOException {
+            this.writer = writer;
+            this.progress = progress;
+            writer.write('\uFEFF');
+            writeLine(EXPORT_HEADERS);
+        }
+
+        @Override
+        public void handleResult(ResultContext<? extends CreditTransactionVO> context) {
+            CreditTransactionVO transaction = context.getResultObject();
+            try {
+                writeLine(new String[]{
+                        transaction.getTransactionNo(),
+                        transaction.getAgentId() != null ? String.valueOf(transaction.getAgentId()) : "",
+                        transaction.getAgentName() != null ? transaction.getAgentName() : "-",
+                        transactionTypeText(transaction.getTransactionType()),
+                        plain(transaction.getAmount()),
+                        plain(transaction.getBalanceBefore()),
+                        plain(transaction.getBalanceAfter()),
+                        transaction.getCreatedAt() != null ? transaction.getCreatedAt().format(EXPORT_TIME_FORMATTER) : "",
+                        transaction.getDescription()
+                });
+            } catch (IOException e) {
+                // 客户端断开等写入失败，终止读取结果集
+                throw new UncheckedIOException(e);
+            }
+            progress.rows.incrementAndGet();
+        }
+
+        private void writeLine(String[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(escape(values[i]));
+            }
+            writer.write("\r\n");
+        }
+
+        private static String plain(BigDecimal value) {
+            return value != null ? value.toPlainString() : "";
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+            return value;
+        }
+    }
+}
@@ -28,7 +28,10 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 /**
@@ -47,6 +50,10 @@ public class AgentCreditServiceImpl implements AgentCreditService {
     @Autowired
     private AgentMapper agentMapper;
 
+    private final LongAdder creditPayments = new LongAdder();
+    private final LongAdder creditPaymentRejects = new LongAdder();
+    private final LongAdder creditPaymentNanos = new LongAdder();
+
     /**
      * 获取代理商信用额度信息
      *
@@ -142,6 +149,8 @@ public class AgentCreditServiceImpl implements AgentCreditService {
 
     /**
      * 使用信用额度支付订单
+     * 扣款由一条条件UPDATE完成（冻结、额度不足都在WHERE中判断），不再读取后在Java中计算、按版本号重试；
+     * 代理商信息、交易编号等读操作放在扣款前，扣款后行锁持有到事务结束，期间只读回余额并写交易记录。
      *
      * @param agentId 代理商ID
      * @param paymentDTO 支付信息
@@ -150,118 +159,35 @@ public class AgentCreditServiceImpl implements AgentCreditService {
     @Override
     @Transactional
     public CreditPaymentResultVO payWithCredit(Long agentId, CreditPaymentDTO paymentDTO) {
-        // 最大重试次数（乐观锁冲突时重试）
-        int maxRetries = 3;
-        int retryCount = 0;
-        
-        while (retryCount <= maxRetries) {
-            try {
-                // 执行支付逻辑
-                return executePaymentWithOptimisticLock(agentId, paymentDTO, retryCount);
-            } catch (BusinessException e) {
-                // 如果是乐观锁冲突，重试
-                if (e.getMessage().contains("并发冲突") && retryCount < maxRetries) {
-                    retryCount++;
-                    log.warn("⚠️ 信用支付并发冲突，第{}次重试 - 代理商ID: {}, 订单ID: {}", 
-                            retryCount, agentId, paymentDTO.getBookingId());
-                    // 短暂等待后重试（避免立即重试导致的冲突）
-                    try {
-                        Thread.sleep(50 * retryCount); // 递增等待时间：50ms, 100ms, 150ms
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new BusinessException("支付处理被中断");
-                    }
-                } else {
-                    // 其他业务异常或重试次数用完，直接抛出
-                    throw e;
-                }
-            }
+        long start = System.nanoTime();
+        BigDecimal amount = paymentDTO.getAmount();
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BusinessException("支付金额必须大于0");
         }
-        
-        // 如果所有重试都失败
-        throw new BusinessException("支付失败，系统繁忙请稍后重试");
-    }
-    
-    /**
-     * 执行带乐观锁的支付逻辑（内部方法）
-     */
-    private CreditPaymentResultVO executePaymentWithOptimisticLock(Long agentId, CreditPaymentDTO paymentDTO, int retryCount) {
-        // 获取代理商信息
+
+        // 生成唯一交易编号（同时校验代理商存在）
         Agent agent = agentMapper.getById(agentId);
         if (agent == null) {
             throw new BusinessException("代理商信息不存在");
         }
-        
-        // 读取最新的信用额度信息（每次重试都重新读取）
-        AgentCredit agentCredit = agentCreditMapper.getByAgentId(agentId);
-        if (agentCredit == null) {
-            throw new BusinessException("代理商信用额度信息不存在");
-        }
-        
-        // 检查账户是否被冻结
-        if (agentCredit.getIsFrozen() != null && agentCredit.getIsFrozen()) {
-            throw new BusinessException(CreditConstants.ERROR_ACCOUNT_FROZEN);
-        }
-        
-        // 保存原始版本号，用于乐观锁检查
-        Integer originalVersion = agentCredit.getVersion();
-        if (originalVersion == null) {
-            originalVersion = 0;
-            agentCredit.setVersion(0);
-        }
-        
-        BigDecimal amount = paymentDTO.getAmount();
-        // 计算总可用额度：信用额度 + 预存余额
-        BigDecimal totalAvailable = agentCredit.getTotalCredit()
-            .subtract(agentCredit.getUsedCredit())
-            .add(agentCredit.getDepositBalance());
-            
-        if (totalAvailable.compareTo(amount) < 0) {
-            throw new BusinessException("可用额度不足，当前可用: " + totalAvailable + "元，需要: " + amount + "元");
-        }
-        
-        // 生成唯一交易编号（使用UUID + 时间戳，保证全局唯一）
-        String transactionNo = generateUniqueTransactionNo(agentId);
-        
-        log.info("🔐 开始信用支付 - 代理商ID: {}, 订单ID: {}, 金额: {}, 交易号: {}, 版本号: {}, 重试次数: {}", 
-                agentId, paymentDTO.getBookingId(), amount, transactionNo, originalVersion, retryCount);
-        
-        // 记录交易前余额/后余额（总可用=信用+押金-已用）
-        BigDecimal balanceBefore = totalAvailable;
-        BigDecimal balanceAfter = balanceBefore.subtract(amount);
-        
-        // 优先使用预存余额
-        BigDecimal remainingAmount = amount;
-        if (agentCredit.getDepositBalance().compareTo(BigDecimal.ZERO) > 0) {
-            if (agentCredit.getDepositBalance().compareTo(remainingAmount) >= 0) {
-                // 预存余额足够支付
-                agentCredit.setDepositBalance(agentCredit.getDepositBalance().subtract(remainingAmount));
-                remainingAmount = BigDecimal.ZERO;
-            } else {
-                // 预存余额不足，全部用完
-                remainingAmount = remainingAmount.subtract(agentCredit.getDepositBalance());
-                agentCredit.setDepositBalance(BigDecimal.ZERO);
-            }
-        }
-        
-        // 如果还有剩余金额，使用信用额度
-        if (remainingAmount.compareTo(BigDecimal.ZERO) > 0) {
-            agentCredit.setUsedCredit(agentCredit.getUsedCredit().add(remainingAmount));
-        }
-        
-        // 更新可用额度
-        agentCredit.setAvailableCredit(agentCredit.getTotalCredit()
-            .subtract(agentCredit.getUsedCredit())
-            .add(agentCredit.getDepositBalance()));
-            
-        agentCredit.setLastUpdated(LocalDateTime.now());
-        
-        // 先记录交易（即使后续更新失败也有记录）
+        String transactionNo = generateUniqueTransactionNo(agent, agentId);
+
         Long currentOperatorId = BaseContext.getCurrentId();
         if (currentOperatorId == null) {
             currentOperatorId = agentId;
         }
-        
+
+        // 条件扣款：优先使用预存余额，不足部分计入已用信用额度
+        int updatedRows = agentCreditMapper.deductCredit(agentId, amount);
+        if (updatedRows == 0) {
+            creditPaymentRejects.increment();
+            throw deductRejected(agentId, amount);
+        }
+
+        // 本事务刚更新的行，读到的是扣款后的余额（行锁持有到事务结束，其他扣款无法插入）
+        BigDecimal balanceAfter = agentCreditMapper.getCreditBalanceByAgentId(agentId.intValue());
+        BigDecimal balanceBefore = balanceAfter.add(amount);
+
         CreditTransaction transaction = CreditTransaction.builder()
                 .transactionNo(transactionNo)
                 .agentId(agentId)
@@ -274,41 +200,57 @@ public class AgentCreditServiceImpl implements AgentCreditService {
                 .createdBy(currentOperatorId)
                 .createdAt(LocalDateTime.now())
                 .build();
-        
         creditTransactionMapper.insert(transaction);
-        
-        // 使用乐观锁更新信用额度（关键步骤）
-        int updatedRows = agentCreditMapper.updateWithVersion(agentCredit);
-        
-        if (updatedRows == 0) {
-            // 版本号不匹配，说明有并发冲突
-            log.warn("❌ 乐观锁冲突 - 代理商ID: {}, 当前版本号: {}, 期望更新失败", agentId, originalVersion);
-            throw new BusinessException("并发冲突，正在重试");
-        }
-        
-        log.info("✅ 信用支付成功 - 代理商ID: {}, 交易号: {}, 金额: {}, 余额: {} -> {}", 
-                agentId, transactionNo, amount, balanceBefore, balanceAfter);
-        
-        // 返回支付结果
+
+        creditPayments.increment();
+        creditPaymentNanos.add(System.nanoTime() - start);
+        log.info("✅ 信用支付成功 - 代理商ID: {}, 订单ID: {}, 交易号: {}, 金额: {}, 余额: {} -> {}",
+                agentId, paymentDTO.getBookingId(), transactionNo, amount, balanceBefore, balanceAfter);
+
         return CreditPaymentResultVO.builder()
                 .transactionId(transaction.getId())
                 .transactionNo(transaction.getTransactionNo())
                 .bookingId(transaction.getBookingId())
                 .amount(transaction.getAmount())
                 .balanceBefore(balanceBefore)
-                .balanceAfter(transaction.getBalanceAfter())
+                .balanceAfter(balanceAfter)
                 .paymentStatus("paid")
                 .build();
     }
+
+    /**
+     * 扣款未更新任何行时查明原因（只在失败时多查一次）
+     */
+    private BusinessException deductRejected(Long agentId, BigDecimal amount) {
+        AgentCredit agentCredit = agentCreditMapper.getByAgentId(agentId);
+        if (agentCredit == null) {
+            return new BusinessException("代理商信用额度信息不存在");
+        }
+        if (agentCredit.getIsFrozen() != null && agentCredit.getIsFrozen()) {
+            return new BusinessException(CreditConstants.ERROR_ACCOUNT_FROZEN);
+        }
+        BigDecimal totalAvailable = agentCredit.getTotalCredit()
+                .subtract(agentCredit.getUsedCredit())
+                .add(agentCredit.getDepositBalance());
+        return new BusinessException("可用额度不足，当前可用: " + totalAvailable + "元，需要: " + amount + "元");
+    }
+
+    @Override
+    public Map<String, Object> paymentStats() {
+        long payments = creditPayments.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("payments", payments);
+        stats.put("rejected", creditPaymentRejects.sum());
+        stats.put("averageMillis", payments > 0 ? creditPaymentNanos.sum() / 1_000_000.0 / payments : 0);
+        return stats;
+    }
     
     /**
      * 生成唯一交易编号
      * 格式: 账号名(前5位) + UUID(前16位)
      * 示例: LJY00-1234567890ABCDEF
      */
-    private String generateUniqueTransactionNo(Long agentId) {
-        // 获取代理商信息
-        Agent agent = agentMapper.getById(agentId);
+    private String generateUniqueTransactionNo(Agent agent, Long agentId) {
         String agentName = agent != null && agent.getUsername() != null 
             ? agent.getUsername() : String.valueOf(agentId);
         
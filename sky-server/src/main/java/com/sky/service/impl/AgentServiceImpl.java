@@ -17,6 +17,7 @@ import com.sky.exception.PasswordErrorException;
 import com.sky.mapper.AgentMapper;
 import com.sky.result.PageResult;
 import com.sky.service.AgentService;
+import com.sky.service.EnhancedDiscountService;
 import com.sky.vo.AgentSimpleVO;
 import com.sky.vo.AgentVO;
 import lombok.extern.slf4j.Slf4j;
@@ -41,6 +42,9 @@ public class AgentServiceImpl implements AgentService {
 
     @Autowired
     private AgentMapper agentMapper;
+
+    @Autowired
+    private EnhancedDiscountService enhancedDiscountService;
     
     @Autowired
     private com.sky.mapper.AgentCreditMapper agentCreditMapper;
@@ -186,6 +190,9 @@ public class AgentServiceImpl implements AgentService {
         
         // 4. 更新代理商
         agentMapper.update(agent);
+        
+        // 5. 折扣等级可能变化，清除产品折扣率缓存
+        enhancedDiscountService.evictProductDiscountRateCache();
     }
 
     /**
@@ -359,6 +366,7 @@ public class AgentServiceImpl implements AgentService {
         
         // 2. 更新折扣等级ID
         agentMapper.updateDiscountLevel(agentId, discountLevelId);
+        enhancedDiscountService.evictProductDiscountRateCache();
         log.info("代理商折扣等级已更新，具体产品折扣需在产品折扣配置表(product_agent_discount)中设置");
     }
     
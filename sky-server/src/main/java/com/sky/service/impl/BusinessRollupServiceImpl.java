@@ -0,0 +1,266 @@
+package com.sky.service.impl;
+
+import com.sky.exception.BusinessException;
+import com.sky.mapper.BusinessRollupMapper;
+import com.sky.service.BusinessRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 营业数据日汇总服务实现
+ * 订单写操作只记录受影响的订单ID（由 BookingRollupAspect 调用），定时任务把它们换算成下单日期后，
+ * 按天从订单表重算汇总（删除后重新插入，同一事务内完成，重复执行结果相同）；
+ * 重算只扫描当天的订单（created_at 范围条件走索引），成本与订单总量无关。
+ * 注册数据每次刷新重算昨天和今天；汇总表为空时启动后自动回填历史数据，每天凌晨再重算最近几天兜底。
+ */
+@Service
+@Slf4j
+public class BusinessRollupServiceImpl implements BusinessRollupService {
+
+    /**
+     * 订单ID换算下单日期时每批的数量
+     */
+    private static final int BOOKING_ID_BATCH_SIZE = 500;
+
+    @Autowired
+    private BusinessRollupMapper businessRollupMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 重建时每个事务处理的天数
+     */
+    @Value("${sky.statistics.rollup.rebuild-chunk-days:31}")
+    private int rebuildChunkDays;
+
+    /**
+     * 每天兜底重算最近多少天
+     */
+    @Value("${sky.statistics.rollup.reconcile-days:7}")
+    private int reconcileDays;
+
+    private final Set<Integer> changedBookings = ConcurrentHashMap.newKeySet();
+    private final Set<LocalDate> dirtyDates = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    private final LongAdder refreshedDays = new LongAdder();
+    private final LongAdder rebuiltDays = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong lastRefreshAt = new AtomicLong();
+    private final AtomicLong lastRefreshMillis = new AtomicLong();
+
+    @Override
+    public void markBookingChanged(Integer bookingId) {
+        if (bookingId != null) {
+            afterCommit(() -> changedBookings.add(bookingId));
+        }
+    }
+
+    @Override
+    public void markBookingDeleted(Integer bookingId) {
+        if (bookingId == null) {
+            return;
+        }
+        try {
+            LocalDate date = businessRollupMapper.getBookingDate(bookingId);
+            if (date != null) {
+                afterCommit(() -> dirtyDates.add(date));
+            }
+        } catch (Exception e) {
+            // 查不到日期时由每天的兜底重算修正
+            log.warn("查询待删除订单{}的下单日期失败: {}", bookingId, e.getMessage());
+        }
+    }
+
+    /**
+     * 定时刷新：重算有订单变化的日期，以及昨天和今天的注册数据
+     */
+    @Scheduled(fixedDelayString = "${sky.statistics.rollup.refresh-interval-ms:30000}",
+               initialDelayString = "${sky.statistics.rollup.refresh-interval-ms:30000}")
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        Set<LocalDate> dates = new TreeSet<>();
+        drainTo(dirtyDates, dates);
+
+        List<Integer> bookingIds = new ArrayList<>();
+        drainTo(changedBookings, bookingIds);
+        for (int i = 0; i < bookingIds.size(); i += BOOKING_ID_BATCH_SIZE) {
+            List<Integer> batch = bookingIds.subList(i, Math.min(i + BOOKING_ID_BATCH_SIZE, bookingIds.size()));
+            try {
+                dates.addAll(businessRollupMapper.getBookingDates(batch));
+            } catch (Exception e) {
+                failures.increment();
+                changedBookings.addAll(batch);
+                log.error("查询订单下单日期失败，下次刷新重试: {}", e.getMessage());
+            }
+        }
+
+        for (LocalDate date : dates) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    businessRollupMapper.deleteBookingRollup(date, date);
+                    businessRollupMapper.insertBookingRollup(date, date);
+                });
+                refreshedDays.increment();
+            } catch (Exception e) {
+                failures.increment();
+                dirtyDates.add(date);
+                log.error("重算{}的营业数据汇总失败，下次刷新重试: {}", date, e.getMessage());
+            }
+        }
+
+        LocalDate today = LocalDate.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                businessRollupMapper.deleteRegistrationRollup(today.minusDays(1), today);
+                businessRollupMapper.insertRegistrationRollup(today.minusDays(1), today);
+            });
+        } catch (Exception e) {
+            failures.increment();
+            log.error("重算注册数据汇总失败: {}", e.getMessage());
+        }
+
+        lastRefreshAt.set(System.currentTimeMillis());
+        lastRefreshMillis.set(System.currentTimeMillis() - start);
+        if (!dates.isEmpty()) {
+            log.debug("营业数据汇总已刷新: {}天，耗时{}ms", dates.size(), lastRefreshMillis.get());
+        }
+    }
+
+    /**
+     * 每天凌晨重算最近几天，修正绕过订单Mapper直接改库等情况
+     */
+    @Scheduled(cron = "${sky.statistics.rollup.reconcile-cron:0 30 3 * * ?}")
+    public void reconcile() {
+        LocalDate today = LocalDate.now();
+        try {
+            rebuild(today.minusDays(reconcileDays), today);
+        } catch (Exception e) {
+            log.error("营业数据汇总兜底重算失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 汇总表为空时（首次部署）在后台回填全部历史数据
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (businessRollupMapper.countBookingRollupSample() > 0) {
+                return;
+            }
+            LocalDate first = businessRollupMapper.getFirstActivityDate();
+            if (first == null) {
+                return;
+            }
+            Thread thread = new Thread(() -> {
+                try {
+                    int days = rebuild(first, LocalDate.now());
+                    log.info("营业数据汇总回填完成: {}天", days);
+                } catch (Exception e) {
+                    log.error("营业数据汇总回填失败: {}", e.getMessage(), e);
+                }
+            }, "business-rollup-backfill");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (Exception e) {
+            log.error("检查营业数据汇总表失败，请确认已执行 create_business_daily_rollup.sql: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public int rebuild(LocalDate begin, LocalDate end) {
+        if (begin == null || end == null || begin.isAfter(end)) {
+            throw new BusinessException("日期范围不正确");
+        }
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new BusinessException("营业数据汇总正在重建，请稍后再试");
+        }
+        long start = System.currentTimeMillis();
+        try {
+            LocalDate chunkBegin = begin;
+            while (!chunkBegin.isAfter(end)) {
+                LocalDate chunkEnd = chunkBegin.plusDays(rebuildChunkDays - 1L);
+                if (chunkEnd.isAfter(end)) {
+                    chunkEnd = end;
+                }
+                LocalDate from = chunkBegin;
+                LocalDate to = chunkEnd;
+                transactionTemplate.executeWithoutResult(status -> {
+                    businessRollupMapper.deleteBookingRollup(from, to);
+                    businessRollupMapper.insertBookingRollup(from, to);
+                    businessRollupMapper.deleteRegistrationRollup(from, to);
+                    businessRollupMapper.insertRegistrationRollup(from, to);
+                });
+                chunkBegin = chunkEnd.plusDays(1);
+            }
+            int days = (int) ChronoUnit.DAYS.between(begin, end) + 1;
+            rebuiltDays.add(days);
+            log.info("营业数据汇总已重建: {} - {}，共{}天，耗时{}ms", begin, end, days, System.currentTimeMillis() - start);
+            return days;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingBookings", changedBookings.size());
+        stats.put("pendingDates", dirtyDates.size());
+        stats.put("rebuilding", rebuilding.get());
+        stats.put("refreshedDays", refreshedDays.sum());
+        stats.put("rebuiltDays", rebuiltDays.sum());
+        stats.put("failures", failures.sum());
+        stats.put("lastRefreshAt", lastRefreshAt.get());
+        stats.put("lastRefreshMillis", lastRefreshMillis.get());
+        return stats;
+    }
+
+    /**
+     * 有事务时在事务提交后记录，避免刷新任务在提交前重算到旧数据
+     */
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static <T> void drainTo(Set<T> source, Collection<T> target) {
+        for (T item : source) {
+            if (source.remove(item)) {
+                target.add(item);
+            }
+        }
+    }
+}
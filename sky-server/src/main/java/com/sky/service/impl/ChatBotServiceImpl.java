@@ -3,6 +3,9 @@ package com.sky.service.impl;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.sky.chatbot.FaqIndex;
+import com.sky.chatbot.ProductSearchIndex;
+import com.sky.chatbot.QwenGateway;
 import com.sky.constant.MessageConstant;
 import com.sky.dto.ChatRequest;
 import com.sky.dto.GroupTourDTO;
@@ -15,7 +18,6 @@ import com.sky.mapper.ChatMessageMapper;
 import com.sky.mapper.GroupTourMapper;
 import com.sky.mapper.TourBookingMapper;
 import com.sky.mapper.PassengerMapper;
-import com.sky.mapper.DayTourFaqMapper;
 import com.sky.mapper.RegionMapper;
 import com.sky.mapper.ReviewMapper;
 import com.sky.mapper.GuideMapper;
@@ -28,21 +30,17 @@ import com.sky.service.TourKnowledgeService;
 import com.sky.vo.ChatResponse;
 import com.sky.vo.TourRecommendationResponse;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
-import javax.annotation.PostConstruct;
 import javax.sound.midi.SysexMessage;
-import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.Arrays;
@@ -56,29 +54,6 @@ import org.springframework.util.DigestUtils;
 @Slf4j
 public class ChatBotServiceImpl implements ChatBotService {
     
-    
-    
-    // Qwen API配置
-    @Value("${qwen.api.key:}")
-    private String qwenApiKey;
-    
-    @Value("${qwen.api.base-url:https://dashscope.aliyuncs.com/compatible-mode/v1}")
-    private String qwenBaseUrl;
-    
-    @Value("${qwen.model:qwen-turbo}")
-    private String qwenModel;
-    
-    @Value("${qwen.timeout:90000}")
-    private int qwenTimeout;
-    
-    @Value("${qwen.max-tokens:2000}")
-    private int qwenMaxTokens;
-    
-    @Value("${qwen.temperature:0.7}")
-    private double qwenTemperature;
-    
-    
-    
     @Autowired
     private ChatMessageMapper chatMessageMapper;
     
@@ -95,7 +70,13 @@ public class ChatBotServiceImpl implements ChatBotService {
     private PassengerMapper passengerMapper;
     
     @Autowired
-    private DayTourFaqMapper dayTourFaqMapper;
+    private FaqIndex faqIndex;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private QwenGateway qwenGateway;
     
     @Autowired
     private TourKnowledgeService tourKnowledgeService;
@@ -118,26 +99,6 @@ public class ChatBotServiceImpl implements ChatBotService {
     @Autowired
     private HotelBookingMapper hotelBookingMapper;
     
-    private OkHttpClient httpClient;
-    
-    @PostConstruct
-    public void init() {
-        // 初始化HTTP客户端
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(qwenTimeout, TimeUnit.MILLISECONDS)
-                .readTimeout(qwenTimeout, TimeUnit.MILLISECONDS)
-                .writeTimeout(qwenTimeout, TimeUnit.MILLISECONDS)
-                .build();
-                
-        if (qwenApiKey != null && !qwenApiKey.isEmpty()) {
-            log.info("Qwen AI服务初始化成功，模型: {}", qwenModel);
-        } else {
-            log.warn("Qwen API Key未配置，聊天功能将受限");
-        }
-        
-        // 备用通道已移除
-    }
-    
     @Override
     public ChatResponse processMessage(ChatRequest request) {
         try {
@@ -237,72 +198,10 @@ public class ChatBotServiceImpl implements ChatBotService {
     // DeepSeek 备用通道已移除
 
     /**
-     * 调用Qwen AI服务 (阿里云DashScope OpenAI兼容API)
+     * 调用Qwen AI服务（经网关缓存和合并相同提示词的请求）
      */
     private String callQwenAI(String prompt) {
-        if (qwenApiKey == null || qwenApiKey.isEmpty()) {
-            throw new RuntimeException("Qwen API Key未配置");
-        }
-        
-        try {
-            JSONObject requestBody = new JSONObject();
-            requestBody.put("model", qwenModel);
-            
-            // 使用OpenAI兼容格式的messages
-            JSONArray messages = new JSONArray();
-            JSONObject message = new JSONObject();
-            message.put("role", "user");
-            message.put("content", prompt);
-            messages.add(message);
-            
-            requestBody.put("messages", messages);
-            requestBody.put("max_tokens", qwenMaxTokens);
-            requestBody.put("temperature", qwenTemperature);
-
-            RequestBody body = RequestBody.create(
-                requestBody.toString(), 
-                MediaType.get("application/json; charset=utf-8")
-            );
-
-            Request request = new Request.Builder()
-                .url(qwenBaseUrl + "/chat/completions")
-                .addHeader("Authorization", "Bearer " + qwenApiKey)
-                .addHeader("Content-Type", "application/json")
-                .post(body)
-                .build();
-
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    String errorBody = response.body() != null ? response.body().string() : "";
-                    log.error("Qwen API调用失败: {} {}, 响应体: {}", response.code(), response.message(), errorBody);
-                    throw new RuntimeException("Qwen API调用失败: " + response.code() + " " + response.message());
-                }
-
-                String responseBody = response.body().string();
-                log.debug("Qwen API响应: {}", responseBody);
-                
-                JSONObject jsonResponse = JSON.parseObject(responseBody);
-                
-                String content = jsonResponse.getJSONArray("choices")
-                    .getJSONObject(0)
-                    .getJSONObject("message")
-                    .getString("content");
-                
-                // 清理Qwen响应中的markdown代码块标记
-                if (content.startsWith("```json")) {
-                    content = content.substring(7); // 移除 "```json"
-                }
-                if (content.endsWith("```")) {
-                    content = content.substring(0, content.length() - 3); // 移除结尾的 "```"
-                }
-                content = content.trim(); // 去除首尾空白
-                
-                return content;
-            }
-        } catch (IOException e) {
-            log.error("Qwen API调用异常", e);
-            throw new RuntimeException("Qwen AI调用失败: " + e.getMessage());
-        }
+        return qwenGateway.complete(prompt);
     }
 
     /**
@@ -310,7 +209,7 @@ public class ChatBotServiceImpl implements ChatBotService {
      */
     private boolean isStructuredOrderDataWithAI(String message) {
         // 如果Qwen未配置，回退到传统方法
-        if (qwenApiKey == null || qwenApiKey.isEmpty()) {
+        if (!qwenGateway.isConfigured()) {
             return isStructuredOrderDataTraditional(message);
         }
         
@@ -640,7 +539,7 @@ public class ChatBotServiceImpl implements ChatBotService {
                 return ChatResponse.success(responseMessage);
             } else {
                 // 未找到任何匹配产品，显示所有可用产品
-                List<GroupTourDTO> allProducts = groupTourMapper.findAllDisplayedOnUserSite();
+                List<GroupTourDTO> allProducts = productSearchIndex.getDisplayedGroupTours();
                 log.warn("未找到匹配产品，显示所有 {} 个可用产品", allProducts.size());
                 String responseMessage = buildProductSelectionMessage(orderInfo.getServiceType(), allProducts);
                 
@@ -696,6 +595,7 @@ public class ChatBotServiceImpl implements ChatBotService {
     
     /**
      * 智能产品匹配（返回匹配结果，包括单个或多个候选）
+     * 先在本地产品检索索引中打分匹配，只有最高分低于阈值时才调用AI选择产品
      */
     private ProductMatchResult findMatchingProductWithOptions(String serviceType) {
         if (serviceType == null || serviceType.isEmpty()) {
@@ -704,56 +604,21 @@ public class ChatBotServiceImpl implements ChatBotService {
         
         log.info("开始智能产品匹配，输入服务类型: {}", serviceType);
         
-        // 1. 先尝试完全匹配产品名称或产品代码
-        GroupTourDTO product = groupTourMapper.findByNameLike(serviceType);
-        if (product != null) {
-            log.info("完全匹配成功: {} (ID: {})", product.getName(), product.getId());
-            return ProductMatchResult.uniqueMatch(product);
-        }
-        
-        // 2. 提取关键词进行智能匹配
-        String[] keywords = extractKeywords(serviceType);
-        if (keywords.length > 0) {
-            log.info("使用关键词进行匹配: {}", java.util.Arrays.toString(keywords));
-            List<GroupTourDTO> products = groupTourMapper.findByKeywords(keywords);
-            if (!products.isEmpty()) {
-                if (products.size() == 1) {
-                    // 唯一匹配
-                    log.info("关键词匹配成功，找到唯一产品: {} (ID: {})", products.get(0).getName(), products.get(0).getId());
-                    return ProductMatchResult.uniqueMatch(products.get(0));
-                } else {
-                    // 多个匹配，需要用户选择
-                    log.info("关键词匹配找到 {} 个相似产品，需要用户选择", products.size());
-                    return ProductMatchResult.multipleOptions(products);
-                }
-            } else {
-                log.info("关键词匹配失败，没有找到相似产品");
-            }
-        } else {
-            log.warn("未能提取到有效关键词");
-        }
-        
-        // 3. 如果还是找不到，尝试更宽松的匹配 - 只用天数匹配
-        java.util.regex.Pattern dayPattern = java.util.regex.Pattern.compile("(\\d+)\\s*(?:日|天)");
-        java.util.regex.Matcher dayMatcher = dayPattern.matcher(serviceType.toLowerCase());
-        if (dayMatcher.find()) {
-            String dayNum = dayMatcher.group(1);
-            String[] dayKeyword = {dayNum + "日"};
-            log.info("尝试仅使用天数关键词匹配: {}", dayNum + "日");
-            List<GroupTourDTO> dayProducts = groupTourMapper.findByKeywords(dayKeyword);
-            if (!dayProducts.isEmpty()) {
-                if (dayProducts.size() == 1) {
-                    log.info("天数关键词匹配成功，找到唯一产品: {} (ID: {})", dayProducts.get(0).getName(), dayProducts.get(0).getId());
-                    return ProductMatchResult.uniqueMatch(dayProducts.get(0));
-                } else {
-                    log.info("天数关键词匹配找到 {} 个相似产品，需要用户选择", dayProducts.size());
-                    return ProductMatchResult.multipleOptions(dayProducts);
-                }
-            }
+        // 1. 本地索引匹配（名称、产品代码、天数、地区、主题）
+        List<ProductSearchIndex.ProductMatch> matches =
+                productSearchIndex.search(serviceType, ProductSearchIndex.ProductType.GROUP_TOUR, 5);
+        ProductSearchIndex.ProductMatch best = productSearchIndex.uniqueMatch(matches);
+        if (best != null) {
+            log.info("本地索引匹配成功: {} (ID: {}, 分数: {})", best.getName(), best.getId(), String.format("%.2f", best.getScore()));
+            return ProductMatchResult.uniqueMatch(best.getGroupTour());
+        }
+        if (!matches.isEmpty()) {
+            log.info("本地索引找到 {} 个相似产品，需要用户选择", matches.size());
+            return ProductMatchResult.multipleOptions(toGroupTours(matches));
         }
         
-        // 4. 最后尝试：让AI根据订单描述智能选择产品
-        log.info("前面的匹配方法都失败，尝试使用AI智能选择产品");
+        // 2. 本地匹配分数都低于阈值：让AI根据订单描述智能选择产品
+        log.info("本地索引未找到足够相似的产品，尝试使用AI智能选择产品");
         GroupTourDTO aiSelectedProduct = findProductByAI(serviceType);
         if (aiSelectedProduct != null) {
             log.info("AI智能选择成功: {} (ID: {})", aiSelectedProduct.getName(), aiSelectedProduct.getId());
@@ -769,20 +634,20 @@ public class ChatBotServiceImpl implements ChatBotService {
      */
     private GroupTourDTO findProductByAI(String serviceType) {
         // 如果Qwen未配置，直接返回null
-        if (qwenApiKey == null || qwenApiKey.isEmpty()) {
+        if (!qwenGateway.isConfigured()) {
             log.warn("Qwen API未配置，无法使用AI智能选择");
             return null;
         }
         
         try {
-            // 只获取在用户端显示的产品（show_on_user_site=1 AND is_active=1）
-            List<GroupTourDTO> displayedProducts = groupTourMapper.findAllDisplayedOnUserSite();
+            // 只使用在用户端显示的产品（show_on_user_site=1 AND is_active=1）
+            List<GroupTourDTO> displayedProducts = productSearchIndex.getDisplayedGroupTours();
             if (displayedProducts.isEmpty()) {
                 log.warn("没有找到任何在用户端显示的产品");
                 return null;
             }
             
-            log.info("从数据库获取到 {} 个在用户端显示的产品", displayedProducts.size());
+            log.info("产品检索索引中共有 {} 个在用户端显示的产品", displayedProducts.size());
             
             // 构建产品列表JSON
             StringBuilder productsJson = new StringBuilder();
@@ -842,175 +707,25 @@ public class ChatBotServiceImpl implements ChatBotService {
     }
     
     /**
-     * 查找相似产品
+     * 查找相似产品（与下单时展示给用户的候选列表保持一致）
      */
     private List<GroupTourDTO> findSimilarProducts(String serviceType) {
-        if (serviceType == null || serviceType.isEmpty()) {
-            return groupTourMapper.findAllActive();
-        }
-        
-        // 使用关键词搜索相似产品
-        String[] keywords = extractKeywords(serviceType);
-        if (keywords.length > 0) {
-            List<GroupTourDTO> products = groupTourMapper.findByKeywords(keywords);
-            if (!products.isEmpty()) {
-                return products;
-            }
+        List<ProductSearchIndex.ProductMatch> matches =
+                productSearchIndex.search(serviceType, ProductSearchIndex.ProductType.GROUP_TOUR, 5);
+        if (matches.size() > 1) {
+            return toGroupTours(matches);
         }
         
-        // 如果关键词搜索没有结果，返回所有活跃产品
-        return groupTourMapper.findAllActive();
+        // 没有多个候选时，下单时展示的是所有在用户端显示的产品
+        return productSearchIndex.getDisplayedGroupTours();
     }
     
-    /**
-     * 提取关键词（优化版 - 支持更灵活的模糊匹配）
-     */
-    private String[] extractKeywords(String serviceType) {
-        List<String> keywords = new ArrayList<>();
-        
-        // 先进行文本标准化
-        String normalizedText = normalizeText(serviceType);
-        String originalLower = serviceType.toLowerCase();
-        
-        // 地区关键词（同义词映射）
-        if (originalLower.contains("塔州") || originalLower.contains("塔斯马尼亚") || originalLower.contains("tasmania") || originalLower.contains("塔塔")) {
-            // 不添加塔斯马尼亚作为关键词，因为大部分产品都是塔斯马尼亚的
-        }
-        
-        // 方位关键词 - 重要：先判断"南北"，避免错误匹配
-        // 如果包含"南北"，只添加"南北"关键词，不添加"南部"或"北部"
-        if (originalLower.contains("南北")) {
-            keywords.add("南北");
-            log.info("识别到南北线路关键词");
-        } else {
-            // 只有不包含"南北"时，才判断"南部"或"北部"
-            if (originalLower.contains("南部") || (originalLower.contains("南") && !originalLower.contains("波诺朗"))) {
-                keywords.add("南部");
-            }
-            if (originalLower.contains("北部") || originalLower.contains("北")) {
-                keywords.add("北部");
-            }
-        }
-        
-        // 东西部关键词
-        if (originalLower.contains("东部") || (originalLower.contains("东") && !originalLower.contains("威灵顿"))) {
-            keywords.add("东部");
-        }
-        if (originalLower.contains("西部") || originalLower.contains("西")) {
-            keywords.add("西部");
-        }
-        
-        // 天数关键词（支持中文数字和阿拉伯数字）- 更灵活的匹配
-        // 使用正则表达式提取数字
-        java.util.regex.Pattern dayPattern = java.util.regex.Pattern.compile("(\\d+)\\s*(?:日|天)");
-        java.util.regex.Matcher dayMatcher = dayPattern.matcher(originalLower);
-        if (dayMatcher.find()) {
-            String dayNum = dayMatcher.group(1);
-            keywords.add(dayNum + "日");
-            log.info("提取到天数关键词: {}日", dayNum);
-        } else {
-            // 中文数字匹配
-            if (originalLower.contains("一日") || originalLower.contains("一天")) {
-                keywords.add("1日");
-            } else if (originalLower.contains("二日") || originalLower.contains("二天") || originalLower.contains("两日") || originalLower.contains("两天")) {
-                keywords.add("2日");
-            } else if (originalLower.contains("三日") || originalLower.contains("三天")) {
-                keywords.add("3日");
-            } else if (originalLower.contains("四日") || originalLower.contains("四天")) {
-                keywords.add("4日");
-            } else if (originalLower.contains("五日") || originalLower.contains("五天")) {
-                keywords.add("5日");
-            } else if (originalLower.contains("六日") || originalLower.contains("六天")) {
-                keywords.add("6日");
-            } else if (originalLower.contains("七日") || originalLower.contains("七天")) {
-                keywords.add("7日");
-            }
-        }
-        
-        // 特色关键词
-        if (originalLower.contains("环岛")) {
-            keywords.add("环岛");
-        }
-        if (originalLower.contains("精华")) {
-            keywords.add("精华");
-        }
-        if (originalLower.contains("全景")) {
-            keywords.add("全景");
-        }
-        if (originalLower.contains("精品")) {
-            keywords.add("精品");
-        }
-        if (originalLower.contains("小团")) {
-            keywords.add("小团");
-        }
-        
-        // 目的地关键词
-        if (originalLower.contains("霍巴特")) {
-            keywords.add("霍巴特");
-        }
-        if (originalLower.contains("朗塞") || originalLower.contains("朗赛")) {
-            keywords.add("朗塞");
-        }
-        if (originalLower.contains("布鲁尼")) {
-            keywords.add("布鲁尼");
-        }
-        if (originalLower.contains("亚瑟港")) {
-            keywords.add("亚瑟港");
-        }
-        if (originalLower.contains("酒杯湾")) {
-            keywords.add("酒杯湾");
-        }
-        if (originalLower.contains("摇篮山")) {
-            keywords.add("摇篮山");
-        }
-        if (originalLower.contains("费尔德")) {
-            keywords.add("费尔德");
-        }
-        if (originalLower.contains("塔斯曼")) {
-            keywords.add("塔斯曼");
-        }
-        if (originalLower.contains("波诺朗")) {
-            keywords.add("波诺朗");
+    private List<GroupTourDTO> toGroupTours(List<ProductSearchIndex.ProductMatch> matches) {
+        List<GroupTourDTO> products = new ArrayList<>(matches.size());
+        for (ProductSearchIndex.ProductMatch match : matches) {
+            products.add(match.getGroupTour());
         }
-        
-        // 如果没有提取到任何关键词，尝试直接使用产品名部分进行搜索
-        if (keywords.isEmpty()) {
-            // 去除常见的无意义词汇
-            String cleanedText = serviceType
-                .replace("服务类型：", "")
-                .replace("服务类型:", "")
-                .replace("跟团游", "")
-                .replace("跟团", "")
-                .replace("团游", "")
-                .replaceAll("\\s+", "");
-            if (!cleanedText.isEmpty() && cleanedText.length() >= 2) {
-                keywords.add(cleanedText);
-            }
-        }
-        
-        log.info("原始服务类型: {}, 提取的关键词: {}", serviceType, keywords);
-        return keywords.toArray(new String[0]);
-    }
-    
-    /**
-     * 文本标准化
-     */
-    private String normalizeText(String text) {
-        if (text == null) return "";
-        
-        // 转换为小写并去除空格
-        String normalized = text.toLowerCase().replaceAll("\\s+", "");
-        
-        // 同义词替换
-        normalized = normalized
-            .replace("塔州", "塔斯马尼亚")
-            .replace("tasmania", "塔斯马尼亚")
-            .replace("跟团游", "")
-            .replace("跟团", "")
-            .replace("团游", "")
-            .replace("游", "");
-            
-        return normalized;
+        return products;
     }
     
     /**
@@ -1736,13 +1451,11 @@ public class ChatBotServiceImpl implements ChatBotService {
      */
     private String handleProductDetailQuery(ChatRequest request, String message) {
         try {
-            String productName = extractProductNameFromMessage(message);
-            
-            if (productName != null) {
-                GroupTourDTO groupTour = groupTourMapper.findByNameLike(productName);
-                if (groupTour != null) {
-                    return getProductDetailInfo(groupTour);
-                }
+            List<ProductSearchIndex.ProductMatch> matches =
+                    productSearchIndex.search(message, ProductSearchIndex.ProductType.GROUP_TOUR, 2);
+            ProductSearchIndex.ProductMatch best = productSearchIndex.uniqueMatch(matches);
+            if (best != null) {
+                return getProductDetailInfo(best.getGroupTour());
             }
             
             return "请告诉我您想了解哪个具体产品的详情？比如'塔斯马尼亚南部4日游的详细行程'";
@@ -1898,23 +1611,6 @@ public class ChatBotServiceImpl implements ChatBotService {
                "3. 如有其他需求，请联系客服";
     }
     
-    /**
-     * 从消息中提取产品名称
-     */
-    private String extractProductNameFromMessage(String message) {
-        // 简单的关键词匹配，实际可以更复杂
-        String[] commonProducts = {"塔斯马尼亚南部4日游", "塔斯马尼亚北部3日游", "霍巴特一日游", "摇篮山一日游", 
-                                  "威灵顿山", "朗塞斯顿", "德文港"};
-        
-        for (String product : commonProducts) {
-            if (message.contains(product)) {
-                return product;
-            }
-        }
-        
-        return null;
-    }
-    
     /**
      * 处理一般性智能对话
      */
@@ -2127,42 +1823,15 @@ public class ChatBotServiceImpl implements ChatBotService {
     }
     
     /**
-     * 从FAQ数据库中搜索匹配的答案
+     * 从FAQ索引中搜索匹配的答案（内存索引，不访问数据库）
      */
     private String searchFAQAnswer(String question) {
         try {
-            // 从数据库获取所有FAQ
-            List<com.sky.entity.DayTourFaq> faqs = dayTourFaqMapper.findAll();
-            
-            if (faqs == null || faqs.isEmpty()) {
-                return null;
+            com.sky.entity.DayTourFaq faq = faqIndex.findBest(question);
+            if (faq != null) {
+                log.info("FAQ匹配成功: {} -> {}", question, faq.getQuestion());
+                return formatFAQAnswer(faq);
             }
-            
-            String lowerQuestion = question.toLowerCase();
-            
-            // 简单的关键词匹配算法
-            for (com.sky.entity.DayTourFaq faq : faqs) {
-                if (faq.getQuestion() != null && faq.getAnswer() != null) {
-                    String lowerFaqQuestion = faq.getQuestion().toLowerCase();
-                    
-                    // 检查是否包含关键词匹配
-                    if (isQuestionMatch(lowerQuestion, lowerFaqQuestion)) {
-                        log.info("FAQ匹配成功: {} -> {}", question, faq.getQuestion());
-                        return formatFAQAnswer(faq);
-                    }
-                }
-            }
-            
-            // 如果没有直接匹配，尝试关键词匹配
-            for (com.sky.entity.DayTourFaq faq : faqs) {
-                if (faq.getQuestion() != null && faq.getAnswer() != null) {
-                    if (hasCommonKeywords(lowerQuestion, faq.getQuestion().toLowerCase())) {
-                        log.info("FAQ关键词匹配成功: {} -> {}", question, faq.getQuestion());
-                        return formatFAQAnswer(faq);
-                    }
-                }
-            }
-            
         } catch (Exception e) {
             log.error("搜索FAQ失败: {}", e.getMessage(), e);
         }
@@ -2170,57 +1839,6 @@ public class ChatBotServiceImpl implements ChatBotService {
         return null;
     }
     
-    /**
-     * 检查问题是否匹配
-     */
-    private boolean isQuestionMatch(String userQuestion, String faqQuestion) {
-        // 去除标点符号和多余空格
-        String cleanUserQuestion = userQuestion.replaceAll("[\\p{Punct}\\s]+", "");
-        String cleanFaqQuestion = faqQuestion.replaceAll("[\\p{Punct}\\s]+", "");
-        
-        // 完全匹配或包含匹配
-        if (cleanUserQuestion.equals(cleanFaqQuestion) || 
-            cleanUserQuestion.contains(cleanFaqQuestion) ||
-            cleanFaqQuestion.contains(cleanUserQuestion)) {
-            return true;
-        }
-        
-        // 计算相似度（简单的字符包含比例）
-        int matchingChars = 0;
-        int minLength = Math.min(cleanUserQuestion.length(), cleanFaqQuestion.length());
-        
-        for (int i = 0; i < minLength; i++) {
-            if (i < cleanUserQuestion.length() && i < cleanFaqQuestion.length() &&
-                cleanUserQuestion.charAt(i) == cleanFaqQuestion.charAt(i)) {
-                matchingChars++;
-            }
-        }
-        
-        // 如果相似度大于60%，认为匹配
-        return (double) matchingChars / minLength > 0.6;
-    }
-    
-    /**
-     * 检查是否有共同关键词
-     */
-    private boolean hasCommonKeywords(String userQuestion, String faqQuestion) {
-        // 定义关键词列表
-        String[] keywords = {"价格", "费用", "多少钱", "时间", "几点", "什么时候", "天气", "气候", 
-                           "景点", "地方", "推荐", "好玩", "美食", "吃", "住宿", "酒店", "交通", 
-                           "接送", "航班", "行程", "几天", "一日游", "跟团", "预订", "取消", 
-                           "退款", "优惠", "折扣", "包含", "不含", "儿童", "老人", "团费"};
-        
-        int commonCount = 0;
-        for (String keyword : keywords) {
-            if (userQuestion.contains(keyword) && faqQuestion.contains(keyword)) {
-                commonCount++;
-            }
-        }
-        
-        // 如果有2个或以上共同关键词，认为相关
-        return commonCount >= 2;
-    }
-    
     /**
      * 格式化FAQ答案
      */
@@ -2371,7 +1989,7 @@ public class ChatBotServiceImpl implements ChatBotService {
      */
     private OrderInfo parseOrderInfoWithAI(String message) {
         // 如果Qwen未配置，回退到传统方法
-        if (qwenApiKey == null || qwenApiKey.isEmpty()) {
+        if (!qwenGateway.isConfigured()) {
             return parseOrderInfoTraditional(message);
         }
         
@@ -6,17 +6,33 @@ import com.sky.vo.DashboardOverviewVO;
 import com.sky.vo.ProductStatisticsVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * 仪表盘数据服务实现类
+ * 订单、营业额和新增用户/代理商数据读取营业数据日汇总表（见 BusinessRollupService），查询成本只与日期范围有关。
+ * 概览数据由多个互不依赖的子查询在有界线程池中并行计算，结果作为一个快照缓存：
+ * 快照过期后先返回旧快照并在后台刷新（stale-while-revalidate），同一时间只有一次刷新，并发访问共享同一次计算。
  */
 @Service
 @Slf4j
@@ -38,6 +54,9 @@ public class DashboardServiceImpl implements DashboardService {
     @Autowired
     private TourBookingMapper tourBookingMapper;
 
+    @Autowired
+    private BusinessRollupMapper businessRollupMapper;
+
     @Autowired
     private UserMapper userMapper;
 
@@ -56,38 +75,155 @@ public class DashboardServiceImpl implements DashboardService {
     @Autowired
     private EmployeeMapper employeeMapper;
 
+    /**
+     * 概览快照的新鲜期，过期后返回旧快照并在后台刷新
+     */
+    @Value("${sky.dashboard.overview.ttl-ms:30000}")
+    private long overviewTtlMillis;
+
+    /**
+     * 旧快照最多可用多久，超过后请求等待刷新完成
+     */
+    @Value("${sky.dashboard.overview.max-stale-ms:600000}")
+    private long overviewMaxStaleMillis;
+
+    @Value("${sky.dashboard.overview.threads:4}")
+    private int overviewThreads;
+
+    /**
+     * 执行子查询的有界线程池；队列满时由提交线程（刷新线程）自己执行
+     */
+    private ThreadPoolExecutor queryExecutor;
+
+    /**
+     * 汇总子查询结果的刷新线程，与子查询线程池分开，避免等待子查询时占满线程池
+     */
+    private ExecutorService refreshExecutor;
+
+    private volatile OverviewSnapshot overviewSnapshot;
+    private final AtomicReference<CompletableFuture<DashboardOverviewVO>> overviewRefresh = new AtomicReference<>();
+
+    @PostConstruct
+    public void initExecutors() {
+        AtomicInteger counter = new AtomicInteger();
+        queryExecutor = new ThreadPoolExecutor(overviewThreads, overviewThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(32), r -> {
+                    Thread thread = new Thread(r, "dashboard-query-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        queryExecutor.allowCoreThreadTimeOut(true);
+        refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "dashboard-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdownExecutors() {
+        refreshExecutor.shutdownNow();
+        queryExecutor.shutdownNow();
+    }
+
     /**
      * 获取仪表盘概览数据
+     * 快照新鲜时直接返回；过期但未超过最大可用时长时返回旧快照并触发后台刷新；没有可用快照时等待刷新完成
      */
     @Override
     public DashboardOverviewVO getOverviewData() {
-        log.info("获取仪表盘概览数据");
+        OverviewSnapshot snapshot = overviewSnapshot;
+        long age = snapshot != null ? System.currentTimeMillis() - snapshot.computedAt : Long.MAX_VALUE;
+        if (age < overviewTtlMillis) {
+            return snapshot.data;
+        }
+        CompletableFuture<DashboardOverviewVO> refresh = refreshOverview();
+        if (age < overviewMaxStaleMillis) {
+            log.debug("仪表盘概览快照已过期{}ms，返回旧快照并在后台刷新", age);
+            return snapshot.data;
+        }
+        log.info("获取仪表盘概览数据（无可用快照，等待计算）");
+        try {
+            return refresh.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 触发一次概览刷新；已有刷新进行中时返回同一个结果，并发请求共享一次计算
+     */
+    private CompletableFuture<DashboardOverviewVO> refreshOverview() {
+        CompletableFuture<DashboardOverviewVO> existing = overviewRefresh.get();
+        if (existing != null) {
+            return existing;
+        }
+        CompletableFuture<DashboardOverviewVO> future = new CompletableFuture<>();
+        if (!overviewRefresh.compareAndSet(null, future)) {
+            return overviewRefresh.get();
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                long start = System.currentTimeMillis();
+                try {
+                    DashboardOverviewVO data = computeOverviewData();
+                    overviewSnapshot = new OverviewSnapshot(data, System.currentTimeMillis());
+                    log.info("仪表盘概览数据已刷新，耗时{}ms", System.currentTimeMillis() - start);
+                    future.complete(data);
+                } catch (Throwable e) {
+                    log.error("仪表盘概览数据刷新失败: {}", e.getMessage(), e);
+                    future.completeExceptionally(e);
+                } finally {
+                    overviewRefresh.compareAndSet(future, null);
+                }
+            });
+        } catch (RuntimeException e) {
+            overviewRefresh.compareAndSet(future, null);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
 
+    /**
+     * 并行计算概览数据：各子查询互不依赖，全部完成后组装
+     */
+    private DashboardOverviewVO computeOverviewData() {
         LocalDate today = LocalDate.now();
         LocalDate monthStart = today.withDayOfMonth(1);
         LocalDate lastMonthStart = monthStart.minusMonths(1);
         LocalDate lastMonthEnd = monthStart.minusDays(1);
 
         // 今日数据
-        Map<String, Object> todayData = getTodayData(today);
-        
+        CompletableFuture<Map<String, Object>> todayFuture = query(() -> getTodayData(today));
         // 本月数据
-        Map<String, Object> monthData = getMonthData(monthStart, today);
-        
+        CompletableFuture<Map<String, Object>> monthFuture = query(() -> getMonthData(monthStart, today));
         // 上月数据（用于计算增长率）
-        Map<String, Object> lastMonthData = getMonthData(lastMonthStart, lastMonthEnd);
-
+        CompletableFuture<Map<String, Object>> lastMonthFuture = query(() -> getMonthData(lastMonthStart, lastMonthEnd));
         // 订单状态统计
-        Map<String, Integer> orderStatus = getOrderStatusDistribution();
-
+        CompletableFuture<Map<String, Integer>> orderStatusFuture = query(this::getOrderStatusDistribution);
         // 产品统计
-        Map<String, Object> productStats = getProductStats();
-
+        CompletableFuture<Map<String, Object>> productStatsFuture = query(this::getProductStats);
         // 用户和代理商统计
-        Map<String, Object> userStats = getUserStats();
-
+        CompletableFuture<Map<String, Object>> userStatsFuture = query(this::getUserStats);
         // 资源统计
-        Map<String, Object> resourceStats = getResourceStats();
+        CompletableFuture<Map<String, Object>> resourceStatsFuture = query(this::getResourceStats);
+        // 热门产品信息
+        CompletableFuture<Map<String, Object>> popularTourFuture = query(this::getMostPopularTour);
+        // 7天趋势数据
+        CompletableFuture<Map<String, Object>> trendDataFuture = query(this::getSevenDaysTrendData);
+
+        Map<String, Object> todayData = todayFuture.join();
+        Map<String, Object> monthData = monthFuture.join();
+        Map<String, Object> lastMonthData = lastMonthFuture.join();
+        Map<String, Integer> orderStatus = orderStatusFuture.join();
+        Map<String, Object> productStats = productStatsFuture.join();
+        Map<String, Object> userStats = userStatsFuture.join();
+        Map<String, Object> resourceStats = resourceStatsFuture.join();
+        Map<String, Object> popularTour = popularTourFuture.join();
+        Map<String, Object> trendData = trendDataFuture.join();
 
         // 计算增长率
         BigDecimal revenueGrowthRate = calculateGrowthRate(
@@ -105,12 +241,6 @@ public class DashboardServiceImpl implements DashboardService {
             BigDecimal.valueOf(safeToInteger(lastMonthData.get("newUsers")))
         );
 
-        // 热门产品信息
-        Map<String, Object> popularTour = getMostPopularTour();
-
-        // 7天趋势数据
-        Map<String, Object> trendData = getSevenDaysTrendData();
-
         return DashboardOverviewVO.builder()
                 .todayRevenue((BigDecimal) todayData.get("revenue"))
                 .todayOrders(safeToInteger(todayData.get("orders")))
@@ -194,7 +324,7 @@ public class DashboardServiceImpl implements DashboardService {
         Map<String, Object> result = new HashMap<>();
         
         // 查询订单数据
-        List<Map<String, Object>> orderData = tourBookingMapper.getBusinessDataByDateRange(begin, end);
+        List<Map<String, Object>> orderData = businessRollupMapper.getDailyBusinessData(begin, end);
         
         BigDecimal totalRevenue = BigDecimal.ZERO;
         int totalOrders = 0;
@@ -227,8 +357,18 @@ public class DashboardServiceImpl implements DashboardService {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(6);
         
-        List<Map<String, Object>> dailyData = tourBookingMapper.getBusinessDataByDateRange(startDate, endDate);
-        List<Map<String, Object>> userRegistrationData = userMapper.getUserRegistrationByDateRange(startDate, endDate);
+        List<Map<String, Object>> dailyData = businessRollupMapper.getDailyBusinessData(startDate, endDate);
+        List<Map<String, Object>> userRegistrationData = businessRollupMapper.getDailyRegistrations(startDate, endDate);
+        
+        // 按日期（yyyy-MM-dd）索引
+        Map<String, Map<String, Object>> ordersByDate = new HashMap<>();
+        for (Map<String, Object> data : dailyData) {
+            ordersByDate.put(String.valueOf(data.get("date")), data);
+        }
+        Map<String, Map<String, Object>> usersByDate = new HashMap<>();
+        for (Map<String, Object> data : userRegistrationData) {
+            usersByDate.put(String.valueOf(data.get("date")), data);
+        }
         
         // 构建7天的完整数据
         List<String> dates = new ArrayList<>();
@@ -241,19 +381,12 @@ public class DashboardServiceImpl implements DashboardService {
             dates.add(date.toString());
             
             // 查找对应日期的数据
-            Map<String, Object> dayOrderData = dailyData.stream()
-                .filter(data -> date.equals(data.get("date")))
-                .findFirst()
-                .orElse(new HashMap<>());
-                
-            Map<String, Object> dayUserData = userRegistrationData.stream()
-                .filter(data -> date.equals(data.get("date")))
-                .findFirst()
-                .orElse(new HashMap<>());
+            Map<String, Object> dayOrderData = ordersByDate.getOrDefault(date.toString(), Collections.emptyMap());
+            Map<String, Object> dayUserData = usersByDate.getOrDefault(date.toString(), Collections.emptyMap());
             
             revenues.add((BigDecimal) dayOrderData.getOrDefault("revenue", BigDecimal.ZERO));
-            orders.add((Integer) dayOrderData.getOrDefault("orders", 0));
-            newUsers.add((Integer) dayUserData.getOrDefault("newUsers", 0));
+            orders.add(safeToInteger(dayOrderData.get("orders")));
+            newUsers.add(safeToInteger(dayUserData.get("newUsers")));
         }
         
         Map<String, Object> result = new HashMap<>();
@@ -276,7 +409,7 @@ public class DashboardServiceImpl implements DashboardService {
     @Override
     public Map<String, Integer> getOrderStatusDistribution() {
         log.info("获取订单状态分布数据");
-        Map<String, Object> rawData = tourBookingMapper.getOrderStatusDistribution();
+        Map<String, Object> rawData = businessRollupMapper.getOrderStatusDistribution();
         
         // 安全转换所有的数值类型为Integer
         Map<String, Integer> result = new HashMap<>();
@@ -317,14 +450,15 @@ public class DashboardServiceImpl implements DashboardService {
 
     // 私有辅助方法
 
+    private <T> CompletableFuture<T> query(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, queryExecutor);
+    }
+
     private Map<String, Object> getTodayData(LocalDate today) {
         Map<String, Object> result = new HashMap<>();
         
-        LocalDateTime startOfDay = today.atStartOfDay();
-        LocalDateTime endOfDay = today.plusDays(1).atStartOfDay();
-        
-        Map<String, Object> orderData = tourBookingMapper.getOrderDataByDateRange(startOfDay, endOfDay);
-        Integer newUsers = userMapper.getNewUsersByDateRange(startOfDay, endOfDay);
+        Map<String, Object> orderData = businessRollupMapper.getRangeSummary(today, today);
+        Integer newUsers = safeToInteger(businessRollupMapper.getRegistrationSummary(today, today).get("newUsers"));
         
         BigDecimal revenue = (BigDecimal) orderData.getOrDefault("totalRevenue", BigDecimal.ZERO);
         // 使用安全转换方法处理MySQL COUNT()返回的Long类型
@@ -342,12 +476,10 @@ public class DashboardServiceImpl implements DashboardService {
     private Map<String, Object> getMonthData(LocalDate start, LocalDate end) {
         Map<String, Object> result = new HashMap<>();
         
-        LocalDateTime startOfMonth = start.atStartOfDay();
-        LocalDateTime endOfMonth = end.plusDays(1).atStartOfDay();
-        
-        Map<String, Object> orderData = tourBookingMapper.getOrderDataByDateRange(startOfMonth, endOfMonth);
-        Integer newUsers = userMapper.getNewUsersByDateRange(startOfMonth, endOfMonth);
-        Integer newAgents = agentMapper.getNewAgentsByDateRange(startOfMonth, endOfMonth);
+        Map<String, Object> orderData = businessRollupMapper.getRangeSummary(start, end);
+        Map<String, Object> registrations = businessRollupMapper.getRegistrationSummary(start, end);
+        Integer newUsers = safeToInteger(registrations.get("newUsers"));
+        Integer newAgents = safeToInteger(registrations.get("newAgents"));
         
         result.put("revenue", orderData.getOrDefault("totalRevenue", BigDecimal.ZERO));
         result.put("orders", orderData.getOrDefault("totalOrders", 0));
@@ -423,8 +555,8 @@ public class DashboardServiceImpl implements DashboardService {
     private Map<String, Object> getProductSalesData() {
         Map<String, Object> result = new HashMap<>();
         
-        Map<String, Object> dayTourSales = tourBookingMapper.getSalesByTourType("day_tour");
-        Map<String, Object> groupTourSales = tourBookingMapper.getSalesByTourType("group_tour");
+        Map<String, Object> dayTourSales = businessRollupMapper.getSalesByTourType("day_tour");
+        Map<String, Object> groupTourSales = businessRollupMapper.getSalesByTourType("group_tour");
         
         result.put("dayTourRevenue", dayTourSales.getOrDefault("revenue", BigDecimal.ZERO));
         result.put("groupTourRevenue", groupTourSales.getOrDefault("revenue", BigDecimal.ZERO));
@@ -472,4 +604,17 @@ public class DashboardServiceImpl implements DashboardService {
                 .build())
             .collect(Collectors.toList());
     }
+
+    /**
+     * 概览数据快照
+     */
+    private static final class OverviewSnapshot {
+        final DashboardOverviewVO data;
+        final long computedAt;
+
+        OverviewSnapshot(DashboardOverviewVO data, long computedAt) {
+            this.data = data;
+            this.computedAt = computedAt;
+        }
+    }
 }
\ No newline at end of file
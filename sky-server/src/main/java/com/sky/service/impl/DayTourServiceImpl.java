@@ -1,7 +1,11 @@
 package com.sky.service.impl;
 
+import com.alibaba.fastjson.JSON;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.sky.cache.TwoTierCache;
+import com.sky.cache.TwoTierCacheManager;
+import com.sky.chatbot.FaqIndex;
 import com.sky.dto.DayTourDTO;
 import com.sky.dto.DayTourPageQueryDTO;
 import com.sky.entity.*;
@@ -11,11 +15,16 @@ import com.sky.service.DayTourService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +53,9 @@ public class DayTourServiceImpl implements DayTourService {
     
     @Autowired
     private DayTourFaqMapper dayTourFaqMapper;
+
+    @Autowired
+    private FaqIndex faqIndex;
     
     @Autowired
     private DayTourItineraryMapper dayTourItineraryMapper;
@@ -63,6 +75,33 @@ public class DayTourServiceImpl implements DayTourService {
     @Autowired
     private DayTourImageMapper dayTourImageMapper;
 
+    @Autowired
+    private ProductAggregateMapper productAggregateMapper;
+
+    @Autowired
+    private TwoTierCacheManager twoTierCacheManager;
+
+    @Value("${sky.cache.product-detail.max-size:1000}")
+    private int detailCacheMaxSize;
+
+    @Value("${sky.cache.product-detail.local-ttl-seconds:600}")
+    private long detailCacheLocalTtlSeconds;
+
+    @Value("${sky.cache.product-detail.redis-ttl-seconds:3600}")
+    private long detailCacheRedisTtlSeconds;
+
+    /**
+     * 一日游详情（含全部子表），key: 一日游ID，值为null表示一日游不存在
+     * 由 ProductCacheAspect 在一日游及其子表修改后整体清除
+     */
+    private TwoTierCache<DayTourDTO> detailCache;
+
+    @PostConstruct
+    public void initCaches() {
+        detailCache = twoTierCacheManager.create("dayTourDetails", DayTourDTO.class, detailCacheMaxSize,
+                Duration.ofSeconds(detailCacheLocalTtlSeconds), Duration.ofSeconds(detailCacheRedisTtlSeconds));
+    }
+
     /**
      * 分页查询
      */
@@ -220,6 +259,7 @@ public class DayTourServiceImpl implements DayTourService {
         
         // 删除常见问题
         dayTourFaqMapper.deleteByDayTourId(id);
+        faqIndex.removeByDayTourId(id);
         
         // 删除行程
         dayTourItineraryMapper.deleteByDayTourId(id);
@@ -336,6 +376,7 @@ public class DayTourServiceImpl implements DayTourService {
     @Override
     public void saveFaq(DayTourFaq dayTourFaq) {
         dayTourFaqMapper.insert(dayTourFaq);
+        faqIndex.put(dayTourFaq);
     }
 
     /**
@@ -344,6 +385,7 @@ public class DayTourServiceImpl implements DayTourService {
     @Override
     public void deleteFaq(Integer id) {
         dayTourFaqMapper.deleteById(id);
+        faqIndex.remove(id);
     }
 
     /**
@@ -469,308 +511,185 @@ public class DayTourServiceImpl implements DayTourService {
      */
     @Override
     public DayTourDTO getDayTourById(Integer id) {
-        log.info("====== 开始查询一日游详情，ID：{} ======", id);
-        
-        // 1. 获取基础信息
-        log.info("1. 准备查询基础信息, SQL: select * from day_tours where day_tour_id = {}", id);
+        DayTourDTO dayTourDTO = detailCache.get(String.valueOf(id), () -> loadDayTourDetail(id));
+        if (dayTourDTO == null) {
+            log.error("未找到ID为{}的一日游信息", id);
+            return null;
+        }
+        return copyOf(dayTourDTO);
+    }
+
+    /**
+     * 清除一日游详情缓存
+     */
+    @Override
+    public void evictCaches() {
+        detailCache.evictAll();
+    }
+
+    /**
+     * 加载一日游详情：基本信息一次查询，全部子表一次聚合查询
+     */
+    private DayTourDTO loadDayTourDetail(Integer id) {
         DayTour dayTour = getById(id);
         if (dayTour == null) {
-            log.error("未找到ID为{}的一日游信息", id);
             return null;
         }
-        
-        log.info("查询到一日游基本信息：ID={}, 名称={}, 价格={}", dayTour.getDayTourId(), dayTour.getName(), dayTour.getPrice());
-        
+
         DayTourDTO dayTourDTO = new DayTourDTO();
         BeanUtils.copyProperties(dayTour, dayTourDTO);
-        
-        // 确保ID字段的一致性 - 非常重要
+
+        // 确保ID字段的一致性
         if (dayTourDTO.getId() == null) {
             dayTourDTO.setId(dayTour.getDayTourId());
-            log.info("设置id=dayTourId：{}", dayTour.getDayTourId());
         }
         if (dayTourDTO.getDayTourId() == null) {
             dayTourDTO.setDayTourId(dayTour.getDayTourId());
-            log.info("设置dayTourId=id：{}", dayTour.getDayTourId());
         }
-        
-        log.info("拷贝完基本属性后的DTO：dayTourId={}, id={}", dayTourDTO.getDayTourId(), dayTourDTO.getId());
-        
-        // 确保图片字段的正确设置
         if (dayTour.getImageUrl() != null) {
-            dayTourDTO.setImageUrl(dayTour.getImageUrl());
             dayTourDTO.setCoverImage(dayTour.getImageUrl());
-            log.info("设置图片URL：{}", dayTour.getImageUrl());
-        }
-        
-        // 设置Banner图片
-        if (dayTour.getBannerImage() != null) {
-            dayTourDTO.setBannerImage(dayTour.getBannerImage());
-            log.info("设置Banner图片URL：{}", dayTour.getBannerImage());
-        }
-        
-        // 设置地区名称
-        if (dayTour.getRegionName() != null) {
-            dayTourDTO.setRegionName(dayTour.getRegionName());
-            log.info("设置地区名称：{}", dayTour.getRegionName());
-        }
-        
-        // 查询亮点
-        try {
-            // 确保使用正确的ID查询
-            Integer dayTourId = dayTour.getDayTourId();
-            log.info("2. 准备查询亮点, SQL: select * from day_tour_highlights where day_tour_id = {}", dayTourId);
-            List<DayTourHighlight> highlightList = dayTourHighlightMapper.getByDayTourId(dayTourId);
-            log.info("查询到亮点数量：{}", highlightList != null ? highlightList.size() : 0);
-            
-            if (highlightList == null) {
-                log.warn("亮点查询结果为null, 检查SQL: select id, day_tour_id as dayTourId, description, position from day_tour_highlights where day_tour_id = {}", dayTourId);
-                dayTourDTO.setHighlights(new ArrayList<>());
-            } else if (highlightList.isEmpty()) {
-                log.warn("未查询到ID={}的一日游亮点，检查数据表是否有对应记录", dayTourId);
-                dayTourDTO.setHighlights(new ArrayList<>());
-            } else {
-                List<String> highlights = new ArrayList<>();
-                for (DayTourHighlight highlight : highlightList) {
-                    highlights.add(highlight.getDescription());
-                    log.info("亮点: {}", highlight.getDescription());
-                }
-                dayTourDTO.setHighlights(highlights);
-            }
-        } catch (Exception e) {
-            log.error("查询一日游亮点失败，id={}，错误：{}", id, e.getMessage(), e);
-            dayTourDTO.setHighlights(new ArrayList<>());
-        }
-        
-        // 查询包含项
-        try {
-            // 确保使用正确的ID查询
-            Integer dayTourId = dayTour.getDayTourId();
-            log.info("3. 准备查询包含项, SQL: select * from day_tour_inclusions where day_tour_id = {}", dayTourId);
-            List<DayTourInclusion> inclusionList = dayTourInclusionMapper.getByDayTourId(dayTourId);
-            log.info("查询到包含项数量：{}", inclusionList != null ? inclusionList.size() : 0);
-            
-            if (inclusionList == null) {
-                log.warn("包含项查询结果为null, 检查SQL: select id, day_tour_id as dayTourId, description, position from day_tour_inclusions where day_tour_id = {}", dayTourId);
-                dayTourDTO.setInclusions(new ArrayList<>());
-            } else if (inclusionList.isEmpty()) {
-                log.warn("未查询到ID={}的一日游包含项，检查数据表是否有对应记录", dayTourId);
-                dayTourDTO.setInclusions(new ArrayList<>());
-            } else {
-                List<String> inclusions = new ArrayList<>();
-                for (DayTourInclusion inclusion : inclusionList) {
-                    inclusions.add(inclusion.getDescription());
-                    log.info("包含项: {}", inclusion.getDescription());
-                }
-                dayTourDTO.setInclusions(inclusions);
-            }
-        } catch (Exception e) {
-            log.error("查询一日游包含项失败，id={}，错误：{}", id, e.getMessage(), e);
-            dayTourDTO.setInclusions(new ArrayList<>());
-        }
-        
-        // 查询不包含项
-        try {
-            // 确保使用正确的ID查询
-            Integer dayTourId = dayTour.getDayTourId();
-            log.info("4. 准备查询不包含项, SQL: select * from day_tour_exclusions where day_tour_id = {}", dayTourId);
-            List<DayTourExclusion> exclusionList = dayTourExclusionMapper.getByDayTourId(dayTourId);
-            log.info("查询到不包含项数量：{}", exclusionList != null ? exclusionList.size() : 0);
-            
-            if (exclusionList == null) {
-                log.warn("不包含项查询结果为null, 检查SQL: select id, day_tour_id as dayTourId, description, position from day_tour_exclusions where day_tour_id = {}", dayTourId);
-                dayTourDTO.setExclusions(new ArrayList<>());
-            } else if (exclusionList.isEmpty()) {
-                log.warn("未查询到ID={}的一日游不包含项，检查数据表是否有对应记录", dayTourId);
-                dayTourDTO.setExclusions(new ArrayList<>());
-            } else {
-                List<String> exclusions = new ArrayList<>();
-                for (DayTourExclusion exclusion : exclusionList) {
-                    exclusions.add(exclusion.getDescription());
-                    log.info("不包含项: {}", exclusion.getDescription());
-                }
-                dayTourDTO.setExclusions(exclusions);
-            }
-        } catch (Exception e) {
-            log.error("查询一日游不包含项失败，id={}，错误：{}", id, e.getMessage(), e);
-            dayTourDTO.setExclusions(new ArrayList<>());
         }
-        
-        // 查询常见问题
-        try {
-            // 确保使用正确的ID查询
-            Integer dayTourId = dayTour.getDayTourId();
-            List<DayTourFaq> faqList = dayTourFaqMapper.getByDayTourId(dayTourId);
-            log.info("查询到常见问题数量：{}", faqList != null ? faqList.size() : 0);
-            if (faqList != null && !faqList.isEmpty()) {
-                List<Map<String, Object>> faqs = new ArrayList<>();
-                for (DayTourFaq faq : faqList) {
-                    Map<String, Object> map = new HashMap<>();
-                    map.put("question", faq.getQuestion());
-                    map.put("answer", faq.getAnswer());
-                    faqs.add(map);
-                }
-                dayTourDTO.setFaqs(faqs);
-            } else {
-                log.warn("未查询到ID={}的一日游常见问题", dayTourId);
-                // 创建空列表以确保返回值不为null
-                dayTourDTO.setFaqs(new ArrayList<>());
-            }
-        } catch (Exception e) {
-            log.error("查询一日游常见问题失败，id={}，错误：{}", id, e.getMessage(), e);
-            dayTourDTO.setFaqs(new ArrayList<>());
+
+        Integer dayTourId = dayTour.getDayTourId();
+        Map<String, List<Map<String, Object>>> children = ProductAggregateMapper.groupByProduct(
+                productAggregateMapper.getDayTourChildren(Collections.singletonList(dayTourId)))
+                .getOrDefault(dayTourId, Collections.emptyMap());
+
+        dayTourDTO.setHighlights(childNames(children, ProductAggregateMapper.HIGHLIGHT));
+        dayTourDTO.setInclusions(childNames(children, ProductAggregateMapper.INCLUSION));
+        dayTourDTO.setExclusions(childNames(children, ProductAggregateMapper.EXCLUSION));
+        dayTourDTO.setTips(childNames(children, ProductAggregateMapper.TIP));
+
+        // 常见问题
+        List<Map<String, Object>> faqs = new ArrayList<>();
+        for (Map<String, Object> row : sortedChildRows(children, ProductAggregateMapper.FAQ, false)) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("question", row.get("name"));
+            map.put("answer", row.get("detail"));
+            faqs.add(map);
         }
-        
-        // 查询旅行提示
-        try {
-            // 确保使用正确的ID查询
-            Integer dayTourId = dayTour.getDayTourId();
-            List<DayTourTip> tipList = dayTourTipMapper.getByDayTourId(dayTourId);
-            log.info("查询到旅行提示数量：{}", tipList != null ? tipList.size() : 0);
-            if (tipList != null && !tipList.isEmpty()) {
-                List<String> tips = new ArrayList<>();
-                for (DayTourTip tip : tipList) {
-                    tips.add(tip.getDescription());
-                }
-                dayTourDTO.setTips(tips);
-            } else {
-                log.warn("未查询到ID={}的一日游旅行提示", dayTourId);
-                // 创建空列表以确保返回值不为null
-                dayTourDTO.setTips(new ArrayList<>());
-            }
-        } catch (Exception e) {
-            log.error("查询一日游旅行提示失败，id={}，错误：{}", id, e.getMessage(), e);
-            dayTourDTO.setTips(new ArrayList<>());
+        dayTourDTO.setFaqs(faqs);
+
+        // 行程安排
+        List<Map<String, Object>> itinerary = new ArrayList<>();
+        for (Map<String, Object> row : sortedChildRows(children, ProductAggregateMapper.ITINERARY, false)) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("time_slot", row.get("extra"));
+            map.put("activity", row.get("name"));
+            map.put("location", row.get("extra2"));
+            map.put("description", row.get("detail"));
+            map.put("day_number", 1); // 一日游固定为第1天
+            itinerary.add(map);
         }
-        
-        // 查询行程安排
-        try {
-            // 确保使用正确的ID查询
-            Integer dayTourId = dayTour.getDayTourId();
-            List<DayTourItinerary> itineraryList = dayTourItineraryMapper.getByDayTourId(dayTourId);
-            log.info("查询到行程安排数量：{}", itineraryList != null ? itineraryList.size() : 0);
-            if (itineraryList != null && !itineraryList.isEmpty()) {
-                List<Map<String, Object>> itinerary = new ArrayList<>();
-                for (DayTourItinerary item : itineraryList) {
-                    Map<String, Object> map = new HashMap<>();
-                    map.put("time_slot", item.getTimeSlot());
-                    map.put("activity", item.getActivity());
-                    map.put("location", item.getLocation());
-                    map.put("description", item.getDescription());
-                    map.put("day_number", 1); // 一日游固定为第1天
-                    itinerary.add(map);
-                }
-                dayTourDTO.setItinerary(itinerary);
-            } else {
-                log.warn("未查询到ID={}的一日游行程安排", dayTourId);
-                // 创建空列表以确保返回值不为null
-                dayTourDTO.setItinerary(new ArrayList<>());
-            }
-        } catch (Exception e) {
-            log.error("查询一日游行程安排失败，id={}，错误：{}", id, e.getMessage(), e);
-            dayTourDTO.setItinerary(new ArrayList<>());
+        dayTourDTO.setItinerary(itinerary);
+
+        // 图片：主图在前；没有图片列表但有主图URL时，用主图创建一个图片对象
+        List<Map<String, Object>> images = new ArrayList<>();
+        for (Map<String, Object> row : sortedChildRows(children, ProductAggregateMapper.IMAGE, true)) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("image_url", row.get("name"));
+            map.put("thumbnail_url", row.get("detail"));
+            map.put("card_url", row.get("extra2"));
+            map.put("banner_url", row.get("extra3"));
+            map.put("description", row.get("extra"));
+            map.put("is_primary", isTrue(row.get("flag")));
+            images.add(map);
         }
-        
-        // 查询图片
-        try {
-            // 确保使用正确的ID查询
-            Integer dayTourId = dayTour.getDayTourId();
-            List<DayTourImage> imageList = dayTourImageMapper.selectByDayTourId(dayTourId);
-            log.info("查询到图片数量：{}", imageList != null ? imageList.size() : 0);
-            if (imageList != null && !imageList.isEmpty()) {
-                List<Map<String, Object>> images = new ArrayList<>();
-                for (DayTourImage image : imageList) {
-                    Map<String, Object> map = new HashMap<>();
-                    map.put("image_url", image.getImageUrl());
-                    map.put("thumbnail_url", image.getThumbnailUrl());
-                    map.put("description", image.getDescription());
-                    map.put("is_primary", image.getIsPrimary() == 1);
-                    images.add(map);
-                }
-                dayTourDTO.setImages(images);
-            } else if (dayTour.getImageUrl() != null) {
-                // 如果没有图片列表但有主图URL，创建一个图片对象
-                List<Map<String, Object>> images = new ArrayList<>();
-                Map<String, Object> map = new HashMap<>();
-                map.put("image_url", dayTour.getImageUrl());
-                map.put("thumbnail_url", dayTour.getImageUrl());
-                map.put("description", dayTour.getName());
-                map.put("is_primary", true);
-                images.add(map);
-                dayTourDTO.setImages(images);
-                log.info("使用主图URL创建默认图片：{}", dayTour.getImageUrl());
-            } else {
-                log.warn("未查询到ID={}的一日游图片，且主图URL为空", dayTourId);
-                // 创建空列表以确保返回值不为null
-                dayTourDTO.setImages(new ArrayList<>());
-            }
-        } catch (Exception e) {
-            log.error("查询一日游图片失败，id={}，错误：{}", id, e.getMessage(), e);
-            // 确保返回非空值
-            if (dayTour.getImageUrl() != null) {
-                List<Map<String, Object>> images = new ArrayList<>();
-                Map<String, Object> map = new HashMap<>();
-                map.put("image_url", dayTour.getImageUrl());
-                map.put("thumbnail_url", dayTour.getImageUrl());
-                map.put("description", dayTour.getName());
-                map.put("is_primary", true);
-                images.add(map);
-                dayTourDTO.setImages(images);
-            } else {
-                dayTourDTO.setImages(new ArrayList<>());
-            }
+        if (images.isEmpty() && dayTour.getImageUrl() != null) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("image_url", dayTour.getImageUrl());
+            map.put("thumbnail_url", dayTour.getImageUrl());
+            map.put("description", dayTour.getName());
+            map.put("is_primary", true);
+            images.add(map);
         }
-        
-        // 查询主题
-        List<Map<String, Object>> themesList = getDayTourThemesByTourId(id);
-        log.info("查询到主题数量：{}", themesList != null ? themesList.size() : 0);
-        if (themesList != null && !themesList.isEmpty()) {
+        dayTourDTO.setImages(images);
+
+        // 主题：没有主题但有分类时，将分类作为主题
+        List<Map<String, Object>> themeRows = childRows(children, ProductAggregateMapper.THEME);
+        if (!themeRows.isEmpty()) {
             List<String> themes = new ArrayList<>();
-            Integer[] themeIds = new Integer[themesList.size()];
-            
-            for (int i = 0; i < themesList.size(); i++) {
-                Map<String, Object> theme = themesList.get(i);
-                themes.add((String) theme.get("name"));
-                themeIds[i] = (Integer) theme.get("id");
+            Integer[] themeIds = new Integer[themeRows.size()];
+            for (int i = 0; i < themeRows.size(); i++) {
+                themes.add((String) themeRows.get(i).get("name"));
+                themeIds[i] = ((Number) themeRows.get(i).get("item_id")).intValue();
             }
-            
             dayTourDTO.setThemes(themes);
             dayTourDTO.setThemeIds(themeIds);
         } else if (dayTour.getCategory() != null) {
-            // 如果没有主题但有分类，将分类作为主题
             List<String> themes = new ArrayList<>();
             themes.add(dayTour.getCategory());
             dayTourDTO.setThemes(themes);
-            log.info("使用分类作为主题：{}", dayTour.getCategory());
         }
-        
-        // 查询适合人群
-        List<SuitableFor> suitables = dayTourSuitableMapper.getByDayTourId(id);
-        log.info("查询到适合人群数量：{}", suitables != null ? suitables.size() : 0);
-        if (suitables != null && !suitables.isEmpty()) {
-            Integer[] suitableIds = new Integer[suitables.size()];
+
+        // 适合人群
+        List<Map<String, Object>> suitableRows = childRows(children, ProductAggregateMapper.SUITABLE);
+        if (!suitableRows.isEmpty()) {
+            Integer[] suitableIds = new Integer[suitableRows.size()];
             List<String> suitableFor = new ArrayList<>();
-            
-            for (int i = 0; i < suitables.size(); i++) {
-                SuitableFor suitable = suitables.get(i);
-                suitableIds[i] = suitable.getSuitableId();
-                suitableFor.add(suitable.getName());
+            for (int i = 0; i < suitableRows.size(); i++) {
+                suitableIds[i] = ((Number) suitableRows.get(i).get("item_id")).intValue();
+                suitableFor.add((String) suitableRows.get(i).get("name"));
             }
-            
             dayTourDTO.setSuitableIds(suitableIds);
             dayTourDTO.setSuitableFor(suitableFor);
         }
-        
+
         // 初始化折扣价格为原价（代理商折扣将在控制器中应用）
         if (dayTour.getPrice() != null && dayTourDTO.getDiscountedPrice() == null) {
             dayTourDTO.setDiscountedPrice(dayTour.getPrice());
-            log.info("设置折扣价格为原价：{}", dayTour.getPrice());
         }
-        
-        log.info("完成一日游详情查询，返回DTO：id={}, name={}", dayTourDTO.getId(), dayTourDTO.getName());
+
+        log.info("加载一日游详情：id={}, name={}, 行程{}项, 图片{}张", dayTourId, dayTourDTO.getName(),
+                itinerary.size(), images.size());
         return dayTourDTO;
     }
 
+    private static List<Map<String, Object>> childRows(Map<String, List<Map<String, Object>>> children, String kind) {
+        return children.getOrDefault(kind, Collections.emptyList());
+    }
+
+    /**
+     * 按 position、ID 排序（UNION ALL 查询不保证各子表内的顺序）；图片另按主图优先
+     */
+    private static List<Map<String, Object>> sortedChildRows(Map<String, List<Map<String, Object>>> children,
+                                                             String kind, boolean primaryFirst) {
+        List<Map<String, Object>> rows = new ArrayList<>(childRows(children, kind));
+        Comparator<Map<String, Object>> bySeq = Comparator
+                .comparing((Map<String, Object> row) -> sortValue(row.get("seq")))
+                .thenComparing(row -> sortValue(row.get("item_id")));
+        rows.sort(primaryFirst
+                ? Comparator.comparing((Map<String, Object> row) -> !isTrue(row.get("flag"))).thenComparing(bySeq)
+                : bySeq);
+        return rows;
+    }
+
+    private static List<String> childNames(Map<String, List<Map<String, Object>>> children, String kind) {
+        List<String> names = new ArrayList<>();
+        for (Map<String, Object> row : sortedChildRows(children, kind, false)) {
+            names.add((String) row.get("name"));
+        }
+        return names;
+    }
+
+    private static long sortValue(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : Long.MAX_VALUE;
+    }
+
+    private static boolean isTrue(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        return value instanceof Number && ((Number) value).intValue() == 1;
+    }
+
+    /**
+     * 返回缓存对象的副本，调用方（如按代理商设置折扣价）修改时不会影响缓存
+     */
+    private static DayTourDTO copyOf(DayTourDTO dayTourDTO) {
+        return JSON.parseObject(JSON.toJSONString(dayTourDTO), DayTourDTO.class);
+    }
+
     /**
      * 获取一日游行程安排
      * @param tourId 一日游ID
@@ -1,7 +1,9 @@
 package com.sky.service.impl;
 
 import com.sky.entity.Agent;
+import com.sky.entity.ProductAgentDiscount;
 import com.sky.mapper.AgentMapper;
+import com.sky.mapper.ProductAgentDiscountMapper;
 import com.sky.service.DiscountService;
 import com.sky.service.EnhancedDiscountService;
 import lombok.extern.slf4j.Slf4j;
@@ -12,8 +14,13 @@ import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 折扣服务实现类
@@ -28,6 +35,9 @@ public class DiscountServiceImpl implements DiscountService {
     @Autowired
     private EnhancedDiscountService enhancedDiscountService;
 
+    @Autowired
+    private ProductAgentDiscountMapper productAgentDiscountMapper;
+
     /**
      * 获取代理商折扣率
      * @param agentId 代理商ID
@@ -174,6 +184,116 @@ public class DiscountServiceImpl implements DiscountService {
         }
     }
 
+    /**
+     * 批量计算旅游产品折扣价格
+     * 先解析全部请求并按代理商分组，每个代理商查询一次折扣率和本批产品的折扣配置，
+     * 再按请求顺序逐项计算；有产品折扣配置的使用配置的折扣率，否则使用代理商折扣率
+     * @param requests 请求列表
+     * @return 折扣价格信息列表
+     */
+    @Override
+    public List<Map<String, Object>> calculateTourDiscountsBatch(List<Map<String, Object>> requests) {
+        long start = System.currentTimeMillis();
+        int size = requests.size();
+        BatchItem[] items = new BatchItem[size];
+        Map<Long, Set<Long>> productIdsByAgent = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> request = requests.get(i);
+            try {
+                BatchItem item = new BatchItem();
+                item.id = request.get("id") != null ? Integer.valueOf(request.get("id").toString()) : null;
+                item.tourId = request.get("tourId") != null ? Long.valueOf(request.get("tourId").toString()) : null;
+                item.tourType = (String) request.get("tourType");
+                item.originalPrice = new BigDecimal(request.get("originalPrice").toString());
+                item.agentId = Long.valueOf(request.get("agentId").toString());
+                items[i] = item;
+                Set<Long> productIds = productIdsByAgent.computeIfAbsent(item.agentId, k -> new HashSet<>());
+                if (item.tourId != null) {
+                    productIds.add(item.tourId);
+                }
+            } catch (Exception e) {
+                log.error("解析折扣请求失败: {}", request, e);
+            }
+        }
+
+        // 每个代理商：折扣率 + 本批产品的折扣配置（key: productType_productId）
+        Map<Long, BigDecimal> agentRates = new HashMap<>();
+        Map<Long, Map<String, BigDecimal>> productRates = new HashMap<>();
+        for (Map.Entry<Long, Set<Long>> entry : productIdsByAgent.entrySet()) {
+            Long agentId = entry.getKey();
+            agentRates.put(agentId, getAgentDiscountRate(agentId));
+            Map<String, BigDecimal> rates = new HashMap<>();
+            if (!entry.getValue().isEmpty()) {
+                try {
+                    for (ProductAgentDiscount discount
+                            : productAgentDiscountMapper.findByAgentAndProductIds(agentId, entry.getValue())) {
+                        rates.putIfAbsent(discount.getProductType() + "_" + discount.getProductId(),
+                                discount.getDiscountRate());
+                    }
+                } catch (Exception e) {
+                    log.error("查询代理商{}的产品折扣配置失败，使用代理商折扣率", agentId, e);
+                }
+            }
+            productRates.put(agentId, rates);
+        }
+
+        List<Map<String, Object>> resultList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            BatchItem item = items[i];
+            if (item == null) {
+                resultList.add(batchErrorResult(requests.get(i)));
+                continue;
+            }
+            BigDecimal productRate = productRates.get(item.agentId).get(item.tourType + "_" + item.tourId);
+            BigDecimal discountRate = productRate != null ? productRate : agentRates.get(item.agentId);
+            BigDecimal discountedPrice = item.originalPrice.multiply(discountRate).setScale(2, RoundingMode.HALF_UP);
+
+            Map<String, Object> result = new HashMap<>();
+            if (item.id != null) {
+                result.put("id", item.id); // 保留原始请求的ID，用于前端匹配
+            }
+            result.put("tourId", item.tourId);
+            result.put("tourType", item.tourType);
+            result.put("originalPrice", item.originalPrice);
+            result.put("discountedPrice", discountedPrice);
+            result.put("discountRate", discountRate);
+            result.put("savedAmount", item.originalPrice.subtract(discountedPrice));
+            result.put("enhancedMode", productRate != null);
+            resultList.add(result);
+        }
+
+        log.info("批量计算旅游产品折扣价格完成，请求数量: {}，代理商数量: {}，耗时: {}ms",
+                size, productIdsByAgent.size(), System.currentTimeMillis() - start);
+        return resultList;
+    }
+
+    /**
+     * 请求参数无法解析时的结果，使用原价
+     */
+    private Map<String, Object> batchErrorResult(Map<String, Object> request) {
+        Map<String, Object> errorResult = new HashMap<>();
+        if (request.get("id") != null) {
+            errorResult.put("id", request.get("id"));
+        }
+        errorResult.put("error", "计算折扣价格失败: 请求参数不正确");
+        errorResult.put("originalPrice", request.get("originalPrice"));
+        errorResult.put("discountedPrice", request.get("originalPrice")); // 发生错误时使用原价
+        errorResult.put("discountRate", BigDecimal.ONE);
+        errorResult.put("savedAmount", BigDecimal.ZERO);
+        return errorResult;
+    }
+
+    /**
+     * 批量折扣计算中解析后的单个请求
+     */
+    private static class BatchItem {
+        Integer id;
+        Long tourId;
+        String tourType;
+        BigDecimal originalPrice;
+        Long agentId;
+    }
+
     /**
      * 保存折扣计算历史
      * @param tourId 旅游产品ID
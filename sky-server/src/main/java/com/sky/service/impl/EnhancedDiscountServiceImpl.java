@@ -1,5 +1,8 @@
 package com.sky.service.impl;
 
+import com.alibaba.fastjson.TypeReference;
+import com.sky.cache.TwoTierCache;
+import com.sky.cache.TwoTierCacheManager;
 import com.sky.entity.Agent;
 import com.sky.entity.AgentDiscountLevel;
 import com.sky.entity.AgentDiscountLog;
@@ -11,11 +14,14 @@ import com.sky.mapper.ProductAgentDiscountMapper;
 import com.sky.service.EnhancedDiscountService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
@@ -40,6 +46,45 @@ public class EnhancedDiscountServiceImpl implements EnhancedDiscountService {
     @Autowired
     private AgentDiscountLogMapper agentDiscountLogMapper;
 
+    @Autowired
+    private TwoTierCacheManager twoTierCacheManager;
+
+    @Value("${sky.cache.discount.max-size:10000}")
+    private int cacheMaxSize;
+
+    @Value("${sky.cache.discount.local-ttl-seconds:300}")
+    private long cacheLocalTtlSeconds;
+
+    @Value("${sky.cache.discount.redis-ttl-seconds:600}")
+    private long cacheRedisTtlSeconds;
+
+    /**
+     * 代理商产品折扣率，key: agentId_productType_productId，值为null表示没有产品折扣配置
+     */
+    private TwoTierCache<BigDecimal> productDiscountRateCache;
+
+    /**
+     * 活跃折扣等级列表，key固定为all
+     */
+    private TwoTierCache<List<AgentDiscountLevel>> activeDiscountLevelCache;
+
+    /**
+     * 根据等级代码查询的折扣等级，key: levelCode
+     */
+    private TwoTierCache<AgentDiscountLevel> discountLevelByCodeCache;
+
+    @PostConstruct
+    public void initCaches() {
+        Duration localTtl = Duration.ofSeconds(cacheLocalTtlSeconds);
+        Duration redisTtl = Duration.ofSeconds(cacheRedisTtlSeconds);
+        productDiscountRateCache = twoTierCacheManager.create("productDiscountRates",
+                BigDecimal.class, cacheMaxSize, localTtl, redisTtl);
+        activeDiscountLevelCache = twoTierCacheManager.create("activeDiscountLevels",
+                new TypeReference<List<AgentDiscountLevel>>() {}.getType(), 1, localTtl, redisTtl);
+        discountLevelByCodeCache = twoTierCacheManager.create("discountLevelByCode",
+                AgentDiscountLevel.class, cacheMaxSize, localTtl, redisTtl);
+    }
+
     // ===================== 折扣计算相关 =====================
 
     @Override
@@ -128,21 +173,23 @@ public class EnhancedDiscountServiceImpl implements EnhancedDiscountService {
     }
 
     @Override
-    // @Cacheable(value = "productDiscountRates", key = "#agentId + '_' + #productType + '_' + #productId") // 临时注释，避免Redis连接问题
     public BigDecimal getAgentProductDiscountRate(Long agentId, String productType, Long productId) {
-        log.info("获取代理商产品折扣率 - 代理商ID: {}, 产品类型: {}, 产品ID: {}", agentId, productType, productId);
+        log.debug("获取代理商产品折扣率 - 代理商ID: {}, 产品类型: {}, 产品ID: {}", agentId, productType, productId);
         
         try {
-            // 查找产品特定折扣配置
-            ProductAgentDiscount discount = productAgentDiscountMapper.findByAgentAndProduct(agentId, productType, productId);
-            if (discount != null) {
-                log.info("找到产品特定折扣配置: {}", discount.getDiscountRate());
-                return discount.getDiscountRate();
-            }
-            
-            // 未找到产品折扣配置，返回null（使用原价）
-            log.info("未找到产品特定折扣配置，产品使用原价（不打折）");
-            return null;
+            // 查询失败时抛出异常，不会把null写入缓存
+            return productDiscountRateCache.get(agentId + "_" + productType + "_" + productId, () -> {
+                // 查找产品特定折扣配置
+                ProductAgentDiscount discount = productAgentDiscountMapper.findByAgentAndProduct(agentId, productType, productId);
+                if (discount != null) {
+                    log.info("找到产品特定折扣配置: {}", discount.getDiscountRate());
+                    return discount.getDiscountRate();
+                }
+                
+                // 未找到产品折扣配置，返回null（使用原价）
+                log.info("未找到产品特定折扣配置，产品使用原价（不打折）");
+                return null;
+            });
         } catch (Exception e) {
             log.error("获取代理商产品折扣率异常", e);
             return null;
@@ -190,9 +237,8 @@ public class EnhancedDiscountServiceImpl implements EnhancedDiscountService {
     }
 
     @Override
-    // @Cacheable(value = "activeDiscountLevels") // 临时注释，避免Redis连接问题
     public List<AgentDiscountLevel> getActiveDiscountLevels() {
-        return agentDiscountLevelMapper.findActiveLevel();
+        return activeDiscountLevelCache.get("all", agentDiscountLevelMapper::findActiveLevel);
     }
 
     @Override
@@ -201,36 +247,35 @@ public class EnhancedDiscountServiceImpl implements EnhancedDiscountService {
     }
 
     @Override
-    // @Cacheable(value = "discountLevelByCode", key = "#levelCode") // 临时注释，避免Redis连接问题
     public AgentDiscountLevel getDiscountLevelByCode(String levelCode) {
-        return agentDiscountLevelMapper.findByLevelCode(levelCode);
+        return discountLevelByCodeCache.get(levelCode, () -> agentDiscountLevelMapper.findByLevelCode(levelCode));
     }
 
     @Override
     @Transactional
-    // @CacheEvict(value = {"activeDiscountLevels", "discountLevelByCode"}, allEntries = true) // 临时注释，避免Redis连接问题
     public AgentDiscountLevel createDiscountLevel(AgentDiscountLevel level) {
         level.setCreatedAt(LocalDateTime.now());
         level.setUpdatedAt(LocalDateTime.now());
         agentDiscountLevelMapper.insert(level);
+        evictDiscountLevelCaches();
         return level;
     }
 
     @Override
     @Transactional
-    // @CacheEvict(value = {"activeDiscountLevels", "discountLevelByCode"}, allEntries = true) // 临时注释，避免Redis连接问题
     public AgentDiscountLevel updateDiscountLevel(AgentDiscountLevel level) {
         level.setUpdatedAt(LocalDateTime.now());
         agentDiscountLevelMapper.update(level);
+        evictDiscountLevelCaches();
         return level;
     }
 
     @Override
     @Transactional
-    // @CacheEvict(value = {"activeDiscountLevels", "discountLevelByCode"}, allEntries = true) // 临时注释，避免Redis连接问题
     public boolean deleteDiscountLevel(Long id) {
         try {
             int result = agentDiscountLevelMapper.deleteById(id);
+            evictDiscountLevelCaches();
             return result > 0;
         } catch (Exception e) {
             log.error("删除折扣等级失败", e);
@@ -252,7 +297,6 @@ public class EnhancedDiscountServiceImpl implements EnhancedDiscountService {
 
     @Override
     @Transactional
-    // @CacheEvict(value = "productDiscountRates", allEntries = true) // 临时注释，避免Redis连接问题
     public ProductAgentDiscount createProductDiscount(ProductAgentDiscount discount) {
         log.info("创建产品折扣配置: {}", discount);
         
@@ -267,13 +311,13 @@ public class EnhancedDiscountServiceImpl implements EnhancedDiscountService {
         }
         
         productAgentDiscountMapper.insert(discount);
+        productDiscountRateCache.evictAll();
         log.info("产品折扣配置创建成功，ID: {}", discount.getId());
         return discount;
     }
 
     @Override
     @Transactional
-    // @CacheEvict(value = "productDiscountRates", allEntries = true) // 临时注释，避免Redis连接问题
     public ProductAgentDiscount updateProductDiscount(ProductAgentDiscount discount) {
         try {
             discount.setUpdatedAt(LocalDateTime.now());
@@ -281,6 +325,7 @@ public class EnhancedDiscountServiceImpl implements EnhancedDiscountService {
             int result = productAgentDiscountMapper.update(discount);
             log.info("数据库更新结果: {}", result);
             if (result > 0) {
+                productDiscountRateCache.evictAll();
                 log.info("产品折扣配置更新成功");
                 return discount;
             } else {
@@ -295,10 +340,10 @@ public class EnhancedDiscountServiceImpl implements EnhancedDiscountService {
 
     @Override
     @Transactional
-    // @CacheEvict(value = "productDiscountRates", allEntries = true) // 临时注释，避免Redis连接问题
     public boolean deleteProductDiscount(Long id) {
         try {
             int result = productAgentDiscountMapper.deleteById(id);
+            productDiscountRateCache.evictAll();
             return result > 0;
         } catch (Exception e) {
             log.error("删除产品折扣配置失败", e);
@@ -308,21 +353,37 @@ public class EnhancedDiscountServiceImpl implements EnhancedDiscountService {
 
     @Override
     @Transactional
-    // @CacheEvict(value = "productDiscountRates", allEntries = true) // 临时注释，避免Redis连接问题
     public int batchUpdateDiscountRate(Long levelId, String productType, BigDecimal discountRate) {
-        return productAgentDiscountMapper.batchUpdateDiscountRate(levelId, productType, discountRate);
+        int result = productAgentDiscountMapper.batchUpdateDiscountRate(levelId, productType, discountRate);
+        productDiscountRateCache.evictAll();
+        return result;
     }
 
     @Override
     @Transactional
-    // @CacheEvict(value = "productDiscountRates", allEntries = true) // 临时注释，避免Redis连接问题
     public int batchCreateProductDiscounts(List<ProductAgentDiscount> discounts) {
         LocalDateTime now = LocalDateTime.now();
         for (ProductAgentDiscount discount : discounts) {
             discount.setCreatedAt(now);
             discount.setUpdatedAt(now);
         }
-        return productAgentDiscountMapper.batchInsert(discounts);
+        int result = productAgentDiscountMapper.batchInsert(discounts);
+        productDiscountRateCache.evictAll();
+        return result;
+    }
+
+    @Override
+    public void evictProductDiscountRateCache() {
+        productDiscountRateCache.evictAll();
+    }
+
+    /**
+     * 折扣等级变更后清除等级相关缓存（删除等级会影响该等级下代理商的产品折扣，一并清除）
+     */
+    private void evictDiscountLevelCaches() {
+        activeDiscountLevelCache.evictAll();
+        discountLevelByCodeCache.evictAll();
+        productDiscountRateCache.evictAll();
     }
 
     // ===================== 折扣日志管理 =====================
@@ -1,16 +1,15 @@
 package com.sky.service.impl;
 
 import com.sky.service.ExternalInfoService;
+import com.sky.utils.HttpClientUtil;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
-import javax.annotation.PostConstruct;
-import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -53,22 +52,17 @@ public class ExternalInfoServiceImpl implements ExternalInfoService {
     @Value("${baidu.search.enabled:false}")
     private boolean baiduSearchEnabled;
 
+    /**
+     * 外部接口的读取超时
+     */
+    private static final int READ_TIMEOUT_MS = 30_000;
+
     private final RedisTemplate<String, String> redisTemplate;
-    private OkHttpClient httpClient;
 
     public ExternalInfoServiceImpl(RedisTemplate<String, String> redisTemplate) {
         this.redisTemplate = redisTemplate;
     }
 
-    @PostConstruct
-    public void init() {
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(10, TimeUnit.SECONDS)
-                .build();
-    }
-
     @Override
     public String getWeatherInfo(String cityName) {
         if (!weatherApiEnabled || weatherApiKey.isEmpty()) {
@@ -84,22 +78,20 @@ public class ExternalInfoServiceImpl implements ExternalInfoService {
             }
 
             // 调用天气API
-            String url = String.format("%s/weather?q=%s&appid=%s&units=metric&lang=zh_cn", 
-                    weatherApiBaseUrl, cityName, weatherApiKey);
-            
-            Request request = new Request.Builder()
-                    .url(url)
-                    .build();
-
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    String weatherInfo = parseWeatherInfo(responseBody, cityName);
-                    
-                    // 缓存结果10分钟
-                    redisTemplate.opsForValue().set(cacheKey, weatherInfo, 600, TimeUnit.SECONDS);
-                    return weatherInfo;
-                }
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("q", cityName);
+            params.put("appid", weatherApiKey);
+            params.put("units", "metric");
+            params.put("lang", "zh_cn");
+
+            HttpClientUtil.HttpResult response = HttpClientUtil.get(weatherApiBaseUrl + "/weather", params, null, READ_TIMEOUT_MS);
+            if (response.isSuccessful()) {
+                String responseBody = response.getBody();
+                String weatherInfo = parseWeatherInfo(responseBody, cityName);
+                
+                // 缓存结果10分钟
+                redisTemplate.opsForValue().set(cacheKey, weatherInfo, 600, TimeUnit.SECONDS);
+                return weatherInfo;
             }
         } catch (Exception e) {
             log.error("获取天气信息失败: {}", e.getMessage());
@@ -125,20 +117,15 @@ public class ExternalInfoServiceImpl implements ExternalInfoService {
             // 调用汇率API
             String url = String.format("%s/latest/%s", exchangeApiBaseUrl, fromCurrency);
             
-            Request request = new Request.Builder()
-                    .url(url)
-                    .addHeader("Authorization", "Bearer " + exchangeApiKey)
-                    .build();
-
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    String rateInfo = parseExchangeRateInfo(responseBody, fromCurrency, toCurrency);
-                    
-                    // 缓存结果5分钟
-                    redisTemplate.opsForValue().set(cacheKey, rateInfo, 300, TimeUnit.SECONDS);
-                    return rateInfo;
-                }
+            HttpClientUtil.HttpResult response = HttpClientUtil.get(url, null,
+                    Collections.singletonMap("Authorization", "Bearer " + exchangeApiKey), READ_TIMEOUT_MS);
+            if (response.isSuccessful()) {
+                String responseBody = response.getBody();
+                String rateInfo = parseExchangeRateInfo(responseBody, fromCurrency, toCurrency);
+                
+                // 缓存结果5分钟
+                redisTemplate.opsForValue().set(cacheKey, rateInfo, 300, TimeUnit.SECONDS);
+                return rateInfo;
             }
         } catch (Exception e) {
             log.error("获取汇率信息失败: {}", e.getMessage());
@@ -162,23 +149,21 @@ public class ExternalInfoServiceImpl implements ExternalInfoService {
             }
 
             // 调用新闻API
-            String url = String.format("%s/everything?q=%s+travel&language=zh&sortBy=publishedAt&pageSize=5", 
-                    newsApiBaseUrl, keyword);
-            
-            Request request = new Request.Builder()
-                    .url(url)
-                    .addHeader("X-API-Key", newsApiKey)
-                    .build();
-
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
-                    String responseBody = response.body().string();
-                    String newsInfo = parseNewsInfo(responseBody, keyword);
-                    
-                    // 缓存结果30分钟
-                    redisTemplate.opsForValue().set(cacheKey, newsInfo, 1800, TimeUnit.SECONDS);
-                    return newsInfo;
-                }
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("q", keyword + " travel");
+            params.put("language", "zh");
+            params.put("sortBy", "publishedAt");
+            params.put("pageSize", "5");
+
+            HttpClientUtil.HttpResult response = HttpClientUtil.get(newsApiBaseUrl + "/everything", params,
+                    Collections.singletonMap("X-API-Key", newsApiKey), READ_TIMEOUT_MS);
+            if (response.isSuccessful()) {
+                String responseBody = response.getBody();
+                String newsInfo = parseNewsInfo(responseBody, keyword);
+                
+                // 缓存结果30分钟
+                redisTemplate.opsForValue().set(cacheKey, newsInfo, 1800, TimeUnit.SECONDS);
+                return newsInfo;
             }
         } catch (Exception e) {
             log.error("获取新闻信息失败: {}", e.getMessage());
@@ -1,23 +1,34 @@
 package com.sky.service.impl;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.sky.cache.TwoTierCache;
+import com.sky.cache.TwoTierCacheManager;
 import com.sky.dto.GroupTourDTO;
 import com.sky.mapper.GroupTourMapper;
+import com.sky.mapper.ProductAggregateMapper;
 import com.sky.mapper.TourMapper;
 import com.sky.result.PageResult;
 import com.sky.service.GroupTourService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 跟团游服务实现类
@@ -35,6 +46,50 @@ public class GroupTourServiceImpl implements GroupTourService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ProductAggregateMapper productAggregateMapper;
+
+    @Autowired
+    private TwoTierCacheManager twoTierCacheManager;
+
+    @Value("${sky.cache.group-tour-itinerary.max-size:2000}")
+    private int itineraryCacheMaxSize;
+
+    @Value("${sky.cache.group-tour-itinerary.local-ttl-seconds:60}")
+    private long itineraryCacheLocalTtlSeconds;
+
+    @Value("${sky.cache.group-tour-itinerary.redis-ttl-seconds:300}")
+    private long itineraryCacheRedisTtlSeconds;
+
+    @Value("${sky.cache.product-detail.max-size:1000}")
+    private int detailCacheMaxSize;
+
+    @Value("${sky.cache.product-detail.local-ttl-seconds:600}")
+    private long detailCacheLocalTtlSeconds;
+
+    @Value("${sky.cache.product-detail.redis-ttl-seconds:3600}")
+    private long detailCacheRedisTtlSeconds;
+
+    /**
+     * 跟团游行程，key: 跟团游ID，值为null表示没有行程数据
+     */
+    private TwoTierCache<List<Map<String, Object>>> itineraryCache;
+
+    /**
+     * 跟团游详情（含全部子表和行程），key: 跟团游ID，值为null表示跟团游不存在
+     * 两个缓存都由 ProductCacheAspect 在跟团游及其子表、一日游修改后整体清除
+     */
+    private TwoTierCache<GroupTourDTO> detailCache;
+
+    @PostConstruct
+    public void initCaches() {
+        itineraryCache = twoTierCacheManager.create("groupTourItineraries",
+                new TypeReference<List<Map<String, Object>>>() {}.getType(), itineraryCacheMaxSize,
+                Duration.ofSeconds(itineraryCacheLocalTtlSeconds), Duration.ofSeconds(itineraryCacheRedisTtlSeconds));
+        detailCache = twoTierCacheManager.create("groupTourDetails", GroupTourDTO.class, detailCacheMaxSize,
+                Duration.ofSeconds(detailCacheLocalTtlSeconds), Duration.ofSeconds(detailCacheRedisTtlSeconds));
+    }
+
     /**
      * 获取所有跟团游
      * @param params 查询参数
@@ -62,31 +117,17 @@ public class GroupTourServiceImpl implements GroupTourService {
         PageHelper.startPage(page, pageSize);
         Page<GroupTourDTO> groupTours = (Page<GroupTourDTO>) groupTourMapper.pageQuery(title, location, category, minPrice, maxPrice, minDays, maxDays, showOnUserSite);
         
-        // 处理主题和适合人群
+        // 处理主题、适合人群和包含项（从详情缓存批量获取）
+        List<Integer> tourIds = new ArrayList<>();
         for (GroupTourDTO groupTour : groupTours) {
-            // 查询主题
-            List<Map<String, Object>> themeInfoList = groupTourMapper.getThemesByTourId(groupTour.getId());
-            List<String> themes = new ArrayList<>();
-            if (themeInfoList != null && !themeInfoList.isEmpty()) {
-                for (Map<String, Object> themeInfo : themeInfoList) {
-                    themes.add((String) themeInfo.get("name"));
-                }
-            }
-            groupTour.setThemes(themes);
-            
-            // 查询适合人群
-            List<Map<String, Object>> suitableForList = tourMapper.getSuitableForByTourId(groupTour.getId(), "group_tour");
-            List<String> suitableFor = new ArrayList<>();
-            if (suitableForList != null && !suitableForList.isEmpty()) {
-                for (Map<String, Object> suitable : suitableForList) {
-                    suitableFor.add((String) suitable.get("name"));
-                }
-            }
-            groupTour.setSuitableFor(suitableFor);
-            
-            // 查询包含项
-            List<String> inclusions = groupTourMapper.getInclusions(groupTour.getId());
-            groupTour.setInclusions(inclusions);
+            tourIds.add(groupTour.getId());
+        }
+        Map<Integer, GroupTourDTO> details = getGroupTourDetails(tourIds);
+        for (GroupTourDTO groupTour : groupTours) {
+            GroupTourDTO detail = details.get(groupTour.getId());
+            groupTour.setThemes(detail != null ? detail.getThemes() : new ArrayList<>());
+            groupTour.setSuitableFor(detail != null ? detail.getSuitableFor() : new ArrayList<>());
+            groupTour.setInclusions(detail != null ? detail.getInclusions() : new ArrayList<>());
         }
         
         return new PageResult(groupTours.getTotal(), groupTours.getResult());
@@ -99,74 +140,145 @@ public class GroupTourServiceImpl implements GroupTourService {
      */
     @Override
     public GroupTourDTO getGroupTourById(Integer id) {
-        GroupTourDTO groupTour = groupTourMapper.getById(id);
-        if (groupTour != null) {
-            // 查询主题信息
-            List<Map<String, Object>> themeInfoList = groupTourMapper.getThemesByTourId(id);
+        GroupTourDTO groupTour = detailCache.get(String.valueOf(id),
+                () -> loadGroupTourDetails(Collections.singletonList(id)).get(String.valueOf(id)));
+        return copyOf(groupTour);
+    }
+
+    /**
+     * 批量获取跟团游详情（按跟团游ID缓存），用于列表页
+     * @param ids 跟团游ID列表
+     * @return 跟团游ID -> 详情，不存在的跟团游不返回
+     */
+    @Override
+    public Map<Integer, GroupTourDTO> getGroupTourDetails(Collection<Integer> ids) {
+        Map<Integer, GroupTourDTO> result = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        List<String> keys = new ArrayList<>();
+        for (Integer id : ids) {
+            if (id != null) {
+                keys.add(String.valueOf(id));
+            }
+        }
+        Map<String, GroupTourDTO> cached = detailCache.getAll(keys, missing -> {
+            List<Integer> missingIds = new ArrayList<>();
+            for (String key : missing) {
+                missingIds.add(Integer.valueOf(key));
+            }
+            return loadGroupTourDetails(missingIds);
+        });
+        for (Map.Entry<String, GroupTourDTO> entry : cached.entrySet()) {
+            if (entry.getValue() != null) {
+                result.put(Integer.valueOf(entry.getKey()), copyOf(entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 清除跟团游详情和行程缓存
+     */
+    @Override
+    public void evictCaches() {
+        detailCache.evictAll();
+        itineraryCache.evictAll();
+    }
+
+    /**
+     * 加载跟团游详情：基本信息一次批量查询，全部子表一次聚合查询，行程走行程缓存
+     */
+    private Map<String, GroupTourDTO> loadGroupTourDetails(Collection<Integer> ids) {
+        Map<String, GroupTourDTO> result = new HashMap<>();
+        List<GroupTourDTO> groupTours = groupTourMapper.getByIds(ids);
+        if (groupTours.isEmpty()) {
+            return result;
+        }
+        List<Integer> foundIds = new ArrayList<>();
+        for (GroupTourDTO groupTour : groupTours) {
+            foundIds.add(groupTour.getId());
+        }
+        Map<Integer, Map<String, List<Map<String, Object>>>> children =
+                ProductAggregateMapper.groupByProduct(productAggregateMapper.getGroupTourChildren(foundIds));
+        Map<Integer, List<Map<String, Object>>> itineraries = getGroupTourItineraries(foundIds);
+
+        for (GroupTourDTO groupTour : groupTours) {
+            Map<String, List<Map<String, Object>>> tourChildren =
+                    children.getOrDefault(groupTour.getId(), Collections.emptyMap());
+
+            // 主题和适合人群（含ID，编辑时使用）
             List<String> themes = new ArrayList<>();
             List<Integer> themeIds = new ArrayList<>();
-            if (themeInfoList != null && !themeInfoList.isEmpty()) {
-                for (Map<String, Object> themeInfo : themeInfoList) {
-                    themes.add((String) themeInfo.get("name"));
-                    // 添加主题ID
-                    themeIds.add((Integer) themeInfo.get("id"));
-                }
+            for (Map<String, Object> theme : childRows(tourChildren, ProductAggregateMapper.THEME)) {
+                themes.add((String) theme.get("name"));
+                themeIds.add(((Number) theme.get("item_id")).intValue());
             }
             groupTour.setThemes(themes);
-            groupTour.setThemeIds(themeIds); // 设置主题ID列表
-            
-            // 查询适合人群信息
-            List<Map<String, Object>> suitableForList = tourMapper.getSuitableForByTourId(id, "group_tour");
+            groupTour.setThemeIds(themeIds);
+
             List<String> suitableFor = new ArrayList<>();
             List<Integer> suitableIds = new ArrayList<>();
-            if (suitableForList != null && !suitableForList.isEmpty()) {
-                for (Map<String, Object> suitable : suitableForList) {
-                    suitableFor.add((String) suitable.get("name"));
-                    // 添加适合人群ID
-                    suitableIds.add((Integer) suitable.get("id"));
-                }
+            for (Map<String, Object> suitable : childRows(tourChildren, ProductAggregateMapper.SUITABLE)) {
+                suitableFor.add((String) suitable.get("name"));
+                suitableIds.add(((Number) suitable.get("item_id")).intValue());
             }
             groupTour.setSuitableFor(suitableFor);
-            groupTour.setSuitableIds(suitableIds); // 设置适合人群ID列表
-            
-            // 查询亮点
-            List<String> highlights = groupTourMapper.getHighlights(id);
-            groupTour.setHighlights(highlights);
-            
-            // 查询包含项目
-            List<String> inclusions = groupTourMapper.getInclusions(id);
-            groupTour.setInclusions(inclusions);
-            
-            // 查询不包含项目
-            List<String> exclusions = groupTourMapper.getExclusions(id);
-            groupTour.setExclusions(exclusions);
-            
-            // 查询贴士
-            List<String> tips = groupTourMapper.getTips(id);
-            groupTour.setTips(tips);
-            
-            // 查询常见问题
-            List<Map<String, Object>> faqs = groupTourMapper.getFaqs(id);
+            groupTour.setSuitableIds(suitableIds);
+
+            groupTour.setHighlights(childNames(tourChildren, ProductAggregateMapper.HIGHLIGHT));
+            groupTour.setInclusions(childNames(tourChildren, ProductAggregateMapper.INCLUSION));
+            groupTour.setExclusions(childNames(tourChildren, ProductAggregateMapper.EXCLUSION));
+            groupTour.setTips(childNames(tourChildren, ProductAggregateMapper.TIP));
+
+            List<Map<String, Object>> faqs = new ArrayList<>();
+            for (Map<String, Object> row : childRows(tourChildren, ProductAggregateMapper.FAQ)) {
+                Map<String, Object> faq = new HashMap<>();
+                faq.put("question", row.get("name"));
+                faq.put("answer", row.get("detail"));
+                faqs.add(faq);
+            }
             groupTour.setFaqs(faqs);
-            
-            // 查询图片
-            List<Map<String, Object>> images = groupTourMapper.getImages(id);
+
+            List<Map<String, Object>> images = new ArrayList<>();
+            for (Map<String, Object> row : childRows(tourChildren, ProductAggregateMapper.IMAGE)) {
+                Map<String, Object> image = new HashMap<>();
+                image.put("image_url", row.get("name"));
+                image.put("thumbnail_url", row.get("detail"));
+                image.put("card_url", row.get("extra2"));
+                image.put("banner_url", row.get("extra3"));
+                image.put("description", row.get("extra"));
+                images.add(image);
+            }
             groupTour.setImages(images);
-            
-            // 查询行程 - 使用包含一日游location的方法
-            List<Map<String, Object>> itinerary = getGroupTourItinerary(id);
-            groupTour.setItinerary(itinerary);
-            
-            // 确保没有null值，以避免前端显示问题
-            if (groupTour.getHighlights() == null) groupTour.setHighlights(new ArrayList<>());
-            if (groupTour.getInclusions() == null) groupTour.setInclusions(new ArrayList<>());
-            if (groupTour.getExclusions() == null) groupTour.setExclusions(new ArrayList<>());
-            if (groupTour.getTips() == null) groupTour.setTips(new ArrayList<>());
-            if (groupTour.getFaqs() == null) groupTour.setFaqs(new ArrayList<>());
-            if (groupTour.getImages() == null) groupTour.setImages(new ArrayList<>());
-            if (groupTour.getItinerary() == null) groupTour.setItinerary(new ArrayList<>());
+
+            // 行程 - 包含一日游location
+            List<Map<String, Object>> itinerary = itineraries.get(groupTour.getId());
+            groupTour.setItinerary(itinerary != null ? itinerary : new ArrayList<>());
+
+            result.put(String.valueOf(groupTour.getId()), groupTour);
         }
-        return groupTour;
+        log.debug("加载跟团游详情: 请求{}个，存在{}个", ids.size(), groupTours.size());
+        return result;
+    }
+
+    private static List<Map<String, Object>> childRows(Map<String, List<Map<String, Object>>> children, String kind) {
+        return children.getOrDefault(kind, Collections.emptyList());
+    }
+
+    private static List<String> childNames(Map<String, List<Map<String, Object>>> children, String kind) {
+        List<String> names = new ArrayList<>();
+        for (Map<String, Object> row : childRows(children, kind)) {
+            names.add((String) row.get("name"));
+        }
+        return names;
+    }
+
+    /**
+     * 返回缓存对象的副本，调用方（如按代理商设置折扣价）修改时不会影响缓存
+     */
+    private static GroupTourDTO copyOf(GroupTourDTO groupTour) {
+        return groupTour != null ? JSON.parseObject(JSON.toJSONString(groupTour), GroupTourDTO.class) : null;
     }
 
     /**
@@ -184,63 +296,7 @@ public class GroupTourServiceImpl implements GroupTourService {
         if (dayTourRelations != null && !dayTourRelations.isEmpty()) {
             log.info("使用关联一日游生成行程，关联数量：{}", dayTourRelations.size());
             
-            // 按天数分组
-            Map<Integer, List<Map<String, Object>>> dayToursMap = new HashMap<>();
-            for (Map<String, Object> relation : dayTourRelations) {
-                Integer dayNumber = (Integer) relation.get("day_number");
-                dayToursMap.computeIfAbsent(dayNumber, k -> new ArrayList<>()).add(relation);
-            }
-            
-            // 生成行程列表
-            List<Map<String, Object>> itinerary = new ArrayList<>();
-            for (Map.Entry<Integer, List<Map<String, Object>>> entry : dayToursMap.entrySet()) {
-                Integer dayNumber = entry.getKey();
-                List<Map<String, Object>> dayTours = entry.getValue();
-                
-                Map<String, Object> dayItinerary = new HashMap<>();
-                dayItinerary.put("day", dayNumber);
-                dayItinerary.put("day_number", dayNumber);
-                
-                if (dayTours.size() == 1) {
-                    // 单个一日游
-                    Map<String, Object> dayTour = dayTours.get(0);
-                    dayItinerary.put("title", "第" + dayNumber + "天: " + dayTour.get("day_tour_name"));
-                    dayItinerary.put("description", dayTour.get("day_tour_description"));
-                    dayItinerary.put("location", dayTour.get("location"));
-                    dayItinerary.put("is_optional", dayTour.get("is_optional"));
-                } else {
-                    // 多个一日游（可选）
-                    Map<String, Object> mainTour = dayTours.get(0);
-                    int otherCount = dayTours.size() - 1;
-                    
-                    dayItinerary.put("title", "第" + dayNumber + "天: " + mainTour.get("day_tour_name") + 
-                                           " (含" + otherCount + "个其他可选项目)");
-                    
-                    // 构建描述，包含所有选项
-                    StringBuilder description = new StringBuilder();
-                    description.append("🎯 主要选项：").append(mainTour.get("day_tour_description")).append("\n\n");
-                    description.append("🔄 其他可选项目：\n");
-                    
-                    for (int i = 1; i < dayTours.size(); i++) {
-                        Map<String, Object> tour = dayTours.get(i);
-                        description.append("• ").append(tour.get("day_tour_name")).append("\n");
-                    }
-                    
-                    dayItinerary.put("description", description.toString());
-                    dayItinerary.put("location", mainTour.get("location"));
-                    dayItinerary.put("is_optional", true);
-                    dayItinerary.put("optional_tours", dayTours); // 包含所有可选项目
-                }
-                
-                // 默认餐食和住宿
-                dayItinerary.put("meals", "早餐");
-                dayItinerary.put("accommodation", "酒店");
-                
-                itinerary.add(dayItinerary);
-            }
-            
-            // 按天数排序
-            itinerary.sort((a, b) -> Integer.compare((Integer) a.get("day_number"), (Integer) b.get("day_number")));
+            List<Map<String, Object>> itinerary = buildItineraryFromDayTours(dayTourRelations);
             
             log.info("基于关联一日游生成行程完成，天数：{}", itinerary.size());
             return itinerary;
@@ -260,6 +316,134 @@ public class GroupTourServiceImpl implements GroupTourService {
         return new ArrayList<>();
     }
 
+    /**
+     * 由关联的一日游生成行程：按天分组，同一天有多个一日游时第一个为主要选项，其余为可选项目
+     */
+    private List<Map<String, Object>> buildItineraryFromDayTours(List<Map<String, Object>> dayTourRelations) {
+        Map<Integer, List<Map<String, Object>>> dayToursMap = new HashMap<>();
+        for (Map<String, Object> relation : dayTourRelations) {
+            Integer dayNumber = (Integer) relation.get("day_number");
+            dayToursMap.computeIfAbsent(dayNumber, k -> new ArrayList<>()).add(relation);
+        }
+
+        // 生成行程列表
+        List<Map<String, Object>> itinerary = new ArrayList<>();
+        for (Map.Entry<Integer, List<Map<String, Object>>> entry : dayToursMap.entrySet()) {
+            Integer dayNumber = entry.getKey();
+            List<Map<String, Object>> dayTours = entry.getValue();
+            
+            Map<String, Object> dayItinerary = new HashMap<>();
+            dayItinerary.put("day", dayNumber);
+            dayItinerary.put("day_number", dayNumber);
+            
+            if (dayTours.size() == 1) {
+                // 单个一日游
+                Map<String, Object> dayTour = dayTours.get(0);
+                dayItinerary.put("title", "第" + dayNumber + "天: " + dayTour.get("day_tour_name"));
+                dayItinerary.put("description", dayTour.get("day_tour_description"));
+                dayItinerary.put("location", dayTour.get("location"));
+                dayItinerary.put("is_optional", dayTour.get("is_optional"));
+            } else {
+                // 多个一日游（可选）
+                Map<String, Object> mainTour = dayTours.get(0);
+                int otherCount = dayTours.size() - 1;
+                
+                dayItinerary.put("title", "第" + dayNumber + "天: " + mainTour.get("day_tour_name") + 
+                                       " (含" + otherCount + "个其他可选项目)");
+                
+                // 构建描述，包含所有选项
+                StringBuilder description = new StringBuilder();
+                description.append("🎯 主要选项：").append(mainTour.get("day_tour_description")).append("\n\n");
+                description.append("🔄 其他可选项目：\n");
+                
+                for (int i = 1; i < dayTours.size(); i++) {
+                    Map<String, Object> tour = dayTours.get(i);
+                    description.append("• ").append(tour.get("day_tour_name")).append("\n");
+                }
+                
+                dayItinerary.put("description", description.toString());
+                dayItinerary.put("location", mainTour.get("location"));
+                dayItinerary.put("is_optional", true);
+                dayItinerary.put("optional_tours", dayTours); // 包含所有可选项目
+            }
+            
+            // 默认餐食和住宿
+            dayItinerary.put("meals", "早餐");
+            dayItinerary.put("accommodation", "酒店");
+            
+            itinerary.add(dayItinerary);
+        }
+
+        // 按天数排序
+        itinerary.sort((a, b) -> Integer.compare((Integer) a.get("day_number"), (Integer) b.get("day_number")));
+        return itinerary;
+    }
+
+    /**
+     * 批量获取跟团游行程安排（按跟团游ID缓存，用于订单列表等需要多个行程的场景）
+     * 未命中缓存的跟团游一次查询关联一日游、一次查询标准行程，查询次数与跟团游数量无关；
+     * 生成规则与 getGroupTourItinerary 相同
+     * @param tourIds 跟团游ID列表
+     * @return 跟团游ID -> 行程安排，没有行程数据的跟团游对应空列表
+     */
+    @Override
+    public Map<Integer, List<Map<String, Object>>> getGroupTourItineraries(Collection<Integer> tourIds) {
+        Map<Integer, List<Map<String, Object>>> result = new HashMap<>();
+        if (tourIds == null || tourIds.isEmpty()) {
+            return result;
+        }
+        List<String> keys = new ArrayList<>();
+        for (Integer tourId : tourIds) {
+            if (tourId != null) {
+                keys.add(String.valueOf(tourId));
+            }
+        }
+        Map<String, List<Map<String, Object>>> cached = itineraryCache.getAll(keys, this::loadGroupTourItineraries);
+        for (Map.Entry<String, List<Map<String, Object>>> entry : cached.entrySet()) {
+            result.put(Integer.valueOf(entry.getKey()),
+                    entry.getValue() != null ? entry.getValue() : new ArrayList<>());
+        }
+        return result;
+    }
+
+    /**
+     * 批量加载行程：有关联一日游的按一日游生成，其余使用标准行程
+     */
+    private Map<String, List<Map<String, Object>>> loadGroupTourItineraries(Set<String> keys) {
+        List<Integer> tourIds = new ArrayList<>();
+        for (String key : keys) {
+            tourIds.add(Integer.valueOf(key));
+        }
+
+        Map<Integer, List<Map<String, Object>>> relationsByTour = new HashMap<>();
+        for (Map<String, Object> relation : groupTourMapper.getGroupTourDayToursByTourIds(tourIds)) {
+            normalizeOptionalFlag(relation);
+            Integer groupTourId = ((Number) relation.remove("group_tour_id")).intValue();
+            relationsByTour.computeIfAbsent(groupTourId, k -> new ArrayList<>()).add(relation);
+        }
+
+        Map<String, List<Map<String, Object>>> loaded = new HashMap<>();
+        List<Integer> standardTourIds = new ArrayList<>();
+        for (Integer tourId : tourIds) {
+            List<Map<String, Object>> relations = relationsByTour.get(tourId);
+            if (relations != null) {
+                loaded.put(String.valueOf(tourId), buildItineraryFromDayTours(relations));
+            } else {
+                standardTourIds.add(tourId);
+            }
+        }
+
+        if (!standardTourIds.isEmpty()) {
+            for (Map<String, Object> day : groupTourMapper.getItineraryByTourIds(standardTourIds)) {
+                Integer groupTourId = ((Number) day.get("group_tour_id")).intValue();
+                loaded.computeIfAbsent(String.valueOf(groupTourId), k -> new ArrayList<>()).add(day);
+            }
+        }
+
+        log.debug("批量加载跟团游行程: 跟团游{}个，使用关联一日游{}个", tourIds.size(), relationsByTour.size());
+        return loaded;
+    }
+
     /**
      * 获取跟团游可用日期
      * @param tourId 跟团游ID
@@ -359,26 +543,33 @@ public class GroupTourServiceImpl implements GroupTourService {
         
         // 转换布尔值
         for (Map<String, Object> item : resultList) {
-            // 添加类型安全的转换逻辑
-            if (item.get("is_optional") instanceof Integer) {
-                item.put("is_optional", ((Integer)item.get("is_optional")) == 1);
-            } else if (item.get("is_optional") instanceof Boolean) {
-                // 已经是布尔类型，无需转换
-            } else if (item.get("is_optional") != null) {
-                // 其他类型情况，尝试解析为布尔值
-                String valueStr = item.get("is_optional").toString();
-                if ("1".equals(valueStr) || "true".equalsIgnoreCase(valueStr)) {
-                    item.put("is_optional", true);
-                } else {
-                    item.put("is_optional", false);
-                }
-            }
+            normalizeOptionalFlag(item);
         }
         
         log.info("查询团队游关联的一日游成功，结果数量：{}", resultList.size());
         return resultList;
     }
 
+    /**
+     * 把 is_optional 统一转换为布尔值
+     */
+    private void normalizeOptionalFlag(Map<String, Object> item) {
+        // 添加类型安全的转换逻辑
+        if (item.get("is_optional") instanceof Integer) {
+            item.put("is_optional", ((Integer)item.get("is_optional")) == 1);
+        } else if (item.get("is_optional") instanceof Boolean) {
+            // 已经是布尔类型，无需转换
+        } else if (item.get("is_optional") != null) {
+            // 其他类型情况，尝试解析为布尔值
+            String valueStr = item.get("is_optional").toString();
+            if ("1".equals(valueStr) || "true".equalsIgnoreCase(valueStr)) {
+                item.put("is_optional", true);
+            } else {
+                item.put("is_optional", false);
+            }
+        }
+    }
+
     @Override
     @Transactional
     public void saveGroupTourDayTours(Integer groupTourId, List<Map<String, Object>> dayTourData) {
@@ -930,8 +1121,7 @@ public class GroupTourServiceImpl implements GroupTourService {
     public void updateProductShowcaseImage(Integer groupTourId, String imageUrl) {
         log.info("更新团体游产品展示图片，ID：{}，图片URL：{}", groupTourId, imageUrl);
         try {
-            String sql = "UPDATE group_tours SET product_showcase_image = ? WHERE group_tour_id = ?";
-            jdbcTemplate.update(sql, imageUrl, groupTourId);
+            groupTourMapper.updateProductShowcaseImage(groupTourId, imageUrl);
             log.info("更新团体游产品展示图片成功");
         } catch (Exception e) {
             log.error("更新团体游产品展示图片失败：{}", e.getMessage(), e);
@@ -44,6 +44,11 @@ public class HotelDailyPriceServiceImpl implements HotelDailyPriceService {
         return hotelDailyPriceMapper.selectByLevelAndDate(hotelLevel, priceDate);
     }
     
+    @Override
+    public HotelDailyPrice getById(Long id) {
+        return hotelDailyPriceMapper.selectById(id);
+    }
+    
     @Override
     @Transactional
     public boolean saveOrUpdate(HotelDailyPrice hotelDailyPrice) {
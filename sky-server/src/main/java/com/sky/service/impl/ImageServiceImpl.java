@@ -8,7 +8,8 @@ import com.sky.exception.BusinessException;
 import com.sky.mapper.DayTourImageMapper;
 import com.sky.mapper.GroupTourImageMapper;
 import com.sky.service.ImageService;
-import com.sky.utils.AliOssUtil;
+import com.sky.storage.FileStorageService;
+import com.sky.storage.ImageDerivativePipeline;
 import com.sky.vo.ImageVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -16,21 +17,38 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 图片服务实现类
+ * 图片从上传流直接写入存储（FileStorageService），批量上传在有界线程池中并行执行；
+ * 保存记录后由 ImageDerivativePipeline 在后台生成缩略图等衍生图
  */
 @Service
 @Slf4j
 public class ImageServiceImpl implements ImageService {
 
     @Autowired
-    private AliOssUtil aliOssUtil;
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageDerivativePipeline imageDerivativePipeline;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
     
     @Autowired
     private DayTourImageMapper dayTourImageMapper;
@@ -41,6 +59,37 @@ public class ImageServiceImpl implements ImageService {
     @Value("${sky.image.directory:images/}")
     private String imageDirectory;
 
+    /**
+     * 批量上传的并行线程数
+     */
+    @Value("${sky.image.upload.threads:4}")
+    private int uploadThreads;
+
+    /**
+     * 单次批量上传的最大图片数
+     */
+    @Value("${sky.image.upload.max-batch:50}")
+    private int maxBatchSize;
+
+    private ThreadPoolExecutor uploadExecutor;
+
+    @PostConstruct
+    public void initExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        uploadExecutor = new ThreadPoolExecutor(uploadThreads, uploadThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxBatchSize), r -> {
+                    Thread thread = new Thread(r, "image-upload-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        uploadExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdownExecutor() {
+        uploadExecutor.shutdownNow();
+    }
+
     /**
      * 上传图片
      *
@@ -50,8 +99,8 @@ public class ImageServiceImpl implements ImageService {
     @Override
     public String upload(MultipartFile file) {
         try {
-            // 上传到OSS并返回访问URL
-            return aliOssUtil.uploadFile(file, imageDirectory);
+            // 上传到存储并返回访问URL
+            return fileStorageService.uploadFile(file, imageDirectory);
         } catch (Exception e) {
             log.error("图片上传失败：{}", e.getMessage());
             throw new BusinessException("图片上传失败：" + e.getMessage());
@@ -68,10 +117,104 @@ public class ImageServiceImpl implements ImageService {
     @Override
     @Transactional
     public ImageVO saveImage(MultipartFile file, ImageDTO imageDTO) {
-        // 1. 上传图片到OSS
+        // 1. 上传图片到存储
         String imageUrl = upload(file);
         
         // 2. 根据类型保存图片信息
+        return saveImageRecord(imageUrl, imageDTO);
+    }
+
+    /**
+     * 并行上传多张图片，返回的URL顺序与文件顺序一致；有图片上传失败时删除已上传的图片
+     *
+     * @param files 图片文件
+     * @return 图片URL列表
+     */
+    @Override
+    public List<String> uploadBatch(List<MultipartFile> files) {
+        if (files == null || files.isEmpty()) {
+            throw new BusinessException("请选择要上传的图片");
+        }
+        if (files.size() > maxBatchSize) {
+            throw new BusinessException("单次最多上传" + maxBatchSize + "张图片");
+        }
+        List<Future<String>> futures = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            futures.add(uploadExecutor.submit(() -> fileStorageService.uploadFile(file, imageDirectory)));
+        }
+
+        List<String> urls = new ArrayList<>(files.size());
+        String error = null;
+        for (Future<String> future : futures) {
+            try {
+                urls.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = "上传被中断";
+            } catch (ExecutionException e) {
+                error = e.getCause().getMessage();
+            }
+        }
+        if (error != null) {
+            deleteUploaded(urls);
+            log.error("批量上传图片失败：{}", error);
+            throw new BusinessException("图片上传失败：" + error);
+        }
+        log.info("批量上传图片完成，数量：{}", urls.size());
+        return urls;
+    }
+
+    /**
+     * 批量上传并保存图片信息（图集）
+     * 先并行上传，再在一个事务中保存全部记录，保存失败时删除已上传的图片；
+     * 排序号从 imageDTO.position（默认0）开始递增，只有第一张可以设为主图
+     *
+     * @param files    图片文件
+     * @param imageDTO 图片信息
+     * @return 图片视图对象列表
+     */
+    @Override
+    public List<ImageVO> saveImages(List<MultipartFile> files, ImageDTO imageDTO) {
+        List<String> urls = uploadBatch(files);
+        int position = imageDTO.getPosition() != null ? imageDTO.getPosition() : 0;
+        boolean primary = imageDTO.getIsPrimary() != null && imageDTO.getIsPrimary() == 1;
+        try {
+            return transactionTemplate.execute(status -> {
+                List<ImageVO> result = new ArrayList<>(urls.size());
+                for (int i = 0; i < urls.size(); i++) {
+                    ImageDTO dto = ImageDTO.builder()
+                            .type(imageDTO.getType())
+                            .relatedId(imageDTO.getRelatedId())
+                            .description(imageDTO.getDescription())
+                            .isPrimary(primary && i == 0 ? 1 : 0)
+                            .position(position + i)
+                            .build();
+                    result.add(saveImageRecord(urls.get(i), dto));
+                }
+                return result;
+            });
+        } catch (RuntimeException e) {
+            deleteUploaded(urls);
+            throw e;
+        }
+    }
+
+    /**
+     * 删除已上传的图片（批量操作失败时清理）
+     */
+    private void deleteUploaded(List<String> urls) {
+        for (String url : urls) {
+            String objectName = fileStorageService.getObjectNameFromUrl(url);
+            if (objectName != null) {
+                fileStorageService.delete(objectName);
+            }
+        }
+    }
+
+    /**
+     * 根据类型保存图片记录
+     */
+    private ImageVO saveImageRecord(String imageUrl, ImageDTO imageDTO) {
         ImageVO imageVO = new ImageVO();
         if (ImageType.DAY_TOUR.equals(imageDTO.getType())) {
             // 保存一日游图片
@@ -89,8 +232,9 @@ public class ImageServiceImpl implements ImageService {
                 dayTourImageMapper.resetPrimaryImage(imageDTO.getRelatedId());
             }
             
-            // 保存图片信息
+            // 保存图片信息，提交后生成衍生图
             dayTourImageMapper.insert(dayTourImage);
+            imageDerivativePipeline.submit(ImageType.DAY_TOUR, dayTourImage.getId(), imageUrl);
             
             // 如果是主图，更新一日游的主图URL
             if (dayTourImage.getIsPrimary() == 1) {
@@ -118,8 +262,9 @@ public class ImageServiceImpl implements ImageService {
                 groupTourImageMapper.resetPrimaryImage(imageDTO.getRelatedId());
             }
             
-            // 保存图片信息
+            // 保存图片信息，提交后生成衍生图
             groupTourImageMapper.insert(groupTourImage);
+            imageDerivativePipeline.submit(ImageType.GROUP_TOUR, groupTourImage.getId(), imageUrl);
             
             // 如果是主图，更新跟团游的主图URL
             if (groupTourImage.getIsPrimary() == 1) {
@@ -232,12 +377,13 @@ public class ImageServiceImpl implements ImageService {
             // 获取图片URL
             String imageUrl = dayTourImage.getImageUrl();
             
-            // 2. 删除OSS中的图片
+            // 2. 删除存储中的图片
             if (imageUrl != null && !imageUrl.isEmpty()) {
-                String objectName = aliOssUtil.getObjectNameFromUrl(imageUrl);
+                String objectName = fileStorageService.getObjectNameFromUrl(imageUrl);
                 if (objectName != null) {
-                    aliOssUtil.deleteFile(objectName);
+                    fileStorageService.delete(objectName);
                 }
+                imageDerivativePipeline.deleteDerivatives(imageUrl);
             }
             
             // 3. 删除数据库记录
@@ -262,12 +408,13 @@ public class ImageServiceImpl implements ImageService {
                 // 获取图片URL
                 String imageUrl = groupTourImage.getImageUrl();
                 
-                // 2. 删除OSS中的图片
+                // 2. 删除存储中的图片
                 if (imageUrl != null && !imageUrl.isEmpty()) {
-                    String objectName = aliOssUtil.getObjectNameFromUrl(imageUrl);
+                    String objectName = fileStorageService.getObjectNameFromUrl(imageUrl);
                     if (objectName != null) {
-                        aliOssUtil.deleteFile(objectName);
+                        fileStorageService.delete(objectName);
                     }
+                    imageDerivativePipeline.deleteDerivatives(imageUrl);
                 }
                 
                 // 3. 删除数据库记录
@@ -40,8 +40,10 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -134,22 +136,8 @@ public class OrderServiceImpl implements OrderService {
         // 执行查询
         Page<OrderVO> page = orderMapper.pageQuery(orderPageQueryDTO);
         
-        // 为每个订单添加行程详情
-        for (OrderVO orderVO : page.getResult()) {
-            if ("group_tour".equals(orderVO.getTourType()) && orderVO.getTourId() != null) {
-                try {
-                    // 获取行程详情并转换为JSON字符串
-                    List<Map<String, Object>> itineraryDetails = fetchTourItineraryDetails(orderVO.getTourId(), orderVO.getTourType(), orderVO.getBookingId());
-                    if (itineraryDetails != null && !itineraryDetails.isEmpty()) {
-                        // 将行程详情设置到订单对象中
-                        orderVO.setItineraryDetails(objectMapper.writeValueAsString(itineraryDetails));
-                    }
-                } catch (Exception e) {
-                    log.error("获取订单行程详情失败: bookingId={}, tourId={}, error={}", 
-                             orderVO.getBookingId(), orderVO.getTourId(), e.getMessage(), e);
-                }
-            }
-        }
+        // 为跟团游订单添加行程详情
+        enrichGroupTourItineraries(page.getResult());
         
         // 将Page对象转换为PageResultVO对象
         return PageResultVO.<OrderVO>builder()
@@ -158,6 +146,46 @@ public class OrderServiceImpl implements OrderService {
                 .build();
     }
 
+    /**
+     * 批量为跟团游订单设置行程详情
+     * 收集本页的跟团游ID后一次批量获取行程（按跟团游缓存），同一跟团游只序列化一次，
+     * 查询次数与每页条数无关
+     * @param orders 订单列表
+     */
+    private void enrichGroupTourItineraries(List<OrderVO> orders) {
+        Set<Integer> tourIds = new HashSet<>();
+        for (OrderVO orderVO : orders) {
+            if ("group_tour".equals(orderVO.getTourType()) && orderVO.getTourId() != null) {
+                tourIds.add(orderVO.getTourId());
+            }
+        }
+        if (tourIds.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, String> itineraryJsonByTour = new HashMap<>();
+        try {
+            Map<Integer, List<Map<String, Object>>> itineraries = groupTourService.getGroupTourItineraries(tourIds);
+            for (Map.Entry<Integer, List<Map<String, Object>>> entry : itineraries.entrySet()) {
+                if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                    itineraryJsonByTour.put(entry.getKey(), objectMapper.writeValueAsString(entry.getValue()));
+                }
+            }
+        } catch (Exception e) {
+            log.error("批量获取订单行程详情失败: tourIds={}, error={}", tourIds, e.getMessage(), e);
+            return;
+        }
+
+        for (OrderVO orderVO : orders) {
+            if ("group_tour".equals(orderVO.getTourType()) && orderVO.getTourId() != null) {
+                String itineraryJson = itineraryJsonByTour.get(orderVO.getTourId());
+                if (itineraryJson != null) {
+                    orderVO.setItineraryDetails(itineraryJson);
+                }
+            }
+        }
+    }
+
     /**
      * 根据ID获取订单详情
      * @param bookingId 订单ID
@@ -0,0 +1,215 @@
+package com.sky.service.impl;
+
+import com.sky.lock.KeyedLockService;
+import com.sky.lock.LockLease;
+import com.sky.mapper.PassengerCountMapper;
+import com.sky.service.PassengerCountReconcileService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订单乘客人数核对服务实现
+ * 按订单ID分段（每段一个短事务）执行集合UPDATE，只改人数不一致的订单；
+ * 后台核对把进度（已完成到的订单ID）保存在Redis，中断（重启、失去锁）后由下一次执行或应用启动时继续，
+ * 多节点部署时通过 KeyedLockService 保证同一时间只有一个节点在执行。
+ */
+@Service
+@Slf4j
+public class PassengerCountReconcileServiceImpl implements PassengerCountReconcileService {
+
+    private static final String PROGRESS_KEY = "sky:passenger-count:reconcile";
+    private static final String LOCK_KEY = "passenger-count:reconcile";
+
+    @Autowired
+    private PassengerCountMapper passengerCountMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private KeyedLockService keyedLockService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 每段的订单ID跨度
+     */
+    @Value("${sky.passenger.count.reconcile.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * 后台核对时段与段之间的间隔，降低对线上库的压力
+     */
+    @Value("${sky.passenger.count.reconcile.pause-ms:50}")
+    private long pauseMillis;
+
+    /**
+     * 后台核对的锁租约时长，超过后停止并等待下次继续
+     */
+    @Value("${sky.passenger.count.reconcile.lease-ms:1800000}")
+    private long leaseMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder updatedBookings = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    @Override
+    public int reconcileAll() {
+        int maxId = passengerCountMapper.getMaxBookingId();
+        int updated = 0;
+        for (int from = 0; from < maxId; from += chunkSize) {
+            updated += reconcileChunk(from, Math.min(from + chunkSize, maxId));
+        }
+        log.info("订单乘客人数核对完成: 最大订单ID {}，更新{}个订单", maxId, updated);
+        return updated;
+    }
+
+    @Override
+    public boolean startReconcile() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                runResumable();
+            } finally {
+                running.set(false);
+            }
+        }, "passenger-count-reconcile");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * 每天凌晨核对一次
+     */
+    @Scheduled(cron = "${sky.passenger.count.reconcile-cron:0 10 4 * * ?}")
+    public void scheduledReconcile() {
+        startReconcile();
+    }
+
+    /**
+     * 启动时继续上次未完成的核对
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeIfUnfinished() {
+        try {
+            if (stringRedisTemplate.opsForHash().hasKey(PROGRESS_KEY, "cursor") && startReconcile()) {
+                log.info("继续上次未完成的订单乘客人数核对");
+            }
+        } catch (Exception e) {
+            log.warn("检查订单乘客人数核对进度失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从保存的进度继续核对到当前最大订单ID，每完成一段保存一次进度
+     */
+    private void runResumable() {
+        LockLease lease = keyedLockService.tryLock(LOCK_KEY, 0, leaseMillis);
+        if (lease == null) {
+            log.info("其他节点正在核对订单乘客人数，本次跳过");
+            return;
+        }
+        try {
+            Object savedCursor = stringRedisTemplate.opsForHash().get(PROGRESS_KEY, "cursor");
+            int cursor = savedCursor != null ? Integer.parseInt(savedCursor.toString()) : 0;
+            int maxId = passengerCountMapper.getMaxBookingId();
+            if (savedCursor == null) {
+                Map<String, String> start = new HashMap<>();
+                start.put("cursor", "0");
+                start.put("updated", "0");
+                start.put("startedAt", String.valueOf(System.currentTimeMillis()));
+                stringRedisTemplate.opsForHash().putAll(PROGRESS_KEY, start);
+            } else {
+                log.info("订单乘客人数核对从订单ID {} 继续", cursor);
+            }
+            stringRedisTemplate.opsForHash().put(PROGRESS_KEY, "maxId", String.valueOf(maxId));
+
+            while (cursor < maxId) {
+                if (!keyedLockService.isHeld(lease)) {
+                    log.warn("订单乘客人数核对的锁租约已失效，停在订单ID {}，下次继续", cursor);
+                    return;
+                }
+                int to = Math.min(cursor + chunkSize, maxId);
+                int updated = reconcileChunk(cursor, to);
+                cursor = to;
+                stringRedisTemplate.opsForHash().put(PROGRESS_KEY, "cursor", String.valueOf(cursor));
+                if (updated > 0) {
+                    stringRedisTemplate.opsForHash().increment(PROGRESS_KEY, "updated", updated);
+                }
+                if (pauseMillis > 0 && cursor < maxId) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+
+            Object updated = stringRedisTemplate.opsForHash().get(PROGRESS_KEY, "updated");
+            stringRedisTemplate.delete(PROGRESS_KEY);
+            Map<String, String> last = new HashMap<>();
+            last.put("lastMaxId", String.valueOf(maxId));
+            last.put("lastUpdated", updated != null ? updated.toString() : "0");
+            last.put("lastFinishedAt", String.valueOf(System.currentTimeMillis()));
+            stringRedisTemplate.opsForHash().putAll(PROGRESS_KEY, last);
+            log.info("订单乘客人数核对完成: 最大订单ID {}，更新{}个订单", maxId, last.get("lastUpdated"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failures.increment();
+            log.error("订单乘客人数核对失败，下次从中断处继续: {}", e.getMessage(), e);
+        } finally {
+            keyedLockService.release(lease);
+        }
+    }
+
+    /**
+     * 核对 (fromId, toId] 区间的订单，一段一个事务
+     */
+    private int reconcileChunk(int fromId, int toId) {
+        Integer updated = transactionTemplate.execute(status -> passengerCountMapper.reconcileRange(fromId, toId));
+        int count = updated != null ? updated : 0;
+        chunks.increment();
+        updatedBookings.add(count);
+        if (count > 0) {
+            log.info("🔧 订单ID ({}, {}] 修复了{}个订单的乘客人数", fromId, toId, count);
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Object> progress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("running", running.get());
+        try {
+            Map<Object, Object> saved = stringRedisTemplate.opsForHash().entries(PROGRESS_KEY);
+            saved.forEach((field, value) -> progress.put(field.toString(), value));
+            Object cursor = saved.get("cursor");
+            Object maxId = saved.get("maxId");
+            if (cursor != null && maxId != null && Integer.parseInt(maxId.toString()) > 0) {
+                progress.put("percent", Math.min(100.0,
+                        Integer.parseInt(cursor.toString()) * 100.0 / Integer.parseInt(maxId.toString())));
+            }
+        } catch (Exception e) {
+            log.warn("读取订单乘客人数核对进度失败: {}", e.getMessage());
+        }
+        progress.put("chunks", chunks.sum());
+        progress.put("updatedBookings", updatedBookings.sum());
+        progress.put("failures", failures.sum());
+        return progress;
+    }
+}
@@ -6,6 +6,7 @@ import com.sky.entity.BookingPassengerRelation;
 import com.sky.entity.TourBooking;
 import com.sky.mapper.PassengerMapper;
 import com.sky.mapper.TourBookingMapper;
+import com.sky.service.PassengerCountReconcileService;
 import com.sky.service.PassengerService;
 import com.sky.vo.PassengerVO;
 import lombok.extern.slf4j.Slf4j;
@@ -33,6 +34,9 @@ public class PassengerServiceImpl implements PassengerService {
     @Autowired
     private TourBookingMapper tourBookingMapper;
 
+    @Autowired
+    private PassengerCountReconcileService passengerCountReconcileService;
+
     /**
      * 根据ID查询乘客
      *
@@ -581,72 +585,12 @@ public class PassengerServiceImpl implements PassengerService {
     
     /**
      * 🆕 修复所有订单的乘客人数统计
-     * 批量处理所有订单，根据实际乘客数据重新计算人数
+     * 按订单ID分段执行集合SQL（见 PassengerCountReconcileService），只更新人数不一致的订单
      */
     @Override
-    @Transactional
     public Integer fixAllBookingPassengerCounts() {
         log.info("🚀 开始批量修复所有订单的乘客人数统计");
-        
-        int fixedCount = 0;
-        
-        try {
-            // 1. 获取所有订单ID
-            List<Integer> allBookingIds = tourBookingMapper.getAllBookingIds();
-            
-            if (allBookingIds == null || allBookingIds.isEmpty()) {
-                log.info("📝 没有找到需要修复的订单");
-                return 0;
-            }
-            
-            log.info("📊 找到{}个订单需要检查和修复", allBookingIds.size());
-            
-            // 2. 逐个修复每个订单的人数统计
-            for (Integer bookingId : allBookingIds) {
-                try {
-                    // 获取修复前的数据
-                    TourBooking beforeBooking = tourBookingMapper.getById(bookingId);
-                    Integer oldAdultCount = beforeBooking != null ? beforeBooking.getAdultCount() : null;
-                    Integer oldChildCount = beforeBooking != null ? beforeBooking.getChildCount() : null;
-                    
-                    // 修复人数统计
-                    updateBookingPassengerCount(bookingId);
-                    
-                    // 获取修复后的数据进行对比
-                    TourBooking afterBooking = tourBookingMapper.getById(bookingId);
-                    if (afterBooking != null) {
-                        Integer newAdultCount = afterBooking.getAdultCount();
-                        Integer newChildCount = afterBooking.getChildCount();
-                        
-                        // 检查是否有变化
-                        boolean hasChanged = false;
-                        if (!java.util.Objects.equals(oldAdultCount, newAdultCount) || 
-                            !java.util.Objects.equals(oldChildCount, newChildCount)) {
-                            hasChanged = true;
-                            fixedCount++;
-                            log.info("🔧 订单{}修复完成 - 成人: {} -> {}, 儿童: {} -> {}", 
-                                    bookingId, oldAdultCount, newAdultCount, oldChildCount, newChildCount);
-                        }
-                        
-                        if (!hasChanged) {
-                            log.debug("✅ 订单{}数据正确，无需修复", bookingId);
-                        }
-                    }
-                    
-                } catch (Exception e) {
-                    log.error("❌ 修复订单{}失败: {}", bookingId, e.getMessage(), e);
-                    // 继续处理下一个订单
-                }
-            }
-            
-            log.info("🎉 批量修复完成！共检查{}个订单，实际修复{}个订单", allBookingIds.size(), fixedCount);
-            
-        } catch (Exception e) {
-            log.error("❌ 批量修复过程发生错误: {}", e.getMessage(), e);
-            throw new RuntimeException("批量修复失败: " + e.getMessage());
-        }
-        
-        return fixedCount;
+        return passengerCountReconcileService.reconcileAll();
     }
     
     /**
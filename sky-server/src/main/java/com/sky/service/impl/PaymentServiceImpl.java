@@ -8,6 +8,8 @@ import com.sky.dto.PaymentDTO;
 import com.sky.dto.PaymentPageQueryDTO;
 import com.sky.entity.TourBooking;
 import com.sky.exception.CustomException;
+import com.sky.lock.KeyedLockService;
+import com.sky.lock.LockLease;
 import com.sky.mapper.AgentCreditMapper;
 import com.sky.mapper.BookingMapper;
 import com.sky.mapper.CreditTransactionMapper;
@@ -23,6 +25,7 @@ import com.sky.entity.PaymentAuditLog;
 import com.sky.vo.CreditPaymentResultVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -63,6 +66,21 @@ public class PaymentServiceImpl implements PaymentService {
     private NotificationService notificationService;
     @Autowired
     private PaymentAuditLogMapper paymentAuditLogMapper;
+
+    @Autowired
+    private KeyedLockService keyedLockService;
+
+    /**
+     * 同一订单并发支付时最长等待时间
+     */
+    @Value("${sky.lock.payment.wait-ms:3000}")
+    private long paymentLockWaitMillis;
+
+    /**
+     * 支付锁租约时长，需大于一次支付处理的耗时
+     */
+    @Value("${sky.lock.payment.lease-ms:30000}")
+    private long paymentLockLeaseMillis;
     
     /**
      * 判断是否是有效的订单号格式
@@ -293,11 +311,19 @@ public class PaymentServiceImpl implements PaymentService {
             throw new CustomException("订单不存在");
         }
         
-        // 🔒 JVM 级锁（建议后续替换为分布式锁/行级锁）
-        String lockKey = "payment_lock_" + bookingId;
-        synchronized (lockKey.intern()) {
+        // 🔒 按订单加锁（多节点共享），事务结束后才释放，后来的请求一定能读到已提交的支付状态
+        LockLease lease = keyedLockService.tryLock("payment:booking:" + bookingId,
+                paymentLockWaitMillis, paymentLockLeaseMillis);
+        if (lease == null) {
+            log.warn("订单 {} 正在支付处理中，获取支付锁超时", bookingId);
+            throw new CustomException("订单正在支付处理中，请稍后再试");
+        }
+        boolean releaseDeferred = keyedLockService.releaseAfterTransaction(lease);
+        try {
             
-            if ("paid".equals(existingBooking.getPaymentStatus())) {
+            // 加锁后锁定订单行重新读取支付状态，加锁前读到的状态可能已过期
+            String paymentStatus = tourBookingMapper.getPaymentStatusForUpdate(bookingId);
+            if ("paid".equals(paymentStatus)) {
                 log.warn("⚠️ 订单已支付，拒绝重复支付请求，订单ID: {}", bookingId);
                 return true; // 返回true表示支付成功（因为订单已经是支付状态）
             }
@@ -317,7 +343,7 @@ public class PaymentServiceImpl implements PaymentService {
                 }
             }
             
-            log.info("🔒 获取支付锁成功，开始处理订单 {} 的支付", bookingId);
+            log.info("🔒 获取支付锁成功，开始处理订单 {} 的支付，fencingToken: {}", bookingId, lease.getFencingToken());
             
             // 获取当前用户信息
             Long currentId = BaseContext.getCurrentId();
@@ -359,6 +385,12 @@ public class PaymentServiceImpl implements PaymentService {
                 // 准备支付信息
                 creditPaymentDTO.setAmount(actualOrderAmount);
                 
+                // 扣款不可重复，执行前确认租约仍然有效（处理过慢导致租约到期时放弃本次支付）
+                if (!keyedLockService.isHeld(lease)) {
+                    log.error("支付锁租约已失效，放弃本次支付，订单ID: {}, 锁: {}", bookingId, lease);
+                    throw new CustomException("支付处理超时，请稍后重试");
+                }
+                
                 // 调用统一的信用额度支付方法
                 CreditPaymentResultVO result = agentCreditService.payWithCredit(
                     Long.valueOf(targetAgentId), 
@@ -471,7 +503,11 @@ public class PaymentServiceImpl implements PaymentService {
                 log.error("信用额度支付处理过程中发生错误: {}", e.getMessage(), e);
                 throw new CustomException("支付处理失败: " + e.getMessage());
             }
-        } // synchronized块结束
+        } finally {
+            if (!releaseDeferred) {
+                keyedLockService.release(lease);
+            }
+        }
     }
     
     /**
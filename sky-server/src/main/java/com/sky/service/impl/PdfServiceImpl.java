@@ -3,214 +3,311 @@ package com.sky.service.impl;
 import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
 import com.sky.service.PdfService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Base64Utils;
 import org.springframework.util.StreamUtils;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * PDF生成服务实现类
+ * 中文字体和logo只在第一次生成时查找、读取一次，之后所有PDF共用同一份字体数据；
+ * 渲染在固定大小的线程池中执行，排队数量有上限，超出时直接拒绝，避免并发生成PDF占满内存和CPU。
  */
 @Service
 @Slf4j
 public class PdfServiceImpl implements PdfService {
 
+    private static final String FONT_FAMILY = "Chinese";
+
+    private static final String LOGO_PLACEHOLDER =
+            "data:image/png;base64,iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==";
+
+    /**
+     * 同时渲染PDF的线程数
+     */
+    @Value("${sky.pdf.render.threads:2}")
+    private int renderThreads;
+
+    /**
+     * 等待渲染的最大排队数
+     */
+    @Value("${sky.pdf.render.queue-capacity:20}")
+    private int queueCapacity;
+
+    /**
+     * 单个PDF的最长等待时间（含排队）
+     */
+    @Value("${sky.pdf.render.timeout-ms:60000}")
+    private long renderTimeoutMillis;
+
+    private ThreadPoolExecutor renderExecutor;
+
+    /**
+     * 已解析的中文字体，第一次生成PDF时查找
+     */
+    private volatile FontSource fontSource;
+
+    /**
+     * logo的data URL，未找到logo时为null
+     */
+    private volatile String logoDataUrl;
+    private volatile boolean logoLoaded;
+
+    private final LongAdder rendered = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder renderNanos = new LongAdder();
+
+    @PostConstruct
+    public void initExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        renderExecutor = new ThreadPoolExecutor(renderThreads, renderThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)), r -> {
+                    Thread thread = new Thread(r, "pdf-render-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        renderExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdownExecutor() {
+        renderExecutor.shutdownNow();
+    }
+
     @Override
     public byte[] generatePdfFromHtml(String htmlContent) {
+        Future<byte[]> future;
+        try {
+            future = renderExecutor.submit(() -> render(htmlContent));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("PDF生成排队已满（{}个），拒绝本次请求", renderExecutor.getQueue().size());
+            throw new RuntimeException("PDF生成繁忙，请稍后再试");
+        }
+        try {
+            return future.get(renderTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            failures.increment();
+            throw new RuntimeException("生成PDF超时");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("生成PDF被中断");
+        } catch (ExecutionException e) {
+            failures.increment();
+            Throwable cause = e.getCause();
+            log.error("生成PDF失败", cause);
+            throw new RuntimeException("生成PDF失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        long count = rendered.sum();
+        FontSource font = fontSource;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rendered", count);
+        stats.put("rejected", rejected.sum());
+        stats.put("failures", failures.sum());
+        stats.put("averageRenderMillis", count > 0 ? renderNanos.sum() / 1_000_000.0 / count : 0);
+        stats.put("active", renderExecutor.getActiveCount());
+        stats.put("queued", renderExecutor.getQueue().size());
+        stats.put("font", font != null ? font.name : null);
+        return stats;
+    }
+
+    /**
+     * 在渲染线程中生成PDF
+     */
+    private byte[] render(String htmlContent) throws Exception {
+        long start = System.nanoTime();
+        // 确保HTML内容包含完整的HTML结构和正确的编码声明
+        if (!htmlContent.contains("<!DOCTYPE html>")) {
+            htmlContent = "<!DOCTYPE html>\n<html>\n<head>\n" +
+                "<meta charset=\"UTF-8\">\n" +
+                "<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\">\n" +
+                "</head>\n<body>\n" + htmlContent + "\n</body>\n</html>";
+        }
+
+        // 处理logo图片，将占位符替换为实际的base64图片
+        String logo = getLogoDataUrl();
+        if (logo != null) {
+            htmlContent = htmlContent.replace(LOGO_PLACEHOLDER, logo);
+        }
+
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            
-            // 确保HTML内容包含完整的HTML结构和正确的编码声明
-            if (!htmlContent.contains("<!DOCTYPE html>")) {
-                htmlContent = "<!DOCTYPE html>\n<html>\n<head>\n" +
-                    "<meta charset=\"UTF-8\">\n" +
-                    "<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\">\n" +
-                    "</head>\n<body>\n" + htmlContent + "\n</body>\n</html>";
-            }
-            
-            // 处理logo图片，将占位符替换为实际的base64图片
-            htmlContent = processLogoImage(htmlContent);
-            
-            // 确保HTML内容使用UTF-8编码
-            byte[] htmlBytes = htmlContent.getBytes(StandardCharsets.UTF_8);
-            String processedHtml = new String(htmlBytes, StandardCharsets.UTF_8);
-            
             PdfRendererBuilder builder = new PdfRendererBuilder();
-            builder.withHtmlContent(processedHtml, null);
-            
-            // 设置默认字体和字符编码
+            builder.withHtmlContent(htmlContent, null);
             builder.useDefaultPageSize(210, 297, PdfRendererBuilder.PageSizeUnits.MM);
-            
-            // 添加中文字体支持
-            addChineseFontSupport(builder);
-            
+
+            // 添加中文字体支持（字体数据已缓存，这里只创建读取流）
+            FontSource font = getFontSource();
+            if (font.bytes != null) {
+                byte[] fontBytes = font.bytes;
+                builder.useFont(() -> new ByteArrayInputStream(fontBytes), FONT_FAMILY);
+            } else if (font.file != null) {
+                builder.useFont(font.file, FONT_FAMILY);
+            }
+
             builder.toStream(outputStream);
             builder.run();
-            
+
+            rendered.increment();
+            renderNanos.add(System.nanoTime() - start);
             log.info("PDF生成成功，大小: {} bytes", outputStream.size());
             return outputStream.toByteArray();
-            
-        } catch (Exception e) {
-            log.error("生成PDF失败", e);
-            throw new RuntimeException("生成PDF失败: " + e.getMessage(), e);
         }
     }
-    
+
     /**
-     * 处理logo图片，将占位符替换为实际的base64编码图片
+     * 中文字体：依次查找内置字体资源和系统字体，结果（包括未找到）只查找一次
      */
-    private String processLogoImage(String htmlContent) {
-        try {
-            // 读取logo图片文件
-            ClassPathResource logoResource = new ClassPathResource("static/images/logo.png");
-            if (logoResource.exists()) {
-                // 读取图片并转换为base64
-                try (InputStream inputStream = logoResource.getInputStream()) {
-                    byte[] imageBytes = StreamUtils.copyToByteArray(inputStream);
-                    String base64Image = Base64Utils.encodeToString(imageBytes);
-                    
-                    // 替换HTML中的占位符
-                    String logoDataUrl = "data:image/png;base64," + base64Image;
-                    htmlContent = htmlContent.replace(
-                        "data:image/png;base64,iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNkYPhfDwAChwGA60e6kgAAAABJRU5ErkJggg==",
-                        logoDataUrl
-                    );
-                    
-                    log.info("成功加载logo图片，大小: {} bytes", imageBytes.length);
+    private FontSource getFontSource() {
+        FontSource font = fontSource;
+        if (font == null) {
+            synchronized (this) {
+                font = fontSource;
+                if (font == null) {
+                    font = loadResourceFont();
+                    if (font == null) {
+                        font = findSystemFont();
+                    }
+                    if (font == null) {
+                        log.warn("未能加载任何中文字体，PDF可能出现中文乱码");
+                        font = new FontSource("none", null, null);
+                    }
+                    fontSource = font;
                 }
-            } else {
-                log.warn("Logo图片文件不存在: static/images/logo.png");
             }
-        } catch (Exception e) {
-            log.error("处理logo图片失败", e);
         }
-        return htmlContent;
+        return font;
     }
 
     /**
-     * 添加中文字体支持 - 改进版本
+     * 读取资源文件中的字体
      */
-    private void addChineseFontSupport(PdfRendererBuilder builder) {
-        try {
-            log.info("开始添加中文字体支持...");
-            
-            // 方案1: 尝试加载内置字体资源
-            boolean resourceFontLoaded = loadResourceFonts(builder);
-            
-            // 方案2: 如果内置字体加载失败，尝试系统字体
-            if (!resourceFontLoaded) {
-                boolean systemFontLoaded = loadSystemFonts(builder);
-                
-                if (!systemFontLoaded) {
-                    log.warn("未能加载任何中文字体，PDF可能出现中文乱码");
-                    // 设置默认后备字体
-                    setFallbackFont(builder);
+    private FontSource loadResourceFont() {
+        String[] resourceFonts = {
+            "fonts/simhei.ttf",
+            "fonts/simsun.ttf",
+            "fonts/microsoftyahei.ttf",
+            "fonts/NotoSansCJK-Regular.ttc"
+        };
+        for (String fontPath : resourceFonts) {
+            try {
+                ClassPathResource fontResource = new ClassPathResource(fontPath);
+                if (fontResource.exists()) {
+                    try (InputStream fontStream = fontResource.getInputStream()) {
+                        byte[] fontBytes = StreamUtils.copyToByteArray(fontStream);
+                        log.info("成功加载资源字体: {}，大小: {} bytes", fontPath, fontBytes.length);
+                        return new FontSource(fontPath, fontBytes, null);
+                    }
                 }
+            } catch (Exception e) {
+                log.debug("资源字体加载失败: {}, 错误: {}", fontPath, e.getMessage());
             }
-            
-        } catch (Exception e) {
-            log.error("添加中文字体支持失败: {}", e.getMessage(), e);
-            setFallbackFont(builder);
         }
+        return null;
     }
-    
+
     /**
-     * 加载资源文件中的字体
+     * 查找系统字体（按文件使用，由渲染器直接读取文件）
      */
-    private boolean loadResourceFonts(PdfRendererBuilder builder) {
-        try {
-            // 尝试从resources目录加载字体文件
-            String[] resourceFonts = {
-                "fonts/simhei.ttf",
-                "fonts/simsun.ttf", 
-                "fonts/microsoftyahei.ttf",
-                "fonts/NotoSansCJK-Regular.ttc"
-            };
-            
-            for (String fontPath : resourceFonts) {
-                try {
-                    ClassPathResource fontResource = new ClassPathResource(fontPath);
-                    if (fontResource.exists()) {
-                        try (InputStream fontStream = fontResource.getInputStream()) {
-                            byte[] fontBytes = StreamUtils.copyToByteArray(fontStream);
-                            builder.useFont(() -> new java.io.ByteArrayInputStream(fontBytes), "Chinese");
-                            log.info("成功加载资源字体: {}", fontPath);
-                            return true;
-                        }
-                    }
-                } catch (Exception e) {
-                    log.debug("资源字体加载失败: {}, 错误: {}", fontPath, e.getMessage());
-                }
+    private FontSource findSystemFont() {
+        // Windows系统字体路径
+        String[] windowsFonts = {
+            "C:/Windows/Fonts/msyh.ttc",      // 微软雅黑
+            "C:/Windows/Fonts/msyhbd.ttc",    // 微软雅黑粗体
+            "C:/Windows/Fonts/simhei.ttf",    // 黑体
+            "C:/Windows/Fonts/simsun.ttc",    // 宋体
+            "C:/Windows/Fonts/simkai.ttf",    // 楷体
+            "C:/Windows/Fonts/MSYH.TTF",      // 微软雅黑备选
+            "C:/Windows/Fonts/SIMHEI.TTF",    // 黑体备选
+            "C:/Windows/Fonts/SIMSUN.TTC"     // 宋体备选
+        };
+
+        // Linux系统字体路径
+        String[] linuxFonts = {
+            "/usr/share/fonts/truetype/droid/DroidSansFallbackFull.ttf",
+            "/usr/share/fonts/truetype/wqy/wqy-zenhei.ttc",
+            "/usr/share/fonts/truetype/wqy/wqy-microhei.ttc",
+            "/System/Library/Fonts/PingFang.ttc",  // macOS
+            "/System/Library/Fonts/STHeiti Light.ttc" // macOS
+        };
+
+        String osName = System.getProperty("os.name").toLowerCase();
+        String[] fontPaths = osName.contains("windows") ? windowsFonts : linuxFonts;
+        for (String fontPath : fontPaths) {
+            File fontFile = new File(fontPath);
+            if (fontFile.exists() && fontFile.canRead()) {
+                log.info("成功加载系统字体: {}", fontPath);
+                return new FontSource(fontPath, null, fontFile);
             }
-        } catch (Exception e) {
-            log.warn("加载资源字体时出错: {}", e.getMessage());
         }
-        return false;
+        return null;
     }
-    
+
     /**
-     * 加载系统字体
+     * logo图片的data URL，只读取一次
      */
-    private boolean loadSystemFonts(PdfRendererBuilder builder) {
-        try {
-            // Windows系统字体路径
-            String[] windowsFonts = {
-                "C:/Windows/Fonts/msyh.ttc",      // 微软雅黑
-                "C:/Windows/Fonts/msyhbd.ttc",    // 微软雅黑粗体
-                "C:/Windows/Fonts/simhei.ttf",    // 黑体
-                "C:/Windows/Fonts/simsun.ttc",    // 宋体
-                "C:/Windows/Fonts/simkai.ttf",    // 楷体
-                "C:/Windows/Fonts/MSYH.TTF",      // 微软雅黑备选
-                "C:/Windows/Fonts/SIMHEI.TTF",    // 黑体备选
-                "C:/Windows/Fonts/SIMSUN.TTC"     // 宋体备选
-            };
-            
-            // Linux系统字体路径
-            String[] linuxFonts = {
-                "/usr/share/fonts/truetype/droid/DroidSansFallbackFull.ttf",
-                "/usr/share/fonts/truetype/wqy/wqy-zenhei.ttc",
-                "/usr/share/fonts/truetype/wqy/wqy-microhei.ttc",
-                "/System/Library/Fonts/PingFang.ttc",  // macOS
-                "/System/Library/Fonts/STHeiti Light.ttc" // macOS
-            };
-            
-            // 检测操作系统
-            String osName = System.getProperty("os.name").toLowerCase();
-            String[] fontPaths = osName.contains("windows") ? windowsFonts : linuxFonts;
-            
-            for (String fontPath : fontPaths) {
-                try {
-                    File fontFile = new File(fontPath);
-                    if (fontFile.exists() && fontFile.canRead()) {
-                        builder.useFont(fontFile, "Chinese");
-                        log.info("成功加载系统字体: {}", fontPath);
-                        return true;
+    private String getLogoDataUrl() {
+        if (!logoLoaded) {
+            synchronized (this) {
+                if (!logoLoaded) {
+                    try {
+                        ClassPathResource logoResource = new ClassPathResource("static/images/logo.png");
+                        if (logoResource.exists()) {
+                            try (InputStream inputStream = logoResource.getInputStream()) {
+                                byte[] imageBytes = StreamUtils.copyToByteArray(inputStream);
+                                logoDataUrl = "data:image/png;base64," + Base64Utils.encodeToString(imageBytes);
+                                log.info("成功加载logo图片，大小: {} bytes", imageBytes.length);
+                            }
+                        } else {
+                            log.warn("Logo图片文件不存在: static/images/logo.png");
+                        }
+                    } catch (Exception e) {
+                        log.error("处理logo图片失败", e);
                     }
-                } catch (Exception e) {
-                    log.debug("系统字体加载失败: {}, 错误: {}", fontPath, e.getMessage());
+                    logoLoaded = true;
                 }
             }
-        } catch (Exception e) {
-            log.warn("加载系统字体时出错: {}", e.getMessage());
         }
-        return false;
+        return logoDataUrl;
     }
-    
+
     /**
-     * 设置后备字体配置
+     * 已解析的字体：资源字体保存字节，系统字体保存文件，都为空表示没有可用字体
      */
-    private void setFallbackFont(PdfRendererBuilder builder) {
-        try {
-            // 尝试使用Java内置的字体
-            builder.useDefaultPageSize(210, 297, PdfRendererBuilder.PageSizeUnits.MM);
-            log.info("已设置后备字体配置");
-        } catch (Exception e) {
-            log.warn("设置后备字体配置失败: {}", e.getMessage());
+    private static class FontSource {
+        final String name;
+        final byte[] bytes;
+        final File file;
+
+        FontSource(String name, byte[] bytes, File file) {
+            this.name = name;
+            this.bytes = bytes;
+            this.file = file;
         }
     }
-}
\ No newline at end of file
+}
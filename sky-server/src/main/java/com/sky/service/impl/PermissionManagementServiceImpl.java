@@ -6,6 +6,7 @@ import com.sky.dto.PermissionAssignDTO;
 import com.sky.entity.PositionPagePermission;
 import com.sky.entity.SystemPage;
 import com.sky.mapper.*;
+import com.sky.permission.PermissionMatrix;
 import com.sky.service.PermissionManagementService;
 import com.sky.vo.PermissionManagementVO;
 import com.sky.vo.PositionPermissionVO;
@@ -43,6 +44,9 @@ public class PermissionManagementServiceImpl implements PermissionManagementServ
     @Autowired
     private EmployeeMapper employeeMapper;
 
+    @Autowired
+    private PermissionMatrix permissionMatrix;
+
     @Override
     public PermissionManagementVO getPermissionManagementOverview() {
         log.info("获取权限管理概览数据");
@@ -283,10 +287,10 @@ public class PermissionManagementServiceImpl implements PermissionManagementServ
         log.debug("检查员工页面权限，员工ID：{}，页面：{}", employeeId, pagePath);
 
         try {
-            // 使用Mapper的专门查询方法
-            Boolean hasPermission = positionPagePermissionMapper.checkEmployeePagePermission(employeeId, pagePath);
+            // 查询编译后的权限矩阵（内存读取，权限变更后自动重建）
+            boolean hasPermission = permissionMatrix.hasPagePermission(employeeId, pagePath);
             log.debug("员工权限检查结果：{}，员工ID：{}，页面：{}", hasPermission, employeeId, pagePath);
-            return hasPermission != null ? hasPermission : false;
+            return hasPermission;
             
         } catch (Exception e) {
             log.error("检查员工页面权限失败，员工ID：{}，页面：{}", employeeId, pagePath, e);
@@ -299,10 +303,10 @@ public class PermissionManagementServiceImpl implements PermissionManagementServ
         log.info("获取员工页面权限列表，员工ID：{}", employeeId);
 
         try {
-            // 使用Mapper的专门查询方法获取员工的所有页面权限
-            List<String> pagePaths = positionPagePermissionMapper.findEmployeePagePaths(employeeId);
+            // 从权限矩阵获取员工的所有页面权限
+            List<String> pagePaths = permissionMatrix.getPagePaths(employeeId);
             log.info("员工权限查询完成，员工ID：{}，权限数量：{}", employeeId, pagePaths.size());
-            return pagePaths != null ? pagePaths : new ArrayList<>();
+            return pagePaths;
                     
         } catch (Exception e) {
             log.error("获取员工页面权限失败，员工ID：{}", employeeId, e);
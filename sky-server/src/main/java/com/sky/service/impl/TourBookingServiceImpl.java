@@ -19,7 +19,6 @@ import com.sky.entity.Agent;
 import com.sky.dto.GroupTourDTO;
 import com.sky.entity.DayTour;
 import com.sky.entity.GroupTourDayTourRelation;
-import com.sky.entity.HotelDailyPrice;
 import com.sky.service.PassengerService;
 import com.sky.service.TourBookingService;
 import com.sky.service.AgentCreditService;
@@ -46,6 +45,9 @@ import com.sky.vo.TourBookingVO;
 import com.sky.vo.PriceDetailVO;
 import com.sky.vo.PassengerVO;
 import com.sky.context.BaseContext;
+import com.sky.pricing.HotelPriceIndex;
+import com.sky.pricing.PriceCatalog;
+import com.sky.pricing.PriceCatalogSnapshot;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -145,6 +147,12 @@ public class TourBookingServiceImpl implements TourBookingService {
     @Autowired
     private DiscountService discountService;
     
+    @Autowired
+    private PriceCatalog priceCatalog;
+    
+    @Autowired
+    private HotelPriceIndex hotelPriceIndex;
+    
     @Autowired
     private EmailAsyncService emailAsyncService;
     
@@ -3148,20 +3156,8 @@ public class TourBookingServiceImpl implements TourBookingService {
             log.info("一日游价格总和（单人）: {}", totalDayTourPrice);
             
             // 5. 应用代理商折扣
-            BigDecimal discountRate = BigDecimal.ONE;
-            if (agentId != null) {
-                try {
-                    Map<String, Object> discountResult = discountService.calculateTourDiscount(
-                        groupTourId.longValue(), "group_tour", totalDayTourPrice, agentId);
-                    
-                    if (discountResult != null && discountResult.get("discountRate") != null) {
-                        discountRate = (BigDecimal) discountResult.get("discountRate");
-                        log.info("获取到代理商折扣率: {} (代理商ID: {})", discountRate, agentId);
-                    }
-                } catch (Exception e) {
-                    log.error("获取代理商折扣信息失败，使用默认折扣率: {}", e.getMessage(), e);
-                }
-            }
+            BigDecimal discountRate = resolveDiscountRate(
+                priceCatalog.snapshot(), groupTourId, "group_tour", totalDayTourPrice, agentId);
             
             BigDecimal discountedUnitPrice = totalDayTourPrice.multiply(discountRate).setScale(2, RoundingMode.HALF_UP);
             log.info("折扣后单人价格: {}", discountedUnitPrice);
@@ -3213,6 +3209,7 @@ public class TourBookingServiceImpl implements TourBookingService {
      * - 代理商折扣
      * - 酒店等级差价
      * - 单房差和额外房间费用
+     * 计价数据取自价格目录快照（PriceCatalog），快照未覆盖的产品或日期才回退到数据库查询
      */
     @Override
     public Map<String, Object> calculateUnifiedPrice(Integer tourId, String tourType, Long agentId, 
@@ -3220,25 +3217,10 @@ public class TourBookingServiceImpl implements TourBookingService {
                                                    Integer roomCount, Long userId, String roomTypes, 
                                                    String childrenAges, String selectedOptionalTours, Boolean includeHotel,
                                                    LocalDate startDate, LocalDate endDate, Boolean isSmallGroup) {
-        log.info("========================================");
-        log.info("🧮 开始统一价格计算");
-        log.info("========================================");
-        log.info("📋 输入参数:");
-        log.info("  - 产品ID: {}", tourId);
-        log.info("  - 产品类型: {}", tourType);
-        log.info("  - 代理商ID: {}", agentId);
-        log.info("  - 成人数量: {}", adultCount);
-        log.info("  - 儿童数量: {}", childCount);
-        log.info("  - 儿童年龄: {}", childrenAges);
-        log.info("  - 酒店星级: {}", hotelLevel);
-        log.info("  - 房间数量: {}", roomCount);
-        log.info("  - 房间类型: {}", roomTypes);
-        log.info("  - 包含酒店: {}", includeHotel);
-        log.info("  - 行程出发日期: {}", startDate);
-        log.info("  - 行程返回日期: {}", endDate);
-        log.info("  - 可选行程: {}", selectedOptionalTours);
-        log.info("  - 是否小团: {}", isSmallGroup);
-        log.info("========================================");
+        log.debug("开始统一价格计算: tourId={}, tourType={}, agentId={}, adultCount={}, childCount={}, childrenAges={}, " +
+                  "hotelLevel={}, roomCount={}, roomTypes={}, includeHotel={}, startDate={}, endDate={}, optionalTours={}, isSmallGroup={}",
+                tourId, tourType, agentId, adultCount, childCount, childrenAges, hotelLevel, roomCount, roomTypes,
+                includeHotel, startDate, endDate, selectedOptionalTours, isSmallGroup);
         
         // 参数验证
         if (tourId == null || tourType == null) {
@@ -3255,196 +3237,59 @@ public class TourBookingServiceImpl implements TourBookingService {
         
         // 解析房间类型数组
         List<String> roomTypeList = parseRoomTypes(roomTypes, roomCount);
-        log.info("🏨 解析后的房间类型列表: {}", roomTypeList);
         
         // 🆕 如果是跟团游且不包含酒店，使用一日游价格总和计算
         if ("group_tour".equals(tourType) && !includeHotel) {
-            log.info("ℹ️ 不包含酒店的跟团游，使用一日游价格计算");
+            log.debug("不包含酒店的跟团游，使用一日游价格计算");
             return calculatePriceWithoutHotel(tourId, agentId, adultCount, childCount, childrenAges, selectedOptionalTours);
         }
         
-        // 获取基础价格信息（不包含可选行程）
-        log.info("----------------------------------------");
-        log.info("📊 步骤 1: 获取基础价格信息");
-        log.info("----------------------------------------");
-        PriceBaseInfo baseInfo = getBasePriceInfo(tourId, tourType, null, adultCount, childCount, startDate);
+        // 同一次报价只读取一次快照，保证整个计算使用同一版本的价格数据
+        PriceCatalogSnapshot catalog = priceCatalog.snapshot();
+
+        // 步骤 1: 获取基础价格信息（不包含可选行程）
+        PriceBaseInfo baseInfo = getBasePriceInfo(catalog, tourId, tourType, startDate);
         if (baseInfo == null) {
             log.error("❌ 获取产品基础信息失败");
             return buildErrorResponse("获取产品基础信息失败");
         }
-        log.info("✅ 基础单价: {} 元/人", baseInfo.baseUnitPrice);
-        log.info("✅ 住宿夜数: {} 晚", baseInfo.nights);
-        
-        // 使用智能折扣系统计算代理商折扣
-        log.info("----------------------------------------");
-        log.info("💰 步骤 2: 计算代理商折扣");
-        log.info("----------------------------------------");
-        BigDecimal discountRate = BigDecimal.ONE;
-        if (agentId != null) {
-            try {
-                // 使用智能折扣服务，优先使用产品级别折扣，回退到统一折扣
-                Map<String, Object> discountResult = discountService.calculateTourDiscount(
-                    tourId.longValue(), tourType, baseInfo.baseUnitPrice, agentId);
-                
-                if (discountResult != null && discountResult.get("discountRate") != null) {
-                    discountRate = (BigDecimal) discountResult.get("discountRate");
-                    boolean enhancedMode = Boolean.TRUE.equals(discountResult.get("enhancedMode"));
-                    log.info("✅ 代理商折扣率: {} ({}%折扣)", discountRate, discountRate.multiply(new BigDecimal("100")));
-                    log.info("   折扣模式: {}", enhancedMode ? "产品级别折扣" : "统一折扣");
-                } else {
-                    log.warn("⚠️ 折扣服务返回空结果，使用默认折扣率: 1.0 (无折扣)");
-                }
-            } catch (Exception e) {
-                log.error("❌ 获取代理商折扣信息失败，使用默认折扣率: {}", e.getMessage(), e);
-            }
-        } else {
-            log.info("ℹ️ 未提供代理商ID，不应用折扣");
-        }
         
+        // 步骤 2: 计算代理商折扣（优先使用产品级别折扣，未配置时不打折）
+        BigDecimal discountRate = resolveDiscountRate(catalog, tourId, tourType, baseInfo.baseUnitPrice, agentId);
         BigDecimal discountedBaseUnitPrice = baseInfo.baseUnitPrice.multiply(discountRate).setScale(2, RoundingMode.HALF_UP);
-        log.info("✅ 折扣后基础单价: {} 元/人 (原价 {} × 折扣率 {})", 
-                discountedBaseUnitPrice, baseInfo.baseUnitPrice, discountRate);
-        
-        // 单独计算可选行程差价（不打折）
-        log.info("----------------------------------------");
-        log.info("🎯 步骤 3: 计算可选行程差价");
-        log.info("----------------------------------------");
-        BigDecimal optionalTourPriceDiff = BigDecimal.ZERO;
-        if (selectedOptionalTours != null && !selectedOptionalTours.trim().isEmpty()) {
-            optionalTourPriceDiff = calculateOptionalTourPriceDiff(tourId, selectedOptionalTours, adultCount, childCount);
-            log.info("✅ 可选行程差价: {} 元/人 (此差价不打折)", optionalTourPriceDiff);
-        } else {
-            log.info("ℹ️ 无可选行程，差价为 0");
-        }
+        
+        // 步骤 3: 单独计算可选行程差价（不打折）
+        BigDecimal optionalTourPriceDiff = calculateOptionalTourPriceDiff(catalog, tourId, selectedOptionalTours, adultCount, childCount);
         
         // 最终单价 = 折扣后基础单价 + 可选行程差价
         BigDecimal finalUnitPrice = discountedBaseUnitPrice.add(optionalTourPriceDiff);
-        log.info("✅ 最终单价: {} 元/人 (折扣后基础 {} + 可选差价 {})", 
-                finalUnitPrice, discountedBaseUnitPrice, optionalTourPriceDiff);
-        
-        // 计算人员费用
-        log.info("----------------------------------------");
-        log.info("👥 步骤 4: 计算人员费用");
-        log.info("----------------------------------------");
-        log.info("计算参数: 最终单价={}, 成人数={}, 儿童数={}, 儿童年龄={}", 
-                finalUnitPrice, adultCount, childCount, childrenAges);
+        
+        // 步骤 4: 计算人员费用
         PersonPriceInfo personPrice = calculatePersonPrice(finalUnitPrice, adultCount, childCount, childrenAges);
-        log.info("✅ 人员费用合计: {} 元", personPrice.totalPersonPrice);
-        if (personPrice.childrenDetails != null && !personPrice.childrenDetails.isEmpty()) {
-            log.info("   儿童详情:");
-            for (Map<String, Object> child : personPrice.childrenDetails) {
-                log.info("     - 年龄 {} 岁: {} 元 (规则: {})", 
-                        child.get("age"), child.get("price"), child.get("priceRule"));
-            }
-        }
         
-        // 计算住宿相关费用（支持按日期计算）
-        log.info("----------------------------------------");
-        log.info("🏨 步骤 5: 计算住宿相关费用");
-        log.info("----------------------------------------");
-        log.info("计算参数: 酒店星级={}, 基础夜数={}, 成人数={}, 儿童数={}, 房间数={}, 入住={}, 退房={}", 
-                hotelLevel, baseInfo.nights, adultCount, childCount, roomCount, startDate, endDate);
+        // 步骤 5: 计算住宿相关费用（支持按日期计算）
         AccommodationPriceInfo accommodationPrice = calculateAccommodationPrice(
-            hotelLevel, baseInfo.nights, adultCount, childCount, roomCount, roomTypeList, startDate, endDate);
-        log.info("✅ 住宿费用合计: {} 元", accommodationPrice.totalAccommodationFee);
-        
-        // 计算小团差价（如果适用）
-        log.info("----------------------------------------");
-        log.info("🔸 步骤 6: 计算小团差价");
-        log.info("----------------------------------------");
-        BigDecimal smallGroupExtraFee = BigDecimal.ZERO;
-        if (isSmallGroup != null && isSmallGroup) {
-            try {
-                BigDecimal smallGroupPriceDifference = null;
-                
-                // 根据产品类型获取小团差价
-                if ("day_tour".equals(tourType)) {
-                    DayTour dayTour = dayTourMapper.getById(tourId);
-                    if (dayTour != null) {
-                        smallGroupPriceDifference = dayTour.getSmallGroupPriceDifference();
-                        log.info("一日游小团差价: {}/人", smallGroupPriceDifference);
-                    }
-                } else if ("group_tour".equals(tourType)) {
-                    GroupTourDTO groupTour = groupTourMapper.getById(tourId);
-                    if (groupTour != null) {
-                        smallGroupPriceDifference = groupTour.getSmallGroupPriceDifference();
-                        log.info("跟团游小团差价: {}/人/天", smallGroupPriceDifference);
-                    }
-                }
-                
-                if (smallGroupPriceDifference != null && smallGroupPriceDifference.compareTo(BigDecimal.ZERO) > 0) {
-                    // 计算天数
-                    int days = 1;
-                    if (startDate != null && endDate != null) {
-                        days = (int) ChronoUnit.DAYS.between(startDate, endDate);
-                        if (days <= 0) {
-                            days = 1;
-                        }
-                        // 对于跟团游，天数应该包含最后一天
-                        if ("group_tour".equals(tourType)) {
-                            days += 1;
-                        }
-                    } else if ("group_tour".equals(tourType)) {
-                        // 如果没有提供日期，尝试从产品信息获取天数
-                        try {
-                            GroupTourDTO groupTour = groupTourMapper.getById(tourId);
-                            if (groupTour != null && groupTour.getDays() != null) {
-                                days = groupTour.getDays();
-                            }
-                        } catch (Exception e) {
-                            log.warn("无法获取跟团游天数，使用默认值1", e);
-                        }
-                    }
-                    
-                    // 小团额外费用 = 小团差价 × 成人数量 × 天数
-                    smallGroupExtraFee = smallGroupPriceDifference
-                        .multiply(BigDecimal.valueOf(adultCount != null ? adultCount : 0))
-                        .multiply(BigDecimal.valueOf(days))
-                        .setScale(2, RoundingMode.HALF_UP);
-                    
-                    log.info("✅ 小团额外费用计算: 差价={}/人/{}, 成人数={}, 天数={}, 总计={}",
-                        smallGroupPriceDifference, 
-                        "group_tour".equals(tourType) ? "天" : "次", 
-                        adultCount, days, smallGroupExtraFee);
-                } else {
-                    log.info("产品未设置小团差价或差价为0，小团额外费用=0");
-                }
-            } catch (Exception e) {
-                log.error("计算小团差价时出错: {}", e.getMessage(), e);
-                smallGroupExtraFee = BigDecimal.ZERO;
-            }
-        } else {
-            log.info("未选择小团选项，小团额外费用=0");
-        }
+            catalog, hotelLevel, baseInfo.nights, adultCount, childCount, roomTypeList, startDate, endDate);
         
-        // 汇总总价
-        log.info("----------------------------------------");
-        log.info("💵 步骤 7: 汇总总价");
-        log.info("----------------------------------------");
+        // 步骤 6: 计算小团差价（如果适用）
+        BigDecimal smallGroupExtraFee = calculateSmallGroupExtraFee(
+            catalog, tourId, tourType, isSmallGroup, adultCount, startDate, endDate);
+                
+        // 步骤 7: 汇总总价
         BigDecimal totalPrice = personPrice.totalPersonPrice
                 .add(accommodationPrice.totalAccommodationFee)
                 .add(smallGroupExtraFee);
-        log.info("总价计算:");
-        log.info("  人员费用: {} 元", personPrice.totalPersonPrice);
-        log.info("  + 住宿费用: {} 元", accommodationPrice.totalAccommodationFee);
-        log.info("  + 小团费用: {} 元", smallGroupExtraFee);
-        log.info("  = 最终总价: {} 元", totalPrice);
         
         // 非代理商价格 = 人员价格反算（÷折扣率）+ 住宿费用（固定成本，不反算）+ 小团费用（固定成本，不反算）
         BigDecimal nonAgentPrice = personPrice.totalPersonPrice.divide(discountRate, 2, RoundingMode.HALF_UP)
                 .add(accommodationPrice.totalAccommodationFee)
                 .add(smallGroupExtraFee);
-        log.info("非代理商价格计算:");
-        log.info("  人员费用反算: {} 元 ({} ÷ {})", 
-                personPrice.totalPersonPrice.divide(discountRate, 2, RoundingMode.HALF_UP),
-                personPrice.totalPersonPrice, discountRate);
-        log.info("  + 住宿费用: {} 元 (固定成本)", accommodationPrice.totalAccommodationFee);
-        log.info("  + 小团费用: {} 元 (固定成本)", smallGroupExtraFee);
-        log.info("  = 非代理商价格: {} 元", nonAgentPrice);
-        
-        log.info("========================================");
-        log.info("✅ 价格计算完成");
-        log.info("========================================");
+        
+        log.info("价格计算完成: tourId={}, tourType={}, agentId={}, 基础单价={}, 折扣率={}, 可选差价={}/人, 人员费用={}, 住宿费用={}, " +
+                 "小团费用={}, 总价={}, 非代理商价格={}, 价格目录版本={}",
+                tourId, tourType, agentId, baseInfo.baseUnitPrice, discountRate, optionalTourPriceDiff,
+                personPrice.totalPersonPrice, accommodationPrice.totalAccommodationFee, smallGroupExtraFee,
+                totalPrice, nonAgentPrice, catalog.getVersion());
         
         // 构建返回结果
         Map<String, Object> result = new HashMap<>();
@@ -3480,70 +3325,8 @@ public class TourBookingServiceImpl implements TourBookingService {
         breakdown.put("roomTypes", roomTypeList);
         breakdown.put("accommodationNights", baseInfo.nights);
         breakdown.put("optionalPrice", optionalTourPriceDiff.multiply(BigDecimal.valueOf(adultCount + childCount))); // 可选行程总价
-        
-        // 🆕 计算实际的酒店差价和单房差（从accommodationFee中分离出来）
-        BigDecimal actualHotelPriceDiff = BigDecimal.ZERO;
-        BigDecimal actualSingleRoomSupplement = BigDecimal.ZERO;
-        
-        try {
-            int totalPeople = adultCount + childCount;
-            
-            // 计算酒店星级差价
-            if (startDate != null && endDate != null) {
-                int actualNights = (int) ChronoUnit.DAYS.between(startDate, endDate);
-                LocalDate currentDate = startDate;
-                for (int i = 0; i < actualNights; i++) {
-                    BigDecimal dailyPriceDiff = hotelDailyPriceService.getPriceDifferenceByLevelAndDate(hotelLevel, currentDate);
-                    BigDecimal dailyCost = dailyPriceDiff.multiply(BigDecimal.valueOf(totalPeople));
-                    actualHotelPriceDiff = actualHotelPriceDiff.add(dailyCost);
-                    currentDate = currentDate.plusDays(1);
-                }
-            } else {
-                BigDecimal hotelPriceDiff = hotelPriceService.getPriceDifferenceByLevel(hotelLevel);
-                actualHotelPriceDiff = hotelPriceDiff.multiply(BigDecimal.valueOf(baseInfo.nights))
-                                                    .multiply(BigDecimal.valueOf(totalPeople));
-            }
-            
-            // 计算单房差
-            int totalBeds = 0;
-            for (String roomType : roomTypeList) {
-                if (roomType != null) {
-                    if (roomType.contains("单人间") || roomType.equalsIgnoreCase("single")) {
-                        totalBeds += 2;
-                    } else if (roomType.contains("三人间") || roomType.contains("三床") || 
-                               roomType.contains("家庭") || roomType.equalsIgnoreCase("triple") || 
-                               roomType.equalsIgnoreCase("family")) {
-                        totalBeds += 3;
-                    } else {
-                        totalBeds += 2;
-                    }
-                }
-            }
-            
-            int emptyBeds = totalBeds - totalPeople;
-            if (emptyBeds > 0) {
-                if (startDate != null && endDate != null) {
-                    int effectiveNights = (int) ChronoUnit.DAYS.between(startDate, endDate);
-                    LocalDate currentDate = startDate;
-                    for (int i = 0; i < effectiveNights; i++) {
-                        BigDecimal dailySupplement = hotelDailyPriceService.getSingleRoomSupplementByLevelAndDate(hotelLevel, currentDate);
-                        actualSingleRoomSupplement = actualSingleRoomSupplement.add(
-                            dailySupplement.multiply(BigDecimal.valueOf(emptyBeds)));
-                        currentDate = currentDate.plusDays(1);
-                    }
-                } else {
-                    BigDecimal singleRoomSupplement = hotelPriceService.getDailySingleRoomSupplementByLevel(hotelLevel);
-                    actualSingleRoomSupplement = singleRoomSupplement
-                            .multiply(BigDecimal.valueOf(emptyBeds))
-                            .multiply(BigDecimal.valueOf(baseInfo.nights));
-                }
-            }
-        } catch (Exception e) {
-            log.error("计算酒店差价和单房差明细失败: {}", e.getMessage(), e);
-        }
-        
-        breakdown.put("hotelPriceDiff", actualHotelPriceDiff); // 实际酒店差价
-        breakdown.put("singleRoomSupplement", actualSingleRoomSupplement); // 实际单房差
+        breakdown.put("hotelPriceDiff", accommodationPrice.hotelPriceDiff); // 实际酒店差价
+        breakdown.put("singleRoomSupplement", accommodationPrice.singleRoomSupplement); // 实际单房差
         breakdown.put("extraRoomFee", accommodationPrice.totalAccommodationFee); // 住宿费用总计（包含酒店差价+单房差+三人房费用等）
         breakdown.put("smallGroupExtraFee", smallGroupExtraFee); // 小团额外费用
         
@@ -3590,83 +3373,99 @@ public class TourBookingServiceImpl implements TourBookingService {
     
     /**
      * 获取基础价格信息
+     * 优先从价格目录快照读取，快照中没有该产品时回退到数据库（并触发快照重建）
      * @param startDate 行程开始日期（用于查询每日价格）
      */
-    private PriceBaseInfo getBasePriceInfo(Integer tourId, String tourType, String selectedOptionalTours, 
-                                         Integer adultCount, Integer childCount, LocalDate startDate) {
-        BigDecimal baseUnitPrice = BigDecimal.ZERO;
-        int nights = 0;
-        
+    private PriceBaseInfo getBasePriceInfo(PriceCatalogSnapshot catalog, Integer tourId, String tourType, LocalDate startDate) {
         if ("day_tour".equals(tourType)) {
-            DayTour dayTour = dayTourMapper.getById(tourId);
-            if (dayTour == null) {
-                log.error("找不到一日游产品: {}", tourId);
-                return null;
+            PriceCatalogSnapshot.DayTourPrice dayTour = catalog.getDayTour(tourId);
+            BigDecimal price;
+            if (dayTour != null) {
+                price = dayTour.getPrice();
+            } else {
+                DayTour entity = dayTourMapper.getById(tourId);
+                if (entity == null) {
+                    log.error("找不到一日游产品: {}", tourId);
+                    return null;
+                }
+                price = entity.getPrice();
+                requestCatalogRebuildOnMiss(catalog, "一日游", tourId);
             }
-            baseUnitPrice = dayTour.getPrice();
-            nights = 0; // 一日游无住宿
+            return new PriceBaseInfo(price, 0); // 一日游无住宿
         } else if ("group_tour".equals(tourType)) {
-            GroupTourDTO groupTour = groupTourMapper.getById(tourId);
+            PriceCatalogSnapshot.GroupTourPrice groupTour = catalog.getGroupTour(tourId);
             if (groupTour == null) {
-                log.error("找不到跟团游产品: {}", tourId);
-                return null;
+                GroupTourDTO dto = groupTourMapper.getById(tourId);
+                if (dto == null) {
+                    log.error("找不到跟团游产品: {}", tourId);
+                    return null;
+                }
+                groupTour = new PriceCatalogSnapshot.GroupTourPrice(dto.getPrice(), dto.getDiscountedPrice(),
+                        dto.getDays(), PriceCatalog.parseNights(dto.getDuration()), dto.getSmallGroupPriceDifference());
+                requestCatalogRebuildOnMiss(catalog, "跟团游", tourId);
             }
             
-            // 🆕 如果提供了日期，优先使用每日价格
+            BigDecimal baseUnitPrice;
             if (startDate != null) {
-                BigDecimal dailyPrice = groupTourDailyPriceService.getDailyPriceByTourIdAndDate(tourId, startDate);
-                baseUnitPrice = dailyPrice;
-                log.info("使用团队游每日价格: {}元/人 (日期: {})", dailyPrice, startDate);
+                // 🆕 如果提供了日期，优先使用每日价格（日期不在快照窗口内时查询数据库）
+                baseUnitPrice = catalog.getGroupTourDailyPrice(tourId, startDate);
+                if (baseUnitPrice == null) {
+                    baseUnitPrice = groupTourDailyPriceService.getDailyPriceByTourIdAndDate(tourId, startDate);
+                }
             } else {
                 // 回退到基础价格
-                if (groupTour.getDiscountedPrice() != null && groupTour.getDiscountedPrice().compareTo(BigDecimal.ZERO) > 0) {
-                    baseUnitPrice = groupTour.getDiscountedPrice();
-                } else {
-                    baseUnitPrice = groupTour.getPrice();
-                }
-                log.info("使用团队游基础价格: {}元/人", baseUnitPrice);
-            }
-            
-            // 解析住宿夜数
-            try {
-                String duration = groupTour.getDuration();
-                if (duration != null && duration.contains("天")) {
-                    String daysStr = duration.substring(0, duration.indexOf("天"));
-                    int days = Integer.parseInt(daysStr);
-                    nights = days > 1 ? days - 1 : 0;
-                }
-            } catch (Exception e) {
-                log.warn("解析行程天数失败: {}", e.getMessage());
-                nights = 1;
+                baseUnitPrice = groupTour.getBasePrice();
             }
+            return new PriceBaseInfo(baseUnitPrice, groupTour.getNights());
+        }
             
-            // 处理可选行程价格差异
-            baseUnitPrice = processOptionalTours(baseUnitPrice, tourId, selectedOptionalTours, adultCount, childCount);
-        } else {
-            log.error("无效的旅游类型: {}", tourType);
-            return null;
+        log.error("无效的旅游类型: {}", tourType);
+        return null;
+    }
+
+    /**
+     * 快照已加载却缺少数据库中存在的产品，说明快照落后于数据（如刚新增产品），请求重建
+     */
+    private void requestCatalogRebuildOnMiss(PriceCatalogSnapshot catalog, String productName, Integer tourId) {
+        if (catalog.isLoaded()) {
+            log.info("价格目录快照(版本{})中缺少{}产品{}，已回退数据库查询并请求重建", catalog.getVersion(), productName, tourId);
+            priceCatalog.requestRebuild();
         }
-        
-        return new PriceBaseInfo(baseUnitPrice, nights);
     }
-    
+
     /**
-     * 处理可选行程价格差异（旧方法，保持向后兼容）
+     * 获取代理商对产品的折扣率
+     * 快照已加载时直接使用快照中的产品级别折扣配置，否则回退到折扣服务
      */
-    private BigDecimal processOptionalTours(BigDecimal baseUnitPrice, Integer tourId, String selectedOptionalTours, 
-                                          Integer adultCount, Integer childCount) {
-        if (selectedOptionalTours == null || selectedOptionalTours.trim().isEmpty()) {
-            return baseUnitPrice;
+    private BigDecimal resolveDiscountRate(PriceCatalogSnapshot catalog, Integer tourId, String tourType,
+                                           BigDecimal baseUnitPrice, Long agentId) {
+        if (agentId == null) {
+            return BigDecimal.ONE;
         }
-        
-        BigDecimal priceDiff = calculateOptionalTourPriceDiff(tourId, selectedOptionalTours, adultCount, childCount);
-        return baseUnitPrice.add(priceDiff);
+
+        if (catalog.isLoaded()) {
+            BigDecimal productDiscountRate = catalog.getProductDiscountRate(
+                agentId, tourType, tourId.longValue(), LocalDateTime.now());
+            return productDiscountRate != null ? productDiscountRate : BigDecimal.ONE;
+        }
+
+        try {
+            Map<String, Object> discountResult = discountService.calculateTourDiscount(
+                tourId.longValue(), tourType, baseUnitPrice, agentId);
+            if (discountResult != null && discountResult.get("discountRate") != null) {
+                return (BigDecimal) discountResult.get("discountRate");
+            }
+            log.warn("⚠️ 折扣服务返回空结果，使用默认折扣率: 1.0 (无折扣)");
+        } catch (Exception e) {
+            log.error("❌ 获取代理商折扣信息失败，使用默认折扣率: {}", e.getMessage(), e);
+        }
+        return BigDecimal.ONE;
     }
     
     /**
-     * 计算可选行程价格差异（新方法，返回纯差价不修改基础价格）
+     * 计算可选行程价格差异（返回纯差价不修改基础价格）
      */
-    private BigDecimal calculateOptionalTourPriceDiff(Integer tourId, String selectedOptionalTours, 
+    private BigDecimal calculateOptionalTourPriceDiff(PriceCatalogSnapshot catalog, Integer tourId, String selectedOptionalTours,
                                                     Integer adultCount, Integer childCount) {
         if (selectedOptionalTours == null || selectedOptionalTours.trim().isEmpty()) {
             return BigDecimal.ZERO;
@@ -3674,7 +3473,6 @@ public class TourBookingServiceImpl implements TourBookingService {
         
         try {
             Map<String, Object> selectedTours = parseSelectedOptionalTours(selectedOptionalTours);
-            log.info("用户选择了可选项目: {}", selectedTours);
             
             BigDecimal totalOptionalPriceDiff = BigDecimal.ZERO;
             
@@ -3683,17 +3481,19 @@ public class TourBookingServiceImpl implements TourBookingService {
                     Integer dayNumber = Integer.valueOf(entry.getKey());
                     Integer dayTourId = Integer.valueOf(entry.getValue().toString());
                     
-                    BigDecimal priceDiff = groupTourDayTourRelationMapper.getPriceDifferenceByTourAndDay(
-                        tourId, dayTourId, dayNumber);
+                    BigDecimal priceDiff = catalog.isLoaded()
+                        ? catalog.getOptionalTourPriceDifference(tourId, dayTourId, dayNumber)
+                        : groupTourDayTourRelationMapper.getPriceDifferenceByTourAndDay(tourId, dayTourId, dayNumber);
                     
                     if (priceDiff != null && priceDiff.compareTo(BigDecimal.ZERO) != 0) {
                         BigDecimal totalPeoplePriceDiff = priceDiff.multiply(BigDecimal.valueOf(adultCount + childCount));
                         totalOptionalPriceDiff = totalOptionalPriceDiff.add(totalPeoplePriceDiff);
                         
-                        DayTour dayTour = dayTourMapper.getById(dayTourId);
-                        String tourName = dayTour != null ? dayTour.getName() : "未知行程";
-                        log.info("第{}天选择的可选项目: {} (价格差异: {}元/人, 总差异: {}元)", 
-                                dayNumber, tourName, priceDiff, totalPeoplePriceDiff);
+                        if (log.isDebugEnabled()) {
+                            PriceCatalogSnapshot.DayTourPrice dayTour = catalog.getDayTour(dayTourId);
+                            log.debug("第{}天选择的可选项目: {} (价格差异: {}元/人, 总差异: {}元)",
+                                    dayNumber, dayTour != null ? dayTour.getName() : dayTourId, priceDiff, totalPeoplePriceDiff);
+                        }
                     }
                 } catch (Exception e) {
                     log.warn("解析第{}天的可选项目价格差异失败: {}", entry.getKey(), e.getMessage());
@@ -3701,11 +3501,8 @@ public class TourBookingServiceImpl implements TourBookingService {
             }
             
             if (totalOptionalPriceDiff.compareTo(BigDecimal.ZERO) != 0) {
-                BigDecimal perPersonPriceDiff = totalOptionalPriceDiff.divide(
+                return totalOptionalPriceDiff.divide(
                     BigDecimal.valueOf(adultCount + childCount), 2, RoundingMode.HALF_UP);
-                log.info("可选项目价格差异: 总差异={}元, 人均差异={}元", 
-                        totalOptionalPriceDiff, perPersonPriceDiff);
-                return perPersonPriceDiff;
             }
         } catch (Exception e) {
             log.error("计算可选项目价格差异失败: {}", e.getMessage(), e);
@@ -3740,23 +3537,16 @@ public class TourBookingServiceImpl implements TourBookingService {
      */
     private PersonPriceInfo calculatePersonPrice(BigDecimal discountedUnitPrice, Integer adultCount, 
                                                Integer childCount, String childrenAges) {
-        log.info("  🧑 成人费用计算:");
-        log.info("     成人数量: {} 人", adultCount);
-        log.info("     成人单价: {} 元/人", discountedUnitPrice);
+        PriceCatalogSnapshot.ChildPricePolicy childPricePolicy = priceCatalog.snapshot().getChildPricePolicy();
         
         // 计算成人总价格
         BigDecimal adultTotalPrice = discountedUnitPrice.multiply(BigDecimal.valueOf(adultCount));
-        log.info("     成人总费用: {} 元 ({} × {})", adultTotalPrice, discountedUnitPrice, adultCount);
         
         // 计算儿童总价格
         BigDecimal childTotalPrice = BigDecimal.ZERO;
         List<Map<String, Object>> childrenDetails = new ArrayList<>();
         
         if (childCount > 0) {
-            log.info("  👶 儿童费用计算:");
-            log.info("     儿童数量: {} 人", childCount);
-            log.info("     儿童年龄: {}", childrenAges != null && !childrenAges.trim().isEmpty() ? childrenAges : "未提供");
-            
             if (childrenAges != null && !childrenAges.trim().isEmpty()) {
                 // 根据年龄详细计算儿童价格
                 try {
@@ -3765,36 +3555,30 @@ public class TourBookingServiceImpl implements TourBookingService {
                         String ageStr = ageArray[i].trim();
                         if (!ageStr.isEmpty()) {
                             int age = Integer.parseInt(ageStr);
-                            BigDecimal childPrice = calculateChildPrice(discountedUnitPrice, age);
+                            BigDecimal childPrice = calculateChildPrice(childPricePolicy, discountedUnitPrice, age);
                             childTotalPrice = childTotalPrice.add(childPrice);
                             
                             Map<String, Object> childDetail = new HashMap<>();
                             childDetail.put("age", age);
                             childDetail.put("price", childPrice);
-                            childDetail.put("priceRule", getChildPriceRule(age));
+                            childDetail.put("priceRule", childPricePolicy.describe(age));
                             childrenDetails.add(childDetail);
-                            
-                            log.info("     儿童 {}: {} 岁，价格 = {} 元，规则: {}", 
-                                    i + 1, age, childPrice, getChildPriceRule(age));
                         }
                     }
-                    log.info("     儿童总费用: {} 元", childTotalPrice);
                 } catch (Exception e) {
-                    log.error("     ❌ 解析儿童年龄失败: {}", e.getMessage(), e);
+                    log.error("❌ 解析儿童年龄失败: {}", e.getMessage(), e);
                     // 如果解析失败，使用默认的儿童价格计算
-                    childTotalPrice = calculateDefaultChildPrice(discountedUnitPrice, childCount);
-                    log.info("     使用默认儿童价格: {} 元 (成人价 - 50)", childTotalPrice);
+                    childTotalPrice = childPricePolicy.defaultChildPrice(discountedUnitPrice, childCount);
                 }
             } else {
                 // 没有年龄信息，使用默认儿童价格
-                childTotalPrice = calculateDefaultChildPrice(discountedUnitPrice, childCount);
-                log.info("     未提供儿童年龄，使用默认价格: {} 元 (成人价 - 50) × {}", childTotalPrice, childCount);
+                childTotalPrice = childPricePolicy.defaultChildPrice(discountedUnitPrice, childCount);
             }
         }
         
         BigDecimal totalPersonPrice = adultTotalPrice.add(childTotalPrice);
-        log.info("  💰 人员费用小计: {} 元 (成人 {} + 儿童 {})", 
-                totalPersonPrice, adultTotalPrice, childTotalPrice);
+        log.debug("人员费用: 成人 {} × {} = {}, 儿童 {} 人 = {}, 小计 {}",
+                discountedUnitPrice, adultCount, adultTotalPrice, childCount, childTotalPrice, totalPersonPrice);
         
         return new PersonPriceInfo(totalPersonPrice, childrenDetails);
     }
@@ -3803,11 +3587,11 @@ public class TourBookingServiceImpl implements TourBookingService {
      * 根据年龄计算儿童价格
      * 🔒 P1安全修复：加强年龄验证和异常处理
      */
-    private BigDecimal calculateChildPrice(BigDecimal adultPrice, int age) {
+    private BigDecimal calculateChildPrice(PriceCatalogSnapshot.ChildPricePolicy childPricePolicy, BigDecimal adultPrice, int age) {
         // 🔒 验证年龄范围
-        if (age < 0 || age > 18) {
+        if (age < 0 || age > childPricePolicy.getMaxAge()) {
             log.error("儿童年龄超出合理范围: {}", age);
-            throw new IllegalArgumentException("儿童年龄必须在0-18岁之间，当前值：" + age);
+            throw new IllegalArgumentException("儿童年龄必须在0-" + childPricePolicy.getMaxAge() + "岁之间，当前值：" + age);
         }
         
         // 🔒 验证成人价格
@@ -3816,118 +3600,49 @@ public class TourBookingServiceImpl implements TourBookingService {
             throw new IllegalArgumentException("成人价格必须大于0");
         }
         
-        if (age >= 1 && age <= 2) {
-            // 1-2岁：半价
-            return adultPrice.multiply(new BigDecimal("0.5"));
-        } else if (age >= 3) {
-            // 3岁以上：成人价减50元
-            BigDecimal childDiscount = new BigDecimal("50");
-            BigDecimal childPrice = adultPrice.subtract(childDiscount);
-            return childPrice.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : childPrice;
-        } else {
-            // 0岁：免费
-            return BigDecimal.ZERO;
-        }
-    }
-    
-    /**
-     * 获取儿童价格规则描述
-     */
-    private String getChildPriceRule(int age) {
-        if (age >= 1 && age <= 2) {
-            return "1-2岁半价";
-        } else if (age >= 3) {
-            return "3岁以上成人价减50元";
-        } else {
-            return "0岁免费";
-        }
-    }
-    
-    /**
-     * 计算默认儿童价格
-     */
-    private BigDecimal calculateDefaultChildPrice(BigDecimal adultPrice, Integer childCount) {
-        BigDecimal childDiscount = new BigDecimal("50");
-        BigDecimal childUnitPrice = adultPrice.subtract(childDiscount);
-        if (childUnitPrice.compareTo(BigDecimal.ZERO) < 0) {
-            childUnitPrice = BigDecimal.ZERO;
-        }
-        return childUnitPrice.multiply(BigDecimal.valueOf(childCount));
+        return childPricePolicy.priceFor(adultPrice, age);
     }
     
     /**
      * 计算住宿相关费用
+     * 返回住宿费用总计，以及其中的酒店差价和单房差（供价格明细展示）
      */
-    private AccommodationPriceInfo calculateAccommodationPrice(String hotelLevel, int nights, 
+    private AccommodationPriceInfo calculateAccommodationPrice(PriceCatalogSnapshot catalog, String hotelLevel, int nights,
                                                              Integer adultCount, Integer childCount, 
-                                                             Integer roomCount, List<String> roomTypeList,
+                                                             List<String> roomTypeList,
                                                              LocalDate startDate, LocalDate endDate) {
-        BigDecimal totalAccommodationFee = BigDecimal.ZERO;
+        BigDecimal totalHotelPriceDiff = BigDecimal.ZERO;
+        BigDecimal singleSupplementCost = BigDecimal.ZERO;
         
         if (nights <= 0) {
-            return new AccommodationPriceInfo(totalAccommodationFee);
+            return new AccommodationPriceInfo(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
         }
         
         try {
             int totalPeople = adultCount + childCount;
+            boolean datedStay = startDate != null && endDate != null;
             
-            // 🆕 如果提供了日期，按日期逐天查询价格并累加
-            if (startDate != null && endDate != null) {
-                // ⚠️ 重要：使用行程日期计算实际住宿夜数
-                // startDate = 行程出发日期，endDate = 行程返回日期
-                // 住宿夜数 = 返回日期 - 出发日期
-                // 例如：10月1日出发，10月3日返回 → 住宿2晚（1日晚和2日晚）
-                int actualNights = (int) ChronoUnit.DAYS.between(startDate, endDate);
-                log.info("🗓️ 使用按日期计算酒店费用: 行程出发日={}, 行程返回日={}, 住宿夜数={}", 
-                        startDate, endDate, actualNights);
-                
-                BigDecimal totalHotelPriceDiff = BigDecimal.ZERO;
-                LocalDate currentDate = startDate;
+            // ⚠️ 重要：提供日期时使用行程日期计算实际住宿夜数
+            // startDate = 行程出发日期，endDate = 行程返回日期
+            // 住宿夜数 = 返回日期 - 出发日期
+            // 例如：10月1日出发，10月3日返回 → 住宿2晚（1日晚和2日晚）
+            int effectiveNights = datedStay ? (int) ChronoUnit.DAYS.between(startDate, endDate) : nights;
                 
-                // 从行程出发日开始，逐天累加酒店价格（共actualNights晚）
-                // 例如：10月1日出发，10月3日返回 → 计算1日、2日的价格（2晚）
-                for (int i = 0; i < actualNights; i++) {
-                    BigDecimal dailyPriceDiff = hotelDailyPriceService.getPriceDifferenceByLevelAndDate(hotelLevel, currentDate);
-                    BigDecimal dailyCost = dailyPriceDiff.multiply(BigDecimal.valueOf(totalPeople));
-                    totalHotelPriceDiff = totalHotelPriceDiff.add(dailyCost);
-                    
-                    log.info("  第{}晚 ({}): 差价={}/人, 总人数={}, 当日费用={}", 
-                            i + 1, currentDate, dailyPriceDiff, totalPeople, dailyCost);
-                    
-                    currentDate = currentDate.plusDays(1);
-                }
-                
-                totalAccommodationFee = totalAccommodationFee.add(totalHotelPriceDiff);
-                log.info("酒店差价计算（按日期）: 酒店等级={}, 住宿夜数={}, 总人数={}, 酒店差价总额={}", 
-                        hotelLevel, actualNights, totalPeople, totalHotelPriceDiff);
+            // 🆕 从行程出发日开始的每晚价格（共effectiveNights晚），一次从酒店每日价格索引取出
+            HotelPriceIndex.StayPrices stayPrices = datedStay
+                    ? hotelPriceIndex.stay(hotelLevel, startDate, effectiveNights) : null;
                 
+            if (datedStay) {
+                totalHotelPriceDiff = stayPrices.totalPriceDifference().multiply(BigDecimal.valueOf(totalPeople));
             } else {
                 // 🔄 未提供日期，使用固定价格（保持向后兼容）
-                log.info("⚠️ 未提供日期，使用固定价格计算");
-                BigDecimal hotelPriceDiff = hotelPriceService.getPriceDifferenceByLevel(hotelLevel);
-                BigDecimal totalHotelPriceDiff = hotelPriceDiff.multiply(BigDecimal.valueOf(nights))
-                                                              .multiply(BigDecimal.valueOf(totalPeople));
-                totalAccommodationFee = totalAccommodationFee.add(totalHotelPriceDiff);
-                
-                log.info("酒店差价计算（固定价格）: 酒店等级={}, 每人每晚差价={}, 住宿夜数={}, 总人数={}, 酒店差价总额={}", 
-                        hotelLevel, hotelPriceDiff, nights, totalPeople, totalHotelPriceDiff);
+                BigDecimal hotelPriceDiff = catalog.isLoaded()
+                        ? catalog.getHotelPriceDifference(hotelLevel)
+                        : hotelPriceService.getPriceDifferenceByLevel(hotelLevel);
+                totalHotelPriceDiff = hotelPriceDiff.multiply(BigDecimal.valueOf(nights))
+                                                    .multiply(BigDecimal.valueOf(totalPeople));
             }
                 
-            // 计算单房差和额外房间费用
-            // 确定实际使用的住宿夜数
-            int effectiveNights = (startDate != null && endDate != null) ? 
-                (int) ChronoUnit.DAYS.between(startDate, endDate) : nights;
-            
-            // 🔒 P2安全修复：使用BigDecimal避免浮点数精度问题
-            BigDecimal totalRoomsBD = BigDecimal.valueOf(totalPeople)
-                    .divide(BigDecimal.valueOf(2), 2, RoundingMode.HALF_UP);
-            int includedRoomsFloor = totalRoomsBD.intValue();
-            int includedRoomsCeil = totalRoomsBD.setScale(0, RoundingMode.CEILING).intValue();
-            double totalRooms = totalRoomsBD.doubleValue(); // 保留用于判断奇偶
-            
-            log.info("房间计算: 总人数={}, 理论房间数={}, 向下取整={}, 向上取整={}, 实际房间数={}", 
-                    totalPeople, totalRooms, includedRoomsFloor, includedRoomsCeil, roomCount);
-            
             // 🆕 统一的床位计算逻辑
             // 规则：
             // - 单人间 = 2个床位
@@ -3936,79 +3651,118 @@ public class TourBookingServiceImpl implements TourBookingService {
             // 计算公式：
             // - 空床位 = 总床位 - 人数
             // - 单房差费用 = 空床位 × 单房差（每天累加）
-            
-            int totalBeds = 0;  // 总床位数
-            int singleRoomCount = 0;   // 单人间数量
-            int doubleRoomCount = 0;   // 双人间/大床房数量
-            int tripleRoomCount = 0;   // 三人间数量
-            
+            int totalBeds = 0;
             for (String roomType : roomTypeList) {
                 if (roomType != null) {
                     if (roomType.contains("单人间") || roomType.equalsIgnoreCase("single")) {
-                        singleRoomCount++;
                         totalBeds += 2;  // 单人间 = 2个床位
                     } else if (roomType.contains("三人间") || roomType.contains("三床") || 
                                roomType.contains("家庭") || roomType.equalsIgnoreCase("triple") || 
                                roomType.equalsIgnoreCase("family")) {
-                        tripleRoomCount++;
                         totalBeds += 3;  // 三人间 = 3个床位
                     } else {
-                        // 双人间/大床房
-                        doubleRoomCount++;
-                        totalBeds += 2;  // 双人间 = 2个床位
+                        totalBeds += 2;  // 双人间/大床房 = 2个床位
                     }
                 }
             }
             
-            log.info("房型统计: 单人间={}间({}床位), 双人间/大床房={}间({}床位), 三人间={}间({}床位), 总床位={}个", 
-                    singleRoomCount, singleRoomCount * 2,
-                    doubleRoomCount, doubleRoomCount * 2,
-                    tripleRoomCount, tripleRoomCount * 3,
-                    totalBeds);
-            
-            // 计算空床位
-            int emptyBeds = totalBeds - totalPeople;
-            log.info("床位计算: 总床位={}个, 总人数={}人, 空床位={}个", totalBeds, totalPeople, emptyBeds);
-            
             // 如果有空床位，收取单房差
+            int emptyBeds = totalBeds - totalPeople;
             if (emptyBeds > 0) {
-                if (startDate != null && endDate != null) {
-                    // 🆕 按日期逐天累加单房差
-                    BigDecimal singleSupplementCost = BigDecimal.ZERO;
-                    LocalDate currentDate = startDate;
-                    for (int i = 0; i < effectiveNights; i++) {
-                        BigDecimal dailySupplement = hotelDailyPriceService.getSingleRoomSupplementByLevelAndDate(hotelLevel, currentDate);
-                        BigDecimal dailyCost = dailySupplement.multiply(BigDecimal.valueOf(emptyBeds));
-                        singleSupplementCost = singleSupplementCost.add(dailyCost);
-                        log.info("  第{}晚 ({}): 单房差={}元/床位, 空床位={}个, 费用={}元", 
-                                 i + 1, currentDate, dailySupplement, emptyBeds, dailyCost);
-                        currentDate = currentDate.plusDays(1);
-                    }
-                    totalAccommodationFee = totalAccommodationFee.add(singleSupplementCost);
-                    log.info("✅ 单房差费用（按日期）: {}元 ({}晚累计, {}个空床位)", 
-                             singleSupplementCost, effectiveNights, emptyBeds);
+                if (datedStay) {
+                    // 🆕 按日期累加单房差
+                    singleSupplementCost = stayPrices.totalSingleRoomSupplement().multiply(BigDecimal.valueOf(emptyBeds));
                 } else {
                     // 🔄 使用固定价格（无日期时的兼容逻辑）
-                    BigDecimal singleRoomSupplement = hotelPriceService.getDailySingleRoomSupplementByLevel(hotelLevel);
-                    BigDecimal singleSupplementCost = singleRoomSupplement
+                    BigDecimal singleRoomSupplement = catalog.isLoaded()
+                            ? catalog.getHotelSingleRoomSupplement(hotelLevel)
+                            : hotelPriceService.getDailySingleRoomSupplementByLevel(hotelLevel);
+                    singleSupplementCost = singleRoomSupplement
                             .multiply(BigDecimal.valueOf(emptyBeds))
                             .multiply(BigDecimal.valueOf(effectiveNights));
-                    totalAccommodationFee = totalAccommodationFee.add(singleSupplementCost);
-                    log.info("✅ 单房差费用（固定价格）: {}元 ({}元/床位/晚 × {}床位 × {}晚)", 
-                             singleSupplementCost, singleRoomSupplement, emptyBeds, effectiveNights);
                 }
             } else if (emptyBeds < 0) {
                 log.warn("⚠️ 床位不足：总床位={}个, 总人数={}人, 缺少{}个床位", totalBeds, totalPeople, -emptyBeds);
-            } else {
-                log.info("✅ 床位刚好：无空床位，无需收取单房差");
             }
-            } catch (Exception e) {
+
+            log.debug("住宿费用: 酒店等级={}, 住宿夜数={}, 总人数={}, 总床位={}, 酒店差价={}, 单房差={}",
+                    hotelLevel, effectiveNights, totalPeople, totalBeds, totalHotelPriceDiff, singleSupplementCost);
+        } catch (Exception e) {
             log.error("计算住宿相关费用失败: {}", e.getMessage(), e);
         }
         
-        return new AccommodationPriceInfo(totalAccommodationFee);
+        return new AccommodationPriceInfo(totalHotelPriceDiff.add(singleSupplementCost), totalHotelPriceDiff, singleSupplementCost);
     }
     
+    /**
+     * 计算小团额外费用
+     * 小团额外费用 = 小团差价 × 成人数量 × 天数（一日游按次，跟团游按天）
+     */
+    private BigDecimal calculateSmallGroupExtraFee(PriceCatalogSnapshot catalog, Integer tourId, String tourType,
+                                                   Boolean isSmallGroup, Integer adultCount,
+                                                   LocalDate startDate, LocalDate endDate) {
+        if (!Boolean.TRUE.equals(isSmallGroup)) {
+            return BigDecimal.ZERO;
+        }
+
+        try {
+            BigDecimal smallGroupPriceDifference = null;
+            Integer productDays = null;
+
+            // 根据产品类型获取小团差价
+            if ("day_tour".equals(tourType)) {
+                PriceCatalogSnapshot.DayTourPrice dayTour = catalog.getDayTour(tourId);
+                if (dayTour != null) {
+                    smallGroupPriceDifference = dayTour.getSmallGroupPriceDifference();
+                } else {
+                    DayTour entity = dayTourMapper.getById(tourId);
+                    smallGroupPriceDifference = entity != null ? entity.getSmallGroupPriceDifference() : null;
+                }
+            } else if ("group_tour".equals(tourType)) {
+                PriceCatalogSnapshot.GroupTourPrice groupTour = catalog.getGroupTour(tourId);
+                if (groupTour != null) {
+                    smallGroupPriceDifference = groupTour.getSmallGroupPriceDifference();
+                    productDays = groupTour.getDays();
+                } else {
+                    GroupTourDTO dto = groupTourMapper.getById(tourId);
+                    if (dto != null) {
+                        smallGroupPriceDifference = dto.getSmallGroupPriceDifference();
+                        productDays = dto.getDays();
+                    }
+                }
+            }
+
+            if (smallGroupPriceDifference == null || smallGroupPriceDifference.compareTo(BigDecimal.ZERO) <= 0) {
+                log.debug("产品未设置小团差价或差价为0，小团额外费用=0");
+                return BigDecimal.ZERO;
+            }
+
+            // 计算天数
+            int days = 1;
+            if (startDate != null && endDate != null) {
+                days = (int) ChronoUnit.DAYS.between(startDate, endDate);
+                if (days <= 0) {
+                    days = 1;
+                }
+                // 对于跟团游，天数应该包含最后一天
+                if ("group_tour".equals(tourType)) {
+                    days += 1;
+                }
+            } else if ("group_tour".equals(tourType) && productDays != null) {
+                // 如果没有提供日期，使用产品信息中的天数
+                days = productDays;
+            }
+
+            return smallGroupPriceDifference
+                .multiply(BigDecimal.valueOf(adultCount != null ? adultCount : 0))
+                .multiply(BigDecimal.valueOf(days))
+                .setScale(2, RoundingMode.HALF_UP);
+        } catch (Exception e) {
+            log.error("计算小团差价时出错: {}", e.getMessage(), e);
+            return BigDecimal.ZERO;
+        }
+    }
+
     /**
      * 基础价格信息内部类
      */
@@ -4040,9 +3794,13 @@ public class TourBookingServiceImpl implements TourBookingService {
      */
     private static class AccommodationPriceInfo {
         final BigDecimal totalAccommodationFee;
+        final BigDecimal hotelPriceDiff;
+        final BigDecimal singleRoomSupplement;
         
-        AccommodationPriceInfo(BigDecimal totalAccommodationFee) {
+        AccommodationPriceInfo(BigDecimal totalAccommodationFee, BigDecimal hotelPriceDiff, BigDecimal singleRoomSupplement) {
             this.totalAccommodationFee = totalAccommodationFee;
+            this.hotelPriceDiff = hotelPriceDiff;
+            this.singleRoomSupplement = singleRoomSupplement;
         }
     }
 
@@ -4583,42 +4341,15 @@ public class TourBookingServiceImpl implements TourBookingService {
         log.info("🏨 开始按日期计算酒店价格: 星级={}, 日期数={}, 总人数={}, 房间数={}", 
                  hotelLevel, stayDates.size(), totalPeople, roomCount);
         
-        // 遍历每个住宿日期
-        for (LocalDate date : stayDates) {
-            try {
-                // 优先查询当日价格
-                HotelDailyPrice dailyPrice = hotelDailyPriceService.getByLevelAndDate(hotelLevel, date);
+        // 住宿日期是连续的，整段住宿一次从酒店每日价格索引取出
+        if (!stayDates.isEmpty()) {
+            HotelPriceIndex.StayPrices stayPrices = hotelPriceIndex.stay(hotelLevel, stayDates.get(0), stayDates.size());
                 
-                BigDecimal dayPriceDiff;
-                BigDecimal daySingleSupplement;
+            // 累加价格差异（每人每晚）
+            totalPriceDiff = stayPrices.totalPriceDifference().multiply(BigDecimal.valueOf(totalPeople));
                 
-                if (dailyPrice != null) {
-                    // 使用当日价格
-                    dayPriceDiff = dailyPrice.getPriceDifference();
-                    daySingleSupplement = dailyPrice.getDailySingleRoomSupplement();
-                    log.info("✅ {}使用当日价格: 差价={}元/人, 单房差={}元/晚", date, dayPriceDiff, daySingleSupplement);
-                } else {
-                    // 回退到固定价格
-                    dayPriceDiff = hotelPriceService.getPriceDifferenceByLevel(hotelLevel);
-                    daySingleSupplement = hotelPriceService.getDailySingleRoomSupplementByLevel(hotelLevel);
-                    log.info("⚠️ {}未找到当日价格，使用固定价格: 差价={}元/人, 单房差={}元/晚", date, dayPriceDiff, daySingleSupplement);
-                }
-                
-                // 累加价格差异（每人每晚）
-                BigDecimal dayTotalPriceDiff = dayPriceDiff.multiply(BigDecimal.valueOf(totalPeople));
-                totalPriceDiff = totalPriceDiff.add(dayTotalPriceDiff);
-                
-                // 累加单房差
-                totalSingleSupplement = totalSingleSupplement.add(daySingleSupplement);
-                
-            } catch (Exception e) {
-                log.error("计算{}的酒店价格失败，使用固定价格: {}", date, e.getMessage());
-                // 出错时使用固定价格
-                BigDecimal fallbackPriceDiff = hotelPriceService.getPriceDifferenceByLevel(hotelLevel);
-                BigDecimal fallbackSingleSupplement = hotelPriceService.getDailySingleRoomSupplementByLevel(hotelLevel);
-                totalPriceDiff = totalPriceDiff.add(fallbackPriceDiff.multiply(BigDecimal.valueOf(totalPeople)));
-                totalSingleSupplement = totalSingleSupplement.add(fallbackSingleSupplement);
-            }
+            // 累加单房差
+            totalSingleSupplement = stayPrices.totalSingleRoomSupplement();
         }
         
         // 计算三人房差价（如果适用）
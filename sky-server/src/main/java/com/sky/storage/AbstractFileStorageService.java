@@ -0,0 +1,103 @@
+package com.sky.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 文件存储公共部分：对象名称生成和运行指标，各实现只负责单个对象的写入、删除和URL解析
+ */
+@Slf4j
+public abstract class AbstractFileStorageService implements FileStorageService {
+
+    private static final DateTimeFormatter DATE_PATH = DateTimeFormatter.ofPattern("yyyy/MM/dd/");
+
+    private final LongAdder uploads = new LongAdder();
+    private final LongAdder uploadedBytes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder uploadNanos = new LongAdder();
+    private final LongAdder deletes = new LongAdder();
+
+    /**
+     * 写入单个对象
+     * @return 访问URL
+     */
+    protected abstract String doUpload(InputStream inputStream, long size, String objectName) throws IOException;
+
+    /**
+     * 删除单个对象
+     */
+    protected abstract void doDelete(String objectName);
+
+    /**
+     * 实现名称，用于指标
+     */
+    protected abstract String type();
+
+    @Override
+    public String upload(InputStream inputStream, long size, String objectName) throws IOException {
+        long start = System.nanoTime();
+        try {
+            String url = doUpload(inputStream, size, objectName);
+            uploads.increment();
+            uploadedBytes.add(size);
+            return url;
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            uploadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String uploadFile(MultipartFile file, String directory) {
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null) {
+            throw new RuntimeException("文件名不能为空");
+        }
+
+        // 构建对象名称，如：images/2025/04/06/uuid.jpg
+        int dot = originalFilename.lastIndexOf(".");
+        String suffix = dot >= 0 ? originalFilename.substring(dot) : "";
+        String objectName = directory + LocalDateTime.now().format(DATE_PATH) + UUID.randomUUID() + suffix;
+
+        try (InputStream inputStream = file.getInputStream()) {
+            return upload(inputStream, file.getSize(), objectName);
+        } catch (IOException | RuntimeException e) {
+            log.error("文件上传失败: {}，{}", objectName, e.getMessage());
+            throw new RuntimeException("文件上传失败");
+        }
+    }
+
+    @Override
+    public void delete(String objectName) {
+        try {
+            doDelete(objectName);
+            deletes.increment();
+        } catch (Exception e) {
+            log.error("删除文件失败: {}，{}", objectName, e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> stats() {
+        long count = uploads.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("type", type());
+        stats.put("uploads", count);
+        stats.put("uploadedBytes", uploadedBytes.sum());
+        stats.put("failures", failures.sum());
+        stats.put("averageUploadMillis", count > 0 ? uploadNanos.sum() / 1_000_000.0 / count : 0);
+        stats.put("deletes", deletes.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,45 @@
+package com.sky.storage;
+
+import com.sky.utils.AliOssUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 阿里云OSS存储（默认实现），复用 AliOssUtil 中的长期客户端，大文件分片上传
+ */
+@Component
+@ConditionalOnProperty(name = "sky.storage.type", havingValue = "oss", matchIfMissing = true)
+public class AliOssFileStorageService extends AbstractFileStorageService {
+
+    @Autowired
+    private AliOssUtil aliOssUtil;
+
+    @Override
+    protected String doUpload(InputStream inputStream, long size, String objectName) throws IOException {
+        return aliOssUtil.upload(inputStream, size, objectName);
+    }
+
+    @Override
+    public InputStream open(String objectName) {
+        return aliOssUtil.download(objectName);
+    }
+
+    @Override
+    protected void doDelete(String objectName) {
+        aliOssUtil.deleteFile(objectName);
+    }
+
+    @Override
+    public String getObjectNameFromUrl(String url) {
+        return aliOssUtil.getObjectNameFromUrl(url);
+    }
+
+    @Override
+    protected String type() {
+        return "oss";
+    }
+}
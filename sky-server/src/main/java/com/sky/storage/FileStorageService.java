@@ -0,0 +1,58 @@
+package com.sky.storage;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * 文件存储服务
+ * 上传直接从输入流读取，不把整个文件读入内存；实现由 sky.storage.type 选择：
+ * oss（默认，阿里云OSS）或 local（本地目录，用于离线开发和测试）
+ */
+public interface FileStorageService {
+
+    /**
+     * 从输入流上传文件
+     * @param inputStream 文件内容（由调用方关闭）
+     * @param size 文件大小
+     * @param objectName 对象名称，例如 images/2025/04/06/xxx.jpg
+     * @return 访问URL
+     */
+    String upload(InputStream inputStream, long size, String objectName) throws IOException;
+
+    /**
+     * 上传MultipartFile，按 目录/日期/UUID.后缀 生成对象名称
+     * @param file 上传的文件
+     * @param directory 上传目录，例如 "images/"
+     * @return 访问URL
+     */
+    String uploadFile(MultipartFile file, String directory);
+
+    /**
+     * 读取文件内容
+     * @param objectName 对象名称
+     * @return 文件内容（由调用方关闭）
+     */
+    InputStream open(String objectName) throws IOException;
+
+    /**
+     * 删除文件，失败时只记录日志
+     * @param objectName 对象名称
+     */
+    void delete(String objectName);
+
+    /**
+     * 从访问URL中提取对象名称
+     * @param url 访问URL
+     * @return 对象名称，不是本存储的URL时返回null
+     */
+    String getObjectNameFromUrl(String url);
+
+    /**
+     * 上传统计
+     * @return 统计数据
+     */
+    Map<String, Object> stats();
+}
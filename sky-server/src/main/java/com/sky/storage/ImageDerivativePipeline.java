@@ -0,0 +1,401 @@
+package com.sky.storage;
+
+import com.sky.constant.ImageType;
+import com.sky.mapper.ImageDerivativeMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 产品图片衍生图生成
+ * 图片保存后（事务提交后）在后台生成缩略图、卡片图、横幅图三种宽度的JPEG，classpath 中有 ImageIO 的 WebP 编码器时
+ * 同时生成同名 .webp，上传到同一存储后回写图片记录；原图按横幅宽度的两倍降采样解码，不把超大原图完整解码到内存。
+ * 入队前先认领（derivative_status 0 改为 3），排队已满时放弃认领，由定时补生成任务稍后处理，历史图片也由该任务补齐。
+ * 产品主图的卡片图同时回写为产品的列表封面（card_image_url，见 add_tour_card_image.sql）。
+ */
+@Component
+@Slf4j
+public class ImageDerivativePipeline {
+
+    private static final String THUMB_SUFFIX = "_thumb";
+    private static final String CARD_SUFFIX = "_card";
+    private static final String BANNER_SUFFIX = "_banner";
+
+    /**
+     * 生成中超过该时间视为中断（节点重启等），重新改为待生成
+     */
+    private static final long STALE_MINUTES = 30;
+
+    /**
+     * 图片类型对应的表名，只允许这两个值拼入SQL
+     */
+    private static final Map<String, String> TABLES = new LinkedHashMap<>();
+
+    /**
+     * 图片表对应的产品表和外键（与产品表主键同名）
+     */
+    private static final Map<String, String[]> PRODUCT_TABLES = new HashMap<>();
+
+    static {
+        TABLES.put(ImageType.DAY_TOUR, "day_tour_images");
+        TABLES.put(ImageType.GROUP_TOUR, "group_tour_images");
+        PRODUCT_TABLES.put("day_tour_images", new String[]{"day_tours", "day_tour_id"});
+        PRODUCT_TABLES.put("group_tour_images", new String[]{"group_tours", "group_tour_id"});
+    }
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageDerivativeMapper imageDerivativeMapper;
+
+    @Value("${sky.image.derivative.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sky.image.derivative.thumbnail-width:320}")
+    private int thumbnailWidth;
+
+    @Value("${sky.image.derivative.card-width:640}")
+    private int cardWidth;
+
+    @Value("${sky.image.derivative.banner-width:1600}")
+    private int bannerWidth;
+
+    @Value("${sky.image.derivative.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Value("${sky.image.derivative.threads:2}")
+    private int threads;
+
+    @Value("${sky.image.derivative.queue-capacity:100}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    private boolean webpSupported;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder backfilled = new LongAdder();
+    private final LongAdder generateNanos = new LongAdder();
+    private final AtomicLong lastBackfillAt = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "image-derivative-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        webpSupported = ImageIO.getImageWritersByFormatName("webp").hasNext();
+        log.info("图片衍生图生成已初始化: enabled={}, webp={}", enabled, webpSupported);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 为新保存的图片生成衍生图；有事务时在事务提交后入队
+     * @param type 图片类型 (day_tour, group_tour)
+     * @param id 图片ID
+     * @param imageUrl 原图URL
+     */
+    public void submit(String type, Integer id, String imageUrl) {
+        String table = TABLES.get(type);
+        if (!enabled || table == null || id == null) {
+            return;
+        }
+        afterCommit(() -> enqueue(table, id, imageUrl));
+    }
+
+    /**
+     * 删除图片的衍生图（按原图对象名称推算，不存在的对象删除失败只记录日志）
+     * @param imageUrl 原图URL
+     */
+    public void deleteDerivatives(String imageUrl) {
+        String objectName = fileStorageService.getObjectNameFromUrl(imageUrl);
+        if (objectName == null) {
+            return;
+        }
+        String base = baseName(objectName);
+        for (String suffix : new String[]{THUMB_SUFFIX, CARD_SUFFIX, BANNER_SUFFIX}) {
+            fileStorageService.delete(base + suffix + ".jpg");
+            if (webpSupported) {
+                fileStorageService.delete(base + suffix + ".webp");
+            }
+        }
+    }
+
+    /**
+     * 定时补生成：把中断的任务改回待生成，再按排队空位认领待生成的图片
+     */
+    @Scheduled(fixedDelayString = "${sky.image.derivative.backfill-interval-ms:300000}",
+               initialDelayString = "${sky.image.derivative.backfill-interval-ms:300000}")
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        lastBackfillAt.set(System.currentTimeMillis());
+        LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(STALE_MINUTES);
+        for (String table : TABLES.values()) {
+            int free = executor.getQueue().remainingCapacity();
+            if (free <= 0) {
+                return;
+            }
+            try {
+                imageDerivativeMapper.resetStale(table, staleBefore);
+                List<Map<String, Object>> pending = imageDerivativeMapper.findPending(table, free);
+                for (Map<String, Object> row : pending) {
+                    Integer id = ((Number) row.get("id")).intValue();
+                    if (!enqueue(table, id, (String) row.get("imageUrl"))) {
+                        return;
+                    }
+                    backfilled.increment();
+                }
+            } catch (Exception e) {
+                log.error("{}衍生图补生成失败，请确认已执行 add_image_derivatives.sql: {}", table, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 运行统计
+     * @return 统计数据
+     */
+    public Map<String, Object> stats() {
+        long count = generated.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("webpSupported", webpSupported);
+        stats.put("submitted", submitted.sum());
+        stats.put("generated", count);
+        stats.put("failures", failures.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("backfilled", backfilled.sum());
+        stats.put("avgMillis", count == 0 ? 0 : generateNanos.sum() / count / 1_000_000);
+        stats.put("queued", executor.getQueue().size());
+        stats.put("active", executor.getActiveCount());
+        stats.put("lastBackfillAt", lastBackfillAt.get());
+        return stats;
+    }
+
+    /**
+     * 认领并入队，返回false表示排队已满
+     */
+    private boolean enqueue(String table, Integer id, String imageUrl) {
+        try {
+            if (imageDerivativeMapper.claim(table, id) == 0) {
+                // 已被其他节点或任务认领
+                return true;
+            }
+        } catch (Exception e) {
+            log.warn("认领图片{}:{}失败: {}", table, id, e.getMessage());
+            return true;
+        }
+        try {
+            executor.execute(() -> generate(table, id, imageUrl));
+            submitted.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            try {
+                imageDerivativeMapper.unclaim(table, id);
+            } catch (Exception ex) {
+                // 放弃认领失败时由中断检测改回待生成
+                log.warn("放弃认领图片{}:{}失败: {}", table, id, ex.getMessage());
+            }
+            log.debug("衍生图排队已满，图片{}:{}留待补生成", table, id);
+            return false;
+        }
+    }
+
+    private void generate(String table, Integer id, String imageUrl) {
+        long start = System.nanoTime();
+        try {
+            String objectName = fileStorageService.getObjectNameFromUrl(imageUrl);
+            if (objectName == null) {
+                throw new IOException("不是本存储的图片: " + imageUrl);
+            }
+            BufferedImage source;
+            try (InputStream in = fileStorageService.open(objectName)) {
+                source = decode(in);
+            }
+            String base = baseName(objectName);
+            boolean webp = webpSupported;
+            String[] urls = new String[3];
+            String[] suffixes = {THUMB_SUFFIX, CARD_SUFFIX, BANNER_SUFFIX};
+            int[] widths = {thumbnailWidth, cardWidth, bannerWidth};
+            for (int i = 0; i < suffixes.length; i++) {
+                BufferedImage image = resize(source, widths[i]);
+                urls[i] = store(encode(image, "jpeg", jpegQuality), base + suffixes[i] + ".jpg");
+                if (webp) {
+                    try {
+                        store(encode(image, "webp", jpegQuality), base + suffixes[i] + ".webp");
+                    } catch (IOException | RuntimeException e) {
+                        webp = false;
+                        log.warn("图片{}:{}生成WebP失败: {}", table, id, e.getMessage());
+                    }
+                }
+            }
+            // 先回写列表封面：随后的 saveDerivatives 会清除产品缓存
+            String[] product = PRODUCT_TABLES.get(table);
+            imageDerivativeMapper.saveCardCover(table, product[0], product[1], id, imageUrl, urls[1]);
+            imageDerivativeMapper.saveDerivatives(table, id, imageUrl, urls[0], urls[1], urls[2], webp ? 1 : 0);
+            generated.increment();
+            generateNanos.add(System.nanoTime() - start);
+        } catch (Exception | OutOfMemoryError e) {
+            failures.increment();
+            log.error("图片{}:{}生成衍生图失败: {}", table, id, e.getMessage());
+            try {
+                imageDerivativeMapper.markFailed(table, id);
+            } catch (Exception ex) {
+                log.warn("标记图片{}:{}衍生图失败状态出错: {}", table, id, ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 解码原图；原图宽度超过横幅宽度两倍时按整数步长降采样读取
+     */
+    private BufferedImage decode(InputStream in) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("不支持的图片格式");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, reader.getWidth(0) / (bannerWidth * 2));
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 缩放到指定宽度（不放大），每次最多缩小一半以保证质量；透明背景填充白色
+     */
+    private static BufferedImage resize(BufferedImage source, int targetWidth) {
+        int width = source.getWidth();
+        BufferedImage current = source;
+        do {
+            int nextWidth = Math.max(targetWidth, width / 2);
+            if (nextWidth >= width) {
+                nextWidth = width;
+            }
+            int nextHeight = Math.max(1, (int) Math.round((double) source.getHeight() * nextWidth / source.getWidth()));
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, nextWidth, nextHeight);
+                g.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+            width = nextWidth;
+        } while (width > targetWidth);
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String format, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("没有" + format + "编码器");
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionTypes() != null && param.getCompressionType() == null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private String store(byte[] bytes, String objectName) throws IOException {
+        return fileStorageService.upload(new ByteArrayInputStream(bytes), bytes.length, objectName);
+    }
+
+    /**
+     * 去掉扩展名的对象名称，例如 images/2025/04/06/xxx.jpg -> images/2025/04/06/xxx
+     */
+    private static String baseName(String objectName) {
+        int slash = objectName.lastIndexOf('/');
+        int dot = objectName.lastIndexOf('.');
+        return dot > slash ? objectName.substring(0, dot) : objectName;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
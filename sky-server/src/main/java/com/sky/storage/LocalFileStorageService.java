@@ -0,0 +1,106 @@
+package com.sky.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 本地目录存储（离线开发和测试使用），文件通过 WebMvcConfiguration 映射的静态资源路径访问
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "sky.storage.type", havingValue = "local")
+public class LocalFileStorageService extends AbstractFileStorageService {
+
+    /**
+     * 存储根目录
+     */
+    @Value("${sky.storage.local.root:uploads}")
+    private String root;
+
+    /**
+     * 访问路径前缀，可以是完整地址（如 http://localhost:8080/uploads/）
+     */
+    @Value("${sky.storage.local.base-url:/uploads/}")
+    private String baseUrl;
+
+    private Path rootPath;
+
+    @PostConstruct
+    public void init() throws IOException {
+        rootPath = Paths.get(root).toAbsolutePath().normalize();
+        Files.createDirectories(rootPath);
+        if (!baseUrl.endsWith("/")) {
+            baseUrl = baseUrl + "/";
+        }
+        log.info("使用本地文件存储: {}，访问路径: {}", rootPath, baseUrl);
+    }
+
+    @Override
+    protected String doUpload(InputStream inputStream, long size, String objectName) throws IOException {
+        Path target = resolve(objectName);
+        Files.createDirectories(target.getParent());
+        Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        return baseUrl + objectName;
+    }
+
+    @Override
+    public InputStream open(String objectName) throws IOException {
+        return Files.newInputStream(resolve(objectName));
+    }
+
+    @Override
+    protected void doDelete(String objectName) {
+        try {
+            Files.deleteIfExists(resolve(objectName));
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getObjectNameFromUrl(String url) {
+        String cleanUrl = url.contains("?") ? url.substring(0, url.indexOf("?")) : url;
+        int index = cleanUrl.indexOf(baseUrl);
+        return index >= 0 ? cleanUrl.substring(index + baseUrl.length()) : null;
+    }
+
+    @Override
+    protected String type() {
+        return "local";
+    }
+
+    /**
+     * 存储根目录（静态资源映射使用）
+     */
+    public Path getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * 访问路径前缀
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * 对象名称对应的文件，不允许跳出存储根目录
+     */
+    private Path resolve(String objectName) {
+        Path path = rootPath.resolve(objectName).normalize();
+        if (!path.startsWith(rootPath)) {
+            throw new IllegalArgumentException("非法的对象名称: " + objectName);
+        }
+        return path;
+    }
+}
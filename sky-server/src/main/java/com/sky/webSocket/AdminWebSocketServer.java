@@ -9,7 +9,6 @@ import org.springframework.stereotype.Component;
 import javax.websocket.*;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.HashMap;
@@ -48,6 +47,8 @@ public class AdminWebSocketServer {
     public void onOpen(Session session, @PathParam("serviceId") Long serviceId) {
         try {
             serviceConnections.put(serviceId, session);
+            WebSocketPushEngine.register(session, "admin");
+            WebSocketCluster.online(WebSocketCluster.SERVICE, String.valueOf(serviceId));
             log.info("✅ 客服 {} 成功连接到管理端WebSocket，当前在线客服数: {}", serviceId, serviceConnections.size());
             
             // 🔧 新增：更新数据库中的在线状态
@@ -77,9 +78,14 @@ public class AdminWebSocketServer {
      * 连接关闭调用的方法
      */
     @OnClose
-    public void onClose(@PathParam("serviceId") Long serviceId) {
+    public void onClose(Session session, @PathParam("serviceId") Long serviceId) {
         try {
-            serviceConnections.remove(serviceId);
+            WebSocketPushEngine.unregister(session);
+            // 只移除当前连接，避免客服重连后旧连接的关闭回调把新连接移除
+            serviceConnections.remove(serviceId, session);
+            if (!serviceConnections.containsKey(serviceId)) {
+                WebSocketCluster.offline(WebSocketCluster.SERVICE, String.valueOf(serviceId));
+            }
             log.info("❌ 客服 {} 断开管理端WebSocket连接，剩余在线客服数: {}", serviceId, serviceConnections.size());
             
             // 🔧 新增：更新数据库中的在线状态
@@ -144,35 +150,50 @@ public class AdminWebSocketServer {
     }
 
     /**
-     * 向指定客服发送消息
+     * 向指定客服发送消息（放入发送队列，不阻塞调用线程）
+     * 客服连接在其他节点上时转发到该节点
      */
     public static void sendMessage(Long serviceId, String message) {
-        try {
-            Session session = serviceConnections.get(serviceId);
-            if (session != null && session.isOpen()) {
-                session.getBasicRemote().sendText(message);
-                log.info("✅ 成功向客服 {} 发送消息", serviceId);
-            } else {
-                log.warn("⚠️ 客服 {} 连接不存在或已关闭，无法发送消息", serviceId);
-            }
-        } catch (IOException e) {
-            log.error("❌ 向客服 {} 发送消息失败：{}", serviceId, e.getMessage());
+        if (deliverLocally(serviceId, message)) {
+            return;
+        }
+        if (WebSocketCluster.route(WebSocketCluster.SERVICE, String.valueOf(serviceId), message)) {
+            log.info("✅ 客服 {} 连接在其他节点，消息已转发", serviceId);
+        } else {
+            log.warn("⚠️ 客服 {} 连接不存在或已关闭，无法发送消息", serviceId);
         }
     }
 
     /**
-     * 向所有在线客服广播消息
+     * 向本节点上的客服连接发送消息
+     * @return 客服连接在本节点上时返回true
+     */
+    static boolean deliverLocally(Long serviceId, String message) {
+        Session session = serviceConnections.get(serviceId);
+        if (session == null || !session.isOpen()) {
+            return false;
+        }
+        if (WebSocketPushEngine.send(session, message)) {
+            log.info("✅ 已向客服 {} 推送消息", serviceId);
+        } else {
+            log.warn("⚠️ 客服 {} 的发送队列已满或连接已关闭，消息被丢弃", serviceId);
+        }
+        return true;
+    }
+
+    /**
+     * 向所有在线客服广播消息（消息只序列化一次，放入各连接的发送队列），并转发给其他节点的客服
      */
     public static void broadcastToAllServices(String message) {
-        serviceConnections.forEach((serviceId, session) -> {
-            try {
-                if (session.isOpen()) {
-                    session.getBasicRemote().sendText(message);
-                }
-            } catch (IOException e) {
-                log.error("❌ 向客服 {} 广播消息失败：{}", serviceId, e.getMessage());
-            }
-        });
+        broadcastLocally(message);
+        WebSocketCluster.broadcast(WebSocketCluster.ALL_SERVICES, null, message);
+    }
+
+    /**
+     * 向本节点上的所有客服广播消息
+     */
+    static void broadcastLocally(String message) {
+        WebSocketPushEngine.broadcast(serviceConnections.values(), message);
     }
 
     /**
@@ -204,26 +225,28 @@ public class AdminWebSocketServer {
             log.info("🔍 当前会话映射: {}", sessionServiceMapping);
             log.info("🔍 当前连接映射: {}", serviceConnections.keySet());
             
+            Map<String, Object> data = new HashMap<>();
+            data.put("sessionId", sessionId);
+            data.put("messageId", messageData.get("id"));
+            data.put("content", messageData.get("content"));
+            data.put("senderType", messageData.get("senderType"));
+            // 转换LocalDateTime为字符串
+            Object createTime = messageData.get("createTime");
+            data.put("createTime", createTime != null ? createTime.toString() : null);
+            
+            String message = createMessage("session_message", "新消息", data);
+            
             if (serviceId != null) {
                 Session session = serviceConnections.get(serviceId);
                 log.info("🔍 客服 {} 的WebSocket连接状态: {}", serviceId, 
                     session != null ? (session.isOpen() ? "已连接" : "连接已关闭") : "未连接");
                 
-                Map<String, Object> data = new HashMap<>();
-                data.put("sessionId", sessionId);
-                data.put("messageId", messageData.get("id"));
-                data.put("content", messageData.get("content"));
-                data.put("senderType", messageData.get("senderType"));
-                // 转换LocalDateTime为字符串
-                Object createTime = messageData.get("createTime");
-                data.put("createTime", createTime != null ? createTime.toString() : null);
-                
-                String message = createMessage("session_message", "新消息", data);
-                
                 sendMessage(serviceId, message);
                 log.info("✅ 已向客服 {} 推送会话 {} 的消息", serviceId, sessionId);
             } else {
-                log.warn("⚠️ 会话 {} 没有分配的客服，无法推送消息", sessionId);
+                // 会话可能是在其他节点上分配的，由持有映射的节点推送
+                WebSocketCluster.broadcast(WebSocketCluster.SERVICE_SESSION, String.valueOf(sessionId), message);
+                log.info("🔍 会话 {} 在本节点没有分配的客服，已转发给其他节点", sessionId);
             }
             
         } catch (Exception e) {
@@ -231,6 +254,16 @@ public class AdminWebSocketServer {
         }
     }
 
+    /**
+     * 按本节点的会话映射推送（其他节点转发来的会话消息）
+     */
+    static void deliverBySessionId(Long sessionId, String message) {
+        Long serviceId = sessionServiceMapping.get(sessionId);
+        if (serviceId != null) {
+            sendMessage(serviceId, message);
+        }
+    }
+
     /**
      * 通知会话结束
      */
@@ -266,18 +299,19 @@ public class AdminWebSocketServer {
     }
 
     /**
-     * 获取在线客服数量
+     * 获取在线客服数量（集群内所有节点）
      */
     public static int getOnlineServiceCount() {
-        return serviceConnections.size();
+        return WebSocketCluster.onlineCount(WebSocketCluster.SERVICE, serviceConnections.size());
     }
 
     /**
-     * 检查客服是否在线
+     * 检查客服是否在线（集群内任意节点）
      */
     public static boolean isServiceOnline(Long serviceId) {
         Session session = serviceConnections.get(serviceId);
-        return session != null && session.isOpen();
+        return (session != null && session.isOpen())
+                || WebSocketCluster.isOnline(WebSocketCluster.SERVICE, String.valueOf(serviceId));
     }
 
     /**
@@ -0,0 +1,89 @@
+package com.sky.webSocket;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 进程内的WebSocket集群传输层（sky.websocket.cluster.transport=local）
+ * 单机部署或测试使用；订阅和在线登记保存在静态表中，同一进程内的多个节点实例可以互相投递。
+ */
+@Component
+@ConditionalOnProperty(name = "sky.websocket.cluster.transport", havingValue = "local")
+public class LocalWebSocketClusterTransport implements WebSocketClusterTransport {
+
+    private static final Map<String, Consumer<String>> SUBSCRIBERS = new ConcurrentHashMap<>();
+
+    /**
+     * 类型 -> (连接ID -> 登记)
+     */
+    private static final Map<String, Map<String, Presence>> PRESENCE = new ConcurrentHashMap<>();
+
+    @Override
+    public void subscribe(String nodeId, Consumer<String> receiver) {
+        SUBSCRIBERS.put(nodeId, receiver);
+    }
+
+    @Override
+    public void publish(String nodeId, String batch) {
+        if (nodeId == null) {
+            SUBSCRIBERS.values().forEach(receiver -> receiver.accept(batch));
+            return;
+        }
+        Consumer<String> receiver = SUBSCRIBERS.get(nodeId);
+        if (receiver != null) {
+            receiver.accept(batch);
+        }
+    }
+
+    @Override
+    public void online(String kind, Collection<String> ids, String nodeId, long expireAt) {
+        Map<String, Presence> entries = PRESENCE.computeIfAbsent(kind, k -> new ConcurrentHashMap<>());
+        for (String id : ids) {
+            entries.put(id, new Presence(nodeId, expireAt));
+        }
+    }
+
+    @Override
+    public void offline(String kind, String id, String nodeId) {
+        Map<String, Presence> entries = PRESENCE.get(kind);
+        if (entries != null) {
+            entries.computeIfPresent(id, (key, presence) -> presence.nodeId.equals(nodeId) ? null : presence);
+        }
+    }
+
+    @Override
+    public String locate(String kind, String id, long now) {
+        Map<String, Presence> entries = PRESENCE.get(kind);
+        Presence presence = entries != null ? entries.get(id) : null;
+        return presence != null && presence.expireAt >= now ? presence.nodeId : null;
+    }
+
+    @Override
+    public long count(String kind, long now) {
+        Map<String, Presence> entries = PRESENCE.get(kind);
+        return entries == null ? 0 : entries.values().stream().filter(presence -> presence.expireAt >= now).count();
+    }
+
+    @Override
+    public void purgeExpired(String kind, long now) {
+        Map<String, Presence> entries = PRESENCE.get(kind);
+        if (entries != null) {
+            entries.values().removeIf(presence -> presence.expireAt < now);
+        }
+    }
+
+    private static final class Presence {
+        final String nodeId;
+        final long expireAt;
+
+        Presence(String nodeId, long expireAt) {
+            this.nodeId = nodeId;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.sky.webSocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 基于Redis的WebSocket集群传输层
+ * 消息：每个节点订阅 sky:ws:node:{节点ID} 接收定向消息，另订阅 sky:ws:broadcast 接收广播。
+ * 在线状态：sky:ws:presence:{类型} 有序集合（成员为连接ID，分数为过期时间戳），
+ * sky:ws:presence:{类型}:node 哈希记录连接所在节点。
+ */
+@Component
+@ConditionalOnProperty(name = "sky.websocket.cluster.transport", havingValue = "redis", matchIfMissing = true)
+@Slf4j
+public class RedisWebSocketClusterTransport implements WebSocketClusterTransport, MessageListener {
+
+    private static final String NODE_CHANNEL_PREFIX = "sky:ws:node:";
+    private static final String BROADCAST_CHANNEL = "sky:ws:broadcast";
+    private static final String PRESENCE_KEY_PREFIX = "sky:ws:presence:";
+
+    /**
+     * 仍登记在指定节点上时才注销，避免旧节点的关闭回调注销已重连到新节点的连接
+     */
+    private static final DefaultRedisScript<Long> OFFLINE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[2], ARGV[1]) == ARGV[2] then "
+                    + "redis.call('HDEL', KEYS[2], ARGV[1]) "
+                    + "redis.call('ZREM', KEYS[1], ARGV[1]) "
+                    + "return 1 end return 0", Long.class);
+
+    /**
+     * 原子地删除已过期的登记，避免误删刚续期的连接所在节点
+     */
+    private static final DefaultRedisScript<Long> PURGE_SCRIPT = new DefaultRedisScript<>(
+            "local ids = redis.call('ZRANGEBYSCORE', KEYS[1], 0, ARGV[1]) "
+                    + "for _, id in ipairs(ids) do redis.call('HDEL', KEYS[2], id) end "
+                    + "redis.call('ZREMRANGEBYSCORE', KEYS[1], 0, ARGV[1]) "
+                    + "return #ids", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private volatile Consumer<String> receiver;
+
+    @Override
+    public void subscribe(String nodeId, Consumer<String> receiver) {
+        this.receiver = receiver;
+        redisMessageListenerContainer.addMessageListener(this,
+                Arrays.asList(new ChannelTopic(NODE_CHANNEL_PREFIX + nodeId), new ChannelTopic(BROADCAST_CHANNEL)));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Consumer<String> current = receiver;
+        if (current != null) {
+            current.accept(new String(message.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public void publish(String nodeId, String batch) {
+        stringRedisTemplate.convertAndSend(nodeId != null ? NODE_CHANNEL_PREFIX + nodeId : BROADCAST_CHANNEL, batch);
+    }
+
+    @Override
+    public void online(String kind, Collection<String> ids, String nodeId, long expireAt) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+        Map<String, String> nodes = new HashMap<>();
+        for (String id : ids) {
+            tuples.add(new DefaultTypedTuple<>(id, (double) expireAt));
+            nodes.put(id, nodeId);
+        }
+        stringRedisTemplate.opsForHash().putAll(nodeKey(kind), nodes);
+        stringRedisTemplate.opsForZSet().add(presenceKey(kind), tuples);
+    }
+
+    @Override
+    public void offline(String kind, String id, String nodeId) {
+        stringRedisTemplate.execute(OFFLINE_SCRIPT, Arrays.asList(presenceKey(kind), nodeKey(kind)), id, nodeId);
+    }
+
+    @Override
+    public String locate(String kind, String id, long now) {
+        Double expireAt = stringRedisTemplate.opsForZSet().score(presenceKey(kind), id);
+        if (expireAt == null || expireAt < now) {
+            return null;
+        }
+        Object nodeId = stringRedisTemplate.opsForHash().get(nodeKey(kind), id);
+        return nodeId != null ? nodeId.toString() : null;
+    }
+
+    @Override
+    public long count(String kind, long now) {
+        Long count = stringRedisTemplate.opsForZSet().count(presenceKey(kind), now, Double.POSITIVE_INFINITY);
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public void purgeExpired(String kind, long now) {
+        Long purged = stringRedisTemplate.execute(PURGE_SCRIPT, Arrays.asList(presenceKey(kind), nodeKey(kind)),
+                String.valueOf(now - 1));
+        if (purged != null && purged > 0) {
+            log.info("清理过期的WebSocket在线登记: 类型={}, 数量={}", kind, purged);
+        }
+    }
+
+    private static String presenceKey(String kind) {
+        return PRESENCE_KEY_PREFIX + kind;
+    }
+
+    private static String nodeKey(String kind) {
+        return PRESENCE_KEY_PREFIX + kind + ":node";
+    }
+}
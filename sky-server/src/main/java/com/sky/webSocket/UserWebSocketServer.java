@@ -6,7 +6,6 @@ import org.springframework.stereotype.Component;
 
 import javax.websocket.*;
 import javax.websocket.server.ServerEndpoint;
-import java.io.IOException;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
@@ -58,10 +57,12 @@ public class UserWebSocketServer {
             }
             
             if (userIdStr != null) {
+                WebSocketPushEngine.register(session, "user");
                 // 判断是临时用户ID还是真实用户ID
                 if (userIdStr.startsWith("temp_")) {
                     // 临时用户ID
                     tempUserConnections.put(userIdStr, session);
+                    WebSocketCluster.online(WebSocketCluster.TEMP_USER, userIdStr);
                     if (sessionId != null) {
                         sessionTempUserMapping.put(sessionId, userIdStr);
                     }
@@ -72,6 +73,7 @@ public class UserWebSocketServer {
                     try {
                         Long userId = Long.parseLong(userIdStr);
                         userConnections.put(userId, session);
+                        WebSocketCluster.online(WebSocketCluster.USER, String.valueOf(userId));
                         if (sessionId != null) {
                             sessionUserMapping.put(sessionId, userId);
                         }
@@ -101,6 +103,8 @@ public class UserWebSocketServer {
     @OnClose
     public void onClose(Session session) {
         try {
+            WebSocketPushEngine.unregister(session);
+            
             // 找到对应的用户ID并移除
             Long userIdToRemove = null;
             String tempUserIdToRemove = null;
@@ -127,6 +131,7 @@ public class UserWebSocketServer {
             if (userIdToRemove != null) {
                 // 清理真实用户连接
                 userConnections.remove(userIdToRemove);
+                WebSocketCluster.offline(WebSocketCluster.USER, String.valueOf(userIdToRemove));
                 
                 // 查找并移除对应的会话映射
                 for (Map.Entry<Long, Long> entry : sessionUserMapping.entrySet()) {
@@ -145,6 +150,7 @@ public class UserWebSocketServer {
             } else if (tempUserIdToRemove != null) {
                 // 清理临时用户连接
                 tempUserConnections.remove(tempUserIdToRemove);
+                WebSocketCluster.offline(WebSocketCluster.TEMP_USER, tempUserIdToRemove);
                 
                 // 查找并移除对应的会话映射
                 for (Map.Entry<Long, String> entry : sessionTempUserMapping.entrySet()) {
@@ -171,41 +177,72 @@ public class UserWebSocketServer {
     }
 
     /**
-     * 向指定用户发送消息
+     * 向指定用户发送消息（放入发送队列，不阻塞调用线程）
+     * 用户连接在其他节点上时转发到该节点
      */
     public static void sendMessage(Long userId, String message) {
-        try {
-            Session session = userConnections.get(userId);
-            if (session != null && session.isOpen()) {
-                session.getBasicRemote().sendText(message);
-                log.info("✅ 成功向用户 {} 发送消息", userId);
-            } else {
-                log.warn("⚠️ 用户 {} 未连接或连接已关闭", userId);
-            }
-        } catch (IOException e) {
-            log.error("❌ 向用户 {} 发送消息失败: {}", userId, e.getMessage());
+        if (deliverLocally(userId, message)) {
+            return;
+        }
+        if (WebSocketCluster.route(WebSocketCluster.USER, String.valueOf(userId), message)) {
+            log.info("✅ 用户 {} 连接在其他节点，消息已转发", userId);
+        } else {
+            log.warn("⚠️ 用户 {} 未连接或连接已关闭", userId);
         }
     }
 
     /**
-     * 向指定临时用户发送消息
+     * 向指定临时用户发送消息（放入发送队列，不阻塞调用线程）
+     * 临时用户连接在其他节点上时转发到该节点
      */
     public static void sendMessageToTempUser(String tempUserId, String message) {
-        try {
-            Session session = tempUserConnections.get(tempUserId);
-            if (session != null && session.isOpen()) {
-                session.getBasicRemote().sendText(message);
-                log.info("✅ 成功向临时用户 {} 发送消息", tempUserId);
-            } else {
-                log.warn("⚠️ 临时用户 {} 未连接或连接已关闭", tempUserId);
-            }
-        } catch (IOException e) {
-            log.error("❌ 向临时用户 {} 发送消息失败: {}", tempUserId, e.getMessage());
+        if (deliverToTempUserLocally(tempUserId, message)) {
+            return;
+        }
+        if (WebSocketCluster.route(WebSocketCluster.TEMP_USER, tempUserId, message)) {
+            log.info("✅ 临时用户 {} 连接在其他节点，消息已转发", tempUserId);
+        } else {
+            log.warn("⚠️ 临时用户 {} 未连接或连接已关闭", tempUserId);
+        }
+    }
+
+    /**
+     * 向本节点上的用户连接发送消息
+     * @return 用户连接在本节点上时返回true
+     */
+    static boolean deliverLocally(Long userId, String message) {
+        Session session = userConnections.get(userId);
+        if (session == null || !session.isOpen()) {
+            return false;
+        }
+        if (WebSocketPushEngine.send(session, message)) {
+            log.info("✅ 已向用户 {} 推送消息", userId);
+        } else {
+            log.warn("⚠️ 用户 {} 的发送队列已满或连接已关闭，消息被丢弃", userId);
         }
+        return true;
+    }
+
+    /**
+     * 向本节点上的临时用户连接发送消息
+     * @return 临时用户连接在本节点上时返回true
+     */
+    static boolean deliverToTempUserLocally(String tempUserId, String message) {
+        Session session = tempUserConnections.get(tempUserId);
+        if (session == null || !session.isOpen()) {
+            return false;
+        }
+        if (WebSocketPushEngine.send(session, message)) {
+            log.info("✅ 已向临时用户 {} 推送消息", tempUserId);
+        } else {
+            log.warn("⚠️ 临时用户 {} 的发送队列已满或连接已关闭，消息被丢弃", tempUserId);
+        }
+        return true;
     }
 
     /**
      * 通过会话ID发送消息（自动识别真实用户或临时用户）
+     * 本节点没有该会话的映射时转发给其他节点，由持有映射且连接在本地的节点推送
      */
     public static void sendMessageBySessionId(Long sessionId, String message) {
         // 先尝试真实用户
@@ -222,7 +259,23 @@ public class UserWebSocketServer {
             return;
         }
         
-        log.warn("⚠️ 会话 {} 没有对应的用户连接", sessionId);
+        WebSocketCluster.broadcast(WebSocketCluster.USER_SESSION, String.valueOf(sessionId), message);
+        log.info("🔍 会话 {} 在本节点没有对应的用户连接，已转发给其他节点", sessionId);
+    }
+
+    /**
+     * 按本节点的会话映射推送给本节点上的连接（其他节点转发来的会话消息，不再转发）
+     */
+    static void deliverBySessionIdLocally(Long sessionId, String message) {
+        Long userId = sessionUserMapping.get(sessionId);
+        if (userId != null) {
+            deliverLocally(userId, message);
+            return;
+        }
+        String tempUserId = sessionTempUserMapping.get(sessionId);
+        if (tempUserId != null) {
+            deliverToTempUserLocally(tempUserId, message);
+        }
     }
 
     /**
@@ -264,7 +317,12 @@ public class UserWebSocketServer {
                 return;
             }
             
-            log.warn("⚠️ 会话 {} 没有对应的用户连接，无法发送结束通知", sessionId);
+            Map<String, Object> data = new HashMap<>();
+            data.put("sessionId", sessionId);
+            data.put("reason", reason);
+            WebSocketCluster.broadcast(WebSocketCluster.USER_SESSION, String.valueOf(sessionId),
+                    createMessage("session_ended", "会话已结束", data));
+            log.info("🔍 会话 {} 在本节点没有对应的用户连接，结束通知已转发给其他节点", sessionId);
         } catch (Exception e) {
             log.error("❌ 通知用户会话结束失败: {}", e.getMessage());
         }
@@ -322,6 +380,8 @@ public class UserWebSocketServer {
                 
                 // 添加到真实用户连接
                 userConnections.put(realUserId, session);
+                WebSocketCluster.offline(WebSocketCluster.TEMP_USER, tempUserId);
+                WebSocketCluster.online(WebSocketCluster.USER, String.valueOf(realUserId));
                 
                 // 更新会话映射
                 Long sessionId = null;
@@ -347,26 +407,29 @@ public class UserWebSocketServer {
     }
 
     /**
-     * 获取在线用户数量（包括临时用户）
+     * 获取在线用户数量（包括临时用户，集群内所有节点）
      */
     public static int getOnlineUserCount() {
-        return userConnections.size() + tempUserConnections.size();
+        return WebSocketCluster.onlineCount(WebSocketCluster.USER, userConnections.size())
+                + WebSocketCluster.onlineCount(WebSocketCluster.TEMP_USER, tempUserConnections.size());
     }
 
     /**
-     * 检查用户是否在线（支持临时用户）
+     * 检查用户是否在线（集群内任意节点）
      */
     public static boolean isUserOnline(Long userId) {
         Session session = userConnections.get(userId);
-        return session != null && session.isOpen();
+        return (session != null && session.isOpen())
+                || WebSocketCluster.isOnline(WebSocketCluster.USER, String.valueOf(userId));
     }
 
     /**
-     * 检查临时用户是否在线
+     * 检查临时用户是否在线（集群内任意节点）
      */
     public static boolean isTempUserOnline(String tempUserId) {
         Session session = tempUserConnections.get(tempUserId);
-        return session != null && session.isOpen();
+        return (session != null && session.isOpen())
+                || WebSocketCluster.isOnline(WebSocketCluster.TEMP_USER, tempUserId);
     }
 
     /**
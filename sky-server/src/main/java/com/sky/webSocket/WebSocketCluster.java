@@ -0,0 +1,395 @@
+package com.sky.webSocket;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocket集群投递
+ * 多节点部署时客服/用户可能连接在任意节点上：目标连接不在本节点时，按在线登记找到所在节点，
+ * 把消息放入该节点的发件箱，由投递线程每隔 flush-interval-ms 把同一节点的消息合并成一批发送；
+ * 需要按会话查找映射的消息（映射只保存在建立映射的节点上）广播给所有节点，由持有映射的节点投递。
+ * 每个节点定时续期本节点连接的在线登记（带过期时间），节点宕机后登记自然过期，
+ * 在线客服数、客服是否在线等查询因此在整个集群范围内准确。
+ */
+@Component
+@Slf4j
+public class WebSocketCluster {
+
+    /**
+     * 定向投递/在线登记的连接类型
+     */
+    public static final String SERVICE = "service";
+    public static final String USER = "user";
+    public static final String TEMP_USER = "temp";
+
+    /**
+     * 广播类消息：所有客服、按会话查找客服、按会话查找用户
+     */
+    static final String ALL_SERVICES = "all_services";
+    static final String SERVICE_SESSION = "service_session";
+    static final String USER_SESSION = "user_session";
+
+    private static final String BROADCAST = "*";
+
+    private static volatile WebSocketCluster instance;
+
+    @Autowired
+    private WebSocketClusterTransport transport;
+
+    /**
+     * 在线登记的有效期，需大于续期间隔
+     */
+    @Value("${sky.websocket.cluster.presence-ttl-ms:30000}")
+    private long presenceTtlMillis;
+
+    @Value("${sky.websocket.cluster.flush-interval-ms:20}")
+    private long flushIntervalMillis;
+
+    @Value("${sky.websocket.cluster.max-batch-size:200}")
+    private int maxBatchSize;
+
+    /**
+     * 发件箱最多积压的消息数，超过时丢弃新消息
+     */
+    @Value("${sky.websocket.cluster.max-pending:10000}")
+    private int maxPending;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 单线程执行批量发送和在线登记，保证同一连接的上线/下线按顺序写入
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * 目标节点ID（广播为*）-> 待发送的消息
+     */
+    private final Map<String, Queue<JSONObject>> outbox = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * 本节点的连接：类型 -> 连接ID
+     */
+    private final Map<String, Set<String>> localPresence = new ConcurrentHashMap<>();
+
+    private final LongAdder routed = new LongAdder();
+    private final LongAdder broadcasted = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder batchesPublished = new LongAdder();
+    private final LongAdder messagesPublished = new LongAdder();
+    private final LongAdder publishErrors = new LongAdder();
+    private final LongAdder batchesReceived = new LongAdder();
+    private final LongAdder messagesReceived = new LongAdder();
+    private final LongAdder presenceErrors = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ws-cluster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        transport.subscribe(nodeId, this::receive);
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        instance = this;
+        log.info("WebSocket集群投递已启动: 节点ID={}, 传输层={}, 在线登记有效期={}ms",
+                nodeId, transport.getClass().getSimpleName(), presenceTtlMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        instance = null;
+        executor.shutdownNow();
+        flush();
+        // 主动注销本节点的连接，其他节点不必等登记过期
+        localPresence.forEach((kind, ids) -> ids.forEach(id -> {
+            try {
+                transport.offline(kind, id, nodeId);
+            } catch (Exception e) {
+                presenceErrors.increment();
+            }
+        }));
+    }
+
+    /**
+     * 连接建立后登记在线
+     */
+    public static void online(String kind, String id) {
+        WebSocketCluster cluster = instance;
+        if (cluster == null || id == null) {
+            return;
+        }
+        cluster.localPresence.computeIfAbsent(kind, k -> ConcurrentHashMap.newKeySet()).add(id);
+        cluster.submit(() -> cluster.transport.online(kind, Collections.singletonList(id), cluster.nodeId,
+                System.currentTimeMillis() + cluster.presenceTtlMillis));
+    }
+
+    /**
+     * 连接关闭后注销在线
+     */
+    public static void offline(String kind, String id) {
+        WebSocketCluster cluster = instance;
+        if (cluster == null || id == null) {
+            return;
+        }
+        Set<String> ids = cluster.localPresence.get(kind);
+        if (ids != null) {
+            ids.remove(id);
+        }
+        cluster.submit(() -> cluster.transport.offline(kind, id, cluster.nodeId));
+    }
+
+    /**
+     * 把消息转发到目标连接所在的节点
+     * @return 目标在其他节点在线并已放入发件箱时返回true
+     */
+    public static boolean route(String kind, String id, String message) {
+        WebSocketCluster cluster = instance;
+        if (cluster == null) {
+            return false;
+        }
+        String target;
+        try {
+            target = cluster.transport.locate(kind, id, System.currentTimeMillis());
+        } catch (Exception e) {
+            cluster.presenceErrors.increment();
+            log.warn("查询WebSocket连接所在节点失败: 类型={}, ID={}, {}", kind, id, e.getMessage());
+            return false;
+        }
+        if (target == null || target.equals(cluster.nodeId)) {
+            cluster.notFound.increment();
+            return false;
+        }
+        if (cluster.enqueue(target, kind, id, message)) {
+            cluster.routed.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 把消息广播给其他所有节点，由各节点自行判断是否投递
+     */
+    public static void broadcast(String kind, String id, String message) {
+        WebSocketCluster cluster = instance;
+        if (cluster != null && cluster.enqueue(BROADCAST, kind, id, message)) {
+            cluster.broadcasted.increment();
+        }
+    }
+
+    /**
+     * 连接是否在集群内任意节点在线
+     */
+    public static boolean isOnline(String kind, String id) {
+        WebSocketCluster cluster = instance;
+        if (cluster == null) {
+            return false;
+        }
+        try {
+            return cluster.transport.locate(kind, id, System.currentTimeMillis()) != null;
+        } catch (Exception e) {
+            cluster.presenceErrors.increment();
+            return false;
+        }
+    }
+
+    /**
+     * 集群内在线连接数，在线登记不可用时返回本节点连接数
+     */
+    public static int onlineCount(String kind, int localCount) {
+        WebSocketCluster cluster = instance;
+        if (cluster == null) {
+            return localCount;
+        }
+        try {
+            return (int) Math.max(localCount, cluster.transport.count(kind, System.currentTimeMillis()));
+        } catch (Exception e) {
+            cluster.presenceErrors.increment();
+            return localCount;
+        }
+    }
+
+    /**
+     * 定时续期本节点连接的在线登记，并清理宕机节点遗留的过期登记
+     */
+    @Scheduled(fixedDelayString = "${sky.websocket.cluster.heartbeat-interval-ms:10000}")
+    public void heartbeat() {
+        submit(() -> {
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, Set<String>> entry : localPresence.entrySet()) {
+                transport.online(entry.getKey(), new ArrayList<>(entry.getValue()), nodeId, now + presenceTtlMillis);
+            }
+            for (String kind : new String[]{SERVICE, USER, TEMP_USER}) {
+                transport.purgeExpired(kind, now);
+            }
+        });
+    }
+
+    /**
+     * 集群投递统计：转发/广播/丢弃数量、批次数和在线登记
+     */
+    public Map<String, Object> stats() {
+        Map<String, Integer> local = new LinkedHashMap<>();
+        localPresence.forEach((kind, ids) -> local.put(kind, ids.size()));
+        long batches = batchesPublished.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodeId", nodeId);
+        stats.put("transport", transport.getClass().getSimpleName());
+        stats.put("localConnections", local);
+        stats.put("pending", pending.get());
+        stats.put("routed", routed.sum());
+        stats.put("broadcasted", broadcasted.sum());
+        stats.put("notFound", notFound.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("batchesPublished", batches);
+        stats.put("messagesPublished", messagesPublished.sum());
+        stats.put("averageBatchSize", batches > 0 ? (double) messagesPublished.sum() / batches : 0);
+        stats.put("publishErrors", publishErrors.sum());
+        stats.put("batchesReceived", batchesReceived.sum());
+        stats.put("messagesReceived", messagesReceived.sum());
+        stats.put("presenceErrors", presenceErrors.sum());
+        return stats;
+    }
+
+    private boolean enqueue(String destination, String kind, String id, String message) {
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            dropped.increment();
+            log.warn("WebSocket集群发件箱已满，丢弃消息: 类型={}, ID={}", kind, id);
+            return false;
+        }
+        JSONObject envelope = new JSONObject();
+        envelope.put("kind", kind);
+        envelope.put("id", id);
+        envelope.put("message", message);
+        outbox.computeIfAbsent(destination, d -> new ConcurrentLinkedQueue<>()).add(envelope);
+        return true;
+    }
+
+    /**
+     * 每个目标节点的积压消息合并成批发送，每批最多 max-batch-size 条
+     */
+    private void flush() {
+        for (Map.Entry<String, Queue<JSONObject>> entry : outbox.entrySet()) {
+            Queue<JSONObject> queue = entry.getValue();
+            while (!queue.isEmpty()) {
+                JSONArray items = new JSONArray();
+                JSONObject envelope;
+                while (items.size() < maxBatchSize && (envelope = queue.poll()) != null) {
+                    items.add(envelope);
+                }
+                if (items.isEmpty()) {
+                    break;
+                }
+                pending.addAndGet(-items.size());
+                JSONObject batch = new JSONObject();
+                batch.put("from", nodeId);
+                batch.put("items", items);
+                try {
+                    transport.publish(BROADCAST.equals(entry.getKey()) ? null : entry.getKey(), batch.toJSONString());
+                    batchesPublished.increment();
+                    messagesPublished.add(items.size());
+                } catch (Exception e) {
+                    publishErrors.increment();
+                    dropped.add(items.size());
+                    log.error("WebSocket集群消息发送失败，丢弃{}条消息: {}", items.size(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        JSONObject batch;
+        try {
+            batch = JSON.parseObject(payload);
+        } catch (Exception e) {
+            log.warn("无法解析WebSocket集群消息: {}", e.getMessage());
+            return;
+        }
+        // 自己发出的广播不再处理（本节点的连接在发送时已直接投递）
+        if (nodeId.equals(batch.getString("from"))) {
+            return;
+        }
+        JSONArray items = batch.getJSONArray("items");
+        if (items == null) {
+            return;
+        }
+        batchesReceived.increment();
+        messagesReceived.add(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            JSONObject item = items.getJSONObject(i);
+            try {
+                deliver(item.getString("kind"), item.getString("id"), item.getString("message"));
+            } catch (Exception e) {
+                log.error("投递WebSocket集群消息失败: 类型={}, ID={}, {}", item.getString("kind"), item.getString("id"), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 在本节点投递收到的消息；定向消息只投递给本节点连接，不再转发
+     */
+    private void deliver(String kind, String id, String message) {
+        switch (kind) {
+            case SERVICE:
+                AdminWebSocketServer.deliverLocally(Long.valueOf(id), message);
+                break;
+            case USER:
+                UserWebSocketServer.deliverLocally(Long.valueOf(id), message);
+                break;
+            case TEMP_USER:
+                UserWebSocketServer.deliverToTempUserLocally(id, message);
+                break;
+            case ALL_SERVICES:
+                AdminWebSocketServer.broadcastLocally(message);
+                break;
+            case SERVICE_SESSION:
+                AdminWebSocketServer.deliverBySessionId(Long.valueOf(id), message);
+                break;
+            case USER_SESSION:
+                UserWebSocketServer.deliverBySessionIdLocally(Long.valueOf(id), message);
+                break;
+            default:
+                log.warn("未知的WebSocket集群消息类型: {}", kind);
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    presenceErrors.increment();
+                    log.warn("更新WebSocket在线登记失败: {}", e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            log.debug("WebSocket集群投递已停止: {}", e.getMessage());
+        }
+    }
+}
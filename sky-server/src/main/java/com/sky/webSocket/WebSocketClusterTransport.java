@@ -0,0 +1,47 @@
+package com.sky.webSocket;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * WebSocket集群传输层
+ * 负责节点之间的消息投递（按节点定向或全体广播）和连接在线状态登记（带过期时间，由各节点定时续期）。
+ * 默认使用Redis实现，sky.websocket.cluster.transport=local 时使用进程内实现（单机或测试）。
+ */
+public interface WebSocketClusterTransport {
+
+    /**
+     * 订阅发给本节点的定向消息和全体广播消息
+     */
+    void subscribe(String nodeId, Consumer<String> receiver);
+
+    /**
+     * 发送一批消息，nodeId为null时广播给所有节点
+     */
+    void publish(String nodeId, String batch);
+
+    /**
+     * 登记（续期）本节点上的一组连接，expireAt之后未续期视为离线
+     */
+    void online(String kind, Collection<String> ids, String nodeId, long expireAt);
+
+    /**
+     * 注销连接，只有仍登记在该节点上时才注销（连接可能已重连到其他节点）
+     */
+    void offline(String kind, String id, String nodeId);
+
+    /**
+     * 连接所在的节点ID，不在线时返回null
+     */
+    String locate(String kind, String id, long now);
+
+    /**
+     * 集群内在线的连接数
+     */
+    long count(String kind, long now);
+
+    /**
+     * 清理已过期的在线登记
+     */
+    void purgeExpired(String kind, long now);
+}
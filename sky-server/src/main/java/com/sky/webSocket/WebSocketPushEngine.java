@@ -0,0 +1,337 @@
+package com.sky.webSocket;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.websocket.CloseReason;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocket推送引擎
+ * 业务线程（例如订单保存、通知发送）只把已序列化好的消息放入每个连接自己的有界发送队列后立即返回，
+ * 由发送线程池按连接逐条发送，一个慢连接不会阻塞业务线程，也不会拖慢其他连接。
+ * 广播时消息只序列化一次，同一个字符串放入所有连接的队列。
+ * 队列满时丢弃新消息并计数；连续丢弃达到阈值或发送失败的连接视为慢连接，异步关闭（由各端点的 onClose 清理映射）。
+ * 被驱逐或已注销的连接会打上标记，关闭完成前的发送不会再为它建立新的发送队列。
+ */
+@Component
+@Slf4j
+public class WebSocketPushEngine {
+
+    /**
+     * Tomcat阻塞发送超时属性（毫秒），避免单次发送无限期占用发送线程
+     */
+    private static final String BLOCKING_SEND_TIMEOUT = "org.apache.tomcat.websocket.BLOCKING_SEND_TIMEOUT";
+
+    /**
+     * 连接已注销或已被驱逐的标记（会话属性），此后发送不再补登记该连接
+     */
+    private static final String RETIRED = "sky.websocket.retired";
+
+    private static volatile WebSocketPushEngine instance;
+
+    @Value("${sky.websocket.outbound-queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${sky.websocket.sender-threads:4}")
+    private int senderThreads;
+
+    /**
+     * 单次drain最多连续发送的消息数，发完后让出线程给其他连接
+     */
+    @Value("${sky.websocket.drain-batch-size:32}")
+    private int drainBatchSize;
+
+    /**
+     * 连续丢弃多少条消息后关闭该连接
+     */
+    @Value("${sky.websocket.slow-consumer-max-drops:64}")
+    private int maxConsecutiveDrops;
+
+    @Value("${sky.websocket.send-timeout-ms:10000}")
+    private long sendTimeoutMillis;
+
+    private ExecutorService senderPool;
+
+    private final Map<String, Outbound> outbounds = new ConcurrentHashMap<>();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LongAdder broadcasts = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger counter = new AtomicInteger();
+        senderPool = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "ws-sender-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        instance = this;
+        log.info("WebSocket推送引擎已启动: 发送线程={}, 单连接队列容量={}, 慢连接丢弃阈值={}",
+                senderThreads, queueCapacity, maxConsecutiveDrops);
+    }
+
+    @PreDestroy
+    public void stop() {
+        instance = null;
+        senderPool.shutdownNow();
+    }
+
+    /**
+     * 连接建立时登记（各端点的 onOpen 中调用）
+     */
+    public static void register(Session session, String endpoint) {
+        WebSocketPushEngine engine = instance;
+        if (engine == null || session == null) {
+            return;
+        }
+        session.getUserProperties().put(BLOCKING_SEND_TIMEOUT, engine.sendTimeoutMillis);
+        engine.outbounds.put(session.getId(), new Outbound(session, endpoint, engine.queueCapacity));
+    }
+
+    /**
+     * 连接关闭时注销（各端点的 onClose 中调用），未发送的消息随之丢弃
+     */
+    public static void unregister(Session session) {
+        WebSocketPushEngine engine = instance;
+        if (engine == null || session == null) {
+            return;
+        }
+        session.getUserProperties().put(RETIRED, Boolean.TRUE);
+        Outbound outbound = engine.outbounds.remove(session.getId());
+        if (outbound != null) {
+            outbound.closed = true;
+            outbound.queue.clear();
+        }
+    }
+
+    /**
+     * 把消息放入连接的发送队列，立即返回
+     * @return 是否已入队（连接不存在/已关闭/队列已满时返回false）
+     */
+    public static boolean send(Session session, String message) {
+        if (session == null || !session.isOpen()) {
+            return false;
+        }
+        WebSocketPushEngine engine = instance;
+        if (engine == null) {
+            // 应用启动/停止过程中推送引擎不可用，退回同步发送
+            try {
+                session.getBasicRemote().sendText(message);
+                return true;
+            } catch (IOException e) {
+                log.error("WebSocket同步发送失败: {}", e.getMessage());
+                return false;
+            }
+        }
+        return engine.enqueue(session, message);
+    }
+
+    /**
+     * 广播：同一条已序列化的消息放入所有连接的发送队列
+     * @return 成功入队的连接数
+     */
+    public static int broadcast(Collection<Session> sessions, String message) {
+        WebSocketPushEngine engine = instance;
+        if (engine != null) {
+            engine.broadcasts.increment();
+        }
+        int count = 0;
+        for (Session session : sessions) {
+            if (send(session, message)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 推送统计：连接数、队列深度、入队/发送/丢弃/驱逐数量和发送耗时
+     */
+    public Map<String, Object> stats() {
+        int totalDepth = 0;
+        int maxDepth = 0;
+        Map<String, Integer> connectionsByEndpoint = new LinkedHashMap<>();
+        for (Outbound outbound : outbounds.values()) {
+            int depth = outbound.queue.size();
+            totalDepth += depth;
+            maxDepth = Math.max(maxDepth, depth);
+            connectionsByEndpoint.merge(outbound.endpoint, 1, Integer::sum);
+        }
+        long sentCount = sent.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("connections", outbounds.size());
+        stats.put("connectionsByEndpoint", connectionsByEndpoint);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("totalQueueDepth", totalDepth);
+        stats.put("maxQueueDepth", maxDepth);
+        stats.put("enqueued", enqueued.sum());
+        stats.put("sent", sentCount);
+        stats.put("dropped", dropped.sum());
+        stats.put("evicted", evicted.sum());
+        stats.put("sendErrors", sendErrors.sum());
+        stats.put("broadcasts", broadcasts.sum());
+        stats.put("averageSendMillis", sentCount > 0 ? sendNanos.sum() / 1_000_000.0 / sentCount : 0);
+        stats.put("maxSendMillis", maxSendNanos.get() / 1_000_000.0);
+        return stats;
+    }
+
+    private boolean enqueue(Session session, String message) {
+        Outbound outbound = outbounds.get(session.getId());
+        if (outbound == null) {
+            outbound = registerUnknown(session);
+            if (outbound == null) {
+                return false;
+            }
+        }
+        if (outbound.closed) {
+            return false;
+        }
+        if (!outbound.queue.offer(message)) {
+            dropped.increment();
+            if (outbound.consecutiveDrops.incrementAndGet() >= maxConsecutiveDrops) {
+                evict(outbound, "发送队列持续已满");
+            }
+            return false;
+        }
+        enqueued.increment();
+        scheduleDrain(outbound);
+        return true;
+    }
+
+    /**
+     * 未登记的连接（例如引擎启动前建立的连接）补登记；已注销、已驱逐或已关闭的连接不补登记
+     */
+    private Outbound registerUnknown(Session session) {
+        if (isRetired(session) || !session.isOpen()) {
+            return null;
+        }
+        session.getUserProperties().put(BLOCKING_SEND_TIMEOUT, sendTimeoutMillis);
+        Outbound created = new Outbound(session, "unknown", queueCapacity);
+        Outbound existing = outbounds.putIfAbsent(session.getId(), created);
+        if (existing != null) {
+            return existing;
+        }
+        // 登记期间连接被注销（先打标记再移除）：撤销本次登记，避免已关闭的连接留下发送队列
+        if (isRetired(session)) {
+            created.closed = true;
+            outbounds.remove(session.getId(), created);
+            return null;
+        }
+        return created;
+    }
+
+    private static boolean isRetired(Session session) {
+        return Boolean.TRUE.equals(session.getUserProperties().get(RETIRED));
+    }
+
+    private void scheduleDrain(Outbound outbound) {
+        if (outbound.draining.compareAndSet(false, true)) {
+            try {
+                senderPool.execute(() -> drain(outbound));
+            } catch (Exception e) {
+                outbound.draining.set(false);
+            }
+        }
+    }
+
+    private void drain(Outbound outbound) {
+        try {
+            for (int i = 0; i < drainBatchSize && !outbound.closed; i++) {
+                String message = outbound.queue.poll();
+                if (message == null) {
+                    break;
+                }
+                long start = System.nanoTime();
+                try {
+                    outbound.session.getBasicRemote().sendText(message);
+                    sent.increment();
+                    outbound.consecutiveDrops.set(0);
+                } catch (Exception e) {
+                    sendErrors.increment();
+                    evict(outbound, "发送失败: " + e.getMessage());
+                    return;
+                } finally {
+                    long nanos = System.nanoTime() - start;
+                    sendNanos.add(nanos);
+                    maxSendNanos.accumulateAndGet(nanos, Math::max);
+                }
+            }
+        } finally {
+            outbound.draining.set(false);
+        }
+        // 还有剩余消息（批次用完或drain结束前又有新消息入队）时重新调度
+        if (!outbound.closed && !outbound.queue.isEmpty()) {
+            scheduleDrain(outbound);
+        }
+    }
+
+    /**
+     * 驱逐慢连接：停止发送并异步关闭，关闭回调中由端点清理连接映射
+     */
+    private void evict(Outbound outbound, String reason) {
+        if (outbound.closed) {
+            return;
+        }
+        outbound.closed = true;
+        int discarded = outbound.queue.size();
+        outbound.queue.clear();
+        dropped.add(discarded);
+        evicted.increment();
+        outbound.session.getUserProperties().put(RETIRED, Boolean.TRUE);
+        outbounds.remove(outbound.session.getId(), outbound);
+        log.warn("WebSocket慢连接被关闭: endpoint={}, sessionId={}, 原因={}, 丢弃未发送消息{}条",
+                outbound.endpoint, outbound.session.getId(), reason, discarded);
+        try {
+            senderPool.execute(() -> {
+                try {
+                    outbound.session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "slow consumer"));
+                } catch (IOException e) {
+                    log.debug("关闭慢连接失败: {}", e.getMessage());
+                }
+            });
+        } catch (Exception e) {
+            log.debug("关闭慢连接任务提交失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 单个连接的发送队列
+     */
+    private static final class Outbound {
+        final Session session;
+        final String endpoint;
+        final BlockingQueue<String> queue;
+        final AtomicBoolean draining = new AtomicBoolean(false);
+        final AtomicInteger consecutiveDrops = new AtomicInteger();
+        volatile boolean closed;
+
+        Outbound(Session session, String endpoint, int capacity) {
+            this.session = session;
+            this.endpoint = endpoint;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+}
@@ -7,9 +7,8 @@ import javax.websocket.OnOpen;
 import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @Component
@@ -17,13 +16,14 @@ import java.util.Map;
 public class WebSocketServer {
 
 
-    private static Map<String, Session> sessionMap = new HashMap();
+    private static Map<String, Session> sessionMap = new ConcurrentHashMap<>();
 
 
     @OnOpen
     public void onOpen(Session session, @PathParam("sid") String sid) {
         System.out.println("客户端：" + sid + "建立连接");
         sessionMap.put(sid, session);
+        WebSocketPushEngine.register(session, "legacy");
     }
 
 
@@ -34,20 +34,14 @@ public class WebSocketServer {
 
 
     @OnClose
-    public void onClose(@PathParam("sid") String sid) {
-        sessionMap.remove(sid);
+    public void onClose(Session session, @PathParam("sid") String sid) {
+        WebSocketPushEngine.unregister(session);
+        sessionMap.remove(sid, session);
     }
 
 
     public void sendToAllClient(String message) {
-        Collection<Session> sessions = sessionMap.values();
-        for (Session session : sessions) {
-            try {
-                session.getBasicRemote().sendText(message);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        WebSocketPushEngine.broadcast(sessionMap.values(), message);
     }
 
 }
@@ -0,0 +1,182 @@
+package com.sky.cache;
+
+import com.sky.cache.JwtTokenCache.AuthContext;
+import com.sky.constant.JwtClaimsConstant;
+import com.sky.properties.JwtProperties;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.http.Cookie;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * JwtTokenCache测试：按登录范围注销（只读取该范围的Cookie/请求头，只接受该范围密钥签发的token），
+ * 注销后的token不再通过校验
+ */
+public class JwtTokenCacheTest {
+
+    private static final String ADMIN_SECRET = "admin-secret";
+    private static final String USER_SECRET = "user-secret";
+    private static final String AGENT_SECRET = "agent-secret";
+
+    private JwtTokenCache cache;
+    private String adminToken;
+    private String userToken;
+    private String agentToken;
+
+    @BeforeEach
+    public void setUp() {
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setAdminSecretKey(ADMIN_SECRET);
+        jwtProperties.setUserSecretKey(USER_SECRET);
+        jwtProperties.setAgentSecretKey(AGENT_SECRET);
+        jwtProperties.setAdminTokenName("token");
+        jwtProperties.setUserTokenName("authentication");
+        jwtProperties.setAgentTokenName("agent-token");
+
+        // Redis模板为桩对象：注销只在本地生效，查询注销记录返回false
+        cache = new JwtTokenCache();
+        ReflectionTestUtils.setField(cache, "jwtProperties", jwtProperties);
+        ReflectionTestUtils.setField(cache, "stringRedisTemplate", Mockito.mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+
+        adminToken = token(ADMIN_SECRET, 1L, "admin");
+        userToken = token(USER_SECRET, 2L, "regular");
+        agentToken = token(AGENT_SECRET, 3L, "agent");
+    }
+
+    @Test
+    public void adminLogoutRevokesOnlyAdminTokens() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie("adminToken", adminToken), new Cookie("authToken", userToken),
+                new Cookie("agentToken", agentToken));
+
+        assertThat(cache.revokeRequestTokens(JwtTokenCache.SCOPE_ADMIN, request)).isEqualTo(1);
+
+        assertThat(cache.isRevokedToken(adminToken)).isTrue();
+        assertThat(cache.isRevokedToken(userToken)).isFalse();
+        assertThat(cache.isRevokedToken(agentToken)).isFalse();
+    }
+
+    @Test
+    public void userLogoutIgnoresAdminTokenInSharedHeader() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie("authToken", userToken), new Cookie("adminToken", adminToken));
+        // "token"请求头两个范围都会读取，管理员token不是用户端密钥签发，不注销
+        request.addHeader("token", adminToken);
+
+        assertThat(cache.revokeRequestTokens(JwtTokenCache.SCOPE_USER, request)).isEqualTo(1);
+
+        assertThat(cache.isRevokedToken(userToken)).isTrue();
+        assertThat(cache.isRevokedToken(adminToken)).isFalse();
+    }
+
+    @Test
+    public void userLogoutRevokesAgentTokenUsedOnUserSite() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + agentToken);
+
+        assertThat(cache.revokeRequestTokens(JwtTokenCache.SCOPE_USER, request)).isEqualTo(1);
+        assertThat(cache.isRevokedToken(agentToken)).isTrue();
+    }
+
+    @Test
+    public void agentLogoutIgnoresUserTokenInSharedCookie() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie("authToken", userToken), new Cookie("agentToken", agentToken),
+                new Cookie("adminToken", adminToken));
+
+        assertThat(cache.revokeRequestTokens(JwtTokenCache.SCOPE_AGENT, request)).isEqualTo(1);
+
+        assertThat(cache.isRevokedToken(agentToken)).isTrue();
+        assertThat(cache.isRevokedToken(userToken)).isFalse();
+        assertThat(cache.isRevokedToken(adminToken)).isFalse();
+    }
+
+    @Test
+    public void revokedTokenIsRejectedAfterBeingCached() {
+        assertThat(cache.verify(JwtTokenCache.SCOPE_ADMIN, adminToken, this::loadAdmin).getId()).isEqualTo(1L);
+        assertThat(cache.verify(JwtTokenCache.SCOPE_ADMIN, adminToken, this::loadAdmin).getId()).isEqualTo(1L);
+        assertThat(cache.stats().get("hits")).isEqualTo(1L);
+
+        assertThat(cache.revoke(JwtTokenCache.SCOPE_ADMIN, adminToken)).isTrue();
+
+        assertThatThrownBy(() -> cache.verify(JwtTokenCache.SCOPE_ADMIN, adminToken, this::loadAdmin))
+                .isInstanceOf(JwtException.class)
+                .hasMessageContaining("令牌已注销");
+        assertThat(cache.stats().get("entries")).isEqualTo(0);
+    }
+
+    @Test
+    public void tokenFromAnotherScopeIsNotRevoked() {
+        assertThat(cache.revoke(JwtTokenCache.SCOPE_AGENT, userToken)).isFalse();
+        assertThat(cache.revoke(JwtTokenCache.SCOPE_ADMIN, agentToken)).isFalse();
+        assertThat(cache.stats().get("revocations")).isEqualTo(0L);
+    }
+
+    @Test
+    public void revocationBetweenCheckAndPutIsNotCached() {
+        JwtTokenCache racing = new JwtTokenCache() {
+            @Override
+            public void purgeExpired() {
+                // 缓存已满时在检查注销之后、写入之前调用，模拟此时到达的注销
+                revoke(JwtTokenCache.SCOPE_ADMIN, adminToken);
+                super.purgeExpired();
+            }
+        };
+        ReflectionTestUtils.setField(racing, "jwtProperties", ReflectionTestUtils.getField(cache, "jwtProperties"));
+        ReflectionTestUtils.setField(racing, "stringRedisTemplate", Mockito.mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(racing, "maxEntries", 0);
+
+        assertThatThrownBy(() -> racing.verify(JwtTokenCache.SCOPE_ADMIN, adminToken, this::loadAdmin))
+                .isInstanceOf(JwtException.class)
+                .hasMessageContaining("令牌已注销");
+        assertThat(racing.stats().get("entries")).isEqualTo(0);
+        assertThat(racing.stats().get("revokedRejected")).isEqualTo(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void cachedEntryOfRevokedTokenIsRejectedOnHit() {
+        cache.verify(JwtTokenCache.SCOPE_ADMIN, adminToken, this::loadAdmin);
+        // 注销记录已存在但缓存条目仍在（例如注销与写入交错），命中路径也必须拒绝
+        Map<String, Long> revoked = (Map<String, Long>) ReflectionTestUtils.getField(cache, "revoked");
+        Map<String, AuthContext> verified = (Map<String, AuthContext>) ReflectionTestUtils.getField(cache, "verified");
+        String key = verified.keySet().iterator().next();
+        AuthContext cached = verified.get(key);
+        assertThat(cache.revoke(JwtTokenCache.SCOPE_ADMIN, adminToken)).isTrue();
+        assertThat(revoked).hasSize(1);
+        verified.put(key, cached);
+
+        assertThatThrownBy(() -> cache.verify(JwtTokenCache.SCOPE_ADMIN, adminToken, this::loadAdmin))
+                .isInstanceOf(JwtException.class)
+                .hasMessageContaining("令牌已注销");
+        assertThat(cache.stats().get("hits")).isEqualTo(0L);
+        assertThat(verified).isEmpty();
+    }
+
+    private AuthContext loadAdmin(String token) {
+        Claims claims = JwtUtil.parseJWT(ADMIN_SECRET, token);
+        return new AuthContext(claims, Long.valueOf(claims.get(JwtClaimsConstant.EMP_ID).toString()),
+                "admin", "admin", null, null);
+    }
+
+    private static String token(String secretKey, Long id, String userType) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtClaimsConstant.EMP_ID, id);
+        claims.put(JwtClaimsConstant.USER_ID, id);
+        claims.put(JwtClaimsConstant.USER_TYPE, userType);
+        return JwtUtil.createJWT(secretKey, 60 * 60 * 1000L, claims);
+    }
+}
@@ -0,0 +1,117 @@
+package com.sky.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * TwoTierCache测试：Redis中格式不正确的值按未命中处理并删除；
+ * Redis不可用期间删除失败的缓存在Redis恢复后、再次读取前整体删除
+ */
+public class TwoTierCacheTest {
+
+    private static final String HASH_KEY = TwoTierCacheManager.KEY_PREFIX + "test";
+
+    private StringRedisTemplate stringRedisTemplate;
+    private HashOperations<String, Object, Object> hashOperations;
+    private TwoTierCacheManager manager;
+    private TwoTierCache<String> cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        doReturn(hashOperations).when(stringRedisTemplate).opsForHash();
+
+        manager = new TwoTierCacheManager();
+        ReflectionTestUtils.setField(manager, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(manager, "redisRetryIntervalMillis", 0L);
+        cache = manager.create("test", String.class, 100, Duration.ofMillis(1), Duration.ofMinutes(10));
+    }
+
+    @Test
+    public void malformedRedisValueIsMissAndDeleted() {
+        when(hashOperations.get(HASH_KEY, "a")).thenReturn("not-a-timestamp|\"stale\"");
+
+        assertThat(cache.get("a", this::load)).isEqualTo("loaded");
+
+        assertThat(loads.get()).isEqualTo(1);
+        verify(hashOperations).delete(HASH_KEY, "a");
+    }
+
+    @Test
+    public void malformedRedisValueInBatchIsMissAndDeleted() {
+        long expireAt = System.currentTimeMillis() + 60000;
+        when(hashOperations.multiGet(eq(HASH_KEY), anyList()))
+                .thenReturn(Arrays.asList(expireAt + "|\"cached\"", "garbage"));
+
+        Map<String, String> result = cache.getAll(Arrays.asList("a", "b"), missing -> {
+            assertThat(missing).containsExactly("b");
+            return Collections.singletonMap("b", "loaded");
+        });
+
+        assertThat(result).containsEntry("a", "cached").containsEntry("b", "loaded");
+        verify(hashOperations).delete(HASH_KEY, "b");
+        verify(hashOperations, never()).delete(HASH_KEY, "a");
+    }
+
+    @Test
+    public void failedEvictionIsReplayedBeforeNextRedisRead() throws Exception {
+        doThrow(new RedisConnectionFailureException("down")).when(hashOperations).delete(HASH_KEY, "a");
+        cache.evict("a");
+
+        // Redis恢复后：读取前先整体删除该缓存，再读Redis
+        Thread.sleep(5);
+        assertThat(cache.get("a", this::load)).isEqualTo("loaded");
+
+        InOrder order = inOrder(stringRedisTemplate, hashOperations);
+        order.verify(stringRedisTemplate).delete(HASH_KEY);
+        order.verify(hashOperations).get(HASH_KEY, "a");
+
+        // 之后不再重复删除
+        long expireAt = System.currentTimeMillis() + 60000;
+        when(hashOperations.get(HASH_KEY, "b")).thenReturn(expireAt + "|\"cached\"");
+        assertThat(cache.get("b", this::load)).isEqualTo("cached");
+        verify(stringRedisTemplate).delete(HASH_KEY);
+    }
+
+    @Test
+    public void replayFailureKeepsRedisReadsOff() {
+        doThrow(new RedisConnectionFailureException("down")).when(stringRedisTemplate).delete(anyString());
+        cache.evictAll();
+
+        assertThat(cache.get("a", this::load)).isEqualTo("loaded");
+
+        verify(hashOperations, never()).get(any(), any());
+    }
+
+    private String load() {
+        loads.incrementAndGet();
+        return "loaded";
+    }
+}
@@ -0,0 +1,190 @@
+package com.sky.chatbot;
+
+import com.sky.cache.TwoTierCacheManager;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * QwenGateway测试：qwen.api.base-url 指向本地桩服务，
+ * 验证响应缓存命中、相同提示词的并发合并以及耗时/token统计
+ */
+public class QwenGatewayTest {
+
+    private static final String RESPONSE_BODY = "{\"choices\":[{\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"```json\\n{\\\"answer\\\":\\\"ok\\\"}\\n```\"}}],"
+            + "\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":5,\"total_tokens\":17}}";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final AtomicInteger upstreamHits = new AtomicInteger();
+    private final AtomicReference<String> authorization = new AtomicReference<>();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private volatile int responseStatus = 200;
+
+    private QwenGateway gateway;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", exchange -> {
+            upstreamHits.incrementAndGet();
+            authorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read() != -1) {
+                    // 读完请求体
+                }
+            }
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = (responseStatus == 200 ? RESPONSE_BODY : "{\"error\":\"stub\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(responseStatus, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        // Redis模板为桩对象，调用失败后缓存管理器只使用本地缓存
+        TwoTierCacheManager cacheManager = new TwoTierCacheManager();
+        ReflectionTestUtils.setField(cacheManager, "stringRedisTemplate", Mockito.mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(cacheManager, "redisRetryIntervalMillis", 60000L);
+
+        gateway = new QwenGateway();
+        ReflectionTestUtils.setField(gateway, "apiKey", "test-key");
+        ReflectionTestUtils.setField(gateway, "baseUrl", "http://127.0.0.1:" + server.getAddress().getPort() + "/v1");
+        ReflectionTestUtils.setField(gateway, "model", "qwen-test");
+        ReflectionTestUtils.setField(gateway, "timeout", 5000);
+        ReflectionTestUtils.setField(gateway, "maxTokens", 200);
+        ReflectionTestUtils.setField(gateway, "temperature", 0.7);
+        ReflectionTestUtils.setField(gateway, "cacheMaxSize", 100);
+        ReflectionTestUtils.setField(gateway, "cacheTtlSeconds", 60L);
+        ReflectionTestUtils.setField(gateway, "cacheManager", cacheManager);
+        gateway.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentIdenticalPromptsShareOneUpstreamCall() throws Exception {
+        int threads = 8;
+        release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(callers.submit(() -> gateway.complete("推荐一个塔斯马尼亚一日游")));
+            }
+
+            // 上游被阻塞期间，其余请求都应合并到第一个请求上
+            long deadline = System.currentTimeMillis() + 5000;
+            while (stat("coalesced") < threads - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(stat("coalesced")).isEqualTo(threads - 1);
+            assertThat(stat("inFlight")).isEqualTo(1);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("{\"answer\":\"ok\"}");
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        assertThat(upstreamHits.get()).isEqualTo(1);
+        assertThat(authorization.get()).isEqualTo("Bearer test-key");
+
+        Map<String, Object> stats = gateway.stats();
+        assertThat(stats.get("model")).isEqualTo("qwen-test");
+        assertThat(stat("requests")).isEqualTo(threads);
+        assertThat(stat("upstreamCalls")).isEqualTo(1);
+        assertThat(stat("cacheHits")).isEqualTo(0);
+        assertThat(stat("inFlight")).isEqualTo(0);
+        assertThat(stat("failures")).isEqualTo(0);
+        assertThat(stat("promptTokens")).isEqualTo(12);
+        assertThat(stat("completionTokens")).isEqualTo(5);
+        assertThat(((Number) stats.get("averageUpstreamMillis")).doubleValue()).isGreaterThan(0);
+        assertThat(((Number) stats.get("maxUpstreamMillis")).doubleValue())
+                .isGreaterThanOrEqualTo(((Number) stats.get("averageUpstreamMillis")).doubleValue());
+
+        // 合并完成后结果已进入缓存，再次请求不访问上游
+        assertThat(gateway.complete("推荐一个塔斯马尼亚一日游")).isEqualTo("{\"answer\":\"ok\"}");
+        assertThat(upstreamHits.get()).isEqualTo(1);
+        assertThat(stat("requests")).isEqualTo(threads + 1);
+        assertThat(stat("cacheHits")).isEqualTo(1);
+        assertThat(stat("promptTokens")).isEqualTo(12);
+    }
+
+    @Test
+    public void repeatedPromptIsServedFromCache() {
+        assertThat(gateway.complete("霍巴特有哪些景点")).isEqualTo("{\"answer\":\"ok\"}");
+        assertThat(gateway.complete("朗塞斯顿有哪些景点")).isEqualTo("{\"answer\":\"ok\"}");
+        assertThat(upstreamHits.get()).isEqualTo(2);
+        assertThat(stat("cacheHits")).isEqualTo(0);
+
+        assertThat(gateway.complete("霍巴特有哪些景点")).isEqualTo("{\"answer\":\"ok\"}");
+        assertThat(gateway.complete("霍巴特有哪些景点")).isEqualTo("{\"answer\":\"ok\"}");
+        assertThat(upstreamHits.get()).isEqualTo(2);
+        assertThat(stat("requests")).isEqualTo(4);
+        assertThat(stat("upstreamCalls")).isEqualTo(2);
+        assertThat(stat("cacheHits")).isEqualTo(2);
+        assertThat(stat("coalesced")).isEqualTo(0);
+        assertThat(stat("promptTokens")).isEqualTo(24);
+        assertThat(stat("completionTokens")).isEqualTo(10);
+    }
+
+    @Test
+    public void upstreamFailureIsCountedAndNotCached() {
+        responseStatus = 500;
+        assertThatThrownBy(() -> gateway.complete("酒杯湾怎么去"))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("500");
+        assertThat(stat("failures")).isEqualTo(1);
+
+        responseStatus = 200;
+        assertThat(gateway.complete("酒杯湾怎么去")).isEqualTo("{\"answer\":\"ok\"}");
+        assertThat(upstreamHits.get()).isEqualTo(2);
+        assertThat(stat("upstreamCalls")).isEqualTo(2);
+        assertThat(stat("failures")).isEqualTo(1);
+        assertThat(stat("inFlight")).isEqualTo(0);
+    }
+
+    private long stat(String name) {
+        return ((Number) gateway.stats().get(name)).longValue();
+    }
+}
@@ -0,0 +1,155 @@
+package com.sky.interceptor;
+
+import com.sky.cache.JwtTokenCache;
+import com.sky.constant.JwtClaimsConstant;
+import com.sky.context.BaseContext;
+import com.sky.properties.JwtProperties;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 管理后台JWT拦截器每个请求的开销：
+ * parseEveryRequest 为原来的做法（从Cookie取token → 校验签名并解析claims → 逐项写入BaseContext），
+ * cachedPreHandle 为现在的 JwtTokenAdminInterceptor.preHandle（经 JwtTokenCache，命中时只做一次SHA-256和一次Map查找）。
+ * Redis模板为桩对象，只在缓存未命中时查询注销记录。
+ * 运行：执行 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class JwtInterceptorBenchmark {
+
+    private static final String ADMIN_SECRET = "benchmark-admin-secret";
+    private static final String[] ADMIN_TOKEN_COOKIES = {"adminToken", "adminAuthToken", "admin_token"};
+
+    private JwtProperties jwtProperties;
+    private JwtTokenAdminInterceptor interceptor;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private HandlerMethod handler;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.sky"))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        jwtProperties = new JwtProperties();
+        jwtProperties.setAdminSecretKey(ADMIN_SECRET);
+        jwtProperties.setAdminTtl(2 * 60 * 60 * 1000L);
+        jwtProperties.setAdminTokenName("token");
+
+        JwtTokenCache jwtTokenCache = new JwtTokenCache();
+        ReflectionTestUtils.setField(jwtTokenCache, "jwtProperties", jwtProperties);
+        ReflectionTestUtils.setField(jwtTokenCache, "stringRedisTemplate",
+                Mockito.mock(StringRedisTemplate.class, Mockito.withSettings().stubOnly()));
+        ReflectionTestUtils.setField(jwtTokenCache, "maxEntries", 20000);
+
+        interceptor = new JwtTokenAdminInterceptor();
+        ReflectionTestUtils.setField(interceptor, "jwtProperties", jwtProperties);
+        ReflectionTestUtils.setField(interceptor, "jwtTokenCache", jwtTokenCache);
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtClaimsConstant.EMP_ID, 1L);
+        claims.put(JwtClaimsConstant.USERNAME, "admin");
+        claims.put(JwtClaimsConstant.USER_TYPE, "admin");
+        String token = JwtUtil.createJWT(ADMIN_SECRET, jwtProperties.getAdminTtl(), claims);
+
+        request = new MockHttpServletRequest("GET", "/admin/orders/page");
+        request.setCookies(new Cookie("JSESSIONID", "benchmark"), new Cookie("adminToken", token));
+        response = new MockHttpServletResponse();
+        handler = new HandlerMethod(this, JwtInterceptorBenchmark.class.getMethod("cachedPreHandle"));
+
+        // 两种做法都必须认证通过并得到相同的上下文
+        check(parseEveryRequest(), "parseEveryRequest");
+        check(cachedPreHandle(), "cachedPreHandle");
+    }
+
+    @Benchmark
+    public boolean parseEveryRequest() {
+        String token = tokenFromCookie(request);
+        if (token == null) {
+            return false;
+        }
+        Claims claims = JwtUtil.parseJWT(jwtProperties.getAdminSecretKey(), token);
+        long timeUntilExpiry = claims.getExpiration().getTime() / 1000 - System.currentTimeMillis() / 1000;
+        if (timeUntilExpiry < 5 * 60) {
+            return false;
+        }
+        Long empId = Long.valueOf(claims.get(JwtClaimsConstant.EMP_ID).toString());
+        String username = claims.get(JwtClaimsConstant.USERNAME) != null ?
+                claims.get(JwtClaimsConstant.USERNAME).toString() : null;
+        String userType = claims.get(JwtClaimsConstant.USER_TYPE) != null ?
+                claims.get(JwtClaimsConstant.USER_TYPE).toString() : "admin";
+        BaseContext.setCurrentId(empId);
+        BaseContext.setCurrentUsername(username);
+        BaseContext.setCurrentUserType(userType);
+        BaseContext.setCurrentAgentId(null);
+        BaseContext.setCurrentOperatorId(null);
+        return true;
+    }
+
+    @Benchmark
+    public boolean cachedPreHandle() throws Exception {
+        return interceptor.preHandle(request, response, handler);
+    }
+
+    private static String tokenFromCookie(HttpServletRequest request) {
+        for (String cookieName : ADMIN_TOKEN_COOKIES) {
+            for (Cookie cookie : request.getCookies()) {
+                if (cookieName.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 认证必须通过，且写入BaseContext的是token中的管理员
+     */
+    private static void check(boolean passed, String name) {
+        boolean applied = Long.valueOf(1L).equals(BaseContext.getCurrentId())
+                && "admin".equals(BaseContext.getCurrentUsername())
+                && "admin".equals(BaseContext.getCurrentUserType());
+        BaseContext.removeAll();
+        if (!passed || !applied) {
+            throw new IllegalStateException(name + " 认证结果不正确");
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtInterceptorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,171 @@
+package com.sky.lock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 加锁服务的公共语义测试，各实现的测试类继承本类并提供实例
+ */
+public abstract class AbstractKeyedLockServiceTest {
+
+    protected KeyedLockService lockService;
+
+    /**
+     * 创建待测的加锁服务
+     */
+    protected abstract KeyedLockService createLockService();
+
+    @BeforeEach
+    public void setUpLockService() {
+        lockService = createLockService();
+    }
+
+    @AfterEach
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void onlyOneHolderAtATime() throws Exception {
+        int threads = 4;
+        int rounds = 10;
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        int[] counter = new int[1];
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int acquired = 0;
+                    for (int i = 0; i < rounds; i++) {
+                        LockLease lease = lockService.tryLock("test:counter", 10000, 5000);
+                        if (lease == null) {
+                            continue;
+                        }
+                        try {
+                            maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                            // 非原子的读-改-写，未互斥时会丢失更新
+                            int value = counter[0];
+                            Thread.sleep(1);
+                            counter[0] = value + 1;
+                            acquired++;
+                        } finally {
+                            inside.decrementAndGet();
+                            lockService.release(lease);
+                        }
+                    }
+                    return acquired;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> result : results) {
+                total += result.get(60, TimeUnit.SECONDS);
+            }
+            assertThat(total).isEqualTo(threads * rounds);
+            assertThat(counter[0]).isEqualTo(threads * rounds);
+            assertThat(maxInside.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(stat("acquired")).isEqualTo(threads * rounds);
+        assertThat(stat("released")).isEqualTo(threads * rounds);
+    }
+
+    @Test
+    public void fencingTokensIncreaseOnEachAcquire() {
+        long previous = 0;
+        for (int i = 0; i < 3; i++) {
+            LockLease lease = lockService.tryLock("test:fence", 0, 5000);
+            assertThat(lease).isNotNull();
+            assertThat(lease.getFencingToken()).isGreaterThan(previous);
+            previous = lease.getFencingToken();
+            lease.close();
+        }
+    }
+
+    @Test
+    public void heldLockTimesOutOtherRequests() {
+        LockLease lease = lockService.tryLock("test:busy", 0, 5000);
+        assertThat(lease).isNotNull();
+
+        assertThat(lockService.tryLock("test:busy", 0, 5000)).isNull();
+        long start = System.nanoTime();
+        assertThat(lockService.tryLock("test:busy", 100, 5000)).isNull();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(90);
+        assertThat(stat("timeouts")).isEqualTo(2);
+        assertThat(stat("contended")).isEqualTo(2);
+
+        // 其他键不受影响
+        LockLease other = lockService.tryLock("test:other", 0, 5000);
+        assertThat(other).isNotNull();
+        other.close();
+        lease.close();
+    }
+
+    @Test
+    public void expiredLeaseIsTakenOverAndCannotReleaseNewHolder() throws Exception {
+        LockLease first = lockService.tryLock("test:expire", 0, 50);
+        assertThat(first).isNotNull();
+        assertThat(lockService.isHeld(first)).isTrue();
+        Thread.sleep(120);
+
+        LockLease second = lockService.tryLock("test:expire", 0, 5000);
+        assertThat(second).isNotNull();
+        assertThat(second.getFencingToken()).isGreaterThan(first.getFencingToken());
+        assertThat(lockService.isHeld(first)).isFalse();
+        assertThat(lockService.isHeld(second)).isTrue();
+
+        // 旧持有者释放时不能删掉新持有者的锁
+        lockService.release(first);
+        assertThat(stat("releaseMissed")).isEqualTo(1);
+        assertThat(lockService.isHeld(second)).isTrue();
+        assertThat(lockService.tryLock("test:expire", 0, 5000)).isNull();
+
+        lockService.release(second);
+        assertThat(lockService.isHeld(second)).isFalse();
+    }
+
+    @Test
+    public void releaseAfterTransactionWaitsForCompletion() {
+        LockLease lease = lockService.tryLock("test:tx", 0, 5000);
+        assertThat(lockService.releaseAfterTransaction(lease)).isFalse();
+        assertThat(lockService.isHeld(lease)).isTrue();
+
+        TransactionSynchronizationManager.initSynchronization();
+        assertThat(lockService.releaseAfterTransaction(lease)).isTrue();
+        assertThat(lockService.isHeld(lease)).isTrue();
+        assertThat(lockService.tryLock("test:tx", 0, 5000)).isNull();
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        assertThat(lockService.isHeld(lease)).isFalse();
+        LockLease next = lockService.tryLock("test:tx", 0, 5000);
+        assertThat(next).isNotNull();
+        next.close();
+    }
+
+    protected long stat(String name) {
+        return ((Number) lockService.stats().get(name)).longValue();
+    }
+}
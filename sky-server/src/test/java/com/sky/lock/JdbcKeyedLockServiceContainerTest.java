@@ -0,0 +1,54 @@
+package com.sky.lock;
+
+import com.sky.mapper.DistributedLockMapper;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * 数据库加锁服务在真实MySQL上的测试：执行 DistributedLockMapper 中真实的 ON DUPLICATE KEY UPDATE 等SQL
+ * 和 create_distributed_lock.sql 建表脚本，事务由 DataSourceTransactionManager 管理。
+ * 需要Docker，没有Docker时跳过。
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class JdbcKeyedLockServiceContainerTest extends AbstractKeyedLockServiceTest {
+
+    @Container
+    private static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0");
+
+    private static DriverManagerDataSource dataSource;
+    private static DistributedLockMapper distributedLockMapper;
+
+    @BeforeAll
+    public static void setUpSchema() throws Exception {
+        dataSource = new DriverManagerDataSource(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword());
+        // 建表脚本在仓库根目录，测试在 sky-server 模块目录下运行
+        new ResourceDatabasePopulator(new FileSystemResource("../create_distributed_lock.sql")).execute(dataSource);
+
+        SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(DistributedLockMapper.class);
+        distributedLockMapper = new SqlSessionTemplate(sqlSessionFactory).getMapper(DistributedLockMapper.class);
+    }
+
+    @Override
+    protected KeyedLockService createLockService() {
+        new JdbcTemplate(dataSource).update("DELETE FROM distributed_lock");
+        JdbcKeyedLockService service = new JdbcKeyedLockService();
+        ReflectionTestUtils.setField(service, "distributedLockMapper", distributedLockMapper);
+        ReflectionTestUtils.setField(service, "transactionManager", new DataSourceTransactionManager(dataSource));
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,82 @@
+package com.sky.lock;
+
+import com.sky.mapper.DistributedLockMapper;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 数据库加锁服务测试，distributed_lock 表由内存实现代替（按 DistributedLockMapper 中的SQL语义）
+ */
+public class JdbcKeyedLockServiceTest extends AbstractKeyedLockServiceTest {
+
+    @Override
+    protected KeyedLockService createLockService() {
+        JdbcKeyedLockService service = new JdbcKeyedLockService();
+        ReflectionTestUtils.setField(service, "distributedLockMapper", new InMemoryDistributedLockMapper());
+        ReflectionTestUtils.setField(service, "transactionManager", Mockito.mock(PlatformTransactionManager.class));
+        service.init();
+        return service;
+    }
+
+    /**
+     * 每个键一行：持有者、fencing token、到期时间（毫秒）
+     */
+    private static class InMemoryDistributedLockMapper implements DistributedLockMapper {
+
+        private final Map<String, Object[]> rows = new HashMap<>();
+
+        @Override
+        public synchronized void acquire(String key, String owner, long leaseMicros) {
+            long now = System.currentTimeMillis();
+            Object[] row = rows.get(key);
+            if (row == null) {
+                rows.put(key, new Object[]{owner, 1L, now + leaseMicros / 1000});
+            } else if ((Long) row[2] <= now) {
+                row[0] = owner;
+                row[1] = (Long) row[1] + 1;
+                row[2] = now + leaseMicros / 1000;
+            }
+        }
+
+        @Override
+        public synchronized Map<String, Object> getHolder(String key) {
+            Object[] row = rows.get(key);
+            if (row == null) {
+                return null;
+            }
+            Map<String, Object> holder = new HashMap<>();
+            holder.put("owner", row[0]);
+            holder.put("fencing_token", row[1]);
+            return holder;
+        }
+
+        @Override
+        public synchronized int release(String key, String owner) {
+            long now = System.currentTimeMillis();
+            Object[] row = rows.get(key);
+            if (row != null && owner.equals(row[0]) && (Long) row[2] > now) {
+                row[2] = now;
+                return 1;
+            }
+            return 0;
+        }
+
+        @Override
+        public synchronized int countHeld(String key, String owner) {
+            Object[] row = rows.get(key);
+            return row != null && owner.equals(row[0]) && (Long) row[2] > System.currentTimeMillis() ? 1 : 0;
+        }
+
+        @Override
+        public synchronized int deleteExpiredBefore(int hours) {
+            long cutoff = System.currentTimeMillis() - hours * 3_600_000L;
+            int before = rows.size();
+            rows.values().removeIf(row -> (Long) row[2] < cutoff);
+            return before - rows.size();
+        }
+    }
+}
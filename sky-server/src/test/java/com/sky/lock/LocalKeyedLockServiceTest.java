@@ -0,0 +1,21 @@
+package com.sky.lock;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 进程内加锁服务测试
+ */
+public class LocalKeyedLockServiceTest extends AbstractKeyedLockServiceTest {
+
+    @Override
+    protected KeyedLockService createLockService() {
+        return new LocalKeyedLockService();
+    }
+
+    @Test
+    public void statsReportType() {
+        assertThat(lockService.stats().get("type")).isEqualTo("local");
+    }
+}
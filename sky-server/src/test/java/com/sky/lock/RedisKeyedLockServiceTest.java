@@ -0,0 +1,82 @@
+package com.sky.lock;
+
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyString;
+
+/**
+ * Redis加锁服务测试，加锁/释放脚本由内存实现代替（按脚本中的命令语义）
+ */
+public class RedisKeyedLockServiceTest extends AbstractKeyedLockServiceTest {
+
+    @Override
+    protected KeyedLockService createLockService() {
+        RedisKeyedLockService service = new RedisKeyedLockService();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", new InMemoryScriptRedisTemplate());
+        ReflectionTestUtils.setField(service, "fenceTtlHours", 24L);
+        return service;
+    }
+
+    /**
+     * 只实现加锁服务用到的 execute(脚本) 和 opsForValue().get
+     */
+    private static class InMemoryScriptRedisTemplate extends StringRedisTemplate {
+
+        private final Map<String, String> values = new HashMap<>();
+        private final Map<String, Long> expireAt = new HashMap<>();
+        private final ValueOperations<String, String> valueOperations;
+
+        @SuppressWarnings("unchecked")
+        InMemoryScriptRedisTemplate() {
+            valueOperations = Mockito.mock(ValueOperations.class);
+            Mockito.when(valueOperations.get(anyString())).thenAnswer(invocation -> get(invocation.getArgument(0)));
+        }
+
+        @Override
+        public ValueOperations<String, String> opsForValue() {
+            return valueOperations;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public synchronized <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+            String lockKey = keys.get(0);
+            if (script.getScriptAsString().contains("'SET'")) {
+                // SET NX PX，成功时 INCR fencing token
+                if (get(lockKey) != null) {
+                    return (T) Long.valueOf(0);
+                }
+                values.put(lockKey, (String) args[0]);
+                expireAt.put(lockKey, System.currentTimeMillis() + Long.parseLong((String) args[1]));
+                String fenceKey = keys.get(1);
+                long token = values.containsKey(fenceKey) ? Long.parseLong(values.get(fenceKey)) + 1 : 1;
+                values.put(fenceKey, String.valueOf(token));
+                return (T) Long.valueOf(token);
+            }
+            // GET 比较持有者后 DEL
+            if (args[0].equals(get(lockKey))) {
+                values.remove(lockKey);
+                expireAt.remove(lockKey);
+                return (T) Long.valueOf(1);
+            }
+            return (T) Long.valueOf(0);
+        }
+
+        private synchronized String get(String key) {
+            Long expire = expireAt.get(key);
+            if (expire != null && expire <= System.currentTimeMillis()) {
+                values.remove(key);
+                expireAt.remove(key);
+            }
+            return values.get(key);
+        }
+    }
+}
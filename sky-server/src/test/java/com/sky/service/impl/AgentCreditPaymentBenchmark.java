@@ -0,0 +1,290 @@
+package com.sky.service.impl;
+
+import com.sky.dto.CreditPaymentDTO;
+import com.sky.entity.Agent;
+import com.sky.entity.CreditTransaction;
+import com.sky.mapper.AgentCreditMapper;
+import com.sky.mapper.AgentMapper;
+import com.sky.mapper.CreditTransactionMapper;
+import com.sky.vo.CreditPaymentResultVO;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * 单个热点代理商的并发信用支付基准：
+ * optimisticRetry 为原来的做法（读取余额 → 计算 → 按版本号更新，冲突时等待 50/100/150ms 重试，最多3次），
+ * conditionalDeduct 为现在的 AgentCreditServiceImpl.payWithCredit（一条条件UPDATE扣款）。
+ * agent_credit 行由内存实现代替：更新时取得行锁并持有到事务提交，每条SQL和提交各模拟一次数据库往返（roundTripMicros）。
+ * 原来的重试在同一事务内，可重复读隔离级别下重试读到的仍是旧快照；这里每次重试都读最新提交，对旧做法是偏乐观的估计。
+ * 除吞吐量外，paid/failed/conflicts 计数给出成功支付、重试用尽失败和版本冲突的速率。
+ * 运行：执行 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(8)
+public class AgentCreditPaymentBenchmark {
+
+    private static final Long AGENT_ID = 1L;
+    private static final BigDecimal AMOUNT = new BigDecimal("100.00");
+    private static final int MAX_RETRIES = 3;
+
+    /**
+     * 模拟的一次数据库往返耗时（微秒）
+     */
+    @Param({"200"})
+    public long roundTripMicros;
+
+    private CreditRow row;
+    private AgentCreditServiceImpl agentCreditService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.sky"))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+
+        row = new CreditRow(TimeUnit.MICROSECONDS.toNanos(roundTripMicros));
+        Agent agent = Agent.builder().id(AGENT_ID).username("hotagent").build();
+        AtomicLong transactionIds = new AtomicLong();
+
+        AgentMapper agentMapper = Mockito.mock(AgentMapper.class, Mockito.withSettings().stubOnly());
+        when(agentMapper.getById(anyLong())).thenAnswer(invocation -> {
+            row.roundTrip();
+            return agent;
+        });
+        AgentCreditMapper agentCreditMapper = Mockito.mock(AgentCreditMapper.class, Mockito.withSettings().stubOnly());
+        when(agentCreditMapper.deductCredit(anyLong(), any(BigDecimal.class)))
+                .thenAnswer(invocation -> row.deduct(invocation.getArgument(1)));
+        when(agentCreditMapper.getCreditBalanceByAgentId(anyInt()))
+                .thenAnswer(invocation -> row.availableInTransaction());
+        CreditTransactionMapper creditTransactionMapper =
+                Mockito.mock(CreditTransactionMapper.class, Mockito.withSettings().stubOnly());
+        doAnswer(invocation -> {
+            row.roundTrip();
+            ((CreditTransaction) invocation.getArgument(0)).setId(transactionIds.incrementAndGet());
+            return null;
+        }).when(creditTransactionMapper).insert(any(CreditTransaction.class));
+
+        agentCreditService = new AgentCreditServiceImpl();
+        ReflectionTestUtils.setField(agentCreditService, "agentMapper", agentMapper);
+        ReflectionTestUtils.setField(agentCreditService, "agentCreditMapper", agentCreditMapper);
+        ReflectionTestUtils.setField(agentCreditService, "creditTransactionMapper", creditTransactionMapper);
+    }
+
+    @Benchmark
+    public CreditPaymentResultVO conditionalDeduct(PaymentCounters counters) {
+        try {
+            CreditPaymentResultVO result = agentCreditService.payWithCredit(AGENT_ID, paymentRequest());
+            counters.paid++;
+            return result;
+        } catch (RuntimeException e) {
+            counters.failed++;
+            return null;
+        } finally {
+            row.commit();
+        }
+    }
+
+    @Benchmark
+    public CreditPaymentResultVO optimisticRetry(PaymentCounters counters) throws InterruptedException {
+        for (int retry = 0; ; retry++) {
+            try {
+                Balance current = row.read();
+                if (current.available().compareTo(AMOUNT) < 0) {
+                    counters.failed++;
+                    return null;
+                }
+                row.roundTrip(); // agentMapper.getById（生成交易编号）
+                BigDecimal deposit = current.depositBalance;
+                BigDecimal used = current.usedCredit;
+                if (deposit.compareTo(AMOUNT) >= 0) {
+                    deposit = deposit.subtract(AMOUNT);
+                } else {
+                    used = used.add(AMOUNT.subtract(deposit));
+                    deposit = BigDecimal.ZERO;
+                }
+                if (row.updateWithVersion(current.version, used, deposit)) {
+                    row.roundTrip(); // creditTransactionMapper.insert
+                    counters.paid++;
+                    return CreditPaymentResultVO.builder()
+                            .amount(AMOUNT)
+                            .balanceBefore(current.available())
+                            .balanceAfter(current.available().subtract(AMOUNT))
+                            .paymentStatus("paid")
+                            .build();
+                }
+                counters.conflicts++;
+            } finally {
+                row.commit();
+            }
+            if (retry >= MAX_RETRIES) {
+                counters.failed++;
+                return null;
+            }
+            Thread.sleep(50L * (retry + 1));
+        }
+    }
+
+    private static CreditPaymentDTO paymentRequest() {
+        CreditPaymentDTO dto = new CreditPaymentDTO();
+        dto.setBookingId(1L);
+        dto.setAmount(AMOUNT);
+        return dto;
+    }
+
+    /**
+     * 每个线程的支付结果计数，JMH按速率输出
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class PaymentCounters {
+        public long paid;
+        public long failed;
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            paid = 0;
+            failed = 0;
+            conflicts = 0;
+        }
+    }
+
+    /**
+     * agent_credit 中的一行：读取不加锁，读到最近一次提交的值；更新取得行锁，持有到提交
+     */
+    static class CreditRow {
+        private final ReentrantLock rowLock = new ReentrantLock();
+        private final long roundTripNanos;
+        private volatile Balance committed = new Balance(new BigDecimal("1000000000000"),
+                BigDecimal.ZERO, new BigDecimal("5000"), 0);
+        private Balance pending;
+
+        CreditRow(long roundTripNanos) {
+            this.roundTripNanos = roundTripNanos;
+        }
+
+        void roundTrip() {
+            if (roundTripNanos > 0) {
+                LockSupport.parkNanos(roundTripNanos);
+            }
+        }
+
+        Balance read() {
+            roundTrip();
+            return committed;
+        }
+
+        /**
+         * UPDATE ... WHERE version = #{version}
+         */
+        boolean updateWithVersion(int version, BigDecimal usedCredit, BigDecimal depositBalance) {
+            roundTrip();
+            rowLock.lock();
+            Balance current = committed;
+            if (current.version != version) {
+                return false;
+            }
+            pending = new Balance(current.totalCredit, usedCredit, depositBalance, version + 1);
+            return true;
+        }
+
+        /**
+         * AgentCreditMapper.deductCredit：额度足够时扣款，预存余额优先
+         */
+        int deduct(BigDecimal amount) {
+            roundTrip();
+            rowLock.lock();
+            Balance current = committed;
+            if (current.available().compareTo(amount) < 0) {
+                return 0;
+            }
+            BigDecimal deposit = current.depositBalance;
+            BigDecimal used = current.usedCredit.add(amount.subtract(deposit).max(BigDecimal.ZERO));
+            deposit = deposit.subtract(amount).max(BigDecimal.ZERO);
+            pending = new Balance(current.totalCredit, used, deposit, current.version + 1);
+            return 1;
+        }
+
+        /**
+         * 本事务内读取：能看到自己未提交的更新
+         */
+        BigDecimal availableInTransaction() {
+            roundTrip();
+            Balance balance = rowLock.isHeldByCurrentThread() && pending != null ? pending : committed;
+            return balance.available();
+        }
+
+        /**
+         * 提交（或回滚未生效的更新）并释放行锁
+         */
+        void commit() {
+            if (!rowLock.isHeldByCurrentThread()) {
+                return;
+            }
+            roundTrip();
+            if (pending != null) {
+                committed = pending;
+                pending = null;
+            }
+            rowLock.unlock();
+        }
+    }
+
+    static class Balance {
+        final BigDecimal totalCredit;
+        final BigDecimal usedCredit;
+        final BigDecimal depositBalance;
+        final int version;
+
+        Balance(BigDecimal totalCredit, BigDecimal usedCredit, BigDecimal depositBalance, int version) {
+            this.totalCredit = totalCredit;
+            this.usedCredit = usedCredit;
+            this.depositBalance = depositBalance;
+            this.version = version;
+        }
+
+        BigDecimal available() {
+            return totalCredit.subtract(usedCredit).add(depositBalance);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AgentCreditPaymentBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,215 @@
+package com.sky.service.impl;
+
+import com.sky.entity.Agent;
+import com.sky.entity.ProductAgentDiscount;
+import com.sky.mapper.AgentMapper;
+import com.sky.mapper.ProductAgentDiscountMapper;
+import com.sky.service.EnhancedDiscountService;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量折扣计算基准：perItem 为原来控制器中的逐项计算（每项 getDiscountedPrice 查一次代理商，
+ * getAgentDiscountRate 经代理走 @Cacheable 缓存），batch 为 DiscountServiceImpl.calculateTourDiscountsBatch。
+ * 每次查询按 roundTripMicros 模拟一次数据库往返。
+ * 启动时先做等价性校验：没有产品折扣配置的项目两种算法结果一致，有配置的项目批量结果必须使用配置的折扣率。
+ * 运行：执行 main 方法
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class DiscountBatchBenchmark {
+
+    private static final int AGENTS = 3;
+    private static final int PRODUCTS = 50;
+
+    @Param({"10", "100"})
+    public int itemCount;
+
+    /**
+     * 模拟的一次数据库往返耗时（微秒）
+     */
+    @Param({"200"})
+    public long roundTripMicros;
+
+    private DiscountServiceImpl discountService;
+    private List<Map<String, Object>> requests;
+
+    /**
+     * 代理商 → (产品类型_产品ID → 折扣率)，每个代理商约五分之一的产品有配置
+     */
+    private final Map<Long, Map<String, BigDecimal>> productRates = new HashMap<>();
+
+    /**
+     * 代替 getAgentDiscountRate 上的 @Cacheable（原来控制器经代理调用，命中缓存时不查库）
+     */
+    private final Map<Long, BigDecimal> cachedAgentRates = new ConcurrentHashMap<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("com.sky"))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        long roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+        Random random = new Random(42);
+
+        AgentMapper agentMapper = Mockito.mock(AgentMapper.class, Mockito.withSettings().stubOnly());
+        when(agentMapper.getById(anyLong())).thenAnswer(invocation -> {
+            LockSupport.parkNanos(roundTripNanos);
+            Long agentId = invocation.getArgument(0);
+            return Agent.builder().id(agentId).discountRate(new BigDecimal("0.8" + agentId)).build();
+        });
+        for (long agentId = 1; agentId <= AGENTS; agentId++) {
+            Map<String, BigDecimal> rates = new HashMap<>();
+            for (long productId = 1; productId <= PRODUCTS; productId++) {
+                if (random.nextInt(5) == 0) {
+                    rates.put((productId % 2 == 0 ? "day_tour" : "group_tour") + "_" + productId,
+                            new BigDecimal("0.7" + random.nextInt(10)));
+                }
+            }
+            productRates.put(agentId, rates);
+        }
+        ProductAgentDiscountMapper productAgentDiscountMapper =
+                Mockito.mock(ProductAgentDiscountMapper.class, Mockito.withSettings().stubOnly());
+        when(productAgentDiscountMapper.findByAgentAndProductIds(anyLong(), anyCollection())).thenAnswer(invocation -> {
+            LockSupport.parkNanos(roundTripNanos);
+            Long agentId = invocation.getArgument(0);
+            Collection<Long> productIds = invocation.getArgument(1);
+            List<ProductAgentDiscount> discounts = new ArrayList<>();
+            for (Map.Entry<String, BigDecimal> entry : productRates.get(agentId).entrySet()) {
+                String[] key = entry.getKey().split("_(?=\\d+$)");
+                Long productId = Long.valueOf(key[1]);
+                if (productIds.contains(productId)) {
+                    discounts.add(ProductAgentDiscount.builder().productType(key[0]).productId(productId)
+                            .discountRate(entry.getValue()).isActive(1).build());
+                }
+            }
+            return discounts;
+        });
+
+        discountService = new DiscountServiceImpl();
+        ReflectionTestUtils.setField(discountService, "agentMapper", agentMapper);
+        ReflectionTestUtils.setField(discountService, "productAgentDiscountMapper", productAgentDiscountMapper);
+        ReflectionTestUtils.setField(discountService, "enhancedDiscountService",
+                Mockito.mock(EnhancedDiscountService.class, Mockito.withSettings().stubOnly()));
+
+        requests = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            long productId = 1 + random.nextInt(PRODUCTS);
+            Map<String, Object> request = new HashMap<>();
+            request.put("id", i);
+            request.put("tourId", productId);
+            request.put("tourType", productId % 2 == 0 ? "day_tour" : "group_tour");
+            request.put("originalPrice", String.valueOf(50 + random.nextInt(2000)) + ".99");
+            request.put("agentId", (long) (1 + random.nextInt(AGENTS)));
+            requests.add(request);
+        }
+        verifyEquivalence();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> perItem() {
+        List<Map<String, Object>> resultList = new ArrayList<>(requests.size());
+        for (Map<String, Object> request : requests) {
+            Integer id = Integer.valueOf(request.get("id").toString());
+            Long tourId = Long.valueOf(request.get("tourId").toString());
+            String tourType = (String) request.get("tourType");
+            BigDecimal originalPrice = new BigDecimal(request.get("originalPrice").toString());
+            Long agentId = Long.valueOf(request.get("agentId").toString());
+
+            BigDecimal discountedPrice = discountService.getDiscountedPrice(originalPrice, agentId);
+            BigDecimal discountRate = cachedAgentRates.computeIfAbsent(agentId, discountService::getAgentDiscountRate);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("id", id);
+            result.put("tourId", tourId);
+            result.put("tourType", tourType);
+            result.put("originalPrice", originalPrice);
+            result.put("discountedPrice", discountedPrice);
+            result.put("discountRate", discountRate);
+            result.put("savedAmount", originalPrice.subtract(discountedPrice));
+            resultList.add(result);
+        }
+        return resultList;
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> batch() {
+        return discountService.calculateTourDiscountsBatch(requests);
+    }
+
+    /**
+     * 有产品折扣配置的项目：批量结果使用配置的折扣率（逐项计算不使用配置）；其余项目：两种结果完全一致
+     */
+    private void verifyEquivalence() {
+        List<Map<String, Object>> perItem = perItem();
+        List<Map<String, Object>> batch = batch();
+        int overridden = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            Map<String, Object> request = requests.get(i);
+            Map<String, Object> expected = perItem.get(i);
+            Map<String, Object> actual = batch.get(i);
+            BigDecimal productRate = productRates.get((Long) request.get("agentId"))
+                    .get(request.get("tourType") + "_" + request.get("tourId"));
+            if (productRate != null) {
+                overridden++;
+                check(productRate.equals(actual.get("discountRate")) && Boolean.TRUE.equals(actual.get("enhancedMode")),
+                        "产品折扣配置未生效", i, expected, actual);
+                continue;
+            }
+            for (String field : new String[]{"id", "tourId", "tourType", "originalPrice",
+                    "discountedPrice", "discountRate", "savedAmount"}) {
+                check(Objects.equals(expected.get(field), actual.get(field)), "字段 " + field + " 不一致", i, expected, actual);
+            }
+        }
+        check(overridden > 0 || itemCount < 10, "没有覆盖到产品折扣配置", -1, null, null);
+    }
+
+    private static void check(boolean condition, String message, int index,
+                              Map<String, Object> expected, Map<String, Object> actual) {
+        if (!condition) {
+            throw new IllegalStateException("批量折扣与逐项计算不等价: " + message
+                    + "，第" + index + "项，逐项: " + expected + "，批量: " + actual);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DiscountBatchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,236 @@
+package com.sky.service.impl;
+
+import com.sky.entity.Agent;
+import com.sky.entity.ProductAgentDiscount;
+import com.sky.mapper.AgentMapper;
+import com.sky.mapper.ProductAgentDiscountMapper;
+import com.sky.service.EnhancedDiscountService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量折扣计算与原来逐项计算（控制器中逐项调用 getDiscountedPrice / getAgentDiscountRate）的等价性：
+ * 没有产品折扣配置的项目结果完全一致；有产品折扣配置的项目按配置的折扣率计算（原来的逐项计算不使用产品折扣配置）
+ */
+public class DiscountServiceImplBatchTest {
+
+    private static final String[] COMPARED_FIELDS = {
+            "id", "tourId", "tourType", "originalPrice", "discountedPrice", "discountRate", "savedAmount"};
+
+    private DiscountServiceImpl discountService;
+    private AgentMapper agentMapper;
+    private ProductAgentDiscountMapper productAgentDiscountMapper;
+
+    @BeforeEach
+    public void setUp() {
+        agentMapper = mock(AgentMapper.class);
+        productAgentDiscountMapper = mock(ProductAgentDiscountMapper.class);
+        when(agentMapper.getById(1L)).thenReturn(Agent.builder().id(1L).discountRate(new BigDecimal("0.85")).build());
+        when(agentMapper.getById(2L)).thenReturn(Agent.builder().id(2L).discountRate(new BigDecimal("0.90")).build());
+        // 代理商3没有设置折扣率，按默认0.9；代理商4不存在，不打折
+        when(agentMapper.getById(3L)).thenReturn(Agent.builder().id(3L).build());
+        when(productAgentDiscountMapper.findByAgentAndProductIds(eq(1L), anyCollection())).thenReturn(Arrays.asList(
+                discount("day_tour", 10L, "0.70"),
+                discount("group_tour", 10L, "0.75")));
+        when(productAgentDiscountMapper.findByAgentAndProductIds(eq(2L), anyCollection())).thenReturn(new ArrayList<>());
+        when(productAgentDiscountMapper.findByAgentAndProductIds(eq(3L), anyCollection())).thenReturn(new ArrayList<>());
+
+        discountService = new DiscountServiceImpl();
+        ReflectionTestUtils.setField(discountService, "agentMapper", agentMapper);
+        ReflectionTestUtils.setField(discountService, "productAgentDiscountMapper", productAgentDiscountMapper);
+        ReflectionTestUtils.setField(discountService, "enhancedDiscountService", mock(EnhancedDiscountService.class));
+    }
+
+    @Test
+    public void itemsWithoutProductDiscountMatchPerItemResults() {
+        List<Map<String, Object>> requests = Arrays.asList(
+                request(1, 11L, "day_tour", "199.99", 1L),
+                request(2, 12L, "group_tour", "1288", 2L),
+                request(3, 13L, "day_tour", "89.5", 3L),
+                request(4, 14L, "day_tour", "120", 4L),
+                request(5, 11L, "day_tour", "0.01", 2L));
+
+        List<Map<String, Object>> batch = discountService.calculateTourDiscountsBatch(requests);
+        List<Map<String, Object>> perItem = perItem(requests);
+
+        assertThat(batch).hasSize(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            assertSameFields(batch.get(i), perItem.get(i));
+            assertThat(batch.get(i).get("enhancedMode")).isEqualTo(false);
+        }
+    }
+
+    @Test
+    public void productDiscountTakesPrecedenceOverAgentRate() {
+        List<Map<String, Object>> requests = Arrays.asList(
+                request(1, 10L, "day_tour", "199.99", 1L),
+                request(2, 10L, "group_tour", "1000", 1L),
+                request(3, 11L, "day_tour", "199.99", 1L),
+                request(4, 10L, "day_tour", "199.99", 2L));
+
+        List<Map<String, Object>> batch = discountService.calculateTourDiscountsBatch(requests);
+        List<Map<String, Object>> perItem = perItem(requests);
+
+        // 按产品类型+产品ID匹配配置
+        assertPriced(batch.get(0), "0.70", "199.99", true);
+        assertPriced(batch.get(1), "0.75", "1000", true);
+        // 原来的逐项计算只用代理商折扣率
+        assertThat(perItem.get(0).get("discountRate")).isEqualTo(new BigDecimal("0.85"));
+        assertThat(perItem.get(1).get("discountRate")).isEqualTo(new BigDecimal("0.85"));
+
+        // 同一代理商没有配置的产品、其他代理商的同一产品：与逐项计算一致
+        assertPriced(batch.get(2), "0.85", "199.99", false);
+        assertSameFields(batch.get(2), perItem.get(2));
+        assertPriced(batch.get(3), "0.90", "199.99", false);
+        assertSameFields(batch.get(3), perItem.get(3));
+    }
+
+    @Test
+    public void lookupsAreMadeOncePerAgent() {
+        List<Map<String, Object>> requests = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            requests.add(request(i, 10L + i % 5, i % 2 == 0 ? "day_tour" : "group_tour", "100", 1L + i % 2));
+        }
+
+        discountService.calculateTourDiscountsBatch(requests);
+
+        verify(agentMapper, times(1)).getById(1L);
+        verify(agentMapper, times(1)).getById(2L);
+        verify(productAgentDiscountMapper, times(1)).findByAgentAndProductIds(eq(1L), anyCollection());
+        verify(productAgentDiscountMapper, times(1)).findByAgentAndProductIds(eq(2L), anyCollection());
+    }
+
+    @Test
+    public void productDiscountLookupFailureFallsBackToAgentRate() {
+        when(productAgentDiscountMapper.findByAgentAndProductIds(anyLong(), anyCollection()))
+                .thenThrow(new RuntimeException("数据库不可用"));
+        List<Map<String, Object>> requests = Arrays.asList(
+                request(1, 10L, "day_tour", "199.99", 1L),
+                request(2, 12L, "group_tour", "1288", 2L));
+
+        List<Map<String, Object>> batch = discountService.calculateTourDiscountsBatch(requests);
+        List<Map<String, Object>> perItem = perItem(requests);
+
+        for (int i = 0; i < requests.size(); i++) {
+            assertSameFields(batch.get(i), perItem.get(i));
+        }
+    }
+
+    @Test
+    public void malformedItemsKeepOriginalPrice() {
+        Map<String, Object> missingPrice = new HashMap<>();
+        missingPrice.put("id", 2);
+        missingPrice.put("tourId", 12L);
+        missingPrice.put("tourType", "day_tour");
+        missingPrice.put("agentId", 1L);
+        Map<String, Object> badAgent = request(3, 13L, "day_tour", "50", 1L);
+        badAgent.put("agentId", "abc");
+        List<Map<String, Object>> requests = Arrays.asList(request(1, 11L, "day_tour", "100", 1L), missingPrice, badAgent);
+
+        List<Map<String, Object>> batch = discountService.calculateTourDiscountsBatch(requests);
+        List<Map<String, Object>> perItem = perItem(requests);
+
+        assertSameFields(batch.get(0), perItem.get(0));
+        for (int i = 1; i < requests.size(); i++) {
+            for (String field : new String[]{"id", "originalPrice", "discountedPrice", "discountRate", "savedAmount"}) {
+                assertThat(batch.get(i).get(field)).as(field).isEqualTo(perItem.get(i).get(field));
+            }
+            assertThat((String) batch.get(i).get("error")).startsWith("计算折扣价格失败");
+        }
+    }
+
+    /**
+     * 原来控制器中的逐项计算
+     */
+    private List<Map<String, Object>> perItem(List<Map<String, Object>> requests) {
+        List<Map<String, Object>> resultList = new ArrayList<>();
+        for (Map<String, Object> request : requests) {
+            try {
+                Integer id = request.get("id") != null ? Integer.valueOf(request.get("id").toString()) : null;
+                Long tourId = request.get("tourId") != null ? Long.valueOf(request.get("tourId").toString()) : null;
+                String tourType = (String) request.get("tourType");
+                BigDecimal originalPrice = new BigDecimal(request.get("originalPrice").toString());
+                Long agentId = Long.valueOf(request.get("agentId").toString());
+
+                BigDecimal discountedPrice = discountService.getDiscountedPrice(originalPrice, agentId);
+                BigDecimal discountRate = discountService.getAgentDiscountRate(agentId);
+
+                Map<String, Object> result = new HashMap<>();
+                if (id != null) {
+                    result.put("id", id);
+                }
+                result.put("tourId", tourId);
+                result.put("tourType", tourType);
+                result.put("originalPrice", originalPrice);
+                result.put("discountedPrice", discountedPrice);
+                result.put("discountRate", discountRate);
+                result.put("savedAmount", originalPrice.subtract(discountedPrice));
+                resultList.add(result);
+            } catch (Exception e) {
+                Map<String, Object> errorResult = new HashMap<>();
+                if (request.get("id") != null) {
+                    errorResult.put("id", request.get("id"));
+                }
+                errorResult.put("error", "计算折扣价格失败: " + e.getMessage());
+                errorResult.put("originalPrice", request.get("originalPrice"));
+                errorResult.put("discountedPrice", request.get("originalPrice"));
+                errorResult.put("discountRate", BigDecimal.ONE);
+                errorResult.put("savedAmount", BigDecimal.ZERO);
+                resultList.add(errorResult);
+            }
+        }
+        return resultList;
+    }
+
+    private static void assertSameFields(Map<String, Object> actual, Map<String, Object> expected) {
+        for (String field : COMPARED_FIELDS) {
+            assertThat(actual.get(field)).as(field).isEqualTo(expected.get(field));
+        }
+    }
+
+    private static void assertPriced(Map<String, Object> result, String rate, String originalPrice, boolean enhanced) {
+        BigDecimal original = new BigDecimal(originalPrice);
+        BigDecimal discounted = original.multiply(new BigDecimal(rate)).setScale(2, RoundingMode.HALF_UP);
+        assertThat(result.get("discountRate")).isEqualTo(new BigDecimal(rate));
+        assertThat(result.get("discountedPrice")).isEqualTo(discounted);
+        assertThat(result.get("savedAmount")).isEqualTo(original.subtract(discounted));
+        assertThat(result.get("enhancedMode")).isEqualTo(enhanced);
+    }
+
+    private static Map<String, Object> request(Integer id, Long tourId, String tourType, String price, Long agentId) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("id", id);
+        request.put("tourId", tourId);
+        request.put("tourType", tourType);
+        request.put("originalPrice", price);
+        request.put("agentId", agentId);
+        return request;
+    }
+
+    private static ProductAgentDiscount discount(String productType, Long productId, String rate) {
+        return ProductAgentDiscount.builder()
+                .productType(productType)
+                .productId(productId)
+                .discountRate(new BigDecimal(rate))
+                .isActive(1)
+                .build();
+    }
+}
@@ -0,0 +1,229 @@
+package com.sky.service.impl;
+
+import com.sky.context.BaseContext;
+import com.sky.dto.CreditPaymentDTO;
+import com.sky.entity.TourBooking;
+import com.sky.exception.CustomException;
+import com.sky.lock.LocalKeyedLockService;
+import com.sky.lock.LockLease;
+import com.sky.mapper.AgentCreditMapper;
+import com.sky.mapper.BookingMapper;
+import com.sky.mapper.CreditTransactionMapper;
+import com.sky.mapper.PaymentAuditLogMapper;
+import com.sky.mapper.PaymentMapper;
+import com.sky.mapper.TourBookingMapper;
+import com.sky.service.AgentCreditService;
+import com.sky.service.NotificationService;
+import com.sky.service.TourBookingService;
+import com.sky.vo.CreditPaymentResultVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 信用额度支付的订单锁测试（使用进程内加锁服务）：
+ * 同一订单并发支付只扣款一次、有事务时锁在事务结束后才释放、扣款前租约失效时放弃扣款
+ */
+public class PaymentServiceImplLockTest {
+
+    private static final int BOOKING_ID = 101;
+    private static final long AGENT_ID = 7L;
+    private static final String LOCK_KEY = "payment:booking:" + BOOKING_ID;
+
+    private PaymentServiceImpl paymentService;
+    private LocalKeyedLockService lockService;
+    private AgentCreditService agentCreditService;
+    private TourBookingMapper tourBookingMapper;
+
+    /**
+     * 订单行的支付状态，payBooking 成功后变为 paid
+     */
+    private final AtomicReference<String> paymentStatus = new AtomicReference<>("unpaid");
+    private final AtomicInteger deducting = new AtomicInteger();
+    private final AtomicInteger maxDeducting = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        lockService = spy(new LocalKeyedLockService());
+        agentCreditService = mock(AgentCreditService.class);
+        tourBookingMapper = mock(TourBookingMapper.class);
+        PaymentMapper paymentMapper = mock(PaymentMapper.class);
+        TourBookingService tourBookingService = mock(TourBookingService.class);
+
+        TourBooking booking = TourBooking.builder()
+                .bookingId(BOOKING_ID)
+                .orderNumber("HT20261017000101")
+                .agentId((int) AGENT_ID)
+                .contactPerson("张三")
+                .build();
+        when(tourBookingMapper.getById(BOOKING_ID)).thenReturn(booking);
+        when(tourBookingMapper.getPaymentStatusForUpdate(BOOKING_ID)).thenAnswer(invocation -> paymentStatus.get());
+        when(tourBookingMapper.getOrderAmount(BOOKING_ID)).thenReturn(new BigDecimal("300.00"));
+        when(agentCreditService.payWithCredit(anyLong(), any(CreditPaymentDTO.class))).thenAnswer(invocation -> {
+            maxDeducting.accumulateAndGet(deducting.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return CreditPaymentResultVO.builder()
+                        .transactionId(1L)
+                        .bookingId((long) BOOKING_ID)
+                        .amount(new BigDecimal("300.00"))
+                        .paymentStatus("paid")
+                        .build();
+            } finally {
+                deducting.decrementAndGet();
+            }
+        });
+        when(paymentMapper.countCompletedAgentCreditPayments(anyInt())).thenReturn(0);
+        when(tourBookingService.payBooking(eq(BOOKING_ID), any())).thenAnswer(invocation -> {
+            paymentStatus.set("paid");
+            return true;
+        });
+
+        paymentService = new PaymentServiceImpl();
+        ReflectionTestUtils.setField(paymentService, "paymentMapper", paymentMapper);
+        ReflectionTestUtils.setField(paymentService, "bookingMapper", mock(BookingMapper.class));
+        ReflectionTestUtils.setField(paymentService, "agentCreditMapper", mock(AgentCreditMapper.class));
+        ReflectionTestUtils.setField(paymentService, "creditTransactionMapper", mock(CreditTransactionMapper.class));
+        ReflectionTestUtils.setField(paymentService, "tourBookingMapper", tourBookingMapper);
+        ReflectionTestUtils.setField(paymentService, "agentCreditService", agentCreditService);
+        ReflectionTestUtils.setField(paymentService, "tourBookingService", tourBookingService);
+        ReflectionTestUtils.setField(paymentService, "notificationService", mock(NotificationService.class));
+        ReflectionTestUtils.setField(paymentService, "paymentAuditLogMapper", mock(PaymentAuditLogMapper.class));
+        ReflectionTestUtils.setField(paymentService, "keyedLockService", lockService);
+        ReflectionTestUtils.setField(paymentService, "paymentLockWaitMillis", 5000L);
+        ReflectionTestUtils.setField(paymentService, "paymentLockLeaseMillis", 10000L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        BaseContext.removeAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void concurrentPaymentsForSameBookingDeductOnce() throws Exception {
+        int threads = 6;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    loginAsAgent();
+                    start.await();
+                    try {
+                        return paymentService.processCreditPayment(paymentRequest());
+                    } finally {
+                        BaseContext.removeAll();
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertThat(result.get(30, TimeUnit.SECONDS)).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(agentCreditService, times(1)).payWithCredit(eq(AGENT_ID), any(CreditPaymentDTO.class));
+        assertThat(maxDeducting.get()).isEqualTo(1);
+        assertThat(paymentStatus.get()).isEqualTo("paid");
+        assertThat(((Number) lockService.stats().get("acquired")).intValue()).isEqualTo(threads);
+        assertThat(((Number) lockService.stats().get("released")).intValue()).isEqualTo(threads);
+    }
+
+    @Test
+    public void lockIsReleasedOnlyAfterTransactionCompletes() {
+        loginAsAgent();
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertThat(paymentService.processCreditPayment(paymentRequest())).isTrue();
+
+        // 事务尚未结束：锁仍被持有，其他请求取不到
+        assertThat(lockService.tryLock(LOCK_KEY, 0, 1000)).isNull();
+        verify(lockService, never()).release(any(LockLease.class));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        verify(lockService, times(1)).release(any(LockLease.class));
+        LockLease next = lockService.tryLock(LOCK_KEY, 0, 1000);
+        assertThat(next).isNotNull();
+        next.close();
+    }
+
+    @Test
+    public void leaseLostBeforeDeductionSkipsPayment() {
+        loginAsAgent();
+        doReturn(false).when(lockService).isHeld(any(LockLease.class));
+
+        assertThatThrownBy(() -> paymentService.processCreditPayment(paymentRequest()))
+                .isInstanceOf(CustomException.class)
+                .hasMessageContaining("支付处理超时");
+
+        verify(lockService).isHeld(any(LockLease.class));
+        verify(agentCreditService, never()).payWithCredit(anyLong(), any(CreditPaymentDTO.class));
+        assertThat(paymentStatus.get()).isEqualTo("unpaid");
+        // 没有事务时在方法结束前释放
+        LockLease next = lockService.tryLock(LOCK_KEY, 0, 1000);
+        assertThat(next).isNotNull();
+        next.close();
+    }
+
+    @Test
+    public void lockTimeoutRejectsPaymentWithoutReadingStatus() {
+        loginAsAgent();
+        ReflectionTestUtils.setField(paymentService, "paymentLockWaitMillis", 50L);
+        LockLease holder = lockService.tryLock(LOCK_KEY, 0, 5000);
+        try {
+            assertThatThrownBy(() -> paymentService.processCreditPayment(paymentRequest()))
+                    .isInstanceOf(CustomException.class)
+                    .hasMessageContaining("正在支付处理中");
+        } finally {
+            holder.close();
+        }
+        verify(tourBookingMapper, never()).getPaymentStatusForUpdate(anyInt());
+        verify(agentCreditService, never()).payWithCredit(anyLong(), any(CreditPaymentDTO.class));
+    }
+
+    private void loginAsAgent() {
+        BaseContext.setContext(AGENT_ID, "agent7", "agent", AGENT_ID, null);
+    }
+
+    private CreditPaymentDTO paymentRequest() {
+        CreditPaymentDTO dto = new CreditPaymentDTO();
+        dto.setBookingId((long) BOOKING_ID);
+        return dto;
+    }
+}